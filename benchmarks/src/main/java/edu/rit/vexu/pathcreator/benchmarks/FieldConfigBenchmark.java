@@ -0,0 +1,28 @@
+package edu.rit.vexu.pathcreator.benchmarks;
+
+import edu.rit.vexu.pathcreator.FieldConfig;
+import javafx.geometry.Point2D;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The inch / pixel conversions run for every point and segment on every redraw.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldConfigBenchmark {
+
+    @Benchmark
+    public Point2D inchesToPixels(FieldState field) {
+        return FieldConfig.inchesToPixels(new Point2D(72.5, 36.25), field.fieldPane);
+    }
+
+    @Benchmark
+    public Point2D pixelsToInches(FieldState field) {
+        return FieldConfig.pixelsToInches(new Point2D(512.0, 300.0), field.fieldPane);
+    }
+}
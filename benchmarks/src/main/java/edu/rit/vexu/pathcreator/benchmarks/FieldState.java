@@ -0,0 +1,49 @@
+package edu.rit.vexu.pathcreator.benchmarks;
+
+import edu.rit.vexu.pathcreator.FieldConfig;
+import javafx.scene.layout.AnchorPane;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * A field pane sized like a typical window, with the default 144" field image scaled into it.
+ * The pane is never shown, so there is no layout or CSS, only the work the app does itself.
+ */
+@State(Scope.Thread)
+public class FieldState {
+
+    static final double PANE_WIDTH = 1000;
+    static final double PANE_HEIGHT = 700;
+
+    AnchorPane fieldPane;
+
+    @Setup
+    public void setUp() {
+        FieldConfig.LOADED_FIELD_WIDTH = 144;
+        FieldConfig.LOADED_FIELD_HEIGHT = 144;
+        FieldConfig.fieldImageScaledWidth = PANE_HEIGHT;
+        FieldConfig.fieldImageScaledHeight = PANE_HEIGHT;
+
+        fieldPane = new AnchorPane();
+        fieldPane.resize(PANE_WIDTH, PANE_HEIGHT);
+    }
+
+    /**
+     * Random waypoints on the field, as x, y (inches), angle (degrees), magnitude (inches) rows,
+     * the same values a user types into a HermitePointItem.
+     */
+    static double[][] randomWaypoints(int count, long seed) {
+        Random random = new Random(seed);
+        double[][] points = new double[count][4];
+        for (double[] p : points) {
+            p[0] = random.nextDouble() * FieldConfig.LOADED_FIELD_WIDTH;
+            p[1] = random.nextDouble() * FieldConfig.LOADED_FIELD_HEIGHT;
+            p[2] = random.nextDouble() * 360 - 180;
+            p[3] = 20 + random.nextDouble() * 60;
+        }
+        return points;
+    }
+}
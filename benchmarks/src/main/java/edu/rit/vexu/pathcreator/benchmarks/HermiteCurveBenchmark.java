@@ -0,0 +1,74 @@
+package edu.rit.vexu.pathcreator.benchmarks;
+
+import edu.rit.vexu.pathcreator.HermiteCurve;
+import edu.rit.vexu.pathcreator.SegmentCurve;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction and tangent getters / setters of the HermiteCurve node, rendering spline segments with the
+ * SegmentCurve node, and the spline math behind them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HermiteCurveBenchmark {
+
+    private HermiteCurve curve;
+    private HermiteSpline spline;
+    private final SegmentCurve segmentCurve = new SegmentCurve();
+    private final double[] out = new double[2];
+    private double t = 0.0;
+
+    @Setup
+    public void setUp() {
+        curve = new HermiteCurve(100, 100, 0.3, 250, 400, 300, -1.2, 200);
+        spline = new HermiteSpline();
+        spline.addKnot(100, 100, 0.3, 250);
+        spline.addKnot(400, 300, -1.2, 200);
+    }
+
+    @Benchmark
+    public HermiteCurve construct() {
+        return new HermiteCurve(100, 100, 0.3, 250, 400, 300, -1.2, 200);
+    }
+
+    @Benchmark
+    public double getTangents() {
+        return curve.getStartAngle() + curve.getStartMag() + curve.getEndAngle() + curve.getEndMag();
+    }
+
+    @Benchmark
+    public void setTangents() {
+        curve.setStartMag(240);
+        curve.setStartAngle(0.4);
+        curve.setEndMag(210);
+        curve.setEndAngle(-1.1);
+    }
+
+    @Benchmark
+    public SegmentCurve setSegment() {
+        segmentCurve.setSegment(spline, 0);
+        return segmentCurve;
+    }
+
+    @Benchmark
+    public void splineEvaluate(Blackhole bh) {
+        t = (t >= 1.0) ? 0.0 : t + 0.01;
+        spline.evaluate(0, t, out);
+        bh.consume(out[0]);
+        bh.consume(out[1]);
+    }
+
+    @Benchmark
+    public double splineCurvature() {
+        t = (t >= 1.0) ? 0.0 : t + 0.01;
+        return spline.curvature(0, t);
+    }
+}
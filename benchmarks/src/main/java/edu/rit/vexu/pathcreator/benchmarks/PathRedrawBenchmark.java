@@ -0,0 +1,165 @@
+package edu.rit.vexu.pathcreator.benchmarks;
+
+import edu.rit.vexu.pathcreator.FieldConfig;
+import edu.rit.vexu.pathcreator.SegmentCurve;
+import edu.rit.vexu.pathcreator.geometry.ArcLengthTable;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.trajectory.RobotLimits;
+import edu.rit.vexu.pathcreator.trajectory.TrajectoryGenerator;
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Translate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless versions of the work behind a redraw, at path sizes from a short route to a huge one.
+ * <p>
+ * {@link #drawPath()} and {@link #drawFullPath()} do what PathItem.drawPath and MainWindow.drawFullPath do to
+ * the field group, minus the text field parsing, and {@link #drawSinglePointEdit()} is the redraw after typing in
+ * one point. {@link #resize()} is what a window resize costs, which should not depend on the path size.
+ * The rest measure the path math that runs after each edit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathRedrawBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int waypoints;
+
+    private FieldState field;
+    private double[][] points;
+    private final Group fieldGroup = new Group();
+    private final Translate fieldTranslate = new Translate();
+    private final Scale fieldScale = new Scale();
+    private final Group pathGroup = new Group();
+    private final ArrayList<SegmentCurve> curves = new ArrayList<>();
+    private final Group lineGroup = new Group();
+    private final ArrayList<Line> lineList = new ArrayList<>();
+
+    private HermiteSpline fieldSpline;
+    private ArcLengthTable lengthTable;
+    private final TrajectoryGenerator generator = new TrajectoryGenerator();
+    private int editIndex = 0;
+
+    @Setup
+    public void setUp() {
+        field = new FieldState();
+        field.setUp();
+        points = FieldState.randomWaypoints(waypoints, 42);
+
+        fieldSpline = new HermiteSpline(waypoints);
+        for (double[] p : points)
+            fieldSpline.addKnot(p[0], p[1], Math.toRadians(p[2]), p[3]);
+        lengthTable = new ArcLengthTable(fieldSpline);
+
+        fieldGroup.getTransforms().addAll(fieldTranslate, fieldScale);
+        fieldGroup.getChildren().addAll(pathGroup, lineGroup);
+        field.fieldPane.getChildren().add(fieldGroup);
+        drawPath();
+    }
+
+    @Benchmark
+    public int drawPath() {
+        fieldSpline.setKnotCount(points.length);
+        for (int i = 0; i < points.length; i++)
+            setKnot(i);
+
+        int segments = points.length - 1;
+        while (curves.size() < segments) {
+            SegmentCurve hc = new SegmentCurve();
+            hc.setFill(Color.TRANSPARENT);
+            hc.setStroke(Color.DARKORANGE);
+            hc.setStrokeWidth(0.8);
+            curves.add(hc);
+            pathGroup.getChildren().add(hc);
+        }
+        for (int i = 0; i < segments; i++)
+            curves.get(i).setSegment(fieldSpline, i);
+        return pathGroup.getChildren().size();
+    }
+
+    @Benchmark
+    public int drawSinglePointEdit() {
+        // Typing in one point's text field only moves the two curves touching it
+        editIndex = (editIndex + 1) % points.length;
+        setKnot(editIndex);
+        if (editIndex > 0)
+            curves.get(editIndex - 1).setSegment(fieldSpline, editIndex - 1);
+        if (editIndex < curves.size())
+            curves.get(editIndex).setSegment(fieldSpline, editIndex);
+        return editIndex;
+    }
+
+    private void setKnot(int i) {
+        fieldSpline.setKnot(i, points[i][0], points[i][1], Math.toRadians(points[i][2]), points[i][3]);
+    }
+
+    @Benchmark
+    public double resize() {
+        // What MainWindow.centerFieldImage does to the field group, alternating between two window sizes
+        editIndex = (editIndex + 1) % points.length;
+        double h = FieldState.PANE_HEIGHT - (editIndex & 1);
+        fieldTranslate.setX((FieldState.PANE_WIDTH - h) / 2.0);
+        fieldTranslate.setY(0);
+        fieldScale.setX(h / FieldConfig.LOADED_FIELD_WIDTH);
+        fieldScale.setY(h / FieldConfig.LOADED_FIELD_HEIGHT);
+        return fieldGroup.localToParent(points[0][0], points[0][1]).getX();
+    }
+
+    @Benchmark
+    public int drawFullPath() {
+        int legs = points.length - 1;
+        while (lineList.size() < legs) {
+            Line l = new Line();
+            l.strokeProperty().set(Color.DARKORANGE);
+            l.strokeWidthProperty().set(0.8);
+            lineList.add(l);
+            lineGroup.getChildren().add(l);
+        }
+
+        for (int i = 0; i < legs; i++) {
+            Line l = lineList.get(i);
+            l.setStartX(points[i][0]);
+            l.setStartY(points[i][1]);
+            l.setEndX(points[i + 1][0]);
+            l.setEndY(points[i + 1][1]);
+        }
+        return lineGroup.getChildren().size();
+    }
+
+    @Benchmark
+    public double arcLengthBuild() {
+        return new ArcLengthTable(fieldSpline).getLength();
+    }
+
+    @Benchmark
+    public double arcLengthSingleEdit() {
+        // Nudge one point, like typing in one text field, and re-measure
+        editIndex = (editIndex + 1) % points.length;
+        double[] p = points[editIndex];
+        fieldSpline.setKnot(editIndex, p[0], p[1], Math.toRadians(p[2]), p[3] + (editIndex & 1));
+        lengthTable.update();
+        return lengthTable.getLength();
+    }
+
+    @Benchmark
+    public double trajectory() {
+        return generator.generate(lengthTable, RobotLimits.DEFAULT, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        field.fieldPane.getChildren().clear();
+        curves.clear();
+        lineList.clear();
+    }
+}
@@ -0,0 +1,163 @@
+package edu.rit.vexu.pathcreator;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs analysis of the paths off the FX thread, so heavy work never gets in the way of typing or dragging.
+ * <p>
+ * Each job belongs to a key, like the path it analyzes, and works on a snapshot taken when it was submitted.
+ * A newer job for the same key supersedes the older one: if the older one hasn't started, it's taken off the
+ * queue, and if it has, it's told it was cancelled, so it can stop early, and its result is dropped. Only the
+ * latest job of each key is ever delivered.
+ * <p>
+ * Jobs run on a small pool of daemon threads, leaving a core for the FX thread. Finished results are gathered
+ * and handed back on the FX thread together, in one {@link Platform#runLater(Runnable)} however many jobs
+ * finished, so a burst of results costs the UI one batch instead of one event each.
+ * <p>
+ * Set -Dvexpathcreator.debugCompute=true to print a line per batch with the number of jobs superseded.
+ * Submit and cancel from the FX thread only.
+ */
+public final class BackgroundCompute
+{
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final boolean DEBUG = Boolean.getBoolean("vexpathcreator.debugCompute");
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS,
+            0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), task -> {
+                Thread t = new Thread(task, "Background compute " + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.NORM_PRIORITY - 1);
+                return t;
+            });
+
+    // The latest job of each key, until it's delivered or superseded
+    private static final ConcurrentHashMap<Object, Job<?>> latest = new ConcurrentHashMap<>();
+    private static final ConcurrentLinkedQueue<Job<?>> finished = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean deliveryPending = new AtomicBoolean(false);
+
+    private static long supersededCount = 0;
+
+    private BackgroundCompute() { }
+
+    /**
+     * Compute something in the background, superseding the last job of the same key.
+     * @param key What the job is about, compared with equals
+     * @param work The work, run on a background thread. It's given a check for whether it was superseded,
+     *             and may return null to deliver nothing.
+     * @param onResult Called on the FX thread with the result, unless a newer job of the key came along first
+     * @param <T> The type of the result
+     */
+    public static <T> void submit(Object key, Function<BooleanSupplier, T> work, Consumer<T> onResult)
+    {
+        Job<T> job = new Job<>(key, work, onResult);
+        supersede(latest.put(key, job));
+        pool.execute(job);
+    }
+
+    /**
+     * Cancel the pending job of a key, if there is one, like when its path is deleted.
+     * @param key The key the job was submitted with
+     */
+    public static void cancel(Object key)
+    {
+        supersede(latest.remove(key));
+    }
+
+    /**
+     * @return The number of jobs that were cancelled before they could deliver
+     */
+    public static long getSupersededCount()
+    {
+        return supersededCount;
+    }
+
+    private static void supersede(Job<?> job)
+    {
+        if (job == null)
+            return;
+        job.cancelled = true;
+        pool.remove(job);
+        supersededCount++;
+    }
+
+    /**
+     * Called from the pool when a job finishes. The first result after a delivery schedules the next one.
+     */
+    private static void finish(Job<?> job)
+    {
+        finished.add(job);
+        if (deliveryPending.compareAndSet(false, true))
+            Platform.runLater(BackgroundCompute::deliver);
+    }
+
+    private static void deliver()
+    {
+        // Results finishing from here on schedule another delivery
+        deliveryPending.set(false);
+        ArrayList<Job<?>> batch = new ArrayList<>();
+        for (Job<?> job = finished.poll(); job != null; job = finished.poll())
+            if (!job.cancelled && latest.remove(job.key, job))
+                batch.add(job);
+
+        for (Job<?> job : batch)
+            job.deliver();
+
+        if (DEBUG)
+            System.out.printf("Compute: delivered %d results, %d jobs superseded so far%n",
+                    batch.size(), supersededCount);
+    }
+
+    private static final class Job<T> implements Runnable
+    {
+        private final Object key;
+        private final Function<BooleanSupplier, T> work;
+        private final Consumer<T> onResult;
+        private volatile boolean cancelled = false;
+        private T result = null;
+
+        private Job(Object key, Function<BooleanSupplier, T> work, Consumer<T> onResult)
+        {
+            this.key = key;
+            this.work = work;
+            this.onResult = onResult;
+        }
+
+        @Override
+        public void run()
+        {
+            if (cancelled)
+                return;
+            try
+            {
+                result = work.apply(() -> cancelled);
+            }
+            catch (RuntimeException e)
+            {
+                System.err.println("Background job for " + key + " failed: " + e);
+                result = null;
+            }
+            if (result == null)
+                latest.remove(key, this);
+            else if (!cancelled)
+                finish(this);
+        }
+
+        private void deliver()
+        {
+            onResult.accept(result);
+        }
+    }
+}
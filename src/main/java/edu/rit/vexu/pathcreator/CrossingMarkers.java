@@ -0,0 +1,86 @@
+package edu.rit.vexu.pathcreator;
+
+import edu.rit.vexu.pathcreator.model.CrossingIndex;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteListener;
+import javafx.geometry.Point2D;
+import javafx.scene.Group;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rings every point where the route crosses itself on the field: a path looping over itself, two paths crossing,
+ * or a leg cutting across a path.
+ * <p>
+ * The crossings come from a {@link CrossingIndex}, which only intersects the pieces an edit touched, so they're
+ * found again on every edit, at most once per frame. The rings are reused between frames, and sit under anything
+ * added to the field after them, like the handles of the {@link FieldEditor}.
+ */
+public class CrossingMarkers
+{
+    private static final double RADIUS = 6;
+
+    private final AnchorPane fieldPane;
+    private final CrossingIndex index;
+    private final Group markerGroup = new Group();
+    private final List<Circle> markers = new ArrayList<>();
+    private final Runnable renderTask = this::placeMarkers;
+
+    /**
+     * Start marking crossings.
+     * @param fieldPane The anchor pane holding the field image
+     * @param route The route to check
+     */
+    public CrossingMarkers(AnchorPane fieldPane, Route route)
+    {
+        this.fieldPane = fieldPane;
+        index = new CrossingIndex(route);
+        markerGroup.setMouseTransparent(true);
+        fieldPane.getChildren().add(markerGroup);
+
+        route.addListener(RouteListener.onAnyChange(() -> RedrawScheduler.requestRender(renderTask)));
+        fieldPane.widthProperty().addListener((observableValue, number, t1) -> RedrawScheduler.requestRender(renderTask));
+        fieldPane.heightProperty().addListener((observableValue, number, t1) -> RedrawScheduler.requestRender(renderTask));
+    }
+
+    /**
+     * @return The index the crossings come from
+     */
+    public CrossingIndex getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Put a ring on every crossing, adding rings as needed and hiding the rest.
+     */
+    private void placeMarkers()
+    {
+        List<CrossingIndex.Crossing> crossings = index.findCrossings();
+        while (markers.size() < crossings.size())
+        {
+            Circle marker = new Circle(RADIUS);
+            marker.setFill(null);
+            marker.setStroke(Color.RED);
+            marker.setStrokeWidth(2);
+            markers.add(marker);
+            markerGroup.getChildren().add(marker);
+        }
+
+        for (int i = 0; i < markers.size(); i++)
+        {
+            Circle marker = markers.get(i);
+            marker.setVisible(i < crossings.size());
+            if (i >= crossings.size())
+                continue;
+            CrossingIndex.Crossing crossing = crossings.get(i);
+            Point2D center = FieldConfig.inchesToPixels(new Point2D(crossing.getX(), crossing.getY()), fieldPane);
+            marker.setCenterX(center.getX());
+            marker.setCenterY(center.getY());
+        }
+    }
+}
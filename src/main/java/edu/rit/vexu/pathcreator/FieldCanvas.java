@@ -0,0 +1,255 @@
+package edu.rit.vexu.pathcreator;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws the field image, every path and every point into one Canvas, instead of one node per shape.
+ * <p>
+ * Each point, path and leg is recorded into its own {@link Recording}, a command list in field inches, which is
+ * only recorded again when that part of the field changes. Resizing the window just replays the recordings with
+ * the new scale. When replaying, every curve and line
+ * goes into one stroke, and every point into one fill, so a field with hundreds of points is a handful of
+ * draw calls.
+ * <p>
+ * Interactive handles, like the circle following the mouse when selecting a point, stay nodes on top of the canvas.
+ * Turn this renderer on with {@code -Dvexpathcreator.renderer=canvas}.
+ */
+public class FieldCanvas extends Canvas {
+
+    private static final boolean ENABLED = "canvas".equals(System.getProperty("vexpathcreator.renderer"));
+
+    // Match the look of the node renderer
+    private static final double POINT_RADIUS = 8;
+    private static final double LINE_WIDTH = 4;
+    private static final Color LINE_COLOR = Color.DARKORANGE;
+    private static final Color POINT_FILL = Color.DARKORANGE;
+    private static final Color POINT_STROKE = Color.BLACK;
+
+    private static final byte OP_CURVE = 0; // 8 args, the bezier control points
+    private static final byte OP_LINE = 1;  // 4 args, the start and end
+    private static final byte OP_POINT = 2; // 2 args, the center
+
+    private final AnchorPane fieldPane;
+
+    // Replayed in order on every repaint
+    private final List<Recording> recordings = new ArrayList<>();
+
+    /**
+     * A retained command list for part of the field, like one point or path, in inches. It's only recorded again
+     * when that part changes, and replayed on every repaint.
+     */
+    public static final class Recording
+    {
+        private byte[] ops = new byte[8];
+        private double[] args = new double[32];
+        private int opCount = 0;
+        private int argCount = 0;
+
+        private final double[] controlPoints = new double[8];
+
+        /**
+         * Clear the command list, before recording again.
+         */
+        public void clear()
+        {
+            opCount = 0;
+            argCount = 0;
+        }
+
+        /**
+         * Record a point, in inches.
+         */
+        public void addPoint(double x, double y)
+        {
+            push(OP_POINT, 2);
+            args[argCount++] = x;
+            args[argCount++] = y;
+        }
+
+        /**
+         * Record a straight line, in inches.
+         */
+        public void addLine(double startX, double startY, double endX, double endY)
+        {
+            push(OP_LINE, 4);
+            args[argCount++] = startX;
+            args[argCount++] = startY;
+            args[argCount++] = endX;
+            args[argCount++] = endY;
+        }
+
+        /**
+         * Record one segment of a spline in inches, as bezier curves: one for cubic segments and lines, and a few
+         * for quintic segments.
+         * @param spline The spline
+         * @param segment The segment index
+         */
+        public void addSegment(HermiteSpline spline, int segment)
+        {
+            int pieces = spline.getPieceCount(segment);
+            for (int i = 0; i < pieces; i++)
+            {
+                spline.getControlPoints(segment, (double) i / pieces, (double) (i + 1) / pieces, controlPoints);
+                push(OP_CURVE, 8);
+                System.arraycopy(controlPoints, 0, args, argCount, 8);
+                argCount += 8;
+            }
+        }
+
+        /**
+         * @return The number of shapes recorded
+         */
+        public int getCommandCount()
+        {
+            return opCount;
+        }
+
+        private void push(byte op, int argLength)
+        {
+            if (opCount == ops.length)
+                ops = Arrays.copyOf(ops, ops.length * 2);
+            if (argCount + argLength > args.length)
+                args = Arrays.copyOf(args, Math.max(args.length * 2, argCount + argLength));
+            ops[opCount++] = op;
+        }
+    }
+
+    /**
+     * @return true if the field should be drawn with a FieldCanvas instead of nodes
+     */
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * Create the canvas, sized to follow the field pane.
+     * @param fieldPane The pane holding the field, which this canvas covers
+     */
+    public FieldCanvas(AnchorPane fieldPane)
+    {
+        this.fieldPane = fieldPane;
+        widthProperty().bind(fieldPane.widthProperty());
+        heightProperty().bind(fieldPane.heightProperty());
+    }
+
+    /**
+     * @return The recordings replayed on every repaint, in order. Add, remove and reorder them as the field's parts
+     *         come and go; the canvas keeps no other state about them.
+     */
+    public List<Recording> getRecordings()
+    {
+        return recordings;
+    }
+
+    /**
+     * @return The number of shapes recorded, over every recording
+     */
+    public int getCommandCount()
+    {
+        int count = 0;
+        for (Recording recording : recordings)
+            count += recording.opCount;
+        return count;
+    }
+
+    /**
+     * Draw the field image and the recorded shapes, scaled to the current size of the field image.
+     */
+    public void repaint()
+    {
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+
+        double w = FieldConfig.fieldImageScaledWidth;
+        double h = FieldConfig.fieldImageScaledHeight;
+        double offsetX = (fieldPane.getWidth() - w) / 2.0;
+        double offsetY = (fieldPane.getHeight() - h) / 2.0;
+        double scaleX = w / FieldConfig.LOADED_FIELD_WIDTH;
+        double scaleY = h / FieldConfig.LOADED_FIELD_HEIGHT;
+
+        Image image = FieldConfig.fieldImage;
+        if (image != null)
+            gc.drawImage(image, offsetX, offsetY, w, h);
+
+        // Every curve and line in one stroke
+        gc.setStroke(LINE_COLOR);
+        gc.setLineWidth(LINE_WIDTH);
+        gc.beginPath();
+        for (Recording recording : recordings)
+            strokeShapes(gc, recording, offsetX, offsetY, scaleX, scaleY);
+        gc.stroke();
+
+        // Every point in one fill and one outline, drawn over the lines
+        gc.beginPath();
+        for (Recording recording : recordings)
+            addPoints(gc, recording, offsetX, offsetY, scaleX, scaleY);
+        gc.setFill(POINT_FILL);
+        gc.fill();
+        gc.setStroke(POINT_STROKE);
+        gc.setLineWidth(1);
+        gc.stroke();
+    }
+
+    private static void strokeShapes(GraphicsContext gc, Recording recording, double offsetX, double offsetY,
+                                     double scaleX, double scaleY)
+    {
+        byte[] ops = recording.ops;
+        double[] args = recording.args;
+        for (int op = 0, a = 0; op < recording.opCount; a += argsOf(ops[op]), op++)
+        {
+            switch (ops[op])
+            {
+                case OP_CURVE:
+                    gc.moveTo(offsetX + args[a] * scaleX, offsetY + args[a + 1] * scaleY);
+                    gc.bezierCurveTo(
+                            offsetX + args[a + 2] * scaleX, offsetY + args[a + 3] * scaleY,
+                            offsetX + args[a + 4] * scaleX, offsetY + args[a + 5] * scaleY,
+                            offsetX + args[a + 6] * scaleX, offsetY + args[a + 7] * scaleY);
+                    break;
+                case OP_LINE:
+                    gc.moveTo(offsetX + args[a] * scaleX, offsetY + args[a + 1] * scaleY);
+                    gc.lineTo(offsetX + args[a + 2] * scaleX, offsetY + args[a + 3] * scaleY);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void addPoints(GraphicsContext gc, Recording recording, double offsetX, double offsetY,
+                                  double scaleX, double scaleY)
+    {
+        byte[] ops = recording.ops;
+        double[] args = recording.args;
+        for (int op = 0, a = 0; op < recording.opCount; a += argsOf(ops[op]), op++)
+        {
+            if (ops[op] != OP_POINT)
+                continue;
+            double cx = offsetX + args[a] * scaleX;
+            double cy = offsetY + args[a + 1] * scaleY;
+            gc.moveTo(cx + POINT_RADIUS, cy);
+            gc.arc(cx, cy, POINT_RADIUS, POINT_RADIUS, 0, 360);
+            gc.closePath();
+        }
+    }
+
+    private static int argsOf(byte op)
+    {
+        switch (op)
+        {
+            case OP_CURVE: return 8;
+            case OP_LINE: return 4;
+            default: return 2;
+        }
+    }
+}
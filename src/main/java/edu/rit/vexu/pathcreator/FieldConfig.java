@@ -1,6 +1,8 @@
 package edu.rit.vexu.pathcreator;
 
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.geometry.Point2D;
@@ -29,6 +31,8 @@ public class FieldConfig {
     public static Image fieldImage = null;
     public static double fieldImageScaledHeight = 0.0;
     public static double fieldImageScaledWidth = 0.0;
+    // Where the field image was loaded from, or null for the built-in image
+    public static String fieldImagePath = null;
 
     // Callback that will update the ImageView when updateImage.accept(image) is run
     private static Consumer<Image> updateImage = null;
@@ -48,6 +52,9 @@ public class FieldConfig {
     @FXML
     private Button finishBtn;
 
+    // True while the chosen image is decoding
+    private final BooleanProperty loadingImage = new SimpleBooleanProperty(false);
+
     /**
      * Create the window, and initialize the event handlers for buttons / fields
      */
@@ -71,12 +78,13 @@ public class FieldConfig {
         // Cancelling saves nothing, and closes the window
         cancelBtn.addEventHandler(ActionEvent.ACTION, event -> ((Stage) pane.getScene().getWindow()).close());
 
-        // Disable the Finish button if any of the prompts is empty
+        // Disable the Finish button if any of the prompts is empty, or while the image loads
         finishBtn.disableProperty().bind(
-                Bindings.or(Bindings.or(
+                Bindings.or(Bindings.or(Bindings.or(
                                 imagePathField.textProperty().isEmpty(),
                                 fieldLengthField.textProperty().isEmpty()),
-                        fieldWidthField.textProperty().isEmpty()));
+                        fieldWidthField.textProperty().isEmpty()),
+                        loadingImage));
 
         finishBtn.addEventHandler(ActionEvent.ACTION, event ->
         {
@@ -91,25 +99,25 @@ public class FieldConfig {
                 return;
             }
 
-            // If the numbers parsed, load them as new accepted field values
-            LOADED_FIELD_HEIGHT = newLength;
-            LOADED_FIELD_WIDTH = newWidth;
-
-            // Load an image, and make sure the URL provided is correct
-            Image newFieldImage = new Image("file:" + imagePathField.getText());
-            if (newFieldImage == null || newFieldImage.isError()) {
+            // Load the image in the background, keeping this window open until it's known to be readable
+            int length = newLength, width = newWidth;
+            String path = imagePathField.getText();
+            loadingImage.set(true);
+            FieldImageLoader.load("file:" + path, newFieldImage -> {
+                loadingImage.set(false);
+
+                // Accept the field values and image together, and update the ImageView on the main window
+                LOADED_FIELD_HEIGHT = length;
+                LOADED_FIELD_WIDTH = width;
+                fieldImagePath = path;
+                setFieldImage(newFieldImage);
+
+                ((Stage) pane.getScene().getWindow()).close();
+            }, message -> {
+                loadingImage.set(false);
                 Alert a = new Alert(Alert.AlertType.NONE, "Image path is invalid!", ButtonType.CLOSE);
                 a.show();
-                return;
-            }
-
-            // Load the image as the accepted field image, and update the ImageView on the main window
-            fieldImage = newFieldImage;
-            if (updateImage != null)
-                updateImage.accept(fieldImage);
-
-
-            ((Stage) pane.getScene().getWindow()).close();
+            }, () -> loadingImage.set(false));
         });
     }
 
@@ -123,6 +131,16 @@ public class FieldConfig {
         updateImage = r;
     }
 
+    /**
+     * Use a new field image, and update the ImageView on the main window
+     * @param image The new image
+     */
+    public static void setFieldImage(Image image) {
+        fieldImage = image;
+        if (updateImage != null)
+            updateImage.accept(fieldImage);
+    }
+
     /**
      * Convert pixels from the anchorpane containing the field image to inches, based on the
      * saved official height of the field (in inches) and the current size of the image.
@@ -0,0 +1,289 @@
+package edu.rit.vexu.pathcreator;
+
+import edu.rit.vexu.pathcreator.geometry.SplineProjector;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import edu.rit.vexu.pathcreator.model.RouteListener;
+import edu.rit.vexu.pathcreator.model.WaypointIndex;
+import javafx.collections.ObservableList;
+import javafx.geometry.Point2D;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Line;
+
+/**
+ * Lets points and paths be edited by dragging them on the field.
+ * <p>
+ * Pressing near a point or path waypoint drags it, and pressing near a tangent handle turns and stretches the
+ * tangent. The handle under the mouse is looked up in a {@link WaypointIndex}, which only searches the grid cells
+ * around the mouse, so hovering stays fast with thousands of waypoints.
+ * <p>
+ * A drag fills in the list item's text fields, as if the user typed the numbers, so it goes through the same
+ * checks and only redraws the segments and legs touching the dragged waypoint.
+ * The tangent handle of the last path waypoint hovered over is drawn on top of the field, in pixels.
+ * Hovering near a path, away from any handle, marks the closest point of the path and how far along it is.
+ */
+public class FieldEditor
+{
+    // How close the mouse has to be to a handle to pick it, in pixels
+    private static final double PICK_RADIUS = 10;
+    private static final double HANDLE_RADIUS = 5;
+    // How close the mouse has to be to a path to show where it is along it, in pixels
+    private static final double READOUT_RADIUS = 15;
+    // Size of the index's grid cells, in inches
+    private static final double CELL_SIZE = 4;
+
+    private final AnchorPane fieldPane;
+    private final Route route;
+    private final ObservableList<Node> items;
+    private final WaypointIndex index;
+
+    private final Line tangentLine = new Line();
+    private final Circle tangentHandle = new Circle(HANDLE_RADIUS);
+    private final Runnable overlayTask = this::drawOverlay;
+
+    private final Circle readoutMarker = new Circle(3);
+    private final Label readout = new Label();
+    private final SplineProjector.Projection projection = new SplineProjector.Projection();
+
+    // The waypoint whose tangent handle is shown
+    private RouteItem activeItem = null;
+    private int activeWaypoint = -1;
+
+    // The waypoint being dragged, and whether it's by its tangent handle
+    private RouteItem dragItem = null;
+    private int dragWaypoint = -1;
+    private boolean dragTangent = false;
+
+    /**
+     * Start editing on the field.
+     * @param fieldPane The anchor pane holding the field image, which receives the mouse events
+     * @param route The route behind the list
+     * @param items The list items, in the same order as the route
+     */
+    public FieldEditor(AnchorPane fieldPane, Route route, ObservableList<Node> items)
+    {
+        this.fieldPane = fieldPane;
+        this.route = route;
+        this.items = items;
+        index = new WaypointIndex(route, CELL_SIZE);
+
+        tangentLine.setStroke(Color.DARKORANGE);
+        tangentLine.getStrokeDashArray().addAll(4.0, 4.0);
+        tangentHandle.setFill(Color.WHITE);
+        tangentHandle.setStroke(Color.DARKORANGE);
+        tangentHandle.setStrokeWidth(2);
+        readoutMarker.setFill(Color.DARKORANGE);
+        readout.setStyle("-fx-background-color: rgba(255, 255, 255, 0.85); -fx-padding: 1 4 1 4;");
+        for (Node n : new Node[] { tangentLine, tangentHandle, readoutMarker, readout })
+        {
+            n.setMouseTransparent(true);
+            n.setVisible(false);
+            fieldPane.getChildren().add(n);
+        }
+
+        fieldPane.addEventHandler(MouseEvent.MOUSE_MOVED, this::hover);
+        fieldPane.addEventHandler(MouseEvent.MOUSE_PRESSED, this::press);
+        fieldPane.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::drag);
+        fieldPane.addEventHandler(MouseEvent.MOUSE_RELEASED, mouseEvent -> release());
+
+        // The handle follows its waypoint however it's edited, and the field however it's resized
+        route.addListener(RouteListener.onAnyChange(() -> RedrawScheduler.requestRender(overlayTask)));
+        fieldPane.widthProperty().addListener((observableValue, number, t1) -> RedrawScheduler.requestRender(overlayTask));
+        fieldPane.heightProperty().addListener((observableValue, number, t1) -> RedrawScheduler.requestRender(overlayTask));
+    }
+
+    /**
+     * @return The index of every handle on the field
+     */
+    public WaypointIndex getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Show the tangent handle of the path waypoint under the mouse, and change the cursor over any handle.
+     */
+    private void hover(MouseEvent mouseEvent)
+    {
+        int handle = pick(mouseEvent);
+        fieldPane.setCursor(handle == WaypointIndex.NONE ? null : Cursor.HAND);
+        showReadout(handle == WaypointIndex.NONE ? mouseEvent : null);
+        if (handle == WaypointIndex.NONE || !WaypointIndex.hasTangentHandles(index.getItem(handle)))
+            return;
+
+        RouteItem item = index.getItem(handle);
+        int waypoint = index.getWaypoint(handle);
+        if (item != activeItem || waypoint != activeWaypoint)
+        {
+            activeItem = item;
+            activeWaypoint = waypoint;
+            RedrawScheduler.requestRender(overlayTask);
+        }
+    }
+
+    private void press(MouseEvent mouseEvent)
+    {
+        if (mouseEvent.getButton() != MouseButton.PRIMARY)
+            return;
+        int handle = pick(mouseEvent);
+        if (handle == WaypointIndex.NONE)
+            return;
+
+        showReadout(null);
+        dragItem = index.getItem(handle);
+        dragWaypoint = index.getWaypoint(handle);
+        dragTangent = index.isTangent(handle);
+        fieldPane.setCursor(Cursor.CLOSED_HAND);
+        if (WaypointIndex.hasTangentHandles(dragItem))
+        {
+            activeItem = dragItem;
+            activeWaypoint = dragWaypoint;
+            RedrawScheduler.requestRender(overlayTask);
+        }
+    }
+
+    /**
+     * Fill the dragged waypoint's text fields from the mouse position
+     */
+    private void drag(MouseEvent mouseEvent)
+    {
+        if (dragItem == null)
+            return;
+        int i = route.indexOf(dragItem);
+        if (i < 0 || dragWaypoint >= dragItem.size())
+        {
+            release();
+            return;
+        }
+
+        Point2D inches = FieldConfig.pixelsToInches(new Point2D(mouseEvent.getX(), mouseEvent.getY()), fieldPane);
+        Node control = items.get(i);
+        if (dragTangent)
+        {
+            HermitePointItem point = ((PathItem) control).getHermitePoint(dragWaypoint);
+            if (point == null)
+                return;
+            double dx = inches.getX() - dragItem.getX(dragWaypoint);
+            double dy = inches.getY() - dragItem.getY(dragWaypoint);
+            point.setTangent(round(Math.toDegrees(Math.atan2(dy, dx))),
+                    round(WaypointIndex.tangentMag(dragItem, dx, dy)));
+            return;
+        }
+
+        // Keep the waypoint on the field, so it never disappears under the mouse
+        double x = round(Math.max(0, Math.min(FieldConfig.LOADED_FIELD_WIDTH, inches.getX())));
+        double y = round(Math.max(0, Math.min(FieldConfig.LOADED_FIELD_HEIGHT, inches.getY())));
+        if (control instanceof PointItem)
+            ((PointItem) control).setPoint(x, y);
+        else
+        {
+            HermitePointItem point = ((PathItem) control).getHermitePoint(dragWaypoint);
+            if (point != null)
+                point.pointPart.setPoint(x, y);
+        }
+    }
+
+    private void release()
+    {
+        if (dragItem == null)
+            return;
+        dragItem = null;
+        fieldPane.setCursor(null);
+    }
+
+    /**
+     * @return The handle within picking distance of the mouse, or NONE
+     */
+    private int pick(MouseEvent mouseEvent)
+    {
+        if (!(FieldConfig.fieldImageScaledWidth > 0))
+            return WaypointIndex.NONE;
+        Point2D inches = FieldConfig.pixelsToInches(new Point2D(mouseEvent.getX(), mouseEvent.getY()), fieldPane);
+        double radius = PICK_RADIUS * FieldConfig.LOADED_FIELD_WIDTH / FieldConfig.fieldImageScaledWidth;
+        return index.nearest(inches.getX(), inches.getY(), radius);
+    }
+
+    /**
+     * Mark the point of the closest path near the mouse, with how far along the path it is.
+     * @param mouseEvent The mouse position, or null to hide the readout
+     */
+    private void showReadout(MouseEvent mouseEvent)
+    {
+        PathItem closest = null;
+        if (mouseEvent != null && FieldConfig.fieldImageScaledWidth > 0)
+        {
+            Point2D inches = FieldConfig.pixelsToInches(new Point2D(mouseEvent.getX(), mouseEvent.getY()), fieldPane);
+            double radius = READOUT_RADIUS * FieldConfig.LOADED_FIELD_WIDTH / FieldConfig.fieldImageScaledWidth;
+            double x = 0, y = 0, along = 0;
+
+            // Each path only searches the segments closer than the closest point so far
+            for (Node item : items)
+            {
+                if (!(item instanceof PathItem) || Double.isNaN(((PathItem) item).getLength()))
+                    continue;
+                PathItem path = (PathItem) item;
+                if (path.getProjector().project(inches.getX(), inches.getY(), radius, projection))
+                {
+                    closest = path;
+                    radius = projection.getDistance();
+                    x = projection.getX();
+                    y = projection.getY();
+                    along = projection.getArcLength();
+                }
+            }
+
+            if (closest != null)
+            {
+                Point2D onPath = FieldConfig.inchesToPixels(new Point2D(x, y), fieldPane);
+                readoutMarker.setCenterX(onPath.getX());
+                readoutMarker.setCenterY(onPath.getY());
+                readout.setText(String.format("%.1f of %.1f in", along, closest.getLength()));
+                readout.relocate(onPath.getX() + 8, onPath.getY() + 8);
+            }
+        }
+        readoutMarker.setVisible(closest != null);
+        readout.setVisible(closest != null);
+    }
+
+    /**
+     * Move the tangent handle to the active waypoint, or hide it if the waypoint is gone, invalid or on a line.
+     */
+    private void drawOverlay()
+    {
+        boolean visible = activeItem != null && route.indexOf(activeItem) >= 0
+                && activeWaypoint < activeItem.size() && activeItem.isValid(activeWaypoint)
+                && WaypointIndex.hasTangentHandles(activeItem);
+        tangentLine.setVisible(visible);
+        tangentHandle.setVisible(visible);
+        if (!visible)
+        {
+            activeItem = null;
+            return;
+        }
+
+        Point2D start = FieldConfig.inchesToPixels(
+                new Point2D(activeItem.getX(activeWaypoint), activeItem.getY(activeWaypoint)), fieldPane);
+        Point2D end = FieldConfig.inchesToPixels(new Point2D(
+                WaypointIndex.tangentX(activeItem, activeWaypoint),
+                WaypointIndex.tangentY(activeItem, activeWaypoint)), fieldPane);
+        tangentLine.setStartX(start.getX());
+        tangentLine.setStartY(start.getY());
+        tangentLine.setEndX(end.getX());
+        tangentLine.setEndY(end.getY());
+        tangentHandle.setCenterX(end.getX());
+        tangentHandle.setCenterY(end.getY());
+    }
+
+    // Hundredths are as close as anyone places a waypoint by hand, and keep the text fields readable
+    private static double round(double value)
+    {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,236 @@
+package edu.rit.vexu.pathcreator;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.image.Image;
+import javafx.stage.Screen;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Loads field images in the background, so a large photo of the field never freezes the window.
+ * <p>
+ * The image's size is first read from its header on {@link BackgroundCompute}, without decoding it. The image is
+ * then decoded on JavaFX's background loader at the smaller of that size and the largest size the field can be
+ * shown at, the size of the screen: a photo of several thousand pixels across is scaled down on the way and never
+ * held at full size, and a small image is never scaled up. The last few decoded images are kept, so switching back
+ * to a field doesn't decode it again.
+ * <p>
+ * Only the latest request is delivered; starting a new load cancels any still in progress, and tells it so.
+ * Use from the FX thread only.
+ */
+public final class FieldImageLoader
+{
+    // Decoded images kept for switching back and forth between fields
+    private static final int CACHE_SIZE = 4;
+
+    private static final Map<String, Image> cache = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private static final DoubleProperty progress = new SimpleDoubleProperty(1.0);
+    private static final SimpleBooleanProperty loading = new SimpleBooleanProperty(false);
+
+    // The latest request while it loads; any other finishing is ignored
+    private static Load pending = null;
+
+    private FieldImageLoader() { }
+
+    /**
+     * @return The URL of the field image built into the program
+     */
+    public static String getDefaultUrl()
+    {
+        return FieldImageLoader.class.getResource("/edu/rit/vexu/pathcreator/tipping_pt.png").toExternalForm();
+    }
+
+    /**
+     * Load a field image, or take it from the cache, doing nothing if a newer load replaces it first.
+     * @param url The URL of the image, like "file:" followed by a path
+     * @param onLoaded Called on the FX thread with the decoded image, right away if it was cached
+     * @param onError Called on the FX thread if the image can't be read
+     */
+    public static void load(String url, Consumer<Image> onLoaded, Consumer<String> onError)
+    {
+        load(url, onLoaded, onError, () -> { });
+    }
+
+    /**
+     * Load a field image, or take it from the cache.
+     * @param url The URL of the image, like "file:" followed by a path
+     * @param onLoaded Called on the FX thread with the decoded image, right away if it was cached
+     * @param onError Called on the FX thread if the image can't be read
+     * @param onCancelled Called on the FX thread if a newer load replaces this one before it finishes
+     */
+    public static void load(String url, Consumer<Image> onLoaded, Consumer<String> onError, Runnable onCancelled)
+    {
+        Load replaced = pending;
+        pending = null;
+        if (replaced != null)
+            replaced.cancel();
+
+        Rectangle2D screen = Screen.getPrimary().getBounds();
+        double width = screen.getWidth() * Screen.getPrimary().getOutputScaleX();
+        double height = screen.getHeight() * Screen.getPrimary().getOutputScaleY();
+        String key = url + "@" + Math.round(width) + "x" + Math.round(height);
+
+        Image cached = cache.get(key);
+        if (cached != null)
+        {
+            progress.unbind();
+            progress.set(1.0);
+            loading.set(false);
+            onLoaded.accept(cached);
+            return;
+        }
+
+        Load load = new Load(url, key, width, height, onLoaded, onError, onCancelled);
+        pending = load;
+        progress.unbind();
+        progress.set(ProgressIndicator.INDETERMINATE_PROGRESS);
+        loading.set(true);
+        BackgroundCompute.submit(FieldImageLoader.class, cancelled -> readSize(url), load::decode);
+    }
+
+    /**
+     * @return How far the latest image has loaded, from 0 to 1, negative while its size is read, or 1 when
+     *         nothing is loading
+     */
+    public static ReadOnlyDoubleProperty progressProperty()
+    {
+        return progress;
+    }
+
+    /**
+     * @return Whether an image is loading
+     */
+    public static ReadOnlyBooleanProperty loadingProperty()
+    {
+        return loading;
+    }
+
+    /**
+     * Read the size of an image from its header, without decoding it.
+     * @param url The URL of the image
+     * @return The width and height in pixels, or NaN if the image can't be read this way
+     */
+    private static double[] readSize(String url)
+    {
+        try (InputStream in = new URL(url).openStream();
+             ImageInputStream stream = ImageIO.createImageInputStream(in))
+        {
+            Iterator<ImageReader> readers = stream == null ? null : ImageIO.getImageReaders(stream);
+            if (readers != null && readers.hasNext())
+            {
+                ImageReader reader = readers.next();
+                try
+                {
+                    reader.setInput(stream, true, true);
+                    return new double[] { reader.getWidth(0), reader.getHeight(0) };
+                }
+                finally
+                {
+                    reader.dispose();
+                }
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // Leave it to the decoder to report what's wrong with the image
+        }
+        return new double[] { Double.NaN, Double.NaN };
+    }
+
+    /**
+     * One request, from reading the image size until it's delivered or replaced.
+     */
+    private static final class Load
+    {
+        private final String url;
+        private final String key;
+        private final double maxWidth, maxHeight;
+        private final Consumer<Image> onLoaded;
+        private final Consumer<String> onError;
+        private final Runnable onCancelled;
+        private Image image = null;
+
+        private Load(String url, String key, double maxWidth, double maxHeight,
+                     Consumer<Image> onLoaded, Consumer<String> onError, Runnable onCancelled)
+        {
+            this.url = url;
+            this.key = key;
+            this.maxWidth = maxWidth;
+            this.maxHeight = maxHeight;
+            this.onLoaded = onLoaded;
+            this.onError = onError;
+            this.onCancelled = onCancelled;
+        }
+
+        private void decode(double[] size)
+        {
+            if (this != pending)
+                return;
+
+            // Never ask for more pixels than the image has; an unknown size leaves the decoder to fit the screen
+            double width = maxWidth, height = maxHeight;
+            if (size[0] > 0 && size[1] > 0)
+            {
+                width = Math.min(width, size[0]);
+                height = Math.min(height, size[1]);
+            }
+            image = new Image(url, width, height, true, true, true);
+            progress.bind(image.progressProperty());
+
+            // Finishing sets the progress to 1, failing sets the error; either can happen first
+            image.progressProperty().addListener((observable, oldValue, newValue) -> finish());
+            image.errorProperty().addListener((observable, oldValue, newValue) -> finish());
+            finish();
+        }
+
+        private void finish()
+        {
+            if (this != pending || !(image.isError() || image.getProgress() >= 1.0))
+                return;
+            pending = null;
+            progress.unbind();
+            progress.set(1.0);
+            loading.set(false);
+            if (image.isError())
+            {
+                Exception e = image.getException();
+                onError.accept(e == null || e.getMessage() == null ? "Could not read " + url : e.getMessage());
+            }
+            else
+            {
+                cache.put(key, image);
+                onLoaded.accept(image);
+            }
+        }
+
+        private void cancel()
+        {
+            if (image != null)
+                image.cancel();
+            onCancelled.run();
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package edu.rit.vexu.pathcreator;
 
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
 import javafx.scene.shape.CubicCurve;
 
 /**
  * The HermiteCurve class defines a cubic Hermite parametric curve segment in (x,y) coordinate space.
+ * <p>
+ * The math lives in {@link HermiteSpline}; this node only renders it. The tangent angle and magnitude are
+ * cached when set, so the getters do not recover them from the control points.
  *
  * @author Jacob To
  */
 public class HermiteCurve extends CubicCurve {
+
+    private double startAngle, startMag, endAngle, endMag;
+
+    // Scratch buffer for the Bezier control points, only touched on the FX thread
+    private final double[] bezier = new double[8];
+
     /**
      * Constructs a Hermite Curve with a start point, start tangent, end point, and end tangent.
      *
@@ -21,8 +31,36 @@ public class HermiteCurve extends CubicCurve {
      * @param endMag The magnitude of the tangent to the curve at the end point.
      */
     public HermiteCurve(double startX, double startY, double startAngle, double startMag, double endX, double endY, double endAngle, double endMag) {
-        super(startX, startY, startMag * Math.cos(startAngle) / 3 + startX, startMag * Math.sin(startAngle) / 3 + startY,
-                -endMag * Math.cos(endAngle) / 3 + endX, -endMag * Math.sin(endAngle) / 3 + endY, endX, endY);
+        setHermite(startX, startY, startAngle, startMag, endX, endY, endAngle, endMag);
+    }
+
+    /**
+     * Set every point and tangent of the curve at once.
+     *
+     * @param startX The x value of the start point.
+     * @param startY The y value of the start point.
+     * @param startAngle The angle of the tangent to the curve at the start point in radians.
+     * @param startMag The magnitude of the tangent to the curve at the start point.
+     * @param endX The x value of the end point.
+     * @param endY The y value of the end point.
+     * @param endAngle The angle of the tangent to the curve at the end point in radians.
+     * @param endMag The magnitude of the tangent to the curve at the end point.
+     */
+    public void setHermite(double startX, double startY, double startAngle, double startMag, double endX, double endY, double endAngle, double endMag) {
+        this.startAngle = tangentAngle(startAngle, startMag);
+        this.startMag = Math.abs(startMag);
+        this.endAngle = tangentAngle(endAngle, endMag);
+        this.endMag = Math.abs(endMag);
+
+        HermiteSpline.toBezier(startX, startY, startAngle, startMag, endX, endY, endAngle, endMag, bezier);
+        setStartX(bezier[0]);
+        setStartY(bezier[1]);
+        setControlX1(bezier[2]);
+        setControlY1(bezier[3]);
+        setControlX2(bezier[4]);
+        setControlY2(bezier[5]);
+        setEndX(bezier[6]);
+        setEndY(bezier[7]);
     }
 
     /**
@@ -30,8 +68,7 @@ public class HermiteCurve extends CubicCurve {
      * @return The tangential angle at the start point in radians.
      */
     public double getStartAngle() {
-        double theta = Math.atan2(getControlY1() - getStartY(), getControlX1() - getStartX());
-        return theta - 2 * Math.PI * Math.floor((theta + Math.PI) / (2 * Math.PI));
+        return startAngle;
     }
 
     /**
@@ -39,7 +76,7 @@ public class HermiteCurve extends CubicCurve {
      * @return The tangential magnitude at the start point.
      */
     public double getStartMag() {
-        return 3 * Math.sqrt(Math.pow(getStartX() - getControlX1(), 2) + Math.pow(getStartY() - getControlY1(), 2));
+        return startMag;
     }
 
     /**
@@ -47,8 +84,7 @@ public class HermiteCurve extends CubicCurve {
      * @return The tangential angle at the end point in radians.
      */
     public double getEndAngle() {
-        double theta = Math.atan2(getControlY2() - getEndY(), getControlX2() - getEndX()) - Math.PI;
-        return theta - 2 * Math.PI * Math.floor((theta + Math.PI) / (2 * Math.PI));
+        return endAngle;
     }
 
     /**
@@ -56,7 +92,7 @@ public class HermiteCurve extends CubicCurve {
      * @return The tangential magnitude at the end point.
      */
     public double getEndMag() {
-        return 3 * Math.sqrt(Math.pow(getEndX() - getControlX2(), 2) + Math.pow(getEndY() - getControlY2(), 2));
+        return endMag;
     }
 
     /**
@@ -64,8 +100,7 @@ public class HermiteCurve extends CubicCurve {
      * @param startAngle The desired start tangential angle.
      */
     public void setStartAngle(double startAngle) {
-        setControlX1(getStartMag() * Math.cos(startAngle) / 3 + getStartX());
-        setControlY1(getStartMag() * Math.sin(startAngle) / 3 + getStartY());
+        setStartTangent(startAngle, startMag);
     }
 
     /**
@@ -73,8 +108,7 @@ public class HermiteCurve extends CubicCurve {
      * @param startMag The desired start tangential magnitude.
      */
     public void setStartMag(double startMag) {
-        setControlX1(startMag * Math.cos(getStartAngle()) / 3 + getStartX());
-        setControlY1(startMag * Math.sin(getStartAngle()) / 3 + getStartY());
+        setStartTangent(startAngle, startMag);
     }
 
     /**
@@ -82,8 +116,7 @@ public class HermiteCurve extends CubicCurve {
      * @param endAngle The desired start tangential angle.
      */
     public void setEndAngle(double endAngle) {
-        setControlX2(-getEndMag() * Math.cos(endAngle) / 3 + getEndX());
-        setControlY2(-getEndMag() * Math.sin(endAngle) / 3 + getEndY());
+        setEndTangent(endAngle, endMag);
     }
 
     /**
@@ -91,8 +124,7 @@ public class HermiteCurve extends CubicCurve {
      * @param endMag The desired end tangential magnitude.
      */
     public void setEndMag(double endMag) {
-        setControlX2(-endMag * Math.cos(getEndAngle()) / 3 + getEndX());
-        setControlY2(-endMag * Math.sin(getEndAngle()) / 3 + getEndY());
+        setEndTangent(endAngle, endMag);
     }
 
     /**
@@ -102,6 +134,8 @@ public class HermiteCurve extends CubicCurve {
      * @param startMag The desired start tangential magnitude.
      */
     public void setStartTangent(double startAngle, double startMag) {
+        this.startAngle = tangentAngle(startAngle, startMag);
+        this.startMag = Math.abs(startMag);
         setControlX1(startMag * Math.cos(startAngle) / 3 + getStartX());
         setControlY1(startMag * Math.sin(startAngle) / 3 + getStartY());
     }
@@ -113,14 +147,26 @@ public class HermiteCurve extends CubicCurve {
      * @param endMag The desired end tangential magnitude.
      */
     public void setEndTangent(double endAngle, double endMag) {
+        this.endAngle = tangentAngle(endAngle, endMag);
+        this.endMag = Math.abs(endMag);
         setControlX2(-endMag * Math.cos(endAngle) / 3 + getEndX());
         setControlY2(-endMag * Math.sin(endAngle) / 3 + getEndY());
     }
 
+    /**
+     * Returns the angle the tangent actually points, bounded by -pi and pi.
+     * A negative magnitude points the tangent the opposite way, so the angle is flipped.
+     */
+    private static double tangentAngle(double theta, double mag) {
+        if (mag < 0)
+            theta += Math.PI;
+        return theta - 2 * Math.PI * Math.floor((theta + Math.PI) / (2 * Math.PI));
+    }
+
     @Override
     public String toString() {
         String result = super.toString();
         return String.format("HermiteCurve%s, startAngle=%f, startMagnitude=%f, endAngle=%f, endMagnitude=%f]",
-                result.substring(10, result.length() - 1), getStartAngle(), getEndMag(), getEndAngle(), getEndMag());
+                result.substring(10, result.length() - 1), getStartAngle(), getStartMag(), getEndAngle(), getEndMag());
     }
 }
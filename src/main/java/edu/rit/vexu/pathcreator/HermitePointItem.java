@@ -2,6 +2,8 @@ package edu.rit.vexu.pathcreator;
 
 import javafx.beans.value.ChangeListener;
 import javafx.event.EventHandler;
+import javafx.scene.Group;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.AnchorPane;
@@ -17,13 +19,20 @@ public class HermitePointItem extends VBox {
     HBox vecPart = new HBox();
     TextField angleField = new TextField();
     TextField magField = new TextField();
+    // Whether the path fills in this tangent, when it fills tangents at all. Typing a tangent unchecks it.
+    CheckBox autoBox = new CheckBox("Auto");
 
     private AnchorPane fieldPane;
 
-    public HermitePointItem(int pathIndex, AnchorPane fieldPane)
+    // The tangent the user typed, read once per edit, or NaN if it isn't a number
+    private double dir = Double.NaN;
+    private double mag = Double.NaN;
+    private boolean settingAutoTangent = false;
+
+    public HermitePointItem(int pathIndex, AnchorPane fieldPane, Group fieldGroup)
     {
         this.fieldPane = fieldPane;
-        pointPart = new PointItem(pathIndex, fieldPane);
+        pointPart = new PointItem(pathIndex, fieldPane, fieldGroup);
         angleField.setMaxWidth(50);
         magField.setMaxWidth(50);
 
@@ -31,11 +40,35 @@ public class HermitePointItem extends VBox {
                 new Label(" θ: "),
                 angleField,
                 new Label(" R: "),
-                magField
+                magField,
+                autoBox
         );
+        autoBox.setSelected(true);
+        setAutoTangentShown(false);
 
         super.getChildren().addAll(pointPart, vecPart);
 
+        angleField.textProperty().addListener((observableValue, s, t1) -> {
+            dir = parse(t1);
+            if(!settingAutoTangent)
+                autoBox.setSelected(false);
+        });
+        magField.textProperty().addListener((observableValue, s, t1) -> {
+            mag = parse(t1);
+            if(!settingAutoTangent)
+                autoBox.setSelected(false);
+        });
+    }
+
+    private static double parse(String text)
+    {
+        try
+        {
+            return Double.parseDouble(text);
+        } catch(NumberFormatException | NullPointerException e)
+        {
+            return Double.NaN;
+        }
     }
 
     public void addChangeListener(ChangeListener c)
@@ -43,31 +76,90 @@ public class HermitePointItem extends VBox {
         pointPart.addChangeListener(c);
         magField.textProperty().addListener(c);
         angleField.textProperty().addListener(c);
+        autoBox.selectedProperty().addListener(c);
     }
 
+    /**
+     * @return The tangent angle in degrees, or NaN if the field doesn't hold a number
+     */
     public double getDir()
     {
-        return Double.parseDouble(angleField.getText());
+        return dir;
     }
 
+    /**
+     * @return The tangent magnitude in inches, or NaN if the field doesn't hold a number
+     */
     public double getMag()
     {
-        return Double.parseDouble(magField.getText());
+        return mag;
     }
 
-    public boolean isValid() {
+    /**
+     * Fill in the text fields, as if the user typed the point
+     * @param x inches, or NaN to leave the field blank
+     * @param y inches, or NaN to leave the field blank
+     * @param dir degrees, or NaN to leave the field blank
+     * @param mag inches, or NaN to leave the field blank
+     */
+    public void setValues(double x, double y, double dir, double mag)
+    {
+        pointPart.setPoint(x, y);
+        angleField.setText(PointItem.toText(dir));
+        magField.setText(PointItem.toText(mag));
+    }
 
-        boolean isVecValid = true;
-        try
-        {
-            Double.parseDouble(magField.getText());
-            Double.parseDouble(angleField.getText());
-        } catch(NumberFormatException e)
-        {
-            isVecValid = false;
-        }
+    /**
+     * Fill in only the tangent fields, as if the user typed them
+     * @param dir degrees
+     * @param mag inches
+     */
+    public void setTangent(double dir, double mag)
+    {
+        angleField.setText(PointItem.toText(dir));
+        magField.setText(PointItem.toText(mag));
+    }
+
+    /**
+     * Fill in the tangent fields for the path, leaving the point's tangent filled automatically
+     * @param dir degrees
+     * @param mag inches
+     */
+    public void setAutoTangent(double dir, double mag)
+    {
+        settingAutoTangent = true;
+        setTangent(dir, mag);
+        settingAutoTangent = false;
+    }
+
+    /**
+     * @return Whether the path may fill in this point's tangent, rather than keeping the one typed in
+     */
+    public boolean isAutoTangent()
+    {
+        return autoBox.isSelected();
+    }
 
-        return pointPart.isValid() && isVecValid;
+    /**
+     * @param auto Whether the path may fill in this point's tangent
+     */
+    public void setAutoTangent(boolean auto)
+    {
+        autoBox.setSelected(auto);
+    }
+
+    /**
+     * Show or hide the "Auto" check box, for paths that fill tangents and paths that don't
+     * @param shown Whether to show it
+     */
+    public void setAutoTangentShown(boolean shown)
+    {
+        autoBox.setVisible(shown);
+        autoBox.setManaged(shown);
+    }
+
+    public boolean isValid() {
+        return pointPart.isValid() && Double.isFinite(dir) && Double.isFinite(mag);
     }
 
     /**
@@ -1,11 +1,20 @@
 package edu.rit.vexu.pathcreator;
 
+import edu.rit.vexu.pathcreator.io.CppHeaderExporter;
+import edu.rit.vexu.pathcreator.io.RouteFile;
+import edu.rit.vexu.pathcreator.io.RouteJournal;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import edu.rit.vexu.pathcreator.trajectory.RobotLimits;
+import edu.rit.vexu.pathcreator.trajectory.TrajectoryGenerator;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Point2D;
+import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -15,18 +24,36 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Line;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Translate;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 public class MainWindow {
 
+    // Width of the legs between items, in inches
+    private static final double LINE_WIDTH = 0.8;
+
+    // Where the route is autosaved while editing
+    private static final Path AUTOSAVE_DIR = Path.of(System.getProperty("user.home"), ".vexpathcreator", "autosave");
+
     // WINDOW
     @FXML private SplitPane splitPane;
 
     // MENU BAR
+    @FXML private MenuItem saveMenuItem;
+    @FXML private MenuItem saveAsMenuItem;
+    @FXML private MenuItem openPathMenuItem;
     @FXML private MenuItem openFieldMenuItem;
+    @FXML private MenuItem exportMenuItem;
 
     // LEFT PANE
     @FXML private ListView<Node> pointList;
@@ -34,6 +61,7 @@ public class MainWindow {
     @FXML private Button addPathBtn;
     @FXML private Button upIndexButton;
     @FXML private Button downIndexButton;
+    @FXML private Label routeLabel;
 
     // RIGHT PANE
     @FXML private AnchorPane imagePane;
@@ -41,8 +69,48 @@ public class MainWindow {
 
     private int numListItems = 0;
 
+    // The data behind the list, one route item per list item, in the same order
+    private final Route route = new Route(FieldConfig.LOADED_FIELD_WIDTH, FieldConfig.LOADED_FIELD_HEIGHT);
+    // Where "Save" writes to, once the route has been saved or opened
+    private File routeFile = null;
+    // Journals every edit to the route in the background, null if autosave couldn't start
+    private RouteJournal journal = null;
+    // Drags waypoints and tangent handles on the field
+    private FieldEditor fieldEditor = null;
+    // Rings the places the route crosses itself
+    private CrossingMarkers crossingMarkers = null;
+    // Shows the drive time of the whole route
+    private RouteSummary routeSummary = null;
+    // The field config dialog, parsed the first time it's opened
+    private Stage fieldConfigStage = null;
+
+    // Everything drawn on the field lives in this group, in inches. One transform maps inches to pixels,
+    // so a resize only changes the transform, no matter how many points and paths there are.
+    private final Group fieldGroup = new Group();
+    private final Translate fieldTranslate = new Translate();
+    private final Scale fieldScale = new Scale();
+
+    // Straight legs between list items; line i joins item i to item i + 1.
+    // They live in their own group so they can be updated without touching the rest of the field.
+    private final Group lineGroup = new Group();
     ArrayList<Line> lineList = new ArrayList<>();
 
+    // Line redraws wait for the next pulse; until then, collect which items changed
+    private final Runnable fieldResizedTask = this::fieldResized;
+    private final Runnable linkTask = this::flushLinks;
+    private final LinkedHashSet<Node> dirtyItems = new LinkedHashSet<>();
+    private boolean fullPathDirty = false;
+
+    // Only with -Dvexpathcreator.renderer=canvas; draws the image, points, paths and lines instead of nodes
+    private FieldCanvas fieldCanvas = null;
+    private final Runnable renderTask = this::renderCanvas;
+    // Each list item's recording, and the recording of the leg into each item, by index; only recorded again
+    // when the item or its neighbour changes
+    private IdentityHashMap<Node, FieldCanvas.Recording> shapeRecordings = new IdentityHashMap<>();
+    private final ArrayList<FieldCanvas.Recording> legRecordings = new ArrayList<>();
+    private final LinkedHashSet<Node> canvasDirtyItems = new LinkedHashSet<>();
+    private boolean canvasOrderDirty = false;
+
     /**
      * Create the window.
      * Anchor the split plane to the window, and auto-resize and auto-center the image to the right-side pane
@@ -58,50 +126,67 @@ public class MainWindow {
         imageView.fitWidthProperty().bind(imagePane.widthProperty());
         imageView.fitHeightProperty().bind(imagePane.heightProperty());
 
-        // Whenever the size of the window changes, recenter the field image
-        imagePane.widthProperty().addListener((observableValue, number, t1) -> centerFieldImage());
-        imagePane.heightProperty().addListener((observableValue, number, t1) -> centerFieldImage());
+        // Whenever the size of the window changes, recenter the field image and everything on it.
+        // A resize usually changes both the width and height, which only recenters once.
+        imagePane.widthProperty().addListener((observableValue, number, t1) -> RedrawScheduler.requestLayout(fieldResizedTask));
+        imagePane.heightProperty().addListener((observableValue, number, t1) -> RedrawScheduler.requestLayout(fieldResizedTask));
 
-        // Redraw the path whenever the window size changes
-        imagePane.widthProperty().addListener((observableValue, number, t1) -> drawFullPath());
-        imagePane.heightProperty().addListener((observableValue, number, t1) -> drawFullPath());
-
-
-        ObservableList<Node> list = FXCollections.observableArrayList();
-        pointList.setItems(list);
+        pointList.setItems(FXCollections.observableArrayList());
+        ObservableList<Node> list = pointList.getItems();
+        if (FieldCanvas.isEnabled())
+        {
+            // The canvas goes just above the image it replaces, leaving handles like the mouse follower on top
+            fieldCanvas = new FieldCanvas(imagePane);
+            imageView.setVisible(false);
+            imagePane.getChildren().add(imagePane.getChildren().indexOf(imageView) + 1, fieldCanvas);
+        }
+        else
+        {
+            fieldGroup.getTransforms().addAll(fieldTranslate, fieldScale);
+            fieldGroup.getChildren().add(lineGroup);
+            imagePane.getChildren().add(fieldGroup);
+        }
 
         // Set up the image of the field,
         // Set the FieldImage class to automatically update the image when a new one is chosen
         imageView.setImage(FieldConfig.fieldImage);
         FieldConfig.setUpdateImageCallback( image -> {
             imageView.setImage(image);
-            centerFieldImage();
-        });
-
-        // Whenever a new point is created, add it to the list and handle the "remove" button correctly
-        addPtBtn.addEventHandler(MouseEvent.MOUSE_CLICKED, mouseEvent -> {
-            PointItem pItem = new PointItem(++numListItems, imagePane);
-            pItem.setDeleteHandler(event -> {
-                list.remove(pItem);
-                drawFullPath();
-            });
-            pItem.addChangeListener((observableValue, o, t1) -> drawFullPath());
-            list.add(pItem);
+            RedrawScheduler.requestLayout(fieldResizedTask);
+
+            // The field may have changed size, which changes which points are on it
+            route.setFieldSize(FieldConfig.LOADED_FIELD_WIDTH, FieldConfig.LOADED_FIELD_HEIGHT);
+            for (Node item : list)
+                if (item instanceof PathItem)
+                    ((PathItem) item).requestFullRedraw();
+            requestFullPath();
+
+            // The image path is only kept in autosave snapshots
+            if (journal != null)
+                journal.checkpoint();
         });
 
-        // Create a new path, and handle the "remove path" button for each one
-        addPathBtn.addEventHandler(MouseEvent.MOUSE_CLICKED, mouseEvent -> {
-            PathItem pItem = new PathItem(imagePane);
-            pItem.setDeleteHandler(event ->
-            {
-                pItem.removeFromField();
-                list.remove(pItem);
-                drawFullPath();
-            });
-            pItem.setSelectedHandler(event -> pointList.getSelectionModel().select(pItem));
-            pItem.addChangeListener((observableValue, o, t1) -> drawFullPath());
-            list.add(pItem);
-        });
+        // The built-in field decodes in the background once the window is up,
+        // with a bar across the bottom of the field until it's done
+        ProgressBar imageProgress = new ProgressBar();
+        imageProgress.progressProperty().bind(FieldImageLoader.progressProperty());
+        imageProgress.visibleProperty().bind(FieldImageLoader.loadingProperty());
+        AnchorPane.setLeftAnchor(imageProgress, 0.0);
+        AnchorPane.setRightAnchor(imageProgress, 0.0);
+        AnchorPane.setBottomAnchor(imageProgress, 0.0);
+        imagePane.getChildren().add(imageProgress);
+        crossingMarkers = new CrossingMarkers(imagePane, route);
+        routeSummary = new RouteSummary(routeLabel, route);
+        // Points, waypoints and tangents can be dragged on the field, with their handles drawn over everything else
+        fieldEditor = new FieldEditor(imagePane, route, list);
+
+        StartupTimer.defer("field image", () -> FieldImageLoader.load(FieldImageLoader.getDefaultUrl(),
+                FieldConfig::setFieldImage, message ->
+                        new Alert(Alert.AlertType.NONE, "Could not load the field image: " + message, ButtonType.CLOSE).show()));
+
+        // Whenever a new point or path is created, add it to the list and handle the "remove" button correctly
+        addPtBtn.addEventHandler(MouseEvent.MOUSE_CLICKED, mouseEvent -> addPoint());
+        addPathBtn.addEventHandler(MouseEvent.MOUSE_CLICKED, mouseEvent -> addPath());
 
         // When the "up" button is pressed, move the item in the list up, and keep it selected.
         // If nothing is selected, then do nothing.
@@ -120,8 +205,9 @@ public class MainWindow {
             }
 
             list.add(selectedIndex - 1, list.remove(selectedIndex));
+            route.move(selectedIndex, selectedIndex - 1);
             pointList.getSelectionModel().select(selectedIndex - 1);
-            drawFullPath();
+            requestFullPath();
         });
 
         // When the "down" button is pressed, move the item in the list down, and keep it selected.
@@ -141,21 +227,271 @@ public class MainWindow {
             }
 
             list.add(selectedIndex + 1, list.remove(selectedIndex));
+            route.move(selectedIndex, selectedIndex + 1);
             pointList.getSelectionModel().select(selectedIndex + 1);
-            drawFullPath();
+            requestFullPath();
         });
 
+        // Save to the file last saved or opened, or ask where to save if there isn't one
+        saveMenuItem.addEventHandler(ActionEvent.ACTION, actionEvent -> {
+            if (routeFile == null)
+                saveRouteAs();
+            else
+                saveRoute(routeFile);
+        });
+        saveAsMenuItem.addEventHandler(ActionEvent.ACTION, actionEvent -> saveRouteAs());
+        openPathMenuItem.addEventHandler(ActionEvent.ACTION, actionEvent -> {
+            File chosen = routeChooser("Open Route").showOpenDialog(imagePane.getScene().getWindow());
+            if (chosen != null)
+                openRoute(chosen);
+        });
+
+        exportMenuItem.addEventHandler(ActionEvent.ACTION, actionEvent -> exportRoute());
+
         // Open a new field image with options to set the width / length
+        // The dialog is only parsed the first time, then reused with whatever was last entered
         openFieldMenuItem.addEventHandler(ActionEvent.ACTION, actionEvent -> {
             try {
-                Stage fieldConfigStage = new Stage();
-                fieldConfigStage.setScene(new Scene(FXMLLoader.load(getClass().getResource("field-config.fxml"))));
+                if (fieldConfigStage == null)
+                {
+                    fieldConfigStage = new Stage();
+                    fieldConfigStage.setScene(new Scene(FXMLLoader.load(getClass().getResource("field-config.fxml"))));
+                }
                 fieldConfigStage.show();
+                fieldConfigStage.toFront();
             } catch (IOException e) {
                 e.printStackTrace();
             }
         });
 
+        // Once the window is up, offer to restore whatever was left unsaved
+        StartupTimer.defer("autosave", this::startAutosave);
+        StartupTimer.watchFirstFrame(imagePane);
+    }
+
+    /**
+     * Offer to restore the route autosaved by a session that didn't close properly, then start autosaving this one
+     */
+    private void startAutosave()
+    {
+        RouteJournal.Recovery recovery = null;
+        try {
+            recovery = RouteJournal.recover(AUTOSAVE_DIR);
+        } catch (IOException e) {
+            System.err.println("Could not read the autosave: " + e.getMessage());
+        }
+        if (recovery != null && recovery.getRoute().size() > 0)
+        {
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION,
+                    "The last session did not close properly. Restore its unsaved route?", ButtonType.YES, ButtonType.NO);
+            if (alert.showAndWait().orElse(ButtonType.NO) == ButtonType.YES)
+                loadRoute(recovery.getRoute(), recovery.getFieldImagePath());
+        }
+
+        try {
+            journal = RouteJournal.start(AUTOSAVE_DIR, route, () -> FieldConfig.fieldImagePath);
+            journal.setFailureHandler(message -> Platform.runLater(() -> new Alert(Alert.AlertType.NONE,
+                    "Autosave failed, and will try again with the next edit: " + message, ButtonType.CLOSE).show()));
+        } catch (IOException e) {
+            System.err.println("Autosave is off: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write out the last edits and remove the autosave, before the program exits normally
+     */
+    public void shutdown()
+    {
+        if (journal == null)
+            return;
+        journal.close();
+        journal = null;
+        try {
+            RouteJournal.delete(AUTOSAVE_DIR);
+        } catch (IOException e) {
+            System.err.println("Could not remove the autosave: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add a new, empty point to the end of the list, and handle its "remove" button
+     * @return The new point
+     */
+    private PointItem addPoint()
+    {
+        PointItem pItem = new PointItem(++numListItems, imagePane, fieldGroup);
+        pItem.setDeleteHandler(event -> {
+            pointList.getItems().remove(pItem);
+            route.remove(pItem.getRouteItem());
+            requestFullPath();
+        });
+        pItem.addChangeListener((observableValue, o, t1) -> requestLinks(pItem));
+        pointList.getItems().add(pItem);
+        route.add(pItem.getRouteItem());
+        requestFullPath();
+        return pItem;
+    }
+
+    /**
+     * Add a new, empty path to the end of the list, and handle its "remove path" button
+     * @return The new path
+     */
+    private PathItem addPath()
+    {
+        PathItem pItem = new PathItem(imagePane, fieldGroup);
+        pItem.setDeleteHandler(event ->
+        {
+            pItem.removeFromField();
+            pointList.getItems().remove(pItem);
+            route.remove(pItem.getRouteItem());
+            requestFullPath();
+        });
+        pItem.setSelectedHandler(event -> pointList.getSelectionModel().select(pItem));
+        pItem.setRedrawHandler(() -> requestCanvas(pItem));
+        pItem.addChangeListener((observableValue, o, t1) -> requestLinks(pItem));
+        pointList.getItems().add(pItem);
+        route.add(pItem.getRouteItem());
+        requestFullPath();
+        return pItem;
+    }
+
+    /**
+     * Ask the user where to save the route, and save it there
+     */
+    private void saveRouteAs()
+    {
+        File chosen = routeChooser("Save Route").showSaveDialog(imagePane.getScene().getWindow());
+        if (chosen == null)
+            return;
+        if (!chosen.getName().contains("."))
+            chosen = new File(chosen.getPath() + RouteFile.EXTENSION);
+        saveRoute(chosen);
+    }
+
+    /**
+     * Save the route and field to a file, and remember it for the next "Save"
+     * @param file The file to write
+     */
+    private void saveRoute(File file)
+    {
+        try {
+            RouteFile.write(file.toPath(), route, FieldConfig.fieldImagePath);
+            routeFile = file;
+        } catch (IOException e) {
+            new Alert(Alert.AlertType.NONE, "Could not save the route: " + e.getMessage(), ButtonType.CLOSE).show();
+        }
+    }
+
+    /**
+     * Replace everything in the list with a route from a file, and load its field
+     * @param file The file to read
+     */
+    private void openRoute(File file)
+    {
+        Route loaded;
+        String imagePath;
+        try (RouteFile in = RouteFile.open(file.toPath())) {
+            loaded = in.readRoute();
+            imagePath = in.getFieldImagePath();
+        } catch (IOException e) {
+            new Alert(Alert.AlertType.NONE, "Could not open the route: " + e.getMessage(), ButtonType.CLOSE).show();
+            return;
+        }
+        loadRoute(loaded, imagePath);
+        routeFile = file;
+    }
+
+    /**
+     * Replace everything in the list with a route, and load its field
+     * @param loaded The route to show
+     * @param imagePath The path of the field image, or an empty string to keep the current image
+     */
+    private void loadRoute(Route loaded, String imagePath)
+    {
+        // Clear the old route off the field
+        for (Node item : pointList.getItems())
+        {
+            if (item instanceof PathItem)
+                ((PathItem) item).removeFromField();
+            else if (item instanceof PointItem)
+                ((PointItem) item).removePointFromMap();
+        }
+        pointList.getItems().clear();
+        route.clear();
+        numListItems = 0;
+
+        // Load the field before the points, so they are checked against the right size
+        FieldConfig.LOADED_FIELD_WIDTH = (int) Math.round(loaded.getFieldWidth());
+        FieldConfig.LOADED_FIELD_HEIGHT = (int) Math.round(loaded.getFieldHeight());
+        route.setFieldSize(FieldConfig.LOADED_FIELD_WIDTH, FieldConfig.LOADED_FIELD_HEIGHT);
+        RedrawScheduler.requestLayout(fieldResizedTask);
+        if (!imagePath.isEmpty())
+        {
+            FieldImageLoader.load("file:" + imagePath, image -> {
+                FieldConfig.fieldImagePath = imagePath;
+                FieldConfig.setFieldImage(image);
+            }, message -> new Alert(Alert.AlertType.NONE, "Field image not found: " + imagePath, ButtonType.CLOSE).show());
+        }
+
+        // Fill in the list, as if the user typed it all
+        for (RouteItem item : loaded.getItems())
+        {
+            if (item.getKind() == RouteItem.Kind.POINT)
+                addPoint().setPoint(item.getX(0), item.getY(0));
+            else
+            {
+                PathItem pItem = addPath();
+                pItem.setSegmentType(item.getSegmentType());
+                for (int i = 0; i < item.size(); i++)
+                    pItem.addHermitePoint().setValues(item.getX(i), item.getY(i), item.getAngle(i), item.getMag(i));
+            }
+        }
+
+        // Start the autosave over from the new route, rather than journal every item of it
+        if (journal != null)
+            journal.checkpoint();
+    }
+
+    /**
+     * Ask the user where to export the route as a C++ header, with a trajectory table for each path
+     */
+    private void exportRoute()
+    {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export C++ Header");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("C++ Headers", "*" + CppHeaderExporter.EXTENSION));
+        File chosen = fileChooser.showSaveDialog(imagePane.getScene().getWindow());
+        if (chosen == null)
+            return;
+        if (!chosen.getName().contains("."))
+            chosen = new File(chosen.getPath() + CppHeaderExporter.EXTENSION);
+
+        // The namespace is named after the file, so several routes can be included together
+        String name = chosen.getName().substring(0, chosen.getName().lastIndexOf('.'));
+        CppHeaderExporter exporter = new CppHeaderExporter(CppHeaderExporter.toIdentifier(name),
+                RobotLimits.DEFAULT, TrajectoryGenerator.DEFAULT_SPACING);
+        try {
+            exporter.export(chosen.toPath(), route);
+        } catch (IOException e) {
+            new Alert(Alert.AlertType.NONE, "Could not export the route: " + e.getMessage(), ButtonType.CLOSE).show();
+        }
+    }
+
+    private FileChooser routeChooser(String title)
+    {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(title);
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("VEX Routes", "*" + RouteFile.EXTENSION),
+                new FileChooser.ExtensionFilter("All Files", "*.*")
+        );
+        if (routeFile != null)
+        {
+            fileChooser.setInitialDirectory(routeFile.getAbsoluteFile().getParentFile());
+            fileChooser.setInitialFileName(routeFile.getName());
+        }
+        return fileChooser;
     }
 
     /**
@@ -165,7 +501,10 @@ public class MainWindow {
      */
     public void centerFieldImage() {
 
+        // Nothing to line up with until the first image has loaded
         Image i = imageView.getImage();
+        if (i == null)
+            return;
         double xratio = imageView.getFitWidth() / i.getWidth();
         double yratio = imageView.getFitHeight() / i.getHeight();
 
@@ -186,37 +525,243 @@ public class MainWindow {
         // Offset the image by taking the difference in height / width, and halving it
         imageView.setX((imageView.getFitWidth() - w) / 2.0);
         imageView.setY((imagePane.getHeight() - h) / 2.0);
+
+        // Move everything on the field along with the image, the same way FieldConfig.inchesToPixels does
+        fieldTranslate.setX((imagePane.getWidth() - w) / 2.0);
+        fieldTranslate.setY((imagePane.getHeight() - h) / 2.0);
+        fieldScale.setX(w / FieldConfig.LOADED_FIELD_WIDTH);
+        fieldScale.setY(h / FieldConfig.LOADED_FIELD_HEIGHT);
     }
 
-    private void drawFullPath()
+    /**
+     * @return The data behind the list of points and paths
+     */
+    public Route getRoute()
+    {
+        return route;
+    }
+
+    /**
+     * Redraw every straight leg between list items in the next pulse.
+     * Legs are drawn after the paths, since paths only update their route items when they redraw.
+     */
+    private void requestFullPath()
     {
-        System.out.println("Redrawing...");
-        for (int i = 0; i < lineList.size(); i++)
-            if(imagePane.getChildren().contains(lineList.get(i)))
-                imagePane.getChildren().remove(lineList.get(i));
+        fullPathDirty = true;
+        RedrawScheduler.requestRender(linkTask);
+    }
 
-        lineList.clear();
+    /**
+     * Redraw the legs touching a list item in the next pulse.
+     * @param item The point or path that changed
+     */
+    private void requestLinks(Node item)
+    {
+        dirtyItems.add(item);
+        RedrawScheduler.requestRender(linkTask);
+    }
 
-        for (int i = 0; i < pointList.getItems().size() - 1; i++)
+    /**
+     * Run the line redraws collected since the last pulse. A full redraw covers every changed item.
+     */
+    private void flushLinks()
+    {
+        if (fieldCanvas != null)
         {
-            PathControl pc1 = (PathControl) pointList.getItems().get(i);
-            PathControl pc2 = (PathControl) pointList.getItems().get(i + 1);
+            canvasOrderDirty |= fullPathDirty;
+            canvasDirtyItems.addAll(dirtyItems);
+            requestCanvas();
+        }
+        else if (fullPathDirty)
+            drawFullPath();
+        else
+            for (Node item : dirtyItems)
+                drawLinks(item);
+
+        fullPathDirty = false;
+        dirtyItems.clear();
+    }
+
+    /**
+     * Recenter the field after a resize. The canvas only has to replay its recordings at the new scale.
+     */
+    private void fieldResized()
+    {
+        centerFieldImage();
+        if (fieldCanvas != null)
+            fieldCanvas.repaint();
+    }
+
+    /**
+     * Repaint the canvas in the next pulse, after the paths have been redrawn. Does nothing without a canvas.
+     */
+    private void requestCanvas()
+    {
+        if (fieldCanvas != null)
+            RedrawScheduler.requestRender(renderTask);
+    }
 
-            // If any of the points are off the field (negative)
-            if( (!pc1.isValid()) || (!pc2.isValid()) )
+    /**
+     * Record a list item and the legs on either side of it again, and repaint the canvas, in the next pulse.
+     * @param item The point or path that changed
+     */
+    private void requestCanvas(Node item)
+    {
+        canvasDirtyItems.add(item);
+        requestCanvas();
+    }
+
+    /**
+     * Record whatever changed since the last pulse into the canvas, and repaint it. Without changes, like after a
+     * resize, the recordings are just replayed at the new scale.
+     */
+    private void renderCanvas()
+    {
+        ObservableList<Node> items = pointList.getItems();
+        if (canvasOrderDirty)
+        {
+            // Paths keep their recordings through adds, removes and moves; points and legs are one shape each,
+            // and the field size may have changed which ones are valid
+            IdentityHashMap<Node, FieldCanvas.Recording> kept = new IdentityHashMap<>();
+            List<FieldCanvas.Recording> layers = fieldCanvas.getRecordings();
+            layers.clear();
+            while (legRecordings.size() < items.size())
+                legRecordings.add(new FieldCanvas.Recording());
+            legRecordings.subList(items.size(), legRecordings.size()).clear();
+            for (int i = 0; i < items.size(); i++)
+            {
+                Node node = items.get(i);
+                FieldCanvas.Recording shape = shapeRecordings.get(node);
+                if (shape == null || !(node instanceof PathItem))
+                {
+                    shape = (shape == null) ? new FieldCanvas.Recording() : shape;
+                    recordItem(i, shape);
+                }
+                recordLeg(i);
+                kept.put(node, shape);
+                layers.add(shape);
+                layers.add(legRecordings.get(i));
+            }
+            shapeRecordings = kept;
+            canvasOrderDirty = false;
+        }
+
+        for (Node node : canvasDirtyItems)
+        {
+            int i = items.indexOf(node);
+            if (i < 0 || !shapeRecordings.containsKey(node))
                 continue;
+            recordItem(i, shapeRecordings.get(node));
+            recordLeg(i);
+            recordLeg(i + 1);
+        }
+        canvasDirtyItems.clear();
+        fieldCanvas.repaint();
+    }
+
+    /**
+     * Record a point or path, in place of its last recording.
+     */
+    private void recordItem(int i, FieldCanvas.Recording recording)
+    {
+        RouteItem item = route.get(i);
+        if (item.getKind() == RouteItem.Kind.PATH)
+        {
+            ((PathItem) pointList.getItems().get(i)).recordTo(recording);
+            return;
+        }
+        recording.clear();
+        if (item.isValid())
+            recording.addPoint(item.getX(0), item.getY(0));
+    }
 
-            Point2D adjustedPtStart = FieldConfig.inchesToPixels(pc1.getEndPoint(), imagePane);
-            Point2D adjustedPtEnd = FieldConfig.inchesToPixels(pc2.getStartPoint(), imagePane);
-            Line l = new Line(adjustedPtStart.getX(), adjustedPtStart.getY(),
-                    adjustedPtEnd.getX(), adjustedPtEnd.getY());
+    /**
+     * Record the leg into a list item from the one before it, in place of its last recording.
+     */
+    private void recordLeg(int i)
+    {
+        if (i >= legRecordings.size())
+            return;
+        FieldCanvas.Recording recording = legRecordings.get(i);
+        recording.clear();
+        if (i == 0 || !route.get(i - 1).isValid() || !route.get(i).isValid())
+            return;
+        RouteItem prev = route.get(i - 1);
+        RouteItem item = route.get(i);
+        int last = prev.size() - 1;
+        recording.addLine(prev.getX(last), prev.getY(last), item.getX(0), item.getY(0));
+    }
+
+    /**
+     * Redraw every straight leg between list items, reusing the existing lines where possible.
+     * Used when items are added, removed or reordered.
+     */
+    private void drawFullPath()
+    {
+        // Match the number of lines to the number of legs, only creating or removing the difference
+        int legs = Math.max(0, pointList.getItems().size() - 1);
+        while (lineList.size() < legs)
+        {
+            Line l = new Line();
             l.strokeProperty().set(Color.DARKORANGE);
-            l.strokeWidthProperty().set(4);
+            l.strokeWidthProperty().set(LINE_WIDTH);
             lineList.add(l);
+            lineGroup.getChildren().add(l);
+        }
+        if (lineList.size() > legs)
+        {
+            lineGroup.getChildren().remove(legs, lineList.size());
+            lineList.subList(legs, lineList.size()).clear();
         }
 
-        for (Line l : lineList)
-            imagePane.getChildren().add(l);
+        for (int i = 0; i < legs; i++)
+            updateLine(i);
+    }
+
+    /**
+     * Redraw only the (at most two) legs touching a list item that changed.
+     * @param item The point or path that changed
+     */
+    private void drawLinks(Node item)
+    {
+        int i = pointList.getItems().indexOf(item);
+        if (i < 0)
+            return;
+
+        // The item may have just been added, and not have its legs yet
+        if (lineList.size() != Math.max(0, pointList.getItems().size() - 1))
+        {
+            drawFullPath();
+            return;
+        }
+
+        updateLine(i - 1);
+        updateLine(i);
+    }
+
+    /**
+     * Move a leg's line in place to join its two list items, or hide it if either item is off the field.
+     */
+    private void updateLine(int leg)
+    {
+        if (leg < 0 || leg >= lineList.size())
+            return;
+
+        RouteItem from = route.get(leg);
+        RouteItem to = route.get(leg + 1);
+        Line l = lineList.get(leg);
+
+        // If any of the points are off the field (negative)
+        boolean visible = from.isValid() && to.isValid();
+        l.setVisible(visible);
+        if (!visible)
+            return;
+
+        int last = from.size() - 1;
+        l.setStartX(from.getX(last));
+        l.setStartY(from.getY(last));
+        l.setEndX(to.getX(0));
+        l.setEndY(to.getY(0));
     }
     static int x = 0;
 
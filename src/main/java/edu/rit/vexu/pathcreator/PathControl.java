@@ -1,9 +1,15 @@
 package edu.rit.vexu.pathcreator;
 
+import edu.rit.vexu.pathcreator.model.RouteItem;
 import javafx.geometry.Point2D;
 
 public interface PathControl {
 
+    /**
+     * @return The data behind this list item, which the item keeps up to date with what the user types
+     */
+    public RouteItem getRouteItem();
+
     public boolean isValid();
 
     public Point2D getStartPoint();
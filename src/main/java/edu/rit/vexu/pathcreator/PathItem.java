@@ -1,10 +1,23 @@
 package edu.rit.vexu.pathcreator;
 
+import edu.rit.vexu.pathcreator.geometry.ArcLengthTable;
+import edu.rit.vexu.pathcreator.geometry.AutoTangents;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.geometry.SplineProjector;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import edu.rit.vexu.pathcreator.trajectory.DifferentialDrive;
+import edu.rit.vexu.pathcreator.trajectory.PathAnalysis;
+import edu.rit.vexu.pathcreator.trajectory.RobotLimits;
+import edu.rit.vexu.pathcreator.trajectory.TangentOptimizer;
+import edu.rit.vexu.pathcreator.trajectory.TrajectoryGenerator;
+import edu.rit.vexu.pathcreator.trajectory.TrajectorySink;
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.event.EventHandler;
 import javafx.geometry.Point2D;
+import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
@@ -15,7 +28,10 @@ import javafx.util.Pair;
 import java.lang.reflect.Array;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * PathItem
@@ -27,6 +43,10 @@ public class PathItem extends VBox implements PathControl {
 
     private static final double MIN_SIZE = 35;
     private static final double CHILD_SIZE = 57;
+    // Width of the curves, in inches
+    private static final double CURVE_WIDTH = 0.8;
+    // Changed points redrawn one by one in a pulse, before the whole path is redrawn instead
+    private static final int MAX_POINT_REDRAWS = 8;
 
     static int pathnum = 0;
     private TreeView view;
@@ -34,31 +54,91 @@ public class PathItem extends VBox implements PathControl {
     private Button rmPathBtn = new Button("X");
     private Button mkPointBtn = new Button("New Hermite Point");
     private AnchorPane fieldPane;
+    private Group fieldGroup;
 
     private int numHermitePoints = 0;
 
     private ChangeListener changeListener = null;
 
+    // This path's curves live in their own group, one curve per segment, so redrawing
+    // one path never touches another path's graphics
+    private final Group pathGroup = new Group();
+    private final ArrayList<SegmentCurve> curves = new ArrayList<>();
+    // Every segment of the path is of one type, in the order of HermiteSpline.SegmentType
+    private static final String[] SEGMENT_TYPES = { "Cubic", "Quintic", "Straight" };
+    private final ChoiceBox<String> segmentChoice = new ChoiceBox<>();
+    // The points in path order, and the numbers they hold. The model is copied from the points on each
+    // redraw, and everything else about the path is worked out from it.
+    private final ArrayList<HermitePointItem> points = new ArrayList<>();
+    private final RouteItem model = new RouteItem(RouteItem.Kind.PATH,
+            FieldConfig.LOADED_FIELD_WIDTH, FieldConfig.LOADED_FIELD_HEIGHT);
+
+    // Redraws wait for the next pulse; until then, collect which points changed
+    private final Runnable redrawTask = this::flushRedraw;
+    private final LinkedHashSet<HermitePointItem> dirtyPoints = new LinkedHashSet<>();
+    private boolean fullRedraw = false;
+    private Runnable redrawHandler = null;
+
+    // The path in inches. The curves are drawn from it, in the field group's inch coordinates,
+    // and only edited segments are re-measured on each redraw.
+    private final HermiteSpline fieldSpline = new HermiteSpline();
+    private final ArcLengthTable lengthTable = new ArcLengthTable(fieldSpline);
+    private final SplineProjector projector = new SplineProjector(lengthTable);
+    private final TrajectoryGenerator trajectoryGenerator = new TrajectoryGenerator();
+    private boolean measurable = false;
+    private Label lengthLabel = new Label();
+
+    // Timing and checking the path runs in the background on a copy of the spline, one generator per thread.
+    // Until a newer analysis comes back, the last one stays shown.
+    private static final ThreadLocal<TrajectoryGenerator> analysisGenerators =
+            ThreadLocal.withInitial(TrajectoryGenerator::new);
+    private PathAnalysis analysis = null;
+    private final Tooltip analysisTooltip = new Tooltip();
+
+    // Optimizing the tangents runs on its own thread, scoring candidates on the common fork-join pool, which
+    // leaves a core for the FX thread. Each better path it finds is shown as it comes, and any edit stops it.
+    private final MenuButton optimizeBtn = new MenuButton("Optimize");
+    private final MenuItem stopOptimizeItem = new MenuItem("Stop");
+    private OptimizeRun optimizeRun = null;
+    private boolean applyingTangents = false;
+
+    // Tangents can be filled in from the positions of the points, except where a point keeps its own.
+    // Filling runs as a layout task, so the redraw in the same pulse already sees the new tangents.
+    private static final String[] TANGENT_MODES = { "Manual tangents", "Catmull-Rom", "Cardinal", "Natural" };
+    // A tension of 1 would leave every tangent with no length, and no heading
+    private static final double MAX_TENSION = 0.95;
+    private final ChoiceBox<String> tangentChoice = new ChoiceBox<>();
+    private final TextField tensionField = new TextField("0.5");
+    private final AutoTangents autoTangents = new AutoTangents();
+    private final Runnable tangentTask = this::fillTangents;
+    private double[] knotX = new double[0], knotY = new double[0], tangentX = new double[0], tangentY = new double[0];
+    private boolean[] fixedTangents = new boolean[0];
+
     public enum Direction { UP, DOWN }
 
 
     /**
      * Create the list item
+     * @param fieldPane The anchor pane holding the field image
+     * @param fieldGroup The group on the field drawn in inches, for drawing the path
      */
-    public PathItem(AnchorPane fieldPane)
+    public PathItem(AnchorPane fieldPane, Group fieldGroup)
     {
         this.fieldPane = fieldPane;
+        this.fieldGroup = fieldGroup;
         // Create the drop-down portion
         Region rootRgn = new Region();
         HBox.setHgrow(rootRgn, Priority.ALWAYS);
         root = new TreeItem(new HBox(
-                new Label("Path " + (++pathnum)),
+                new Label("Path " + (++pathnum) + " "),
+                lengthLabel,
                 rootRgn,
+                optimizeBtn,
                 rmPathBtn
         ));
 
         // "Add Point" button
-        root.getChildren().add(new TreeItem(mkPointBtn));
+        root.getChildren().add(new TreeItem(new HBox(mkPointBtn, segmentChoice, tangentChoice, tensionField)));
 
         view = new TreeView(root);
         view.setMinHeight(MIN_SIZE);
@@ -70,34 +150,93 @@ public class PathItem extends VBox implements PathControl {
         // Listen for changes in height (aka expanding the tree), and adjust the height accordingly
         root.expandedProperty().addListener((observableValue, aBoolean, t1) -> resizeTree(t1));
 
-        fieldPane.heightProperty().addListener((observableValue, number, t1) -> drawPath());
-        fieldPane.widthProperty().addListener((observableValue, number, t1) -> drawPath());
+        // The canvas renderer draws the path from the spline itself, so it needs no curves
+        if(!FieldCanvas.isEnabled())
+            fieldGroup.getChildren().add(pathGroup);
+
+        // Adding, removing or moving points changes which segments exist, so redraw the whole path.
+        // Editing a single point only redraws the segments touching it.
+        root.getChildren().addListener((ListChangeListener) change -> {
+            stopOptimizing();
+            requestTangentFill();
+            requestFullRedraw();
+        });
 
         // Button Controls
         // "New Hermite Point"
-        mkPointBtn.addEventHandler(MouseEvent.MOUSE_CLICKED, mouseEvent ->
-        {
-            // Create a new point, add it to the path list,
-            // and control what to do when it's deleted
-            HermitePointItem hpItem = new HermitePointItem(++numHermitePoints, fieldPane);
-            TreeItem hpTreeItem = new TreeItem(hpItem);
-            hpItem.setDeleteHandler(e -> {
-                root.getChildren().remove(hpTreeItem);
-                numHermitePoints--;
-                resizeTree(root.isExpanded());
-            });
-            hpItem.addChangeListener((observableValue, o, t1) -> drawPath());
-            hpItem.pointPart.addChangeListener(changeListener);
-            root.getChildren().add(hpTreeItem);
-
-            resizeTree(root.isExpanded());
-        }
-        );
+        mkPointBtn.addEventHandler(MouseEvent.MOUSE_CLICKED, mouseEvent -> addHermitePoint());
 
         // "X"
         // The rest of the handler is added through setDeleteHandler
         rmPathBtn.addEventHandler(MouseEvent.MOUSE_CLICKED, mouseEvent -> pathnum--);
 
+        // "Optimize"
+        MenuItem smoothestItem = new MenuItem("Smoothest");
+        smoothestItem.setOnAction(e -> startOptimizing(TangentOptimizer.Goal.SMOOTHEST, false));
+        MenuItem smoothestTurningItem = new MenuItem("Smoothest, turning waypoints");
+        smoothestTurningItem.setOnAction(e -> startOptimizing(TangentOptimizer.Goal.SMOOTHEST, true));
+        MenuItem fastestItem = new MenuItem("Fastest");
+        fastestItem.setOnAction(e -> startOptimizing(TangentOptimizer.Goal.FASTEST, false));
+        MenuItem fastestTurningItem = new MenuItem("Fastest, turning waypoints");
+        fastestTurningItem.setOnAction(e -> startOptimizing(TangentOptimizer.Goal.FASTEST, true));
+        stopOptimizeItem.setOnAction(e -> stopOptimizing());
+        stopOptimizeItem.setDisable(true);
+        optimizeBtn.getItems().addAll(smoothestItem, smoothestTurningItem, fastestItem, fastestTurningItem,
+                new SeparatorMenuItem(), stopOptimizeItem);
+        optimizeBtn.setTooltip(new Tooltip("Tune the tangents of this path, keeping its waypoints and the field"));
+
+        // Segment type
+        segmentChoice.getItems().addAll(SEGMENT_TYPES);
+        segmentChoice.getSelectionModel().select(0);
+        segmentChoice.setTooltip(new Tooltip("Quintic segments keep the curvature continuous through the points"));
+        segmentChoice.getSelectionModel().selectedIndexProperty().addListener((observableValue, from, to) -> {
+            model.setSegmentType(HermiteSpline.SegmentType.values()[to.intValue()]);
+            stopOptimizing();
+            requestFullRedraw();
+        });
+
+        // Tangent mode
+        tangentChoice.getItems().addAll(TANGENT_MODES);
+        tangentChoice.getSelectionModel().select(0);
+        tangentChoice.setTooltip(new Tooltip("Fill in the tangents of the points marked \"Auto\" from their positions"));
+        tangentChoice.getSelectionModel().selectedIndexProperty().addListener(
+                (observableValue, from, to) -> setTangentMode(from.intValue(), to.intValue()));
+        tensionField.setMaxWidth(40);
+        tensionField.setTooltip(new Tooltip("Tension, from 0 (Catmull-Rom) toward 1 (straight lines)"));
+        tensionField.setVisible(false);
+        tensionField.textProperty().addListener((observableValue, s, t1) -> requestTangentFill());
+
+    }
+
+    /**
+     * Create a new point, add it to the end of the path list,
+     * and control what to do when it's deleted
+     * @return The new point, with empty text fields
+     */
+    public HermitePointItem addHermitePoint()
+    {
+        HermitePointItem hpItem = new HermitePointItem(++numHermitePoints, fieldPane, fieldGroup);
+        TreeItem hpTreeItem = new TreeItem(hpItem);
+        hpItem.setDeleteHandler(e -> {
+            root.getChildren().remove(hpTreeItem);
+            numHermitePoints--;
+            resizeTree(root.isExpanded());
+        });
+        hpItem.setAutoTangentShown(getTangentMode() != null);
+        hpItem.addChangeListener((observableValue, o, t1) -> {
+            if(!applyingTangents)
+            {
+                stopOptimizing();
+                requestTangentFill();
+            }
+            requestPointRedraw(hpItem);
+        });
+        if(changeListener != null)
+            hpItem.pointPart.addChangeListener(changeListener);
+        root.getChildren().add(hpTreeItem);
+
+        resizeTree(root.isExpanded());
+        return hpItem;
     }
 
     private void resizeTree(boolean isExpanded)
@@ -187,73 +326,562 @@ public class PathItem extends VBox implements PathControl {
         for(TreeItem o : (ObservableList<TreeItem>)root.getChildren())
             if(o.getValue() instanceof HermitePointItem)
                 ((TreeItem<HermitePointItem>)o).getValue().pointPart.removePointFromMap();
+        fieldGroup.getChildren().remove(pathGroup);
+        BackgroundCompute.cancel(this);
+        stopOptimizing();
     }
 
-    public void drawPath()
+    /**
+     * Start tuning the tangents of this path in the background, unless it's invalid or already being tuned.
+     * The points are updated with each better path found, until the search ends or is stopped.
+     * @param goal What to make better
+     * @param turnWaypoints Whether to change the angles of the points between the first and last too
+     */
+    public void startOptimizing(TangentOptimizer.Goal goal, boolean turnWaypoints)
+    {
+        if(!measurable || optimizeRun != null)
+            return;
+
+        TangentOptimizer optimizer = new TangentOptimizer(goal, turnWaypoints, RobotLimits.DEFAULT,
+                FieldConfig.LOADED_FIELD_WIDTH, FieldConfig.LOADED_FIELD_HEIGHT);
+        optimizeRun = new OptimizeRun(optimizer, new HermiteSpline(fieldSpline));
+        stopOptimizeItem.setDisable(false);
+        optimizeBtn.setText("Optimizing");
+        Thread thread = new Thread(optimizeRun, "Tangent optimizer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop tuning the tangents, keeping the best path shown so far.
+     */
+    public void stopOptimizing()
     {
-        HermitePointItem[] pointList = new HermitePointItem[root.getChildren().size() - 1];
+        if(optimizeRun == null)
+            return;
+        optimizeRun.cancelled = true;
+        optimizeRun = null;
+        stopOptimizeItem.setDisable(true);
+        optimizeBtn.setText("Optimize");
+    }
+
+    /**
+     * Copy the best path a run has found so far into the points, rounded like the field editor does.
+     */
+    private void showOptimized(OptimizeRun run)
+    {
+        run.showPending.set(false);
+        if(run != optimizeRun)
+            return;
+
+        HermiteSpline best = run.best;
+        applyingTangents = true;
+        for(int i = 0; i < points.size() && i < best.getKnotCount(); i++)
+            points.get(i).setTangent(round(Math.toDegrees(best.getKnotAngle(i))), round(best.getKnotMag(i)));
+        applyingTangents = false;
+
+        if(run.done)
+            stopOptimizing();
+        else
+            optimizeBtn.setText(String.format("Optimizing %.0f%%", 100 * run.progress));
+    }
+
+    /**
+     * @return How the path runs between its points
+     */
+    public HermiteSpline.SegmentType getSegmentType()
+    {
+        return model.getSegmentType();
+    }
+
+    /**
+     * Change how the path runs between its points, as if it was picked from the list.
+     * @param type The type of every segment
+     */
+    public void setSegmentType(HermiteSpline.SegmentType type)
+    {
+        segmentChoice.getSelectionModel().select(type.ordinal());
+    }
+
+    /**
+     * @return How tangents are filled in, or null if they're all typed in by hand
+     */
+    public AutoTangents.Mode getTangentMode()
+    {
+        int index = tangentChoice.getSelectionModel().getSelectedIndex();
+        return index > 0 ? AutoTangents.Mode.values()[index - 1] : null;
+    }
+
+    /**
+     * Switch how tangents are filled in. Leaving manual tangents fills every point, after which a point keeps
+     * whatever tangent is typed into it.
+     */
+    private void setTangentMode(int from, int to)
+    {
+        AutoTangents.Mode mode = getTangentMode();
+        tensionField.setVisible(mode == AutoTangents.Mode.CARDINAL);
         for(int i = 1; i < root.getChildren().size(); i++)
-            pointList[i - 1] = ((TreeItem<HermitePointItem>) root.getChildren().get(i)).getValue();
+        {
+            HermitePointItem hpItem = ((TreeItem<HermitePointItem>) root.getChildren().get(i)).getValue();
+            hpItem.setAutoTangentShown(mode != null);
+            if(from == 0)
+                hpItem.setAutoTangent(true);
+        }
+        requestTangentFill();
+    }
+
+    /**
+     * Fill in the tangents before the next redraw, if they're filled in at all.
+     */
+    private void requestTangentFill()
+    {
+        if(getTangentMode() != null)
+            RedrawScheduler.requestLayout(tangentTask);
+    }
+
+    /**
+     * Fill in the tangents of the points marked "Auto" from the positions of every point, rounded like the field
+     * editor does. Nothing is filled while any position, or the tension, isn't a number.
+     */
+    private void fillTangents()
+    {
+        AutoTangents.Mode mode = getTangentMode();
+        int count = root.getChildren().size() - 1;
+        double tension = parseTension();
+        if(mode == null || count < 2 || Double.isNaN(tension))
+            return;
+
+        if(knotX.length < count)
+        {
+            knotX = new double[count];
+            knotY = new double[count];
+            tangentX = new double[count];
+            tangentY = new double[count];
+            fixedTangents = new boolean[count];
+        }
+        for(int i = 0; i < count; i++)
+        {
+            HermitePointItem hpItem = ((TreeItem<HermitePointItem>) root.getChildren().get(i + 1)).getValue();
+            if(!hpItem.pointPart.isValid())
+                return;
+            Point2D inches = hpItem.pointPart.getPoint();
+            knotX[i] = inches.getX();
+            knotY[i] = inches.getY();
+            // A point with a blank tangent has nothing to keep, so fill it until something is typed in
+            fixedTangents[i] = !hpItem.isAutoTangent() && Double.isFinite(hpItem.getDir()) && Double.isFinite(hpItem.getMag());
+            if(fixedTangents[i])
+            {
+                double dir = Math.toRadians(hpItem.getDir());
+                tangentX[i] = hpItem.getMag() * Math.cos(dir);
+                tangentY[i] = hpItem.getMag() * Math.sin(dir);
+            }
+        }
 
-        fieldPane.getChildren().removeIf(node -> node instanceof HermiteCurve);
+        autoTangents.fill(mode, tension, count, knotX, knotY, fixedTangents, tangentX, tangentY);
 
-        for (int i = 0; i < pointList.length - 1; i++) {
-            if(!pointList[i].isValid() || !pointList[i+1].isValid())
+        // Most tangents of a long path don't change when one point moves, so only touch the ones that do
+        applyingTangents = true;
+        for(int i = 0; i < count; i++)
+        {
+            if(fixedTangents[i])
                 continue;
+            HermitePointItem hpItem = ((TreeItem<HermitePointItem>) root.getChildren().get(i + 1)).getValue();
+            double dir = round(Math.toDegrees(Math.atan2(tangentY[i], tangentX[i])));
+            double mag = round(Math.hypot(tangentX[i], tangentY[i]));
+            if(dir != hpItem.getDir() || mag != hpItem.getMag())
+                hpItem.setAutoTangent(dir, mag);
+        }
+        applyingTangents = false;
+    }
+
+    /**
+     * @return The cardinal tension, from 0 to just under 1, or NaN if the field doesn't hold a number
+     */
+    private double parseTension()
+    {
+        try
+        {
+            return Math.max(0, Math.min(MAX_TENSION, Double.parseDouble(tensionField.getText())));
+        } catch(NumberFormatException e)
+        {
+            return Double.NaN;
+        }
+    }
+
+    private static double round(double value)
+    {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * One search for better tangents. The search thread only publishes its latest best path; the FX thread
+     * picks it up at most once per event, however many the search found in between.
+     */
+    private final class OptimizeRun implements Runnable
+    {
+        private final TangentOptimizer optimizer;
+        private final HermiteSpline start;
+        private final AtomicBoolean showPending = new AtomicBoolean(false);
+        private volatile boolean cancelled = false;
+        private volatile boolean done = false;
+        private volatile double progress = 0;
+        private volatile HermiteSpline best;
+
+        private OptimizeRun(TangentOptimizer optimizer, HermiteSpline start)
+        {
+            this.optimizer = optimizer;
+            this.start = start;
+            this.best = start;
+        }
+
+        @Override
+        public void run()
+        {
+            HermiteSpline result = optimizer.optimize(start, ForkJoinPool.commonPool(),
+                    (progress, cost, path) -> publish(progress, path), () -> cancelled);
+            best = result;
+            progress = 1;
+            // Always show the final path, even if an earlier one is still waiting to be shown
+            done = true;
+            Platform.runLater(() -> showOptimized(this));
+        }
+
+        private void publish(double progress, HermiteSpline path)
+        {
+            this.best = path;
+            this.progress = progress;
+            if(showPending.compareAndSet(false, true))
+                Platform.runLater(() -> showOptimized(this));
+        }
+    }
+
+    /**
+     * Redraw the whole path in the next pulse.
+     */
+    public void requestFullRedraw()
+    {
+        fullRedraw = true;
+        RedrawScheduler.requestRedraw(redrawTask);
+    }
+
+    /**
+     * Redraw the segments touching a point in the next pulse.
+     * @param hpItem The point that changed
+     */
+    private void requestPointRedraw(HermitePointItem hpItem)
+    {
+        dirtyPoints.add(hpItem);
+        RedrawScheduler.requestRedraw(redrawTask);
+    }
+
+    /**
+     * Run the redraws collected since the last pulse. A full redraw covers every changed point.
+     */
+    private void flushRedraw()
+    {
+        // Finding each point is a search of the path, so past a few points, redrawing all of it is quicker
+        if(fullRedraw || dirtyPoints.size() > MAX_POINT_REDRAWS)
+            drawPath();
+        else
+        {
+            for(HermitePointItem hpItem : dirtyPoints)
+                drawPoint(hpItem);
+            updateMeasurements();
+        }
+
+        fullRedraw = false;
+        dirtyPoints.clear();
 
-            Point2D start = FieldConfig.inchesToPixels(pointList[i].pointPart.getPoint(), fieldPane);
-            Point2D end = FieldConfig.inchesToPixels(pointList[i + 1].pointPart.getPoint(), fieldPane);
-
-            HermiteCurve hc = new HermiteCurve(
-                    // Point 1
-                    start.getX(),
-                    start.getY(),
-                    Math.toRadians(pointList[i].getDir()),
-                    pointList[i].getMag() * (FieldConfig.fieldImageScaledWidth / FieldConfig.LOADED_FIELD_WIDTH),
-                    // Point 2
-                    end.getX(),
-                    end.getY(),
-                    Math.toRadians(pointList[i + 1].getDir()),
-                    pointList[i + 1].getMag() * (FieldConfig.fieldImageScaledWidth / FieldConfig.LOADED_FIELD_WIDTH)
-            );
+        if(redrawHandler != null)
+            redrawHandler.run();
+    }
+
+    /**
+     * Control what happens after the path is redrawn, like repainting a canvas drawn from it.
+     * @param r Callback run after each redraw
+     */
+    public void setRedrawHandler(Runnable r)
+    {
+        this.redrawHandler = r;
+    }
+
+    /**
+     * Record the valid segments and points of this path, in inches, in place of whatever was recorded before.
+     * @param recording The recording to record into
+     */
+    public void recordTo(FieldCanvas.Recording recording)
+    {
+        recording.clear();
+        for(int i = 0; i < fieldSpline.getSegmentCount(); i++)
+            if(model.isValid(i) && model.isValid(i + 1))
+                recording.addSegment(fieldSpline, i);
+
+        for(int i = 0; i < fieldSpline.getKnotCount(); i++)
+            if(model.isValid(i))
+                recording.addPoint(fieldSpline.getKnotX(i), fieldSpline.getKnotY(i));
+    }
 
+    /**
+     * Redraw every segment of this path, reusing the existing curves where possible.
+     * Used when points are added, removed or reordered.
+     */
+    public void drawPath()
+    {
+        points.clear();
+        for(int i = 1; i < root.getChildren().size(); i++)
+            points.add(((TreeItem<HermitePointItem>) root.getChildren().get(i)).getValue());
+
+        model.setSize(points.size());
+        fieldSpline.setKnotCount(points.size());
+        for (int i = 0; i < fieldSpline.getSegmentCount(); i++)
+            fieldSpline.setSegmentType(i, model.getSegmentType());
+        for (int i = 0; i < points.size(); i++)
+            updateKnot(i);
+
+        // Match the number of curves to the number of segments, only creating or removing the difference
+        int segments = FieldCanvas.isEnabled() ? 0 : Math.max(0, points.size() - 1);
+        while (curves.size() < segments) {
+            SegmentCurve hc = new SegmentCurve();
             hc.setFill(Color.TRANSPARENT);
             hc.setStroke(Color.DARKORANGE);
-            hc.setStrokeWidth(4);
+            hc.setStrokeWidth(CURVE_WIDTH);
+            curves.add(hc);
+            pathGroup.getChildren().add(hc);
+        }
+        if (curves.size() > segments) {
+            pathGroup.getChildren().remove(segments, curves.size());
+            curves.subList(segments, curves.size()).clear();
+        }
+
+        for (int i = 0; i < segments; i++)
+            updateCurve(i);
+
+        updateMeasurements();
+    }
 
-            fieldPane.getChildren().add(hc);
+    /**
+     * Redraw only the segments touching a point that was edited: the two on either side, and one more on each
+     * side for quintic segments.
+     * The path is re-measured once after all the edited points are redrawn.
+     * @param hpItem The point that changed
+     */
+    private void drawPoint(HermitePointItem hpItem)
+    {
+        int i = points.indexOf(hpItem);
+        if(i < 0)
+        {
+            drawPath();
+            return;
         }
+
+        updateKnot(i);
+        for(int segment = fieldSpline.getFirstSegmentTouching(i); segment <= fieldSpline.getLastSegmentTouching(i); segment++)
+            updateCurve(segment);
     }
 
-    @Override
-    public boolean isValid() {
-        if(root.getChildren().size() <= 1)
-            return false;
+    /**
+     * Copy a point from the list into the model, and into the spline if it is valid.
+     * Invalid points keep a stale knot, and the segments touching them are hidden.
+     */
+    private void updateKnot(int i)
+    {
+        HermitePointItem point = points.get(i);
+        Point2D inches = point.pointPart.getPoint();
+        model.set(i, inches.getX(), inches.getY(), point.getDir(), point.getMag());
+        if(!model.isValid(i))
+            return;
+
+        setKnotIfChanged(fieldSpline, i, model.getX(i), model.getY(i), Math.toRadians(model.getAngle(i)), model.getMag(i));
+    }
+
+    /**
+     * Move a segment's curve in place to match the spline, or hide it if either end is invalid.
+     */
+    private void updateCurve(int segment)
+    {
+        if(segment < 0 || segment >= curves.size())
+            return;
+
+        SegmentCurve hc = curves.get(segment);
+        boolean visible = model.isValid(segment) && model.isValid(segment + 1);
+        hc.setVisible(visible);
+        if(visible)
+            hc.setSegment(fieldSpline, segment);
+    }
+
+    /**
+     * Re-measure the edited segments right away, for dragging and hovering on the field,
+     * and hand a copy of the path to the background to be timed and checked.
+     */
+    private void updateMeasurements()
+    {
+        measurable = model.size() > 1 && model.isValid();
+        lengthTable.update();
+        projector.update();
+        if(!measurable)
+        {
+            BackgroundCompute.cancel(this);
+            analysis = null;
+            showAnalysis();
+            return;
+        }
+
+        HermiteSpline snapshot = new HermiteSpline(fieldSpline);
+        BackgroundCompute.submit(this,
+                cancelled -> PathAnalysis.analyze(snapshot, RobotLimits.DEFAULT, analysisGenerators.get(), cancelled),
+                result -> {
+                    analysis = result;
+                    showAnalysis();
+                });
+        showAnalysis();
+    }
+
+    /**
+     * Show the length, and the time and tightest turn from the last analysis, if there was one
+     */
+    private void showAnalysis()
+    {
+        if(!measurable)
+        {
+            lengthLabel.setText("");
+            lengthLabel.setTooltip(null);
+            return;
+        }
+        if(analysis == null)
+        {
+            lengthLabel.setText(String.format("(%.1f in)", lengthTable.getLength()));
+            return;
+        }
 
-        boolean retVal = true;
-        for (Object pItem : root.getChildren())
-            if(pItem instanceof TreeItem && ((TreeItem) pItem).getValue() instanceof HermitePointItem)
-                retVal = retVal && ((TreeItem<HermitePointItem>)pItem).getValue().pointPart.isValid();
+        lengthLabel.setText(String.format("(%.1f in, %.2f s)", lengthTable.getLength(), analysis.getDriveTime()));
+        analysisTooltip.setText(analysis.getMaxCurvature() > 0
+                ? String.format("Tightest turn: %.1f in radius at (%.1f, %.1f), taken at %.1f in/s",
+                        analysis.getTightestRadius(), analysis.getTightestX(), analysis.getTightestY(),
+                        analysis.getTightestSpeed())
+                : "Straight");
+        lengthLabel.setTooltip(analysisTooltip);
+    }
+
+    /**
+     * Set a knot only if it differs from what the spline already holds, so unchanged segments
+     * keep their stamps and are not re-measured.
+     */
+    private static void setKnotIfChanged(HermiteSpline s, int i, double x, double y, double dir, double mag)
+    {
+        if(s.getKnotX(i) != x || s.getKnotY(i) != y || s.getKnotAngle(i) != dir || s.getKnotMag(i) != mag)
+            s.setKnot(i, x, y, dir, mag);
+    }
+
+    /**
+     * @param index The index of a point in path order, as in the model
+     * @return The point, or null if the path has changed since it was last redrawn
+     */
+    public HermitePointItem getHermitePoint(int index)
+    {
+        return index >= 0 && index < points.size() ? points.get(index) : null;
+    }
+
+    /**
+     * Returns the length of the path in inches.
+     * @return The length, or NaN if any point in the path is invalid
+     */
+    public double getLength()
+    {
+        return measurable ? lengthTable.getLength() : Double.NaN;
+    }
+
+    /**
+     * Returns the time it takes the robot to drive the path from rest to rest.
+     * It comes from the background, so it may be a frame behind the latest edit.
+     * @return The time in seconds, or NaN if any point in the path is invalid or it hasn't been timed yet
+     */
+    public double getDriveTime()
+    {
+        return measurable && analysis != null ? analysis.getDriveTime() : Double.NaN;
+    }
 
-        return retVal;
+    /**
+     * Returns the last analysis of this path from the background.
+     * @return The analysis, or null if the path is invalid or hasn't been analyzed yet
+     */
+    public PathAnalysis getAnalysis()
+    {
+        return measurable ? analysis : null;
+    }
+
+    /**
+     * Generate the motion profile of this path, and stream its samples.
+     * @param limits The limits of the robot
+     * @param sink Receives each sample of the trajectory, in inches and seconds
+     * @return The time to drive the path in seconds, or NaN if any point in the path is invalid
+     */
+    public double generateTrajectory(RobotLimits limits, TrajectorySink sink)
+    {
+        return generateTrajectory(limits, null, sink);
+    }
+
+    /**
+     * Generate the motion profile of this path for a tank drive, and stream its samples.
+     * Pass a {@link edu.rit.vexu.pathcreator.trajectory.WheelProfile} as the sink to get the wheel profiles.
+     * @param limits The limits of the robot
+     * @param drive The tank drive whose wheel limits also apply, or null for none
+     * @param sink Receives each sample of the trajectory, in inches and seconds
+     * @return The time to drive the path in seconds, or NaN if any point in the path is invalid
+     */
+    public double generateTrajectory(RobotLimits limits, DifferentialDrive drive, TrajectorySink sink)
+    {
+        if(!measurable)
+            return Double.NaN;
+        return trajectoryGenerator.generate(lengthTable, limits, drive, sink);
+    }
+
+    /**
+     * Returns the table used to measure this path, for looking up positions by distance.
+     * Only meaningful while {@link #getLength()} is a number.
+     * @return The arc length table over the path in inches
+     */
+    public ArcLengthTable getLengthTable()
+    {
+        return lengthTable;
+    }
+
+    /**
+     * Returns the projector used to find the point of this path closest to a position.
+     * Only meaningful while {@link #getLength()} is a number.
+     * @return The projector over the path in inches
+     */
+    public SplineProjector getProjector()
+    {
+        return projector;
+    }
+
+    /**
+     * The model is brought up to date with the points on each redraw, at most a pulse after an edit.
+     * @return The data behind this path
+     */
+    @Override
+    public RouteItem getRouteItem() {
+        return model;
+    }
+
+    @Override
+    public boolean isValid() {
+        return model.isValid();
     }
 
     @Override
     public Point2D getStartPoint() {
-        if(root.getChildren().size() <= 1)
+        if(model.size() == 0)
             return null;
-
-        HermitePointItem startPt = ((TreeItem<HermitePointItem>)root.getChildren().get(1)).getValue();
-        return startPt.pointPart.getStartPoint();
+        return new Point2D(model.getX(0), model.getY(0));
     }
 
     @Override
     public Point2D getEndPoint() {
-        if(root.getChildren().size() <= 1)
+        if(model.size() == 0)
             return null;
-
-        HermitePointItem endPt = ((TreeItem<HermitePointItem>)root.getChildren().get(root.getChildren().size() - 1)).getValue();
-        return endPt.pointPart.getEndPoint();
+        int last = model.size() - 1;
+        return new Point2D(model.getX(last), model.getY(last));
     }
 
 }
@@ -1,10 +1,12 @@
 package edu.rit.vexu.pathcreator;
 
+import edu.rit.vexu.pathcreator.model.RouteItem;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Point2D;
+import javafx.scene.Group;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
@@ -24,7 +26,10 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public class PointItem extends HBox implements PathControl{
 
+    // The mouse follower is drawn in pixels, and the point on the field in inches
     private static final int POINT_RADIUS = 8;
+    private static final double FIELD_POINT_RADIUS = 1.6;
+    private static final double FIELD_POINT_OUTLINE = 0.2;
 
     private TextField xText = new TextField();
     private TextField yText = new TextField();
@@ -34,20 +39,26 @@ public class PointItem extends HBox implements PathControl{
 
     private Circle fieldGraphic = null;
     private AnchorPane fieldPane;
+    private Group fieldGroup;
 
     private static Circle mouseFollower = new Circle(POINT_RADIUS);
 
-    private double x = -1, y=-1;
+    // What the user typed, read once per edit
+    private final RouteItem model = new RouteItem(RouteItem.Kind.POINT,
+            FieldConfig.LOADED_FIELD_WIDTH, FieldConfig.LOADED_FIELD_HEIGHT);
 
     /**
      * Create the point
      *
      * @param index What index is this in the list of points
-     * @param fieldPane The anchor pane holding the field image, for drawing points
+     * @param fieldPane The anchor pane holding the field image, for selecting points with the mouse
+     * @param fieldGroup The group on the field drawn in inches, for drawing points
      */
-    public PointItem(int index, AnchorPane fieldPane)
+    public PointItem(int index, AnchorPane fieldPane, Group fieldGroup)
     {
         this.fieldPane = fieldPane;
+        this.fieldGroup = fieldGroup;
+        model.setSize(1);
         xText.setPrefWidth(50);
         yText.setPrefWidth(50);
 
@@ -67,8 +78,7 @@ public class PointItem extends HBox implements PathControl{
         // Currently, only supports integers
         ChangeListener<String> placePointListener = (v, s, t1) ->
         {
-            x = -1;
-            y = -1;
+            double x = Double.NaN, y = Double.NaN;
             boolean xValid = true, yValid = true;
 
             // Check inputs on the X textfield
@@ -98,6 +108,10 @@ public class PointItem extends HBox implements PathControl{
             else
                 yText.setStyle("");
 
+            // Save the numbers to the model, even if they are off the field
+            model.setFieldSize(FieldConfig.LOADED_FIELD_WIDTH, FieldConfig.LOADED_FIELD_HEIGHT);
+            model.set(0, x, y, Double.NaN, Double.NaN);
+
             // If everything checks out, add the point to the field.
             // If not, remove the point.
             if(xValid && yValid)
@@ -108,8 +122,6 @@ public class PointItem extends HBox implements PathControl{
 
         xText.textProperty().addListener(placePointListener);
         yText.textProperty().addListener(placePointListener);
-        fieldPane.heightProperty().addListener((v, n1, n2) -> placePointListener.changed(null, null, ""));
-        fieldPane.widthProperty().addListener((v, n1, n2) -> placePointListener.changed(null, null, ""));
 
         delBtn.addEventHandler(ActionEvent.ACTION, actionEvent -> removePointFromMap());
 
@@ -186,22 +198,29 @@ public class PointItem extends HBox implements PathControl{
     }
 
     /**
-     * Place or replace a point at X and Y (inches) on the field image
+     * Place or replace a point at X and Y (inches) on the field image.
+     * The field group scales it to the image, so it never needs replacing when the window resizes.
      * @param x inches
      * @param y inches
      */
     public void placePointOnMap(double x, double y)
     {
-        // If the circle already exists, remove it and re-add it
-        if(fieldGraphic != null || fieldPane.getChildren().contains(fieldGraphic))
-            fieldPane.getChildren().remove(fieldGraphic);
-
-        Point2D retval = FieldConfig.inchesToPixels(new Point2D(x, y), fieldPane);
+        // The canvas renderer draws points from getPoint() instead
+        if(FieldCanvas.isEnabled())
+            return;
 
-        fieldGraphic = new Circle(retval.getX(), retval.getY(), POINT_RADIUS);
-        fieldGraphic.fillProperty().set(Color.DARKORANGE);
-        fieldGraphic.strokeProperty().set(Color.BLACK);
-        fieldPane.getChildren().add(fieldGraphic);
+        // If the circle already exists, move it instead of making a new one
+        if(fieldGraphic == null)
+        {
+            fieldGraphic = new Circle(FIELD_POINT_RADIUS);
+            fieldGraphic.fillProperty().set(Color.DARKORANGE);
+            fieldGraphic.strokeProperty().set(Color.BLACK);
+            fieldGraphic.setStrokeWidth(FIELD_POINT_OUTLINE);
+            fieldGroup.getChildren().add(fieldGraphic);
+        }
+
+        fieldGraphic.setCenterX(x);
+        fieldGraphic.setCenterY(y);
     }
 
     /**
@@ -209,31 +228,53 @@ public class PointItem extends HBox implements PathControl{
      */
     public void removePointFromMap()
     {
-        if (fieldGraphic == null || !fieldPane.getChildren().contains(fieldGraphic))
+        if (fieldGraphic == null || !fieldGroup.getChildren().contains(fieldGraphic))
             return;
 
-        fieldPane.getChildren().remove(fieldGraphic);
+        fieldGroup.getChildren().remove(fieldGraphic);
         fieldGraphic = null;
     }
 
-    public Point2D getPoint() {return new Point2D(x, y);}
+    public Point2D getPoint() {return new Point2D(model.getX(0), model.getY(0));}
+
+    /**
+     * Fill in the text fields, as if the user typed the point
+     * @param x inches, or NaN to leave the field blank
+     * @param y inches, or NaN to leave the field blank
+     */
+    public void setPoint(double x, double y)
+    {
+        xText.setText(toText(x));
+        yText.setText(toText(y));
+    }
+
+    static String toText(double value)
+    {
+        return Double.isNaN(value) ? "" : Double.toString(value);
+    }
+
+    @Override
+    public RouteItem getRouteItem()
+    {
+        return model;
+    }
 
     @Override
     public Point2D getStartPoint()
     {
-        return new Point2D(x, y);
+        return getPoint();
     }
 
     @Override
     public Point2D getEndPoint()
     {
-        return new Point2D(x, y);
+        return getPoint();
     }
 
     @Override
     public boolean isValid()
     {
-        return (x >= 0 && x <= FieldConfig.LOADED_FIELD_WIDTH) && (y >= 0 && y <= FieldConfig.LOADED_FIELD_HEIGHT);
+        return model.isValid();
     }
 
 
@@ -0,0 +1,150 @@
+package edu.rit.vexu.pathcreator;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+/**
+ * Batches redraw work so the field is drawn at most once per JavaFX pulse.
+ * <p>
+ * Instead of redrawing inside a change listener, callers request a task. Requesting a task that is already
+ * pending does nothing, so a resize that changes both width and height, or a burst of keystrokes, only runs each
+ * task once. Pending tasks run at the start of the next pulse, before layout and rendering, so nothing is drawn
+ * a frame late.
+ * <p>
+ * Layout tasks (like recentering the field image) run before redraw tasks, since the redraws depend on them.
+ * Render tasks run last, so anything painted from the redrawn paths sees them up to date.
+ * Everything here runs on the FX thread.
+ */
+public class RedrawScheduler {
+
+    // Tasks requesting more tasks are run in the same pulse, up to this many rounds
+    private static final int MAX_ROUNDS = 8;
+
+    // Set -Dvexpathcreator.debugRedraw=true to print a line per pulse with the number of requests coalesced
+    private static final boolean DEBUG = Boolean.getBoolean("vexpathcreator.debugRedraw");
+
+    private static final LinkedHashSet<Runnable> layoutTasks = new LinkedHashSet<>();
+    private static final LinkedHashSet<Runnable> redrawTasks = new LinkedHashSet<>();
+    private static final LinkedHashSet<Runnable> renderTasks = new LinkedHashSet<>();
+    private static AnimationTimer timer = null;
+
+    private static long requestCount = 0;
+    private static long coalescedCount = 0;
+    private static long flushCount = 0;
+    // The coalesced count when the last pulse finished, so each debug line covers everything since then
+    private static long coalescedAtLastFlush = 0;
+
+    /**
+     * Run a task before the next pulse's redraws, for work the redraws depend on.
+     * @param task The task; the same object requested twice before the pulse runs once
+     */
+    public static void requestLayout(Runnable task)
+    {
+        request(layoutTasks, task);
+    }
+
+    /**
+     * Run a task in the next pulse.
+     * @param task The task; the same object requested twice before the pulse runs once
+     */
+    public static void requestRedraw(Runnable task)
+    {
+        request(redrawTasks, task);
+    }
+
+    /**
+     * Run a task in the next pulse, after every layout and redraw task.
+     * @param task The task; the same object requested twice before the pulse runs once
+     */
+    public static void requestRender(Runnable task)
+    {
+        request(renderTasks, task);
+    }
+
+    /**
+     * @return The total number of layout and redraw requests made
+     */
+    public static long getRequestCount()
+    {
+        return requestCount;
+    }
+
+    /**
+     * @return The number of requests that were merged into an already pending task
+     */
+    public static long getCoalescedCount()
+    {
+        return coalescedCount;
+    }
+
+    /**
+     * @return The number of pulses that ran pending tasks
+     */
+    public static long getFlushCount()
+    {
+        return flushCount;
+    }
+
+    private static void request(LinkedHashSet<Runnable> tasks, Runnable task)
+    {
+        requestCount++;
+        if(!tasks.add(task))
+            coalescedCount++;
+
+        if(timer == null)
+        {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    stop();
+                    flush();
+                }
+            };
+        }
+        timer.start();
+    }
+
+    private static void flush()
+    {
+        int ran = 0;
+        flushCount++;
+
+        for(int round = 0; round < MAX_ROUNDS && hasPending(); round++)
+        {
+            ran += runAll(layoutTasks);
+            ran += runAll(redrawTasks);
+            // Only render once the layouts and redraws have settled
+            if(layoutTasks.isEmpty() && redrawTasks.isEmpty())
+                ran += runAll(renderTasks);
+        }
+
+        // Anything still pending was requested over and over by the tasks themselves; leave it for the next pulse
+        if(hasPending())
+            timer.start();
+
+        if(DEBUG)
+            System.out.printf("Redraw: ran %d tasks, %d requests coalesced since last pulse%n",
+                    ran, coalescedCount - coalescedAtLastFlush);
+        coalescedAtLastFlush = coalescedCount;
+    }
+
+    private static boolean hasPending()
+    {
+        return !(layoutTasks.isEmpty() && redrawTasks.isEmpty() && renderTasks.isEmpty());
+    }
+
+    private static int runAll(LinkedHashSet<Runnable> tasks)
+    {
+        if(tasks.isEmpty())
+            return 0;
+
+        // Copy first, so tasks can request more work while running
+        ArrayList<Runnable> pending = new ArrayList<>(tasks);
+        tasks.clear();
+        for(Runnable task : pending)
+            task.run();
+        return pending.size();
+    }
+}
@@ -0,0 +1,81 @@
+package edu.rit.vexu.pathcreator;
+
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteListener;
+import edu.rit.vexu.pathcreator.trajectory.RobotLimits;
+import edu.rit.vexu.pathcreator.trajectory.RouteCompiler;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
+
+/**
+ * Shows how long the whole route takes to drive, points, paths and legs together, and where the robot has to stop
+ * and turn in place.
+ * <p>
+ * At most once per frame after an edit, a snapshot of the route is compiled by a {@link RouteCompiler} on
+ * {@link BackgroundCompute}, and a newer edit cancels a compile still running. The compiler keeps every piece of the
+ * route that didn't change, so only the edited item and the legs around it are sampled again.
+ */
+public class RouteSummary
+{
+    private final Label label;
+    private final Route route;
+    private final RouteCompiler compiler = new RouteCompiler(RobotLimits.DEFAULT);
+    private final Tooltip stopTooltip = new Tooltip();
+    private final Runnable compileTask = this::compile;
+    private RouteCompiler.CompiledRoute lastResult = null;
+
+    /**
+     * Start summing up a route.
+     * @param label The label showing the summary
+     * @param route The route to sum up
+     */
+    public RouteSummary(Label label, Route route)
+    {
+        this.label = label;
+        this.route = route;
+        route.addListener(RouteListener.onAnyChange(() -> RedrawScheduler.requestRender(compileTask)));
+        compile();
+    }
+
+    /**
+     * @return The route as last compiled, or null before the first compile finishes
+     */
+    public RouteCompiler.CompiledRoute getLastResult()
+    {
+        return lastResult;
+    }
+
+    private void compile()
+    {
+        Route snapshot = route.snapshot();
+        BackgroundCompute.submit(this, cancelled -> compiler.compile(snapshot, cancelled), this::show);
+    }
+
+    private void show(RouteCompiler.CompiledRoute result)
+    {
+        lastResult = result;
+        if (!result.isValid())
+        {
+            label.setText("Route: fix the invalid items to drive it");
+            label.setTooltip(null);
+            return;
+        }
+
+        int stops = result.getStopCount();
+        label.setText(String.format("Route: %.1f in, %.2f s, %d %s", result.getLength(), result.getDriveTime(),
+                stops, stops == 1 ? "stop" : "stops"));
+        if (stops == 0)
+        {
+            label.setTooltip(null);
+            return;
+        }
+
+        StringBuilder text = new StringBuilder("Stops to turn in place:");
+        for (RouteCompiler.Junction junction : result.getJunctions())
+            if (junction.isStop())
+                text.append(String.format("%nItem %d: turn %.0f degrees at (%.1f, %.1f)", junction.getItem() + 1,
+                        Math.toDegrees(junction.getTurn()), junction.getX(), junction.getY()));
+        stopTooltip.setText(text.toString());
+        label.setTooltip(stopTooltip);
+    }
+}
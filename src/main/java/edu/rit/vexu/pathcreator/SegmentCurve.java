@@ -0,0 +1,60 @@
+package edu.rit.vexu.pathcreator;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import javafx.collections.ObservableList;
+import javafx.scene.shape.CubicCurveTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+
+/**
+ * The SegmentCurve class renders one segment of a {@link HermiteSpline}, whatever its type.
+ * <p>
+ * The segment is drawn as the Bezier pieces the spline gives for it: one for cubic segments and straight lines,
+ * and a few for quintic segments. The path elements are moved in place when the segment changes, and only added
+ * or removed when it needs a different number of pieces.
+ */
+public class SegmentCurve extends Path {
+
+    private final MoveTo start = new MoveTo();
+
+    // Scratch buffer for the Bezier control points, only touched on the FX thread
+    private final double[] bezier = new double[8];
+
+    /**
+     * Constructs an empty curve, drawing nothing until a segment is set.
+     */
+    public SegmentCurve() {
+        getElements().add(start);
+    }
+
+    /**
+     * Render one segment of a spline with this curve.
+     *
+     * @param spline The spline holding the segment.
+     * @param segment The index of the segment in the spline.
+     */
+    public void setSegment(HermiteSpline spline, int segment) {
+        int pieces = spline.getPieceCount(segment);
+        ObservableList<PathElement> elements = getElements();
+        while (elements.size() - 1 < pieces)
+            elements.add(new CubicCurveTo());
+        if (elements.size() - 1 > pieces)
+            elements.remove(pieces + 1, elements.size());
+
+        for (int i = 0; i < pieces; i++) {
+            spline.getControlPoints(segment, (double) i / pieces, (double) (i + 1) / pieces, bezier);
+            if (i == 0) {
+                start.setX(bezier[0]);
+                start.setY(bezier[1]);
+            }
+            CubicCurveTo piece = (CubicCurveTo) elements.get(i + 1);
+            piece.setControlX1(bezier[2]);
+            piece.setControlY1(bezier[3]);
+            piece.setControlX2(bezier[4]);
+            piece.setControlY2(bezier[5]);
+            piece.setX(bezier[6]);
+            piece.setY(bezier[7]);
+        }
+    }
+}
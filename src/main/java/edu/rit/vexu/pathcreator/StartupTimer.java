@@ -0,0 +1,144 @@
+package edu.rit.vexu.pathcreator;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Times each phase of startup, and holds back work the first frame doesn't need until it's on screen.
+ * <p>
+ * Startup code {@link #mark(String) marks} the end of each phase. Once the window has drawn its first frame,
+ * the breakdown is printed as one line, like
+ * {@code Startup: jvm and toolkit 330 ms, main window 210 ms, show 40 ms, first frame 60 ms (640 ms total)}.
+ * <p>
+ * Work {@link #defer(String, Runnable) deferred} until then (decoding the field image, checking the autosave)
+ * runs afterwards, one task per FX event so clicks aren't held up behind all of it, and is timed on a second line.
+ * Everything here runs on the FX thread, except marks made on the launcher thread, like the one in {@code init()}.
+ */
+public final class StartupTimer
+{
+    private static final StringBuilder phases = new StringBuilder();
+    private static final StringBuilder deferredPhases = new StringBuilder();
+    private static final Queue<Runnable> deferred = new ArrayDeque<>();
+
+    // The first phase is timed from the start of the JVM, if the OS can tell
+    private static long start = -1;
+    private static long last = -1;
+    private static boolean watching = false;
+    private static boolean shown = false;
+
+    private StartupTimer() { }
+
+    /**
+     * Mark the end of a startup phase, timing it from the end of the last one.
+     * @param phase The name of the phase, printed in the breakdown
+     */
+    public static synchronized void mark(String phase)
+    {
+        long now = System.nanoTime();
+        if (last < 0)
+        {
+            long sinceLaunch = ProcessHandle.current().info().startInstant()
+                    .map(launch -> Instant.now().toEpochMilli() - launch.toEpochMilli())
+                    .orElse(0L);
+            start = now - sinceLaunch * 1_000_000L;
+            last = start;
+        }
+        if (shown)
+            return;
+        append(phases, phase, now - last);
+        last = now;
+    }
+
+    /**
+     * Run a task once the window has drawn its first frame, or soon if it already has.
+     * @param name The name of the task, printed with its time
+     * @param task The task
+     */
+    public static void defer(String name, Runnable task)
+    {
+        deferred.add(() ->
+        {
+            long before = System.nanoTime();
+            task.run();
+            append(deferredPhases, name, System.nanoTime() - before);
+        });
+        if (shown && deferred.size() == 1)
+            Platform.runLater(StartupTimer::runDeferred);
+    }
+
+    /**
+     * Wait for the first frame of the window a node is shown in, then print the breakdown and run deferred work.
+     * Only the first call does anything.
+     * @param node A node in the window, which may not be in a scene yet
+     */
+    public static void watchFirstFrame(Node node)
+    {
+        if (watching)
+            return;
+        watching = true;
+        if (node.getScene() != null)
+            watchFirstFrame(node.getScene());
+        else
+            node.sceneProperty().addListener((observable, oldScene, scene) ->
+            {
+                if (scene != null && !shown)
+                    watchFirstFrame(scene);
+            });
+    }
+
+    private static void watchFirstFrame(Scene scene)
+    {
+        // Layout has finished for the frame about to be drawn; anything run later comes after it
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () ->
+        {
+            if (shown)
+                return;
+            scene.removePostLayoutPulseListener(listener[0]);
+            Platform.runLater(StartupTimer::firstFrame);
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+
+    private static synchronized void firstFrame()
+    {
+        if (shown)
+            return;
+        mark("first frame");
+        shown = true;
+        System.err.println("Startup: " + phases + " (" + Math.round((last - start) / 1e6) + " ms total)");
+        if (!deferred.isEmpty())
+            Platform.runLater(StartupTimer::runDeferred);
+    }
+
+    // Run one deferred task, then give other events a turn before the next
+    private static void runDeferred()
+    {
+        Runnable task = deferred.poll();
+        if (task == null)
+            return;
+        try {
+            task.run();
+        } finally {
+            if (!deferred.isEmpty())
+                Platform.runLater(StartupTimer::runDeferred);
+            else if (deferredPhases.length() > 0)
+            {
+                System.err.println("Deferred: " + deferredPhases);
+                deferredPhases.setLength(0);
+            }
+        }
+    }
+
+    private static void append(StringBuilder out, String phase, long nanos)
+    {
+        if (out.length() > 0)
+            out.append(", ");
+        out.append(phase).append(' ').append(Math.round(nanos / 1e6)).append(" ms");
+    }
+}
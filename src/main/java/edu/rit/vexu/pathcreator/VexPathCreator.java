@@ -11,26 +11,37 @@ import javafx.stage.WindowEvent;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.util.Objects;
 
 public class VexPathCreator extends Application {
     @Override
-    public void start(Stage stage) throws IOException, URISyntaxException {
-        // Load the game image
+    public void init() {
+        // JavaFX starts the toolkit before main() when the main class is an Application, so the JVM and the
+        // toolkit can only be timed together
+        StartupTimer.mark("jvm and toolkit");
+    }
 
-        FieldConfig.fieldImage = new Image(Objects.requireNonNull(
-                getClass().getResourceAsStream("/edu/rit/vexu/pathcreator/tipping_pt.png")));
+    @Override
+    public void start(Stage stage) throws IOException, URISyntaxException {
 
+        // Only what the first frame needs happens here.
+        // The game image, the icon and the autosave check wait until the window is up, see StartupTimer
         FXMLLoader fxmlLoader = new FXMLLoader(VexPathCreator.class.getResource("main-window.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 1024, 720);
+        StartupTimer.mark("main window");
         stage.setTitle("VEX Path Creator V0.1");
         stage.setScene(scene);
-        stage.getIcons().add(new Image(VexPathCreator.class.getResourceAsStream("logo.png")));
+        StartupTimer.defer("icon", () ->
+                stage.getIcons().add(new Image(VexPathCreator.class.getResourceAsStream("logo.png"))));
+        MainWindow mainWindow = fxmlLoader.getController();
 
         // Make sure all windows are closed when exiting the main window
-        stage.setOnCloseRequest(windowEvent -> System.exit(0));
+        stage.setOnCloseRequest(windowEvent -> {
+            mainWindow.shutdown();
+            System.exit(0);
+        });
 
         stage.show();
+        StartupTimer.mark("show");
     }
 
     public static void main(String[] args) {
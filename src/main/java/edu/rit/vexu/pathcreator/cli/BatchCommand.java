@@ -0,0 +1,389 @@
+package edu.rit.vexu.pathcreator.cli;
+
+import edu.rit.vexu.pathcreator.FieldConfig;
+import edu.rit.vexu.pathcreator.io.CppHeaderExporter;
+import edu.rit.vexu.pathcreator.io.RouteFile;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import edu.rit.vexu.pathcreator.trajectory.RobotLimits;
+import edu.rit.vexu.pathcreator.trajectory.TrajectoryGenerator;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validates and exports every route file in a directory without opening a window, for regenerating every
+ * routine after the robot's constants change.
+ * <p>
+ * Each route is checked against the field size in {@link FieldConfig}, unless another is given, and then
+ * exported as a C++ header with its trajectory tables. With {@code --out}, each header goes in the same
+ * subdirectory of the output directory as its route is in under the route directory, so routes of the same name in
+ * different subdirectories don't write the same header. Routes are processed in parallel on a fork-join pool,
+ * each task with its own exporter, and a summary of the results and timings is printed at the end. Nothing here
+ * touches JavaFX, so it runs on machines without a display. It has its own main class, since launching through
+ * {@code VexPathCreator} would start the JavaFX toolkit before {@code main} runs:
+ * <pre>
+ * java --module-path &lt;path&gt; -m edu.rit.vexu.pathcreator/edu.rit.vexu.pathcreator.cli.BatchCommand [options] &lt;directory&gt;
+ * </pre>
+ */
+public final class BatchCommand {
+
+    static final String USAGE = String.join("\n",
+            "Usage: BatchCommand [options] <directory>",
+            "Validate every " + RouteFile.EXTENSION + " file under a directory, and export each as a C++ header.",
+            "",
+            "  --out <directory>          Where to write the headers, in the same subdirectories as the routes",
+            "                             (default: next to each route)",
+            "  --field <width>x<height>   Field size to validate against, in inches (default: "
+                    + FieldConfig.LOADED_FIELD_WIDTH + "x" + FieldConfig.LOADED_FIELD_HEIGHT + ")",
+            "  --max-velocity <in/s>      Robot top speed (default: " + RobotLimits.DEFAULT.getMaxVelocity() + ")",
+            "  --max-acceleration <in/s2> Robot acceleration (default: " + RobotLimits.DEFAULT.getMaxAcceleration() + ")",
+            "  --max-centripetal <in/s2>  Robot sideways acceleration in turns (default: "
+                    + RobotLimits.DEFAULT.getMaxCentripetalAcceleration() + ")",
+            "  --spacing <in>             Distance between trajectory samples (default: "
+                    + TrajectoryGenerator.DEFAULT_SPACING + ")",
+            "  --compress <in>,<deg>      Compress the sample tables within these tolerances",
+            "  --threads <n>              Number of worker threads (default: one per core)",
+            "  --validate-only            Check the routes without exporting them");
+
+    /** Exit code when every route was exported. */
+    public static final int OK = 0;
+    /** Exit code when any route failed to load, validate or export. */
+    public static final int FAILED = 1;
+    /** Exit code for bad arguments. */
+    public static final int USAGE_ERROR = 2;
+
+    private Path directory = null;
+    private Path outDirectory = null;
+    private double fieldWidth = FieldConfig.LOADED_FIELD_WIDTH;
+    private double fieldHeight = FieldConfig.LOADED_FIELD_HEIGHT;
+    private double maxVelocity = RobotLimits.DEFAULT.getMaxVelocity();
+    private double maxAcceleration = RobotLimits.DEFAULT.getMaxAcceleration();
+    private double maxCentripetal = RobotLimits.DEFAULT.getMaxCentripetalAcceleration();
+    private double spacing = TrajectoryGenerator.DEFAULT_SPACING;
+    private double positionTolerance = Double.NaN;
+    private double headingTolerance = Double.NaN;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean validateOnly = false;
+
+    private RobotLimits limits;
+
+    private BatchCommand() { }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Run the batch command.
+     *
+     * @param args The command line arguments.
+     * @param out Receives the per route results and the summary.
+     * @param err Receives usage errors.
+     * @return The exit code: {@link #OK}, {@link #FAILED} or {@link #USAGE_ERROR}.
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        BatchCommand command = new BatchCommand();
+        try {
+            command.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println();
+            err.println(USAGE);
+            return USAGE_ERROR;
+        }
+        if (command.directory == null) {
+            out.println(USAGE);
+            return OK;
+        }
+        return command.execute(out, err);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--out":
+                    outDirectory = Path.of(value(args, ++i, arg));
+                    break;
+                case "--field": {
+                    String[] size = value(args, ++i, arg).split("x");
+                    if (size.length != 2)
+                        throw new IllegalArgumentException("--field takes <width>x<height>");
+                    fieldWidth = positive(size[0], arg);
+                    fieldHeight = positive(size[1], arg);
+                    break;
+                }
+                case "--max-velocity":
+                    maxVelocity = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--max-acceleration":
+                    maxAcceleration = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--max-centripetal":
+                    maxCentripetal = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--spacing":
+                    spacing = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--compress": {
+                    String[] tolerances = value(args, ++i, arg).split(",");
+                    if (tolerances.length != 2)
+                        throw new IllegalArgumentException("--compress takes <inches>,<degrees>");
+                    positionTolerance = positive(tolerances[0], arg);
+                    headingTolerance = positive(tolerances[1], arg);
+                    break;
+                }
+                case "--threads":
+                    threads = positiveInt(value(args, ++i, arg), arg);
+                    break;
+                case "--validate-only":
+                    validateOnly = true;
+                    break;
+                case "-h":
+                case "--help":
+                    directory = null;
+                    return;
+                default:
+                    if (arg.startsWith("-"))
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    if (directory != null)
+                        throw new IllegalArgumentException("Only one directory can be given");
+                    directory = Path.of(arg);
+            }
+        }
+        limits = new RobotLimits(maxVelocity, maxAcceleration, maxCentripetal);
+    }
+
+    private int execute(PrintStream out, PrintStream err) {
+        long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(p -> p.getFileName().toString().endsWith(RouteFile.EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            err.println("Could not read " + directory + ": " + e.getMessage());
+            return FAILED;
+        }
+        if (outDirectory != null) {
+            try {
+                Files.createDirectories(outDirectory);
+            } catch (IOException e) {
+                err.println("Could not create " + outDirectory + ": " + e.getMessage());
+                return FAILED;
+            }
+        }
+
+        Result[] results = new Result[files.size()];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Batch(files, results, 0, files.size()));
+        } finally {
+            pool.shutdown();
+        }
+        long wall = System.nanoTime() - start;
+
+        int failed = 0;
+        long busy = 0;
+        for (Result result : results) {
+            result.print(out);
+            if (!result.errors.isEmpty())
+                failed++;
+            busy += result.loadNanos + result.validateNanos + result.exportNanos;
+        }
+        out.printf("%n%d routes, %d ok, %d failed%n", results.length, results.length - failed, failed);
+        out.printf("%.1f ms on %d threads, %.1f ms of work (load %.1f, validate %.1f, export %.1f)%n",
+                wall / 1e6, pool.getParallelism(), busy / 1e6,
+                sum(results, 0) / 1e6, sum(results, 1) / 1e6, sum(results, 2) / 1e6);
+        return failed == 0 ? OK : FAILED;
+    }
+
+    /**
+     * Process one route file: load it, check it against the field, then export it.
+     */
+    private Result process(Path file) {
+        Result result = new Result(file);
+        long time = System.nanoTime();
+        Route route;
+        try {
+            route = RouteFile.read(file);
+        } catch (IOException e) {
+            result.errors.add("could not read: " + e.getMessage());
+            result.loadNanos = System.nanoTime() - time;
+            return result;
+        }
+        result.loadNanos = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        validate(route, result);
+        result.validateNanos = System.nanoTime() - time;
+        if (!result.errors.isEmpty() || validateOnly)
+            return result;
+
+        time = System.nanoTime();
+        String name = file.getFileName().toString();
+        name = name.substring(0, name.length() - RouteFile.EXTENSION.length());
+        Path folder = file.toAbsolutePath().getParent();
+        if (outDirectory != null) {
+            Path relative = directory.relativize(file).getParent();
+            folder = relative != null ? outDirectory.resolve(relative) : outDirectory;
+        }
+        Path header = folder.resolve(name + CppHeaderExporter.EXTENSION);
+        CppHeaderExporter exporter = new CppHeaderExporter(CppHeaderExporter.toIdentifier(name), limits, spacing);
+        if (!Double.isNaN(positionTolerance))
+            exporter.setCompression(positionTolerance, headingTolerance);
+        try {
+            Files.createDirectories(folder);
+            exporter.export(header, route);
+            result.header = header;
+            result.driveTime = exporter.getDriveTime();
+        } catch (IOException e) {
+            result.errors.add("could not write " + header + ": " + e.getMessage());
+        }
+        result.exportNanos = System.nanoTime() - time;
+        return result;
+    }
+
+    private void validate(Route route, Result result) {
+        if (route.getFieldWidth() != fieldWidth || route.getFieldHeight() != fieldHeight)
+            result.warnings.add("saved for a " + size(route.getFieldWidth(), route.getFieldHeight())
+                    + " field, checking against " + size(fieldWidth, fieldHeight));
+        route.setFieldSize(fieldWidth, fieldHeight);
+        if (route.size() == 0)
+            result.errors.add("route is empty");
+
+        for (int i = 0; i < route.size(); i++) {
+            RouteItem item = route.get(i);
+            result.waypoints += item.size();
+            if (item.getKind() == RouteItem.Kind.PATH && item.size() < 2)
+                result.errors.add("item " + i + ": a path needs at least 2 waypoints");
+            for (int j = 0; j < item.size(); j++)
+                if (!item.isValid(j))
+                    result.errors.add("item " + i + " waypoint " + j + ": " + describe(item, j));
+        }
+    }
+
+    private static String describe(RouteItem item, int j) {
+        double x = item.getX(j), y = item.getY(j);
+        if (Double.isNaN(x) || Double.isNaN(y))
+            return "position is not a number";
+        boolean tangent = Double.isFinite(item.getAngle(j)) && Double.isFinite(item.getMag(j));
+        if (item.getKind() == RouteItem.Kind.PATH && !tangent)
+            return "tangent is not a number";
+        return "(" + x + ", " + y + ") is off the field";
+    }
+
+    private static String size(double width, double height) {
+        return Math.round(width) + " x " + Math.round(height);
+    }
+
+    private static long sum(Result[] results, int phase) {
+        long total = 0;
+        for (Result result : results)
+            total += phase == 0 ? result.loadNanos : phase == 1 ? result.validateNanos : result.exportNanos;
+        return total;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length)
+            throw new IllegalArgumentException(option + " needs a value");
+        return args[i];
+    }
+
+    private static double positive(String text, String option) {
+        double value;
+        try {
+            value = Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + ": not a number: " + text);
+        }
+        if (!(value > 0) || Double.isInfinite(value))
+            throw new IllegalArgumentException(option + " must be positive");
+        return value;
+    }
+
+    private static int positiveInt(String text, String option) {
+        int value;
+        try {
+            value = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + ": not a whole number: " + text);
+        }
+        if (value <= 0)
+            throw new IllegalArgumentException(option + " must be positive");
+        return value;
+    }
+
+    /**
+     * Splits the files in half until one is left, and processes it.
+     */
+    private final class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final Result[] results;
+        private final int from, to;
+
+        Batch(List<Path> files, Result[] results, int from, int to) {
+            this.files = files;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                Path file = files.get(from);
+                try {
+                    results[from] = process(file);
+                } catch (RuntimeException e) {
+                    // One broken route shouldn't stop the rest
+                    results[from] = new Result(file);
+                    results[from].errors.add("failed: " + e);
+                }
+            } else if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Batch(files, results, from, mid), new Batch(files, results, mid, to));
+            }
+        }
+    }
+
+    /**
+     * What happened to one route file.
+     */
+    private static final class Result {
+        final Path file;
+        final List<String> errors = new ArrayList<>();
+        final List<String> warnings = new ArrayList<>();
+        Path header = null;
+        int waypoints = 0;
+        double driveTime = 0.0;
+        long loadNanos, validateNanos, exportNanos;
+
+        Result(Path file) {
+            this.file = file;
+        }
+
+        void print(PrintStream out) {
+            String status = !errors.isEmpty() ? "FAILED" : header == null ? "valid" : "exported";
+            out.printf("%-8s %s  (%d waypoints", status, file, waypoints);
+            if (header != null)
+                out.printf(", %.2f s to drive", driveTime);
+            out.printf(", %.1f ms)%n", (loadNanos + validateNanos + exportNanos) / 1e6);
+            for (String warning : warnings)
+                out.println("         warning: " + warning);
+            for (String error : errors)
+                out.println("         " + error);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Arc length parameterization of a {@link HermiteSpline}.
+ * <p>
+ * Each segment is split into a fixed number of equal steps in t, and the length of each step is integrated
+ * with 5 point Gauss-Legendre quadrature. The running totals are kept in one table per segment, and the
+ * segment lengths are kept as a running total over the whole spline. With the tables built:
+ * <ul>
+ *     <li>t to s is a table lookup plus one quadrature over the partial step, O(1)</li>
+ *     <li>s to t is two binary searches plus a couple of Newton steps, O(log n)</li>
+ *     <li>walking the spline at equal distances is one forward scan through the tables, O(samples + steps)</li>
+ * </ul>
+ * Parameters along the whole spline are passed around as a single "spline parameter" u, where the integer
+ * part is the segment index and the fraction is t within that segment. u runs from 0 to the segment count.
+ * <p>
+ * Call {@link #update()} after editing the spline; only segments whose stamp changed are re-integrated.
+ */
+public final class ArcLengthTable {
+
+    /** Default number of table steps per segment. */
+    public static final int DEFAULT_STEPS = 16;
+
+    // 5 point Gauss-Legendre abscissae and weights on [-1, 1]
+    private static final double[] GL_X = {
+            0.0,
+            -0.5384693101056831, 0.5384693101056831,
+            -0.9061798459386640, 0.9061798459386640
+    };
+    private static final double[] GL_W = {
+            0.5688888888888889,
+            0.4786286704993665, 0.4786286704993665,
+            0.2369268850561891, 0.2369268850561891
+    };
+
+    private static final int MAX_ITERATIONS = 16;
+    // Relative to the length of the table step being solved in
+    private static final double TOLERANCE = 1e-9;
+
+    private final HermiteSpline spline;
+    private final int steps;
+
+    // (steps + 1) running lengths per segment, starting at 0 for t = 0
+    private double[] table = new double[0];
+    // Distance at the start of each segment, segmentCount + 1 entries
+    private double[] segmentStart = new double[]{0.0};
+    // The spline stamp each segment's table was built from, 0 for never built
+    private int[] builtStamps = new int[0];
+    private int segmentCount = 0;
+
+    /**
+     * Creates the arc length table for a spline, and builds it.
+     *
+     * @param spline The spline to measure. The table keeps a reference, and must be updated after edits.
+     */
+    public ArcLengthTable(HermiteSpline spline) {
+        this(spline, DEFAULT_STEPS);
+    }
+
+    /**
+     * Creates the arc length table for a spline, and builds it.
+     *
+     * @param spline The spline to measure. The table keeps a reference, and must be updated after edits.
+     * @param steps The number of table steps per segment. More steps make lookups more accurate before
+     *              Newton refinement, at the cost of memory and build time.
+     */
+    public ArcLengthTable(HermiteSpline spline, int steps) {
+        if (steps < 1)
+            throw new IllegalArgumentException("An arc length table needs at least one step per segment");
+        this.spline = spline;
+        this.steps = steps;
+        update();
+    }
+
+    /**
+     * Bring the table up to date with the spline, re-integrating only the segments that changed
+     * since the last update.
+     *
+     * @return The number of segments that were re-integrated.
+     */
+    public int update() {
+        int count = spline.getSegmentCount();
+        int stride = steps + 1;
+        if (count > builtStamps.length) {
+            int capacity = Math.max(count, builtStamps.length * 2);
+            table = Arrays.copyOf(table, capacity * stride);
+            builtStamps = Arrays.copyOf(builtStamps, capacity);
+            segmentStart = Arrays.copyOf(segmentStart, capacity + 1);
+        }
+        segmentCount = count;
+
+        int rebuilt = 0;
+        for (int seg = 0; seg < count; seg++) {
+            int stamp = spline.getSegmentStamp(seg);
+            if (builtStamps[seg] == stamp)
+                continue;
+
+            int base = seg * stride;
+            table[base] = 0.0;
+            for (int j = 0; j < steps; j++)
+                table[base + j + 1] = table[base + j] + integrate(seg, (double) j / steps, (double) (j + 1) / steps);
+            builtStamps[seg] = stamp;
+            rebuilt++;
+        }
+
+        // The running total is only adds, cheap enough to redo for every update
+        for (int seg = 0; seg < count; seg++)
+            segmentStart[seg + 1] = segmentStart[seg] + table[seg * stride + steps];
+
+        return rebuilt;
+    }
+
+    /**
+     * @return The spline this table measures.
+     */
+    public HermiteSpline getSpline() {
+        return spline;
+    }
+
+    /**
+     * @return The length of the whole spline.
+     */
+    public double getLength() {
+        return segmentStart[segmentCount];
+    }
+
+    /**
+     * @param segment The segment index.
+     * @return The length of one segment.
+     */
+    public double getSegmentLength(int segment) {
+        checkSegment(segment);
+        return segmentStart[segment + 1] - segmentStart[segment];
+    }
+
+    /**
+     * @param segment The segment index.
+     * @return The distance along the spline at the start of a segment.
+     */
+    public double getSegmentStart(int segment) {
+        checkSegment(segment);
+        return segmentStart[segment];
+    }
+
+    /**
+     * Returns the distance along the spline at a point on a segment (t to s).
+     *
+     * @param segment The segment index.
+     * @param t The curve parameter, from 0 to 1.
+     * @return The distance from the start of the spline.
+     */
+    public double getDistance(int segment, double t) {
+        checkSegment(segment);
+        t = Math.min(Math.max(t, 0.0), 1.0);
+        int j = Math.min((int) (t * steps), steps - 1);
+        double t0 = (double) j / steps;
+        return segmentStart[segment] + table[segment * (steps + 1) + j] + integrate(segment, t0, t);
+    }
+
+    /**
+     * Returns the distance along the spline at a spline parameter (t to s).
+     *
+     * @param u The spline parameter, from 0 to the segment count.
+     * @return The distance from the start of the spline.
+     */
+    public double getDistance(double u) {
+        int seg = segmentOf(u, segmentCount);
+        return getDistance(seg, u - seg);
+    }
+
+    /**
+     * Returns the spline parameter at a distance along the spline (s to t).
+     * Distances outside of the spline are clamped to its ends.
+     *
+     * @param s The distance from the start of the spline.
+     * @return The spline parameter u; the segment is {@link #segmentOf(double, int)} and t is the remainder.
+     */
+    public double getParameter(double s) {
+        if (segmentCount == 0)
+            return 0.0;
+        if (s <= 0.0)
+            return 0.0;
+        if (s >= getLength())
+            return segmentCount;
+
+        // Find the segment, the last one starting at or before s
+        int lo = 0, hi = segmentCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (segmentStart[mid] <= s)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo + getSegmentParameter(lo, s - segmentStart[lo]);
+    }
+
+    /**
+     * Returns the curve parameter t on a segment at a distance from the start of that segment.
+     *
+     * @param segment The segment index.
+     * @param s The distance from the start of the segment.
+     * @return The curve parameter, from 0 to 1.
+     */
+    public double getSegmentParameter(int segment, double s) {
+        checkSegment(segment);
+        int base = segment * (steps + 1);
+
+        // Find the table step containing s
+        int lo = 0, hi = steps - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (table[base + mid] <= s)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return walk(segment, lo, s);
+    }
+
+    /**
+     * Sample the spline at equal distances, starting at the beginning and always including the end.
+     * The walk moves forward through the segments and their table steps instead of searching for each sample,
+     * so the whole walk costs O(samples + steps).
+     *
+     * @param spacing The distance between samples.
+     * @param out Buffer receiving x, y pairs. It must hold {@code 2 * getSampleCount(spacing)} values.
+     * @return The number of samples written.
+     */
+    public int sampleByDistance(double spacing, double[] out) {
+        int count = getSampleCount(spacing);
+        int seg = 0, step = 0;
+        for (int i = 0; i < count; i++) {
+            double s = getSampleDistance(i, count, spacing);
+            while (seg < segmentCount - 1 && segmentStart[seg + 1] <= s) {
+                seg++;
+                step = 0;
+            }
+            step = advanceStep(seg, step, s - segmentStart[seg]);
+            spline.evaluate(seg, walk(seg, step, s - segmentStart[seg]), out, 2 * i);
+        }
+        return count;
+    }
+
+    /**
+     * Find the spline parameters of equally spaced samples, the same samples as
+     * {@link #sampleByDistance(double, double[])} but as parameters instead of positions.
+     *
+     * @param spacing The distance between samples.
+     * @param out Buffer receiving one spline parameter u per sample. It must hold
+     *            {@code getSampleCount(spacing)} values.
+     * @return The number of samples written.
+     */
+    public int sampleParameters(double spacing, double[] out) {
+        int count = getSampleCount(spacing);
+        int seg = 0, step = 0;
+        for (int i = 0; i < count; i++) {
+            double s = getSampleDistance(i, count, spacing);
+            while (seg < segmentCount - 1 && segmentStart[seg + 1] <= s) {
+                seg++;
+                step = 0;
+            }
+            step = advanceStep(seg, step, s - segmentStart[seg]);
+            out[i] = seg + walk(seg, step, s - segmentStart[seg]);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the distance of an equally spaced sample. Every sample is a multiple of the spacing,
+     * except the last, which is the end of the spline.
+     *
+     * @param index The sample index.
+     * @param count The number of samples, from {@link #getSampleCount(double)}.
+     * @param spacing The distance between samples.
+     * @return The distance from the start of the spline.
+     */
+    public double getSampleDistance(int index, int count, double spacing) {
+        return (index == count - 1) ? getLength() : index * spacing;
+    }
+
+    /**
+     * @param spacing The distance between samples.
+     * @return The number of samples {@link #sampleByDistance(double, double[])} writes for a spacing.
+     */
+    public int getSampleCount(double spacing) {
+        if (!(spacing > 0))
+            throw new IllegalArgumentException("Sample spacing must be positive");
+        if (segmentCount == 0)
+            return 0;
+        return (int) Math.ceil(getLength() / spacing) + 1;
+    }
+
+    /**
+     * Returns the segment index of a spline parameter, clamped to the valid segments.
+     *
+     * @param u The spline parameter.
+     * @param segmentCount The number of segments in the spline.
+     * @return The segment index.
+     */
+    public static int segmentOf(double u, int segmentCount) {
+        if (u <= 0.0 || segmentCount <= 1)
+            return 0;
+        return Math.min((int) u, segmentCount - 1);
+    }
+
+    /**
+     * Move forward from a table step to the one containing a distance from the start of the segment.
+     */
+    private int advanceStep(int segment, int step, double s) {
+        int base = segment * (steps + 1);
+        while (step < steps - 1 && table[base + step + 1] <= s)
+            step++;
+        return step;
+    }
+
+    /**
+     * The curve parameter at a distance from the start of a segment, when the table step containing it is known.
+     */
+    private double walk(int segment, int step, double s) {
+        int base = segment * (steps + 1);
+        if (s <= 0.0)
+            return 0.0;
+        if (s >= table[base + steps])
+            return 1.0;
+        return refine(segment, step, s - table[base + step]);
+    }
+
+    /**
+     * Solve for t inside one table step, from a linear guess refined by Newton's method on the exact length.
+     * The step brackets the answer, so a Newton step that leaves the bracket (near a cusp, where the speed
+     * goes to zero) falls back to bisection.
+     */
+    private double refine(int segment, int step, double remaining) {
+        int base = segment * (steps + 1);
+        double lo = (double) step / steps;
+        double hi = (double) (step + 1) / steps;
+        double t0 = lo;
+        double stepLength = table[base + step + 1] - table[base + step];
+        if (stepLength <= 0.0)
+            return t0;
+
+        double tolerance = stepLength * TOLERANCE;
+        double t = lo + (hi - lo) * (remaining / stepLength);
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double error = integrate(segment, t0, t) - remaining;
+            if (Math.abs(error) <= tolerance)
+                break;
+            if (error > 0)
+                hi = t;
+            else
+                lo = t;
+
+            double speed = spline.speed(segment, t);
+            double next = speed > 0.0 ? t - error / speed : lo - 1.0;
+            t = (next > lo && next < hi) ? next : 0.5 * (lo + hi);
+        }
+        return t;
+    }
+
+    /**
+     * Integrate the speed of a segment from a to b with 5 point Gauss-Legendre quadrature.
+     */
+    private double integrate(int segment, double a, double b) {
+        double half = 0.5 * (b - a);
+        if (half == 0.0)
+            return 0.0;
+        double mid = 0.5 * (a + b);
+        double sum = 0.0;
+        for (int i = 0; i < GL_X.length; i++)
+            sum += GL_W[i] * spline.speed(segment, mid + half * GL_X[i]);
+        return sum * half;
+    }
+
+    private void checkSegment(int segment) {
+        if (segment < 0 || segment >= segmentCount)
+            throw new IndexOutOfBoundsException("Segment " + segment + " out of bounds for " + segmentCount + " segments");
+    }
+}
@@ -0,0 +1,136 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+/**
+ * Works out the tangents of a path from its waypoints alone, so long paths don't need every tangent typed in.
+ * <p>
+ * Tangents are vectors in inches, the same as a {@link HermiteSpline} knot's angle and magnitude, for segments
+ * running from t = 0 to 1. Any waypoint can keep a tangent of its own; the others are filled around it.
+ * <ul>
+ *     <li>Catmull-Rom: each tangent is half the vector from the waypoint before to the one after.</li>
+ *     <li>Cardinal: Catmull-Rom scaled by 1 - tension, so a tension of 0 is Catmull-Rom, and tensions toward 1
+ *         pull the path toward straight lines between waypoints. At 1 the tangents have no length.</li>
+ *     <li>Natural: the tangents that make the curvature continuous across every waypoint, with none at the
+ *         ends. They come from a tridiagonal system, solved in one sweep each way.</li>
+ * </ul>
+ * Every mode takes time in proportion to the number of waypoints. The buffers are kept between calls, so an
+ * instance isn't thread safe.
+ */
+public final class AutoTangents {
+
+    /**
+     * How tangents are filled.
+     */
+    public enum Mode {
+        CATMULL_ROM,
+        CARDINAL,
+        NATURAL
+    }
+
+    // Thomas algorithm scratch: the modified upper diagonal, and the modified right-hand sides
+    private double[] upper = new double[0];
+    private double[] rhsX = new double[0];
+    private double[] rhsY = new double[0];
+
+    /**
+     * Fill the tangents of a path.
+     *
+     * @param mode How to fill them.
+     * @param tension For {@link Mode#CARDINAL}, from 0 to 1; ignored otherwise.
+     * @param count The number of waypoints.
+     * @param x The x values of the waypoints, in inches.
+     * @param y The y values of the waypoints, in inches.
+     * @param fixed Which waypoints keep the tangent they have, or null for none.
+     * @param tangentX The x parts of the tangents; read where fixed, written everywhere else.
+     * @param tangentY The y parts of the tangents; read where fixed, written everywhere else.
+     */
+    public void fill(Mode mode, double tension, int count, double[] x, double[] y, boolean[] fixed,
+                     double[] tangentX, double[] tangentY) {
+        if (count < 2)
+            return;
+        if (mode == Mode.NATURAL)
+            fillNatural(count, x, y, fixed, tangentX, tangentY);
+        else
+            fillCardinal(mode == Mode.CARDINAL ? tension : 0, count, x, y, fixed, tangentX, tangentY);
+    }
+
+    private static void fillCardinal(double tension, int count, double[] x, double[] y, boolean[] fixed,
+                                     double[] tangentX, double[] tangentY) {
+        double scale = 1 - tension;
+        for (int i = 0; i < count; i++) {
+            if (fixed != null && fixed[i])
+                continue;
+            // The ends only have one neighbour, so use the whole chord to it
+            int before = Math.max(0, i - 1), after = Math.min(count - 1, i + 1);
+            double span = after - before;
+            tangentX[i] = scale * (x[after] - x[before]) / span;
+            tangentY[i] = scale * (y[after] - y[before]) / span;
+        }
+    }
+
+    /**
+     * Solve m[i-1] + 4 m[i] + m[i+1] = 3 (p[i+1] - p[i-1]) inside, 2 m[0] + m[1] = 3 (p[1] - p[0]) and
+     * m[n-2] + 2 m[n-1] = 3 (p[n-1] - p[n-2]) at the ends, with m[i] = the tangent for fixed waypoints.
+     * Every row is diagonally dominant, so no pivoting is needed, and x and y share the elimination.
+     */
+    private void fillNatural(int count, double[] x, double[] y, boolean[] fixed,
+                             double[] tangentX, double[] tangentY) {
+        if (upper.length < count) {
+            upper = new double[count];
+            rhsX = new double[count];
+            rhsY = new double[count];
+        }
+
+        double prevUpper = 0, prevX = 0, prevY = 0;
+        for (int i = 0; i < count; i++) {
+            double lo, diag, up, bx, by;
+            if (fixed != null && fixed[i]) {
+                lo = 0;
+                diag = 1;
+                up = 0;
+                bx = tangentX[i];
+                by = tangentY[i];
+            } else if (i == 0) {
+                lo = 0;
+                diag = 2;
+                up = 1;
+                bx = 3 * (x[1] - x[0]);
+                by = 3 * (y[1] - y[0]);
+            } else if (i == count - 1) {
+                lo = 1;
+                diag = 2;
+                up = 0;
+                bx = 3 * (x[i] - x[i - 1]);
+                by = 3 * (y[i] - y[i - 1]);
+            } else {
+                lo = 1;
+                diag = 4;
+                up = 1;
+                bx = 3 * (x[i + 1] - x[i - 1]);
+                by = 3 * (y[i + 1] - y[i - 1]);
+            }
+
+            double pivot = diag - lo * prevUpper;
+            prevUpper = up / pivot;
+            prevX = (bx - lo * prevX) / pivot;
+            prevY = (by - lo * prevY) / pivot;
+            upper[i] = prevUpper;
+            rhsX[i] = prevX;
+            rhsY[i] = prevY;
+        }
+
+        double nextX = rhsX[count - 1], nextY = rhsY[count - 1];
+        setFree(count - 1, nextX, nextY, fixed, tangentX, tangentY);
+        for (int i = count - 2; i >= 0; i--) {
+            nextX = rhsX[i] - upper[i] * nextX;
+            nextY = rhsY[i] - upper[i] * nextY;
+            setFree(i, nextX, nextY, fixed, tangentX, tangentY);
+        }
+    }
+
+    private static void setFree(int i, double tx, double ty, boolean[] fixed, double[] tangentX, double[] tangentY) {
+        if (fixed != null && fixed[i])
+            return;
+        tangentX[i] = tx;
+        tangentY[i] = ty;
+    }
+}
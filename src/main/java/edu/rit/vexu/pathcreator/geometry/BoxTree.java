@@ -0,0 +1,289 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A bounding box hierarchy over numbered boxes, for finding which boxes overlap a rectangle or each other
+ * without checking every pair.
+ * <p>
+ * The tree is built top down, splitting each node's boxes at the median of their centers along its longer side,
+ * so it's balanced whatever order the boxes come in. Each leaf holds one box. When a box changes,
+ * {@link #refit(int, double, double, double, double)} grows or shrinks the nodes above it, stopping as soon as a
+ * node doesn't change, so moving a box costs at most the depth of the tree. Refitting never restructures the tree;
+ * boxes that move far just make their nodes looser, until the next {@link #build(int, double[])}.
+ * <p>
+ * An empty box, with its minimum above its maximum, overlaps nothing. Nodes live in primitive arrays, and queries
+ * walk them with an explicit stack, so nothing is allocated once the tree has grown. Not thread safe.
+ */
+public final class BoxTree {
+
+    /**
+     * Receives pairs of overlapping boxes.
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int a, int b);
+    }
+
+    // minX, minY, maxX, maxY per node
+    private double[] nodeBoxes = new double[0];
+    // Children of inner nodes, or -1 and the box id for leaves
+    private int[] left = new int[0];
+    private int[] right = new int[0];
+    private int[] parent = new int[0];
+    private int nodeCount = 0;
+    private int root = -1;
+
+    // Per box: its leaf
+    private int[] leafOf = new int[0];
+    private int boxCount = 0;
+
+    private int[] order = new int[0];
+    private double[] centers = new double[0];
+    private int[] stack = new int[64];
+
+    /**
+     * Build the tree over a set of boxes, replacing whatever it held.
+     *
+     * @param count The number of boxes, numbered from 0.
+     * @param boxes minX, minY, maxX, maxY of each box.
+     */
+    public void build(int count, double[] boxes) {
+        if (boxes.length < count * 4)
+            throw new IllegalArgumentException("Expected " + count * 4 + " box values, got " + boxes.length);
+        boxCount = count;
+        nodeCount = 0;
+        root = -1;
+        if (count == 0)
+            return;
+
+        int nodes = 2 * count - 1;
+        if (nodeBoxes.length < nodes * 4) {
+            nodeBoxes = new double[nodes * 4];
+            left = new int[nodes];
+            right = new int[nodes];
+            parent = new int[nodes];
+        }
+        if (leafOf.length < count) {
+            leafOf = new int[count];
+            order = new int[count];
+            centers = new double[count];
+        }
+        for (int i = 0; i < count; i++)
+            order[i] = i;
+        root = buildNode(boxes, 0, count, -1);
+    }
+
+    /**
+     * @return The number of boxes in the tree.
+     */
+    public int size() {
+        return boxCount;
+    }
+
+    /**
+     * Change a box, and grow or shrink the nodes above it to match.
+     *
+     * @param id The box's number.
+     */
+    public void refit(int id, double minX, double minY, double maxX, double maxY) {
+        if (id < 0 || id >= boxCount)
+            throw new IndexOutOfBoundsException("Box " + id + " out of bounds for " + boxCount + " boxes");
+        int node = leafOf[id];
+        setBox(node, minX, minY, maxX, maxY);
+        for (node = parent[node]; node >= 0; node = parent[node]) {
+            int l = left[node] * 4, r = right[node] * 4, n = node * 4;
+            double x0 = Math.min(nodeBoxes[l], nodeBoxes[r]);
+            double y0 = Math.min(nodeBoxes[l + 1], nodeBoxes[r + 1]);
+            double x1 = Math.max(nodeBoxes[l + 2], nodeBoxes[r + 2]);
+            double y1 = Math.max(nodeBoxes[l + 3], nodeBoxes[r + 3]);
+            if (x0 == nodeBoxes[n] && y0 == nodeBoxes[n + 1] && x1 == nodeBoxes[n + 2] && y1 == nodeBoxes[n + 3])
+                return;
+            setBox(node, x0, y0, x1, y1);
+        }
+    }
+
+    /**
+     * Find every box overlapping a rectangle, edges included.
+     *
+     * @param consumer Receives the number of each overlapping box.
+     */
+    public void query(double minX, double minY, double maxX, double maxY, IntConsumer consumer) {
+        if (root < 0)
+            return;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            int n = node * 4;
+            if (nodeBoxes[n] > maxX || nodeBoxes[n + 2] < minX || nodeBoxes[n + 1] > maxY || nodeBoxes[n + 3] < minY)
+                continue;
+            if (left[node] < 0) {
+                consumer.accept(right[node]);
+                continue;
+            }
+            ensureStack(top + 2);
+            stack[top++] = left[node];
+            stack[top++] = right[node];
+        }
+    }
+
+    /**
+     * Find every pair of different boxes in this tree that overlap. Each pair is given once.
+     */
+    public void overlappingPairs(PairConsumer consumer) {
+        if (root >= 0)
+            pairs(this, root, root, consumer);
+    }
+
+    /**
+     * Find every pair of a box in this tree and a box in another tree that overlap.
+     *
+     * @param consumer Receives the number of the box in this tree, then the one in the other tree.
+     */
+    public void overlappingPairs(BoxTree other, PairConsumer consumer) {
+        if (root >= 0 && other.root >= 0)
+            pairs(other, root, other.root, consumer);
+    }
+
+    /**
+     * Walk pairs of nodes, one from each tree, descending into the children of the bigger one while they overlap.
+     * A node paired with itself, within one tree, pairs its children with each other and themselves instead.
+     */
+    private void pairs(BoxTree other, int rootA, int rootB, PairConsumer consumer) {
+        int top = 0;
+        ensureStack(2);
+        stack[top++] = rootA;
+        stack[top++] = rootB;
+        while (top > 0) {
+            int b = stack[--top];
+            int a = stack[--top];
+            boolean aLeaf = left[a] < 0, bLeaf = other.left[b] < 0;
+            ensureStack(top + 6);
+
+            if (other == this && a == b) {
+                if (aLeaf)
+                    continue;
+                stack[top++] = left[a];
+                stack[top++] = left[a];
+                stack[top++] = right[a];
+                stack[top++] = right[a];
+                stack[top++] = left[a];
+                stack[top++] = right[a];
+                continue;
+            }
+
+            int na = a * 4, nb = b * 4;
+            double[] otherBoxes = other.nodeBoxes;
+            if (nodeBoxes[na] > otherBoxes[nb + 2] || nodeBoxes[na + 2] < otherBoxes[nb]
+                    || nodeBoxes[na + 1] > otherBoxes[nb + 3] || nodeBoxes[na + 3] < otherBoxes[nb + 1])
+                continue;
+
+            if (aLeaf && bLeaf) {
+                consumer.accept(right[a], other.right[b]);
+            } else if (bLeaf || (!aLeaf && area(nodeBoxes, na) >= area(otherBoxes, nb))) {
+                stack[top++] = left[a];
+                stack[top++] = b;
+                stack[top++] = right[a];
+                stack[top++] = b;
+            } else {
+                stack[top++] = a;
+                stack[top++] = other.left[b];
+                stack[top++] = a;
+                stack[top++] = other.right[b];
+            }
+        }
+    }
+
+    private int buildNode(double[] boxes, int from, int to, int parentNode) {
+        int node = nodeCount++;
+        parent[node] = parentNode;
+        if (to - from == 1) {
+            int id = order[from];
+            left[node] = -1;
+            right[node] = id;
+            leafOf[id] = node;
+            setBox(node, boxes[id * 4], boxes[id * 4 + 1], boxes[id * 4 + 2], boxes[id * 4 + 3]);
+            return node;
+        }
+
+        // Split at the median center along the longer side of the centers' extent
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            int b = order[i] * 4;
+            double cx = centerOf(boxes[b], boxes[b + 2]), cy = centerOf(boxes[b + 1], boxes[b + 3]);
+            minX = Math.min(minX, cx);
+            maxX = Math.max(maxX, cx);
+            minY = Math.min(minY, cy);
+            maxY = Math.max(maxY, cy);
+        }
+        int axis = maxX - minX >= maxY - minY ? 0 : 1;
+        for (int i = from; i < to; i++) {
+            int b = order[i] * 4 + axis;
+            centers[order[i]] = centerOf(boxes[b], boxes[b + 2]);
+        }
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid);
+
+        int l = buildNode(boxes, from, mid, node);
+        int r = buildNode(boxes, mid, to, node);
+        left[node] = l;
+        right[node] = r;
+        setBox(node, Math.min(nodeBoxes[l * 4], nodeBoxes[r * 4]),
+                Math.min(nodeBoxes[l * 4 + 1], nodeBoxes[r * 4 + 1]),
+                Math.max(nodeBoxes[l * 4 + 2], nodeBoxes[r * 4 + 2]),
+                Math.max(nodeBoxes[l * 4 + 3], nodeBoxes[r * 4 + 3]));
+        return node;
+    }
+
+    /**
+     * Partially sort order[lo..hi] by center, so the k-th is in place with smaller ones before it.
+     */
+    private void select(int lo, int hi, int k) {
+        while (lo < hi) {
+            double pivot = centers[order[(lo + hi) >>> 1]];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (centers[order[i]] < pivot)
+                    i++;
+                while (centers[order[j]] > pivot)
+                    j--;
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    // Empty boxes sort to the middle, where they do no harm
+    private static double centerOf(double min, double max) {
+        return min <= max ? 0.5 * (min + max) : 0;
+    }
+
+    private static double area(double[] boxes, int n) {
+        return Math.max(0, boxes[n + 2] - boxes[n]) * Math.max(0, boxes[n + 3] - boxes[n + 1]);
+    }
+
+    private void setBox(int node, double minX, double minY, double maxX, double maxY) {
+        int n = node * 4;
+        nodeBoxes[n] = minX;
+        nodeBoxes[n + 1] = minY;
+        nodeBoxes[n + 2] = maxX;
+        nodeBoxes[n + 3] = maxY;
+    }
+
+    private void ensureStack(int n) {
+        if (stack.length < n)
+            stack = Arrays.copyOf(stack, Math.max(n, stack.length * 2));
+    }
+}
@@ -0,0 +1,299 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Finds where two cubic Bezier curves cross, and whether a curve passes through a rectangle.
+ * <p>
+ * Curves are given as 8 numbers: startX, startY, controlX1, controlY1, controlX2, controlY2, endX, endY, like
+ * {@link HermiteSpline#getControlPoints(int, double[])} gives them. A straight line is a curve with its control
+ * points a third and two thirds of the way along.
+ * <p>
+ * Curves are halved until they're flat, keeping only pieces whose control point boxes overlap, and the flat pieces
+ * are intersected as straight lines. Flat enough means no control point is more than {@link #FLATNESS} from where
+ * it would be on a straight line, so crossings are found to about that accuracy, in parameter and position.
+ * Curves that run along each other give up after a bounded amount of work rather than reporting every point.
+ * <p>
+ * Pieces are kept on an explicit stack, so nothing is allocated once it has grown. Not thread safe.
+ */
+public final class CurveIntersector {
+
+    /** How far a piece's control points can be from a straight line for the piece to count as one. */
+    public static final double FLATNESS = 1e-3;
+    // Crossings closer than this are the same crossing, found on both sides of a split
+    private static final double DUPLICATE_DISTANCE = 10 * FLATNESS;
+    // Slack for rounding, so curves that only touch are still found touching
+    private static final double ROUNDING = 1e-9;
+    private static final int MAX_DEPTH = 40;
+    // Pieces of a pair to look at before deciding the curves run along each other
+    private static final int MAX_PIECES = 1 << 14;
+
+    // A piece of each curve, its parameter range, and its depth
+    private static final int FRAME = 8 + 2 + 8 + 2 + 1;
+
+    /**
+     * Receives the crossings of two curves.
+     */
+    @FunctionalInterface
+    public interface HitConsumer {
+        /**
+         * @param t The parameter of the crossing on the first curve, from 0 to 1.
+         * @param s The parameter of the crossing on the second curve.
+         * @param x The x value of the crossing.
+         * @param y The y value of the crossing.
+         */
+        void accept(double t, double s, double x, double y);
+    }
+
+    private double[] stack = new double[FRAME * 64];
+    private double[] hits = new double[16];
+    private int hitCount;
+
+    /**
+     * Find every point where two curves cross.
+     *
+     * @param a The first curve.
+     * @param aOffset The index of the first curve in its array.
+     * @param b The second curve.
+     * @param bOffset The index of the second curve in its array.
+     * @param consumer Receives each crossing once.
+     * @return The number of crossings found.
+     */
+    public int intersect(double[] a, int aOffset, double[] b, int bOffset, HitConsumer consumer) {
+        hitCount = 0;
+        int top = 0;
+        System.arraycopy(a, aOffset, stack, 0, 8);
+        stack[8] = 0;
+        stack[9] = 1;
+        System.arraycopy(b, bOffset, stack, 10, 8);
+        stack[18] = 0;
+        stack[19] = 1;
+        stack[20] = 0;
+        top += FRAME;
+
+        for (int pieces = 0; top > 0 && pieces < MAX_PIECES; pieces++) {
+            top -= FRAME;
+            int p = top, q = top + 10;
+            if (!boxesOverlap(stack, p, q) || outsideFatLine(stack, p, q) || outsideFatLine(stack, q, p))
+                continue;
+            int depth = (int) stack[top + 20];
+            boolean pFlat = isFlat(stack, p), qFlat = isFlat(stack, q);
+            if ((pFlat && qFlat) || depth >= MAX_DEPTH) {
+                crossChords(stack, p, q, consumer);
+                continue;
+            }
+
+            ensureStack(top + 2 * FRAME);
+            // Halve the curve that isn't flat yet, or the bigger one, into two frames in place
+            boolean splitP = !pFlat && (qFlat || spread(stack, p) >= spread(stack, q));
+            int piece = splitP ? 0 : 10;
+            System.arraycopy(stack, top, stack, top + FRAME, FRAME);
+            split(stack, top + piece, top + piece, top + FRAME + piece);
+            double mid = 0.5 * (stack[top + piece + 8] + stack[top + piece + 9]);
+            stack[top + piece + 9] = mid;
+            stack[top + FRAME + piece + 8] = mid;
+            stack[top + 20] = depth + 1;
+            stack[top + FRAME + 20] = depth + 1;
+            top += 2 * FRAME;
+        }
+        return hitCount;
+    }
+
+    /**
+     * @param curve The curve.
+     * @param offset The index of the curve in its array.
+     * @return true if any part of the curve lies in the rectangle, edges included.
+     */
+    public boolean intersectsRect(double[] curve, int offset, double minX, double minY, double maxX, double maxY) {
+        int top = 0;
+        System.arraycopy(curve, offset, stack, 0, 8);
+        stack[8] = 0;
+        top += FRAME;
+
+        while (top > 0) {
+            top -= FRAME;
+            double x0 = Math.min(Math.min(stack[top], stack[top + 2]), Math.min(stack[top + 4], stack[top + 6]));
+            double y0 = Math.min(Math.min(stack[top + 1], stack[top + 3]), Math.min(stack[top + 5], stack[top + 7]));
+            double x1 = Math.max(Math.max(stack[top], stack[top + 2]), Math.max(stack[top + 4], stack[top + 6]));
+            double y1 = Math.max(Math.max(stack[top + 1], stack[top + 3]), Math.max(stack[top + 5], stack[top + 7]));
+            if (x0 > maxX || x1 < minX || y0 > maxY || y1 < minY)
+                continue;
+            // The curve stays in its control points' box, and passes through its end points
+            if ((x0 >= minX && x1 <= maxX && y0 >= minY && y1 <= maxY)
+                    || inRect(stack[top], stack[top + 1], minX, minY, maxX, maxY)
+                    || inRect(stack[top + 6], stack[top + 7], minX, minY, maxX, maxY))
+                return true;
+            int depth = (int) stack[top + 8];
+            if (isFlat(stack, top) || depth >= MAX_DEPTH) {
+                if (chordCrossesRect(stack, top, minX, minY, maxX, maxY))
+                    return true;
+                continue;
+            }
+
+            ensureStack(top + 2 * FRAME);
+            split(stack, top, top, top + FRAME);
+            stack[top + 8] = depth + 1;
+            stack[top + FRAME + 8] = depth + 1;
+            top += 2 * FRAME;
+        }
+        return false;
+    }
+
+    /**
+     * Write the box around a curve's control points, which the curve never leaves.
+     *
+     * @param curve The curve.
+     * @param offset The index of the curve in its array.
+     * @param out Receives minX, minY, maxX, maxY.
+     * @param outOffset The index in the buffer to write to.
+     */
+    public static void bounds(double[] curve, int offset, double[] out, int outOffset) {
+        out[outOffset] = Math.min(Math.min(curve[offset], curve[offset + 2]), Math.min(curve[offset + 4], curve[offset + 6]));
+        out[outOffset + 1] = Math.min(Math.min(curve[offset + 1], curve[offset + 3]), Math.min(curve[offset + 5], curve[offset + 7]));
+        out[outOffset + 2] = Math.max(Math.max(curve[offset], curve[offset + 2]), Math.max(curve[offset + 4], curve[offset + 6]));
+        out[outOffset + 3] = Math.max(Math.max(curve[offset + 1], curve[offset + 3]), Math.max(curve[offset + 5], curve[offset + 7]));
+    }
+
+    /**
+     * Write the straight line between two points as a curve.
+     *
+     * @param out Receives the curve.
+     * @param offset The index in the buffer to write to.
+     */
+    public static void line(double startX, double startY, double endX, double endY, double[] out, int offset) {
+        out[offset] = startX;
+        out[offset + 1] = startY;
+        out[offset + 2] = (2 * startX + endX) / 3;
+        out[offset + 3] = (2 * startY + endY) / 3;
+        out[offset + 4] = (startX + 2 * endX) / 3;
+        out[offset + 5] = (startY + 2 * endY) / 3;
+        out[offset + 6] = endX;
+        out[offset + 7] = endY;
+    }
+
+    /**
+     * Intersect the chords of two flat pieces, and report the crossing unless it was already found.
+     */
+    private void crossChords(double[] s, int p, int q, HitConsumer consumer) {
+        double ax = s[p], ay = s[p + 1], dax = s[p + 6] - ax, day = s[p + 7] - ay;
+        double bx = s[q], by = s[q + 1], dbx = s[q + 6] - bx, dby = s[q + 7] - by;
+        double denominator = dax * dby - day * dbx;
+        if (denominator == 0)
+            return;
+        double u = ((bx - ax) * dby - (by - ay) * dbx) / denominator;
+        double v = ((bx - ax) * day - (by - ay) * dax) / denominator;
+        if (!(u >= 0 && u <= 1 && v >= 0 && v <= 1))
+            return;
+
+        double x = ax + u * dax, y = ay + u * day;
+        for (int i = 0; i < hitCount; i++)
+            if (Math.abs(hits[2 * i] - x) <= DUPLICATE_DISTANCE && Math.abs(hits[2 * i + 1] - y) <= DUPLICATE_DISTANCE)
+                return;
+        if (2 * hitCount + 2 > hits.length)
+            hits = Arrays.copyOf(hits, hits.length * 2);
+        hits[2 * hitCount] = x;
+        hits[2 * hitCount + 1] = y;
+        hitCount++;
+        consumer.accept(s[p + 8] + u * (s[p + 9] - s[p + 8]), s[q + 8] + v * (s[q + 9] - s[q + 8]), x, y);
+    }
+
+    // Liang-Barsky: clip the chord's parameter range against each side of the rectangle
+    private static boolean chordCrossesRect(double[] s, int p, double minX, double minY, double maxX, double maxY) {
+        double x = s[p], y = s[p + 1], dx = s[p + 6] - x, dy = s[p + 7] - y;
+        double lo = 0, hi = 1;
+        for (int side = 0; side < 4; side++) {
+            double direction = side == 0 ? -dx : side == 1 ? dx : side == 2 ? -dy : dy;
+            double distance = side == 0 ? x - minX : side == 1 ? maxX - x : side == 2 ? y - minY : maxY - y;
+            if (direction == 0) {
+                if (distance < 0)
+                    return false;
+            } else if (direction < 0) {
+                lo = Math.max(lo, distance / direction);
+            } else {
+                hi = Math.min(hi, distance / direction);
+            }
+        }
+        return lo <= hi;
+    }
+
+    private static boolean inRect(double x, double y, double minX, double minY, double maxX, double maxY) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    private static boolean boxesOverlap(double[] s, int p, int q) {
+        return Math.max(Math.max(s[p], s[p + 2]), Math.max(s[p + 4], s[p + 6]))
+                >= Math.min(Math.min(s[q], s[q + 2]), Math.min(s[q + 4], s[q + 6]))
+                && Math.max(Math.max(s[q], s[q + 2]), Math.max(s[q + 4], s[q + 6]))
+                >= Math.min(Math.min(s[p], s[p + 2]), Math.min(s[p + 4], s[p + 6]))
+                && Math.max(Math.max(s[p + 1], s[p + 3]), Math.max(s[p + 5], s[p + 7]))
+                >= Math.min(Math.min(s[q + 1], s[q + 3]), Math.min(s[q + 5], s[q + 7]))
+                && Math.max(Math.max(s[q + 1], s[q + 3]), Math.max(s[q + 5], s[q + 7]))
+                >= Math.min(Math.min(s[p + 1], s[p + 3]), Math.min(s[p + 5], s[p + 7]));
+    }
+
+    /**
+     * Whether one piece lies wholly to one side of the strip around the other's chord that holds the other piece,
+     * in which case they can't cross. Much tighter than the boxes for pieces running side by side.
+     */
+    private static boolean outsideFatLine(double[] s, int p, int q) {
+        double nx = s[p + 1] - s[p + 7], ny = s[p + 6] - s[p];
+        double length = Math.hypot(nx, ny);
+        if (length == 0)
+            return false;
+        nx /= length;
+        ny /= length;
+        double d1 = nx * (s[p + 2] - s[p]) + ny * (s[p + 3] - s[p + 1]);
+        double d2 = nx * (s[p + 4] - s[p]) + ny * (s[p + 5] - s[p + 1]);
+        double low = Math.min(0, Math.min(d1, d2)), high = Math.max(0, Math.max(d1, d2));
+
+        double below = Double.POSITIVE_INFINITY, above = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 8; i += 2) {
+            double d = nx * (s[q + i] - s[p]) + ny * (s[q + i + 1] - s[p + 1]);
+            below = Math.min(below, d);
+            above = Math.max(above, d);
+        }
+        return below > high + ROUNDING || above < low - ROUNDING;
+    }
+
+    /**
+     * Whether the control points are where they'd be on a straight line, evenly spaced, so the chord
+     * stands in for the piece in both position and parameter.
+     */
+    private static boolean isFlat(double[] s, int p) {
+        double ex1 = s[p + 2] - (2 * s[p] + s[p + 6]) / 3, ey1 = s[p + 3] - (2 * s[p + 1] + s[p + 7]) / 3;
+        double ex2 = s[p + 4] - (s[p] + 2 * s[p + 6]) / 3, ey2 = s[p + 5] - (s[p + 1] + 2 * s[p + 7]) / 3;
+        return Math.max(ex1 * ex1 + ey1 * ey1, ex2 * ex2 + ey2 * ey2) <= FLATNESS * FLATNESS;
+    }
+
+    private static double spread(double[] s, int p) {
+        return Math.abs(s[p + 6] - s[p]) + Math.abs(s[p + 7] - s[p + 1])
+                + Math.abs(s[p + 2] - s[p]) + Math.abs(s[p + 3] - s[p + 1])
+                + Math.abs(s[p + 4] - s[p + 6]) + Math.abs(s[p + 5] - s[p + 7]);
+    }
+
+    /**
+     * De Casteljau at the middle: the first half replaces the piece at from, the second goes to second.
+     * The two may share an index, as long as second doesn't overlap from.
+     */
+    private static void split(double[] s, int from, int first, int second) {
+        for (int axis = 0; axis < 2; axis++) {
+            double p0 = s[from + axis], p1 = s[from + 2 + axis], p2 = s[from + 4 + axis], p3 = s[from + 6 + axis];
+            double p01 = 0.5 * (p0 + p1), p12 = 0.5 * (p1 + p2), p23 = 0.5 * (p2 + p3);
+            double p012 = 0.5 * (p01 + p12), p123 = 0.5 * (p12 + p23);
+            double mid = 0.5 * (p012 + p123);
+            s[first + axis] = p0;
+            s[first + 2 + axis] = p01;
+            s[first + 4 + axis] = p012;
+            s[first + 6 + axis] = mid;
+            s[second + axis] = mid;
+            s[second + 2 + axis] = p123;
+            s[second + 4 + axis] = p23;
+            s[second + 6 + axis] = p3;
+        }
+    }
+
+    private void ensureStack(int n) {
+        if (stack.length < n)
+            stack = Arrays.copyOf(stack, Math.max(n, stack.length * 2));
+    }
+}
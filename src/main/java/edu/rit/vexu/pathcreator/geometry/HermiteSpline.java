@@ -0,0 +1,780 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import java.util.Arrays;
+
+/**
+ * The HermiteSpline class holds a chain of Hermite segments in (x,y) coordinate space.
+ * <p>
+ * Each knot is stored as (x, y, angle, magnitude) and each segment between two knots is cached as the
+ * coefficients of its polynomial, so evaluating the curve is a handful of multiply-adds with no trig or
+ * square roots. All storage is primitive {@code double[]} and the evaluation methods write into
+ * caller-supplied buffers, so sampling a spline never allocates.
+ * <p>
+ * Segments are cubic unless set to another {@link SegmentType}. Whatever the type, a segment is stored as a
+ * quintic polynomial, with the higher terms zero when it has none, so every type is evaluated by the same code;
+ * the type only decides how the coefficients are worked out when a knot changes.
+ * <p>
+ * This class has no JavaFX dependencies, and can be used off the FX thread or in headless tools.
+ * It is not thread safe; share it between threads only through a copy.
+ *
+ * @author Jacob To
+ */
+public final class HermiteSpline {
+
+    /** Number of doubles stored per knot: x, y, angle (radians), magnitude. */
+    public static final int KNOT_STRIDE = 4;
+
+    /**
+     * Number of doubles stored per segment: the coefficients of x from t^5 down to t^0, then those of y.
+     * {@link #evaluateAxis(double[], int, double)} evaluates either half.
+     */
+    public static final int COEFF_STRIDE = 12;
+
+    /** Offset of the y coefficients within a segment's coefficients. */
+    public static final int Y_OFFSET = 6;
+
+    /**
+     * How a segment runs between its two knots.
+     */
+    public enum SegmentType {
+        /** A cubic Hermite curve, from the positions and tangents of its knots. */
+        CUBIC(3),
+        /**
+         * A quintic Hermite curve. Each of its knots also gets a second derivative, the average of the ones the
+         * cubic segments on either side would have there, so where two quintic segments meet, the curvature
+         * doesn't jump.
+         */
+        QUINTIC(5),
+        /** A straight line between its knots at a constant speed, whatever the tangents. */
+        LINE(1);
+
+        private final int degree;
+
+        SegmentType(int degree) {
+            this.degree = degree;
+        }
+
+        /**
+         * @return The degree of the segment's polynomials. In Bezier form, the control point after a knot is
+         * its tangent divided by the degree past it.
+         */
+        public int getDegree() {
+            return degree;
+        }
+    }
+
+    private static final int DEFAULT_CAPACITY = 8;
+    // How far the cubic pieces of getControlPoints can stray from a segment, and the most pieces a segment needs
+    private static final double PIECE_TOLERANCE = 0.01;
+    private static final int MAX_PIECES = 16;
+    // Bisection steps when finding where a segment turns, each halving the bracket
+    private static final int ROOT_ITERATIONS = 50;
+
+    private double[] knots;
+    private double[] coeffs;
+    private SegmentType[] segmentTypes;
+    private int knotCount = 0;
+
+    // Scratch for bounds(): where the second and first derivatives of an axis change sign
+    private final double[] bendBreaks = new double[4];
+    private final double[] slopeBreaks = new double[5];
+    private final double[] turns = new double[5];
+
+    // Every time a segment's coefficients change it gets a new stamp, so caches built on top of the
+    // spline (like ArcLengthTable) can tell which segments an edit touched
+    private int[] segmentStamps;
+    private int nextStamp = 1;
+
+    /**
+     * Constructs an empty spline.
+     */
+    public HermiteSpline() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty spline with room for a number of knots before it has to grow.
+     *
+     * @param capacity The number of knots to reserve space for.
+     */
+    public HermiteSpline(int capacity) {
+        capacity = Math.max(capacity, 2);
+        knots = new double[capacity * KNOT_STRIDE];
+        coeffs = new double[(capacity - 1) * COEFF_STRIDE];
+        segmentTypes = new SegmentType[capacity - 1];
+        Arrays.fill(segmentTypes, SegmentType.CUBIC);
+        segmentStamps = new int[capacity - 1];
+    }
+
+    /**
+     * Constructs a deep copy of another spline.
+     *
+     * @param other The spline to copy.
+     */
+    public HermiteSpline(HermiteSpline other) {
+        knots = Arrays.copyOf(other.knots, other.knots.length);
+        coeffs = Arrays.copyOf(other.coeffs, other.coeffs.length);
+        segmentTypes = Arrays.copyOf(other.segmentTypes, other.segmentTypes.length);
+        segmentStamps = Arrays.copyOf(other.segmentStamps, other.segmentStamps.length);
+        nextStamp = other.nextStamp;
+        knotCount = other.knotCount;
+    }
+
+    /**
+     * @return The number of knots in the spline.
+     */
+    public int getKnotCount() {
+        return knotCount;
+    }
+
+    /**
+     * @return The number of segments in the spline, one less than the number of knots.
+     */
+    public int getSegmentCount() {
+        return Math.max(0, knotCount - 1);
+    }
+
+    /**
+     * Removes every knot, keeping the allocated storage.
+     */
+    public void clear() {
+        knotCount = 0;
+    }
+
+    /**
+     * Resize the spline to a number of knots. New knots are zeroed and should be set with
+     * {@link #setKnot(int, double, double, double, double)}, and new segments are cubic.
+     *
+     * @param count The new number of knots.
+     */
+    public void setKnotCount(int count) {
+        ensureCapacity(count);
+        if (count > knotCount)
+            Arrays.fill(knots, knotCount * KNOT_STRIDE, count * KNOT_STRIDE, 0.0);
+        int oldCount = knotCount;
+        knotCount = count;
+        for (int seg = Math.max(0, oldCount - 1); seg < count - 1; seg++)
+            segmentTypes[seg] = SegmentType.CUBIC;
+        // The old last knot gained or lost a neighbour, which quintic segments up to two before it depend on
+        for (int seg = Math.max(0, Math.min(oldCount, count) - 3); seg < count - 1; seg++)
+            if (seg >= oldCount - 1 || segmentTypes[seg] == SegmentType.QUINTIC)
+                updateSegment(seg);
+    }
+
+    /**
+     * Append a knot to the end of the spline.
+     *
+     * @param x The x value of the knot.
+     * @param y The y value of the knot.
+     * @param angle The angle of the tangent at the knot in radians.
+     * @param mag The magnitude of the tangent at the knot.
+     */
+    public void addKnot(double x, double y, double angle, double mag) {
+        ensureCapacity(knotCount + 1);
+        knotCount++;
+        setKnot(knotCount - 1, x, y, angle, mag);
+    }
+
+    /**
+     * Set a knot, and recompute the coefficients of the segments touching it: the two on either side, and the
+     * next segment out on each side if it's quintic. {@link #getFirstSegmentTouching(int)} and
+     * {@link #getLastSegmentTouching(int)} give the range.
+     *
+     * @param index The index of the knot.
+     * @param x The x value of the knot.
+     * @param y The y value of the knot.
+     * @param angle The angle of the tangent at the knot in radians.
+     * @param mag The magnitude of the tangent at the knot.
+     */
+    public void setKnot(int index, double x, double y, double angle, double mag) {
+        checkKnot(index);
+        int k = index * KNOT_STRIDE;
+        knots[k] = x;
+        knots[k + 1] = y;
+        knots[k + 2] = angle;
+        knots[k + 3] = mag;
+
+        if (index > 1 && segmentTypes[index - 2] == SegmentType.QUINTIC)
+            updateSegment(index - 2);
+        if (index > 0)
+            updateSegment(index - 1);
+        if (index < knotCount - 1)
+            updateSegment(index);
+        if (index < knotCount - 2 && segmentTypes[index + 1] == SegmentType.QUINTIC)
+            updateSegment(index + 1);
+    }
+
+    /**
+     * @param index The index of a knot.
+     * @return The first segment whose shape depends on the knot.
+     */
+    public int getFirstSegmentTouching(int index) {
+        checkKnot(index);
+        if (index > 1 && segmentTypes[index - 2] == SegmentType.QUINTIC)
+            return index - 2;
+        return Math.max(0, index - 1);
+    }
+
+    /**
+     * @param index The index of a knot.
+     * @return The last segment whose shape depends on the knot; less than the first if there are no segments.
+     */
+    public int getLastSegmentTouching(int index) {
+        checkKnot(index);
+        if (index < knotCount - 2 && segmentTypes[index + 1] == SegmentType.QUINTIC)
+            return index + 1;
+        return Math.min(knotCount - 2, index);
+    }
+
+    /**
+     * Change how a segment runs between its knots.
+     *
+     * @param segment The segment index.
+     * @param type The new type.
+     */
+    public void setSegmentType(int segment, SegmentType type) {
+        checkSegment(segment);
+        if (segmentTypes[segment] == type)
+            return;
+        segmentTypes[segment] = type;
+        updateSegment(segment);
+    }
+
+    /**
+     * @param segment The segment index.
+     * @return How the segment runs between its knots.
+     */
+    public SegmentType getSegmentType(int segment) {
+        checkSegment(segment);
+        return segmentTypes[segment];
+    }
+
+    public double getKnotX(int index) {
+        checkKnot(index);
+        return knots[index * KNOT_STRIDE];
+    }
+
+    public double getKnotY(int index) {
+        checkKnot(index);
+        return knots[index * KNOT_STRIDE + 1];
+    }
+
+    public double getKnotAngle(int index) {
+        checkKnot(index);
+        return knots[index * KNOT_STRIDE + 2];
+    }
+
+    public double getKnotMag(int index) {
+        checkKnot(index);
+        return knots[index * KNOT_STRIDE + 3];
+    }
+
+    /**
+     * Returns a stamp that changes whenever the coefficients of a segment change.
+     * Two equal stamps for the same segment index mean the segment has not been touched in between.
+     *
+     * @param segment The segment index.
+     * @return The segment's current stamp.
+     */
+    public int getSegmentStamp(int segment) {
+        checkSegment(segment);
+        return segmentStamps[segment];
+    }
+
+    /**
+     * Returns the cached polynomial coefficients of every segment, laid out {@link #COEFF_STRIDE} doubles per
+     * segment. The array may be longer than needed; only the first {@code getSegmentCount() * COEFF_STRIDE}
+     * entries are meaningful. The array is live and must not be modified.
+     *
+     * @return The coefficient array.
+     */
+    public double[] getCoefficients() {
+        return coeffs;
+    }
+
+    /**
+     * Evaluate the position on a segment.
+     *
+     * @param segment The segment index.
+     * @param t The curve parameter, from 0 to 1.
+     * @param out Buffer receiving x at index 0 and y at index 1.
+     */
+    public void evaluate(int segment, double t, double[] out) {
+        evaluate(segment, t, out, 0);
+    }
+
+    /**
+     * Evaluate the position on a segment into a buffer at an offset, for filling packed sample arrays.
+     *
+     * @param segment The segment index.
+     * @param t The curve parameter, from 0 to 1.
+     * @param out Buffer receiving x at {@code offset} and y at {@code offset + 1}.
+     * @param offset The index in the buffer to write to.
+     */
+    public void evaluate(int segment, double t, double[] out, int offset) {
+        int c = coeffOffset(segment);
+        out[offset] = evaluateAxis(coeffs, c, t);
+        out[offset + 1] = evaluateAxis(coeffs, c + Y_OFFSET, t);
+    }
+
+    /**
+     * Evaluate the first derivative (velocity with respect to t) on a segment.
+     *
+     * @param segment The segment index.
+     * @param t The curve parameter, from 0 to 1.
+     * @param out Buffer receiving dx/dt at index 0 and dy/dt at index 1.
+     */
+    public void derivative(int segment, double t, double[] out) {
+        int c = coeffOffset(segment);
+        out[0] = derivativeAxis(coeffs, c, t);
+        out[1] = derivativeAxis(coeffs, c + Y_OFFSET, t);
+    }
+
+    /**
+     * Evaluate the second derivative on a segment.
+     *
+     * @param segment The segment index.
+     * @param t The curve parameter, from 0 to 1.
+     * @param out Buffer receiving d2x/dt2 at index 0 and d2y/dt2 at index 1.
+     */
+    public void secondDerivative(int segment, double t, double[] out) {
+        int c = coeffOffset(segment);
+        out[0] = secondDerivativeAxis(coeffs, c, t);
+        out[1] = secondDerivativeAxis(coeffs, c + Y_OFFSET, t);
+    }
+
+    /**
+     * Returns the speed |dP/dt| on a segment, the integrand of the arc length.
+     *
+     * @param segment The segment index.
+     * @param t The curve parameter, from 0 to 1.
+     * @return The magnitude of the first derivative.
+     */
+    public double speed(int segment, double t) {
+        int c = coeffOffset(segment);
+        double dx = derivativeAxis(coeffs, c, t);
+        double dy = derivativeAxis(coeffs, c + Y_OFFSET, t);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Returns the signed curvature on a segment. Positive curvature turns towards +angle.
+     * If the derivative vanishes (a cusp or a zero-length segment), the curvature is 0.
+     *
+     * @param segment The segment index.
+     * @param t The curve parameter, from 0 to 1.
+     * @return The curvature, in 1 / (units of x and y).
+     */
+    public double curvature(int segment, double t) {
+        int c = coeffOffset(segment);
+        double dx = derivativeAxis(coeffs, c, t);
+        double dy = derivativeAxis(coeffs, c + Y_OFFSET, t);
+        double ddx = secondDerivativeAxis(coeffs, c, t);
+        double ddy = secondDerivativeAxis(coeffs, c + Y_OFFSET, t);
+
+        double speedSq = dx * dx + dy * dy;
+        if (speedSq == 0.0)
+            return 0.0;
+        return (dx * ddy - dy * ddx) / (speedSq * Math.sqrt(speedSq));
+    }
+
+    /**
+     * Returns the direction of travel on a segment.
+     *
+     * @param segment The segment index.
+     * @param t The curve parameter, from 0 to 1.
+     * @return The heading in radians, bounded by -pi and pi.
+     */
+    public double heading(int segment, double t) {
+        int c = coeffOffset(segment);
+        return Math.atan2(derivativeAxis(coeffs, c + Y_OFFSET, t), derivativeAxis(coeffs, c, t));
+    }
+
+    /**
+     * Returns the cubic Bezier control points of a segment, for rendering. Cubic segments and lines are exact;
+     * quintic segments need {@link #getPieceCount(int)} pieces to be drawn closely.
+     *
+     * @param segment The segment index.
+     * @param out Buffer receiving startX, startY, controlX1, controlY1, controlX2, controlY2, endX, endY.
+     */
+    public void getControlPoints(int segment, double[] out) {
+        getControlPoints(segment, 0, 1, out);
+    }
+
+    /**
+     * Returns the control points of the cubic Bezier curve through the ends of part of a segment, with the same
+     * tangents there. It's the part itself for cubic segments and lines.
+     *
+     * @param segment The segment index.
+     * @param t0 The curve parameter the part starts at.
+     * @param t1 The curve parameter the part ends at.
+     * @param out Buffer receiving startX, startY, controlX1, controlY1, controlX2, controlY2, endX, endY.
+     */
+    public void getControlPoints(int segment, double t0, double t1, double[] out) {
+        int c = coeffOffset(segment);
+        double third = (t1 - t0) / 3;
+        out[0] = evaluateAxis(coeffs, c, t0);
+        out[1] = evaluateAxis(coeffs, c + Y_OFFSET, t0);
+        out[2] = out[0] + third * derivativeAxis(coeffs, c, t0);
+        out[3] = out[1] + third * derivativeAxis(coeffs, c + Y_OFFSET, t0);
+        if (t1 == 1) {
+            // Exactly the next knot, as the polynomial would be without rounding, so pieces that meet there match
+            int k = (segment + 1) * KNOT_STRIDE;
+            out[6] = knots[k];
+            out[7] = knots[k + 1];
+        } else {
+            out[6] = evaluateAxis(coeffs, c, t1);
+            out[7] = evaluateAxis(coeffs, c + Y_OFFSET, t1);
+        }
+        out[4] = out[6] - third * derivativeAxis(coeffs, c, t1);
+        out[5] = out[7] - third * derivativeAxis(coeffs, c + Y_OFFSET, t1);
+    }
+
+    /**
+     * Returns how many equal parts a segment has to be cut into so that the cubic Bezier curves of
+     * {@link #getControlPoints(int, double, double, double[])} stay within a hundredth of a unit of it.
+     *
+     * @param segment The segment index.
+     * @return 1 for cubic segments and lines, and up to 16 for quintic segments.
+     */
+    public int getPieceCount(int segment) {
+        int c = coeffOffset(segment);
+        // A cubic matching the ends and tangents of a part of length h is off by at most h^4 / 384 times the
+        // largest fourth derivative
+        double fourth = Math.hypot(120 * Math.abs(coeffs[c]) + 24 * Math.abs(coeffs[c + 1]),
+                120 * Math.abs(coeffs[c + Y_OFFSET]) + 24 * Math.abs(coeffs[c + Y_OFFSET + 1]));
+        int pieces = (int) Math.ceil(Math.pow(fourth / (384 * PIECE_TOLERANCE), 0.25));
+        return Math.max(1, Math.min(MAX_PIECES, pieces));
+    }
+
+    /**
+     * Find the smallest box holding a segment, from where it turns on each axis.
+     *
+     * @param segment The segment index.
+     * @param out Buffer receiving minX, minY, maxX, maxY.
+     */
+    public void bounds(int segment, double[] out) {
+        int c = coeffOffset(segment);
+        axisBounds(c, out, 0);
+        axisBounds(c + Y_OFFSET, out, 1);
+    }
+
+    /**
+     * Returns the most a segment can move per unit of t, from the Bezier control points of its derivative,
+     * which the derivative never leaves.
+     *
+     * @param segment The segment index.
+     * @return A bound on {@link #speed(int, double)} over the whole segment.
+     */
+    public double getSpeedBound(int segment) {
+        int c = coeffOffset(segment);
+        double bound = 0;
+        for (int i = 0; i <= 4; i++)
+            bound = Math.max(bound, Math.hypot(derivativeControl(c, i), derivativeControl(c + Y_OFFSET, i)));
+        return bound;
+    }
+
+    /**
+     * Evaluate one axis of a segment's polynomial.
+     *
+     * @param coeffs Coefficients laid out like {@link #getCoefficients()}.
+     * @param offset The index of the axis' t^5 coefficient.
+     * @param t The curve parameter.
+     * @return The value.
+     */
+    public static double evaluateAxis(double[] coeffs, int offset, double t) {
+        return ((((coeffs[offset] * t + coeffs[offset + 1]) * t + coeffs[offset + 2]) * t
+                + coeffs[offset + 3]) * t + coeffs[offset + 4]) * t + coeffs[offset + 5];
+    }
+
+    /**
+     * Evaluate the derivative of one axis of a segment's polynomial.
+     *
+     * @param coeffs Coefficients laid out like {@link #getCoefficients()}.
+     * @param offset The index of the axis' t^5 coefficient.
+     * @param t The curve parameter.
+     * @return The derivative with respect to t.
+     */
+    public static double derivativeAxis(double[] coeffs, int offset, double t) {
+        return (((5 * coeffs[offset] * t + 4 * coeffs[offset + 1]) * t + 3 * coeffs[offset + 2]) * t
+                + 2 * coeffs[offset + 3]) * t + coeffs[offset + 4];
+    }
+
+    /**
+     * Evaluate the second derivative of one axis of a segment's polynomial.
+     *
+     * @param coeffs Coefficients laid out like {@link #getCoefficients()}.
+     * @param offset The index of the axis' t^5 coefficient.
+     * @param t The curve parameter.
+     * @return The second derivative with respect to t.
+     */
+    public static double secondDerivativeAxis(double[] coeffs, int offset, double t) {
+        return ((20 * coeffs[offset] * t + 12 * coeffs[offset + 1]) * t + 6 * coeffs[offset + 2]) * t
+                + 2 * coeffs[offset + 3];
+    }
+
+    /**
+     * Compute the polynomial coefficients of a single cubic Hermite segment.
+     *
+     * @param startX The x value of the start point.
+     * @param startY The y value of the start point.
+     * @param startAngle The angle of the tangent at the start point in radians.
+     * @param startMag The magnitude of the tangent at the start point.
+     * @param endX The x value of the end point.
+     * @param endY The y value of the end point.
+     * @param endAngle The angle of the tangent at the end point in radians.
+     * @param endMag The magnitude of the tangent at the end point.
+     * @param dst Buffer receiving {@link #COEFF_STRIDE} coefficients.
+     * @param offset The index in the buffer to write to.
+     */
+    public static void computeCoefficients(double startX, double startY, double startAngle, double startMag,
+                                           double endX, double endY, double endAngle, double endMag,
+                                           double[] dst, int offset) {
+        double t0x = startMag * Math.cos(startAngle);
+        double t0y = startMag * Math.sin(startAngle);
+        double t1x = endMag * Math.cos(endAngle);
+        double t1y = endMag * Math.sin(endAngle);
+
+        cubic(startX, t0x, endX, t1x, dst, offset);
+        cubic(startY, t0y, endY, t1y, dst, offset + Y_OFFSET);
+    }
+
+    /**
+     * Convert a single Hermite segment to the control points of the equivalent cubic Bezier curve.
+     *
+     * @param startX The x value of the start point.
+     * @param startY The y value of the start point.
+     * @param startAngle The angle of the tangent at the start point in radians.
+     * @param startMag The magnitude of the tangent at the start point.
+     * @param endX The x value of the end point.
+     * @param endY The y value of the end point.
+     * @param endAngle The angle of the tangent at the end point in radians.
+     * @param endMag The magnitude of the tangent at the end point.
+     * @param out Buffer receiving startX, startY, controlX1, controlY1, controlX2, controlY2, endX, endY.
+     */
+    public static void toBezier(double startX, double startY, double startAngle, double startMag,
+                                double endX, double endY, double endAngle, double endMag, double[] out) {
+        out[0] = startX;
+        out[1] = startY;
+        out[2] = startMag * Math.cos(startAngle) / 3 + startX;
+        out[3] = startMag * Math.sin(startAngle) / 3 + startY;
+        out[4] = -endMag * Math.cos(endAngle) / 3 + endX;
+        out[5] = -endMag * Math.sin(endAngle) / 3 + endY;
+        out[6] = endX;
+        out[7] = endY;
+    }
+
+    private void updateSegment(int segment) {
+        int k = segment * KNOT_STRIDE;
+        int c = segment * COEFF_STRIDE;
+        switch (segmentTypes[segment]) {
+            case CUBIC:
+                computeCoefficients(knots[k], knots[k + 1], knots[k + 2], knots[k + 3],
+                        knots[k + 4], knots[k + 5], knots[k + 6], knots[k + 7], coeffs, c);
+                break;
+            case QUINTIC:
+                quintic(knots[k], tangentX(segment), secondDerivativeX(segment),
+                        knots[k + 4], tangentX(segment + 1), secondDerivativeX(segment + 1), coeffs, c);
+                quintic(knots[k + 1], tangentY(segment), secondDerivativeY(segment),
+                        knots[k + 5], tangentY(segment + 1), secondDerivativeY(segment + 1), coeffs, c + Y_OFFSET);
+                break;
+            case LINE:
+                line(knots[k], knots[k + 4], coeffs, c);
+                line(knots[k + 1], knots[k + 5], coeffs, c + Y_OFFSET);
+                break;
+        }
+        segmentStamps[segment] = nextStamp++;
+    }
+
+    private static void cubic(double p0, double v0, double p1, double v1, double[] dst, int offset) {
+        dst[offset] = 0;
+        dst[offset + 1] = 0;
+        dst[offset + 2] = 2 * p0 - 2 * p1 + v0 + v1;
+        dst[offset + 3] = -3 * p0 + 3 * p1 - 2 * v0 - v1;
+        dst[offset + 4] = v0;
+        dst[offset + 5] = p0;
+    }
+
+    private static void quintic(double p0, double v0, double a0, double p1, double v1, double a1,
+                                double[] dst, int offset) {
+        double d = p1 - p0;
+        dst[offset] = 6 * d - 3 * v0 - 3 * v1 - 0.5 * a0 + 0.5 * a1;
+        dst[offset + 1] = -15 * d + 8 * v0 + 7 * v1 + 1.5 * a0 - a1;
+        dst[offset + 2] = 10 * d - 6 * v0 - 4 * v1 - 1.5 * a0 + 0.5 * a1;
+        dst[offset + 3] = 0.5 * a0;
+        dst[offset + 4] = v0;
+        dst[offset + 5] = p0;
+    }
+
+    private static void line(double p0, double p1, double[] dst, int offset) {
+        Arrays.fill(dst, offset, offset + 4, 0.0);
+        dst[offset + 4] = p1 - p0;
+        dst[offset + 5] = p0;
+    }
+
+    private double tangentX(int knot) {
+        int k = knot * KNOT_STRIDE;
+        return knots[k + 3] * Math.cos(knots[k + 2]);
+    }
+
+    private double tangentY(int knot) {
+        int k = knot * KNOT_STRIDE;
+        return knots[k + 3] * Math.sin(knots[k + 2]);
+    }
+
+    private double secondDerivativeX(int knot) {
+        return knotSecondDerivative(knot, 0, tangentX(Math.max(0, knot - 1)), tangentX(knot),
+                tangentX(Math.min(knotCount - 1, knot + 1)));
+    }
+
+    private double secondDerivativeY(int knot) {
+        return knotSecondDerivative(knot, 1, tangentY(Math.max(0, knot - 1)), tangentY(knot),
+                tangentY(Math.min(knotCount - 1, knot + 1)));
+    }
+
+    /**
+     * The average of the second derivatives the cubic segments before and after a knot have at it, or the one
+     * there is at the ends of the spline.
+     */
+    private double knotSecondDerivative(int knot, int axis, double vBefore, double v, double vAfter) {
+        double p = knots[knot * KNOT_STRIDE + axis];
+        double sum = 0;
+        int count = 0;
+        if (knot > 0) {
+            double pBefore = knots[(knot - 1) * KNOT_STRIDE + axis];
+            sum += 6 * pBefore - 6 * p + 2 * vBefore + 4 * v;
+            count++;
+        }
+        if (knot < knotCount - 1) {
+            double pAfter = knots[(knot + 1) * KNOT_STRIDE + axis];
+            sum += -6 * p + 6 * pAfter - 4 * v - 2 * vAfter;
+            count++;
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * The Bezier control point i of the derivative of one axis, from its polynomial coefficients.
+     */
+    private double derivativeControl(int c, int i) {
+        // The derivative's coefficients from t^0 up, and the Bernstein weights C(i, j) / C(4, j) that sum them
+        double d0 = coeffs[c + 4], d1 = 2 * coeffs[c + 3], d2 = 3 * coeffs[c + 2];
+        double d3 = 4 * coeffs[c + 1], d4 = 5 * coeffs[c];
+        switch (i) {
+            case 0:
+                return d0;
+            case 1:
+                return d0 + d1 / 4;
+            case 2:
+                return d0 + d1 / 2 + d2 / 6;
+            case 3:
+                return d0 + 3 * d1 / 4 + d2 / 2 + d3 / 4;
+            default:
+                return d0 + d1 + d2 + d3 + d4;
+        }
+    }
+
+    /**
+     * Find the range of one axis over a segment. Its extremes are at the ends or where the first derivative is
+     * zero. That's found between the places the second derivative is zero, where the first is monotonic, and
+     * those between the places the third is zero, a quadratic.
+     */
+    private void axisBounds(int c, double[] out, int axis) {
+        double min = Math.min(evaluateAxis(coeffs, c, 0), evaluateAxis(coeffs, c, 1));
+        double max = Math.max(evaluateAxis(coeffs, c, 0), evaluateAxis(coeffs, c, 1));
+
+        // The third derivative over 6: 10 c5 t^2 + 4 c4 t + c3
+        double qa = 10 * coeffs[c], qb = 4 * coeffs[c + 1], qc = coeffs[c + 2];
+        int breaks = 0;
+        bendBreaks[breaks++] = 0;
+        if (qa == 0) {
+            if (qb != 0)
+                breaks = addBreak(bendBreaks, breaks, -qc / qb);
+        } else {
+            double discriminant = qb * qb - 4 * qa * qc;
+            if (discriminant >= 0) {
+                double root = Math.sqrt(discriminant);
+                double first = (-qb - root) / (2 * qa), second = (-qb + root) / (2 * qa);
+                breaks = addBreak(bendBreaks, breaks, Math.min(first, second));
+                breaks = addBreak(bendBreaks, breaks, Math.max(first, second));
+            }
+        }
+        bendBreaks[breaks++] = 1;
+
+        int slopeCount = 0;
+        slopeBreaks[slopeCount++] = 0;
+        slopeCount += rootsBetween(c, true, bendBreaks, breaks, slopeBreaks, slopeCount);
+        slopeBreaks[slopeCount++] = 1;
+
+        int turnCount = rootsBetween(c, false, slopeBreaks, slopeCount, turns, 0);
+        for (int i = 0; i < turnCount; i++) {
+            double v = evaluateAxis(coeffs, c, turns[i]);
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        out[axis] = min;
+        out[axis + 2] = max;
+    }
+
+    private static int addBreak(double[] breaks, int count, double t) {
+        if (t > 0 && t < 1)
+            breaks[count++] = t;
+        return count;
+    }
+
+    /**
+     * Bisect for the zero of the first derivative, or of the second, between each pair of breaks it's monotonic
+     * between, where it changes sign.
+     *
+     * @return The number of zeros found.
+     */
+    private int rootsBetween(int c, boolean second, double[] breaks, int breakCount, double[] out, int outOffset) {
+        int found = 0;
+        for (int i = 0; i + 1 < breakCount; i++) {
+            double lo = breaks[i], hi = breaks[i + 1];
+            double fLo = second ? secondDerivativeAxis(coeffs, c, lo) : derivativeAxis(coeffs, c, lo);
+            double fHi = second ? secondDerivativeAxis(coeffs, c, hi) : derivativeAxis(coeffs, c, hi);
+            if (fLo * fHi > 0)
+                continue;
+            for (int j = 0; j < ROOT_ITERATIONS && hi - lo > 0; j++) {
+                double mid = 0.5 * (lo + hi);
+                double fMid = second ? secondDerivativeAxis(coeffs, c, mid) : derivativeAxis(coeffs, c, mid);
+                if ((fMid > 0) == (fLo > 0)) {
+                    lo = mid;
+                    fLo = fMid;
+                } else {
+                    hi = mid;
+                }
+            }
+            out[outOffset + found++] = 0.5 * (lo + hi);
+        }
+        return found;
+    }
+
+    private void ensureCapacity(int count) {
+        if (count * KNOT_STRIDE <= knots.length)
+            return;
+        int newCapacity = Math.max(count, knots.length / KNOT_STRIDE * 2);
+        knots = Arrays.copyOf(knots, newCapacity * KNOT_STRIDE);
+        coeffs = Arrays.copyOf(coeffs, (newCapacity - 1) * COEFF_STRIDE);
+        int oldSegments = segmentTypes.length;
+        segmentTypes = Arrays.copyOf(segmentTypes, newCapacity - 1);
+        Arrays.fill(segmentTypes, oldSegments, segmentTypes.length, SegmentType.CUBIC);
+        segmentStamps = Arrays.copyOf(segmentStamps, newCapacity - 1);
+    }
+
+    private int coeffOffset(int segment) {
+        checkSegment(segment);
+        return segment * COEFF_STRIDE;
+    }
+
+    private void checkKnot(int index) {
+        if (index < 0 || index >= knotCount)
+            throw new IndexOutOfBoundsException("Knot " + index + " out of bounds for " + knotCount + " knots");
+    }
+
+    private void checkSegment(int segment) {
+        if (segment < 0 || segment >= knotCount - 1)
+            throw new IndexOutOfBoundsException("Segment " + segment + " out of bounds for " + getSegmentCount() + " segments");
+    }
+}
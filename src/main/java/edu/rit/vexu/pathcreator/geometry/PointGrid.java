@@ -0,0 +1,250 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over a rectangle, for finding which of many points is nearest to a spot, like the mouse.
+ * <p>
+ * Each point is kept in the cell it falls in, on a linked list threaded through primitive arrays, so adding,
+ * moving and removing a point is O(1) and never allocates once the grid has grown. Points outside the rectangle
+ * are kept in the nearest edge cell, which keeps lookups exact: a search only reaches past the edge if it
+ * reaches the edge cell too.
+ * <p>
+ * {@link #nearest(double, double, double)} only visits the cells within the search radius, so with cells about
+ * the size of the radius a lookup touches a handful of cells, however many points there are.
+ * <p>
+ * Points are identified by the id {@link #add(double, double)} returns, which stays the same until the point is
+ * removed. Ids of removed points are reused. This class has no JavaFX dependencies, and is not thread safe.
+ */
+public final class PointGrid {
+
+    /** Returned by {@link #nearest(double, double, double)} when no point is in range. */
+    public static final int NONE = -1;
+
+    private static final int DEFAULT_CAPACITY = 64;
+    // Keep the cell table a sensible size however small the cells are asked to be
+    private static final int MAX_CELLS = 1 << 20;
+
+    private double minX, minY;
+    private double cellSize;
+    private int columns, rows;
+    // The first point in each cell, or NONE
+    private int[] heads;
+
+    // Per point: position, cell, and the neighbours in its cell's list. Free ids are chained through next.
+    private double[] xs = new double[DEFAULT_CAPACITY];
+    private double[] ys = new double[DEFAULT_CAPACITY];
+    private int[] cells = new int[DEFAULT_CAPACITY];
+    private int[] next = new int[DEFAULT_CAPACITY];
+    private int[] prev = new int[DEFAULT_CAPACITY];
+    private int highWater = 0;
+    private int freeHead = NONE;
+    private int size = 0;
+
+    /**
+     * Create an empty grid.
+     *
+     * @param minX The left edge of the area most points are in.
+     * @param minY The top edge.
+     * @param maxX The right edge.
+     * @param maxY The bottom edge.
+     * @param cellSize The width and height of a cell, about the usual search radius.
+     */
+    public PointGrid(double minX, double minY, double maxX, double maxY, double cellSize) {
+        setBounds(minX, minY, maxX, maxY, cellSize);
+    }
+
+    /**
+     * Change the area the grid covers, putting every point into its new cell. Ids stay the same.
+     *
+     * @param minX The left edge of the area most points are in.
+     * @param minY The top edge.
+     * @param maxX The right edge.
+     * @param maxY The bottom edge.
+     * @param cellSize The width and height of a cell, about the usual search radius.
+     */
+    public void setBounds(double minX, double minY, double maxX, double maxY, double cellSize) {
+        if (!(cellSize > 0) || !(maxX >= minX) || !(maxY >= minY))
+            throw new IllegalArgumentException("Grid bounds must be ordered, and cells must have a positive size");
+        double width = maxX - minX, height = maxY - minY;
+        while (Math.ceil(width / cellSize) * Math.ceil(height / cellSize) > MAX_CELLS)
+            cellSize *= 2;
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        heads = new int[columns * rows];
+        Arrays.fill(heads, NONE);
+
+        for (int id = 0; id < highWater; id++)
+            if (cells[id] != NONE)
+                link(id, cellOf(xs[id], ys[id]));
+    }
+
+    /**
+     * @return The number of points in the grid.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a point.
+     *
+     * @return The id of the new point.
+     */
+    public int add(double x, double y) {
+        int id;
+        if (freeHead != NONE) {
+            id = freeHead;
+            freeHead = next[id];
+        } else {
+            ensureCapacity(highWater + 1);
+            id = highWater++;
+        }
+        xs[id] = x;
+        ys[id] = y;
+        link(id, cellOf(x, y));
+        size++;
+        return id;
+    }
+
+    /**
+     * Move a point, only touching the cell lists if it changed cells.
+     *
+     * @param id The id of the point.
+     */
+    public void move(int id, double x, double y) {
+        checkId(id);
+        xs[id] = x;
+        ys[id] = y;
+        int cell = cellOf(x, y);
+        if (cell == cells[id])
+            return;
+        unlink(id);
+        link(id, cell);
+    }
+
+    /**
+     * Remove a point. Its id may be handed out again by {@link #add(double, double)}.
+     *
+     * @param id The id of the point.
+     */
+    public void remove(int id) {
+        checkId(id);
+        unlink(id);
+        cells[id] = NONE;
+        next[id] = freeHead;
+        freeHead = id;
+        size--;
+    }
+
+    /**
+     * Remove every point, keeping the allocated storage.
+     */
+    public void clear() {
+        Arrays.fill(heads, NONE);
+        highWater = 0;
+        freeHead = NONE;
+        size = 0;
+    }
+
+    /**
+     * @param id The id of a point in the grid.
+     * @return Whether the id belongs to a point in the grid.
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < highWater && cells[id] != NONE;
+    }
+
+    public double getX(int id) {
+        checkId(id);
+        return xs[id];
+    }
+
+    public double getY(int id) {
+        checkId(id);
+        return ys[id];
+    }
+
+    /**
+     * Find the point nearest to a spot, within a radius.
+     *
+     * @param x The x value of the spot.
+     * @param y The y value of the spot.
+     * @param radius How far away a point can be and still be found.
+     * @return The id of the nearest point, or {@link #NONE} if none is within the radius.
+     */
+    public int nearest(double x, double y, double radius) {
+        if (size == 0 || !(radius >= 0))
+            return NONE;
+        int left = column(x - radius), right = column(x + radius);
+        int top = row(y - radius), bottom = row(y + radius);
+
+        int best = NONE;
+        double bestDistance = radius * radius;
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                for (int id = heads[row * columns + column]; id != NONE; id = next[id]) {
+                    double dx = xs[id] - x, dy = ys[id] - y;
+                    double distance = dx * dx + dy * dy;
+                    if (distance <= bestDistance) {
+                        bestDistance = distance;
+                        best = id;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int cellOf(double x, double y) {
+        return row(y) * columns + column(x);
+    }
+
+    // Anything past an edge, or not a number, goes in the edge cell
+    private int column(double x) {
+        double c = Math.floor((x - minX) / cellSize);
+        return c >= columns ? columns - 1 : c >= 0 ? (int) c : 0;
+    }
+
+    private int row(double y) {
+        double r = Math.floor((y - minY) / cellSize);
+        return r >= rows ? rows - 1 : r >= 0 ? (int) r : 0;
+    }
+
+    private void link(int id, int cell) {
+        cells[id] = cell;
+        prev[id] = NONE;
+        next[id] = heads[cell];
+        if (heads[cell] != NONE)
+            prev[heads[cell]] = id;
+        heads[cell] = id;
+    }
+
+    private void unlink(int id) {
+        if (prev[id] != NONE)
+            next[prev[id]] = next[id];
+        else
+            heads[cells[id]] = next[id];
+        if (next[id] != NONE)
+            prev[next[id]] = prev[id];
+    }
+
+    private void checkId(int id) {
+        if (!contains(id))
+            throw new IllegalArgumentException("No point with id " + id);
+    }
+
+    private void ensureCapacity(int n) {
+        if (xs.length >= n)
+            return;
+        int capacity = Math.max(n, xs.length * 2);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        cells = Arrays.copyOf(cells, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
@@ -0,0 +1,323 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Finds the point of a {@link HermiteSpline} closest to a given position, with its distance along the spline.
+ * <p>
+ * Each segment's bounding box is cached from {@link HermiteSpline#bounds(int, double[])}. A query
+ * first searches the segment whose box is closest, then only the segments whose boxes are closer than the best
+ * point found so far. Within a segment, the squared distance is sampled at a few parameters to find its dips,
+ * and each dip is refined by Newton's method on the derivative, kept inside the samples around it by bisection.
+ * Intervals between samples that could still hide a closer point, given how fast the segment can move, are split
+ * a few times to find dips in tight loops. Every segment type is searched the same way, through its quintic
+ * coefficients.
+ * <p>
+ * For following a path, like a pure pursuit tracker in a simulator, {@link #projectWithin} only searches part of
+ * the spline around where the robot was last, and the lookahead point is
+ * {@code table.getParameter(projection.getArcLength() + lookahead)}.
+ * <p>
+ * Call {@link #update()} after editing the spline and updating the table; only segments whose stamp changed
+ * get new boxes. Queries never allocate. Not thread safe, since queries share scratch buffers.
+ */
+public final class SplineProjector {
+
+    // Samples per segment before refining; a quintic's squared distance has at most 5 dips
+    private static final int SAMPLES = 10;
+    private static final int MAX_ITERATIONS = 16;
+    private static final double TOLERANCE = 1e-12;
+    // How many times an interval between samples can be halved looking for a hidden dip
+    private static final int MAX_SPLITS = 8;
+
+    private final ArcLengthTable table;
+    private final HermiteSpline spline;
+
+    // minX, minY, maxX, maxY per segment
+    private double[] boxes = new double[0];
+    // The most a segment moves per unit of t
+    private double[] speeds = new double[0];
+    private int[] builtStamps = new int[0];
+    private int segmentCount = 0;
+
+    private final double[] box = new double[4];
+    // Lower bound of each segment's squared distance, for the query being run
+    private double[] bounds = new double[0];
+    private final double[] samples = new double[SAMPLES + 1];
+    // The segment being searched, with its coefficients relative to the queried position, from t^5 down
+    private int segment;
+    private double x5, x4, x3, x2, x1, x0, y5, y4, y3, y2, y1, y0;
+    // The best point of the query being run
+    private int bestSegment;
+    private double bestT, bestSq;
+
+    /**
+     * The closest point found by a query.
+     */
+    public static final class Projection {
+        private int segment;
+        private double t;
+        private double x, y;
+        private double distance;
+        private double arcLength;
+
+        /**
+         * @return The index of the segment the point is on.
+         */
+        public int getSegment() {
+            return segment;
+        }
+
+        /**
+         * @return The curve parameter on the segment, from 0 to 1.
+         */
+        public double getT() {
+            return t;
+        }
+
+        /**
+         * @return The spline parameter u, the segment index plus t.
+         */
+        public double getParameter() {
+            return segment + t;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        /**
+         * @return The distance from the queried position to the point.
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * @return The distance along the spline from its start to the point.
+         */
+        public double getArcLength() {
+            return arcLength;
+        }
+    }
+
+    /**
+     * Create a projector for the spline a table measures, and build its boxes.
+     *
+     * @param table The arc length table of the spline, used for distances along it.
+     */
+    public SplineProjector(ArcLengthTable table) {
+        this.table = table;
+        this.spline = table.getSpline();
+        update();
+    }
+
+    /**
+     * Bring the segment boxes up to date with the spline.
+     *
+     * @return The number of segments whose boxes were rebuilt.
+     */
+    public int update() {
+        int count = spline.getSegmentCount();
+        if (count > builtStamps.length) {
+            int capacity = Math.max(count, builtStamps.length * 2);
+            boxes = Arrays.copyOf(boxes, capacity * 4);
+            speeds = Arrays.copyOf(speeds, capacity);
+            builtStamps = Arrays.copyOf(builtStamps, capacity);
+            bounds = new double[capacity];
+        }
+        segmentCount = count;
+
+        int rebuilt = 0;
+        for (int seg = 0; seg < count; seg++) {
+            int stamp = spline.getSegmentStamp(seg);
+            if (builtStamps[seg] == stamp)
+                continue;
+            spline.bounds(seg, box);
+            System.arraycopy(box, 0, boxes, seg * 4, 4);
+            speeds[seg] = spline.getSpeedBound(seg);
+            builtStamps[seg] = stamp;
+            rebuilt++;
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Find the point of the spline closest to a position.
+     *
+     * @param x The x value of the position.
+     * @param y The y value of the position.
+     * @param out Receives the closest point.
+     * @return false if the spline has no segments, leaving the result untouched.
+     */
+    public boolean project(double x, double y, Projection out) {
+        return search(x, y, 0, segmentCount, Double.POSITIVE_INFINITY, out);
+    }
+
+    /**
+     * Find the point of the spline closest to a position, if it's within a distance.
+     * Segments further away than the distance are never searched.
+     *
+     * @param x The x value of the position.
+     * @param y The y value of the position.
+     * @param maxDistance How far away the point can be.
+     * @param out Receives the closest point.
+     * @return false if no point of the spline is within the distance, leaving the result untouched.
+     */
+    public boolean project(double x, double y, double maxDistance, Projection out) {
+        return search(x, y, 0, segmentCount, maxDistance, out);
+    }
+
+    /**
+     * Find the point closest to a position on part of the spline.
+     *
+     * @param x The x value of the position.
+     * @param y The y value of the position.
+     * @param minU The spline parameter the part starts at.
+     * @param maxU The spline parameter the part ends at.
+     * @param out Receives the closest point.
+     * @return false if the part is empty, leaving the result untouched.
+     */
+    public boolean projectWithin(double x, double y, double minU, double maxU, Projection out) {
+        return search(x, y, Math.max(0, minU), Math.min(segmentCount, maxU), Double.POSITIVE_INFINITY, out);
+    }
+
+    private boolean search(double x, double y, double minU, double maxU, double maxDistance, Projection out) {
+        if (segmentCount == 0 || !(minU <= maxU))
+            return false;
+        int first = ArcLengthTable.segmentOf(minU, segmentCount);
+        int last = ArcLengthTable.segmentOf(maxU, segmentCount);
+
+        // Start with the segment whose box is closest, so the others have a distance to beat
+        int nearest = first;
+        for (int seg = first; seg <= last; seg++) {
+            int b = seg * 4;
+            double dx = Math.max(0, Math.max(boxes[b] - x, x - boxes[b + 2]));
+            double dy = Math.max(0, Math.max(boxes[b + 1] - y, y - boxes[b + 3]));
+            bounds[seg] = dx * dx + dy * dy;
+            if (bounds[seg] < bounds[nearest])
+                nearest = seg;
+        }
+
+        bestSq = maxDistance * maxDistance;
+        bestSegment = -1;
+        searchSegment(nearest, x, y, minU, maxU);
+        for (int seg = first; seg <= last; seg++)
+            if (seg != nearest && bounds[seg] <= bestSq)
+                searchSegment(seg, x, y, minU, maxU);
+        if (bestSegment < 0)
+            return false;
+
+        int c = bestSegment * HermiteSpline.COEFF_STRIDE;
+        double[] k = spline.getCoefficients();
+        out.segment = bestSegment;
+        out.t = bestT;
+        out.x = HermiteSpline.evaluateAxis(k, c, bestT);
+        out.y = HermiteSpline.evaluateAxis(k, c + HermiteSpline.Y_OFFSET, bestT);
+        out.distance = Math.sqrt(bestSq);
+        out.arcLength = table.getDistance(bestSegment, bestT);
+        return true;
+    }
+
+    /**
+     * Find the closest point on the part of a segment between two spline parameters,
+     * and keep it if it beats the best so far.
+     */
+    private void searchSegment(int segment, double x, double y, double minU, double maxU) {
+        if (bounds[segment] > bestSq)
+            return;
+        double tLo = Math.max(0.0, Math.min(1.0, minU - segment));
+        double tHi = Math.max(0.0, Math.min(1.0, maxU - segment));
+        double[] k = spline.getCoefficients();
+        int c = segment * HermiteSpline.COEFF_STRIDE;
+        x5 = k[c];
+        x4 = k[c + 1];
+        x3 = k[c + 2];
+        x2 = k[c + 3];
+        x1 = k[c + 4];
+        x0 = k[c + 5] - x;
+        y5 = k[c + 6];
+        y4 = k[c + 7];
+        y3 = k[c + 8];
+        y2 = k[c + 9];
+        y1 = k[c + 10];
+        y0 = k[c + 11] - y;
+        this.segment = segment;
+
+        double step = (tHi - tLo) / SAMPLES;
+        for (int j = 0; j <= SAMPLES; j++)
+            samples[j] = distanceSq(tLo + step * j);
+
+        // Refine every dip, since the deepest sample isn't always in the deepest dip
+        for (int j = 0; j <= SAMPLES; j++) {
+            if ((j > 0 && samples[j - 1] < samples[j]) || (j < SAMPLES && samples[j + 1] < samples[j]))
+                continue;
+            keep(tLo + step * j, samples[j]);
+            refine(tLo + step * Math.max(0, j - 1), tLo + step * Math.min(SAMPLES, j + 1), tLo + step * j);
+        }
+
+        // A tight loop can hide a dip between two samples. The curve moves no faster than its speed bound
+        // allows, so only intervals whose ends are close enough could hold a closer point; split those.
+        for (int j = 0; j < SAMPLES; j++)
+            split(tLo + step * j, tLo + step * (j + 1), Math.sqrt(samples[j]), Math.sqrt(samples[j + 1]), 0);
+    }
+
+    private void split(double lo, double hi, double lowDistance, double highDistance, int depth) {
+        if (depth == MAX_SPLITS || (lowDistance + highDistance - speeds[segment] * (hi - lo)) / 2 >= Math.sqrt(bestSq))
+            return;
+        double mid = 0.5 * (lo + hi);
+        double midSq = distanceSq(mid);
+        if (midSq < bestSq) {
+            keep(mid, midSq);
+            refine(lo, hi, mid);
+        }
+        double midDistance = Math.sqrt(midSq);
+        split(lo, mid, lowDistance, midDistance, depth + 1);
+        split(mid, hi, midDistance, highDistance, depth + 1);
+    }
+
+    /**
+     * Newton's method on the derivative of the squared distance, from a guess inside a bracket around a dip.
+     * Steps that leave the bracket fall back to bisection.
+     */
+    private void refine(double lo, double hi, double t) {
+        for (int i = 0; i < MAX_ITERATIONS && hi - lo > TOLERANCE; i++) {
+            double px = ((((x5 * t + x4) * t + x3) * t + x2) * t + x1) * t + x0;
+            double py = ((((y5 * t + y4) * t + y3) * t + y2) * t + y1) * t + y0;
+            double vx = (((5 * x5 * t + 4 * x4) * t + 3 * x3) * t + 2 * x2) * t + x1;
+            double vy = (((5 * y5 * t + 4 * y4) * t + 3 * y3) * t + 2 * y2) * t + y1;
+            double ax = ((20 * x5 * t + 12 * x4) * t + 6 * x3) * t + 2 * x2;
+            double ay = ((20 * y5 * t + 12 * y4) * t + 6 * y3) * t + 2 * y2;
+            double g = px * vx + py * vy;
+            double slope = vx * vx + vy * vy + px * ax + py * ay;
+            if (g > 0)
+                hi = t;
+            else
+                lo = t;
+
+            double next = slope > 0 ? t - g / slope : lo - 1.0;
+            next = (next > lo && next < hi) ? next : 0.5 * (lo + hi);
+            if (Math.abs(next - t) <= TOLERANCE)
+                break;
+            t = next;
+            keep(t, distanceSq(t));
+        }
+    }
+
+    private double distanceSq(double t) {
+        double px = ((((x5 * t + x4) * t + x3) * t + x2) * t + x1) * t + x0;
+        double py = ((((y5 * t + y4) * t + y3) * t + y2) * t + y1) * t + y0;
+        return px * px + py * py;
+    }
+
+    private void keep(double t, double sq) {
+        if (sq <= bestSq) {
+            bestSq = sq;
+            bestSegment = segment;
+            bestT = t;
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package edu.rit.vexu.pathcreator.io;
+
+import edu.rit.vexu.pathcreator.geometry.ArcLengthTable;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import edu.rit.vexu.pathcreator.trajectory.CompressedTrajectory;
+import edu.rit.vexu.pathcreator.trajectory.RobotLimits;
+import edu.rit.vexu.pathcreator.trajectory.TrajectoryCompressor;
+import edu.rit.vexu.pathcreator.trajectory.TrajectoryGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exports a route as a C++ header for the robot, so it can follow the paths without doing any spline math.
+ * <p>
+ * Every point becomes a {@code Point}, and every path its {@code Waypoint}s and the polynomial coefficients of
+ * each {@code HermiteSegment}, written as quintics whatever the path's segment type. Optionally each path is also
+ * sampled at equal distances into a table of {@code Sample}s holding the time, position, heading and velocity of a
+ * trajectory within the robot's limits. A {@code route} array at the end lists the items in driving order, and
+ * {@code item_count} how many there are. Items with invalid waypoints are left out.
+ * <p>
+ * With {@link #setCompression(double, double) compression} on, the sample tables are written as the bytes of a
+ * {@link CompressedTrajectory} instead, and a {@code PackedReader} class in the header unpacks them on the robot.
+ * Each table's comment reports its worst error and how many bytes it saved.
+ * <p>
+ * The header is streamed: numbers are formatted straight into one reused byte buffer, which is written to the
+ * channel whenever it fills, and samples are written as the trajectory generator produces them. Exporting a
+ * table of millions of samples needs no more memory than exporting a single point. Compressed tables are the
+ * exception, since a path's samples are all needed to choose which to keep.
+ * <p>
+ * Not thread safe; use one exporter per thread.
+ */
+public final class CppHeaderExporter {
+
+    /** The file extension used by the editor. */
+    public static final String EXTENSION = ".h";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Every number is written with four decimal places; a ten thousandth of an inch is far below what
+    // the robot can follow
+    private static final long SCALE = 10_000;
+
+    private final String namespace;
+    private final RobotLimits limits;
+    private final TrajectoryGenerator generator;
+    private TrajectoryCompressor compressor = null;
+    private double driveTime = 0.0;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private WritableByteChannel out;
+
+    /**
+     * Create an exporter that writes waypoints and segments, but no sample tables.
+     *
+     * @param namespace The C++ namespace holding everything in the header.
+     */
+    public CppHeaderExporter(String namespace) {
+        this(namespace, null, TrajectoryGenerator.DEFAULT_SPACING);
+    }
+
+    /**
+     * Create an exporter that also writes a table of trajectory samples for each path.
+     *
+     * @param namespace The C++ namespace holding everything in the header.
+     * @param limits The limits of the robot for the trajectories, or null for no sample tables.
+     * @param spacing The distance between samples, in inches.
+     */
+    public CppHeaderExporter(String namespace, RobotLimits limits, double spacing) {
+        if (!namespace.matches("[A-Za-z_][A-Za-z0-9_]*"))
+            throw new IllegalArgumentException("Not a C++ identifier: " + namespace);
+        this.namespace = namespace;
+        this.limits = limits;
+        this.generator = new TrajectoryGenerator(spacing);
+    }
+
+    /**
+     * Write the sample tables compressed, dropping samples that can be rebuilt within a tolerance.
+     * Only has an effect if the exporter writes sample tables. Exporting throws {@link IllegalStateException} if
+     * a path can't be compressed within the tolerances.
+     *
+     * @param positionTolerance How far a rebuilt position can be from the trajectory, in inches.
+     * @param headingTolerance How far a rebuilt heading can be from the trajectory, in degrees.
+     */
+    public void setCompression(double positionTolerance, double headingTolerance) {
+        compressor = new TrajectoryCompressor(positionTolerance, headingTolerance);
+    }
+
+    /**
+     * @return The time to drive every path of the last exported route, in seconds, or 0 without sample tables.
+     */
+    public double getDriveTime() {
+        return driveTime;
+    }
+
+    /**
+     * Turn a name, like the name of the exported file, into a C++ identifier for its namespace.
+     *
+     * @param name The name, without an extension.
+     * @return The name with anything but letters, digits and underscores replaced by underscores.
+     */
+    public static String toIdentifier(String name) {
+        String identifier = name.replaceAll("[^A-Za-z0-9_]", "_");
+        if (identifier.isEmpty() || Character.isDigit(identifier.charAt(0)))
+            identifier = "_" + identifier;
+        return identifier;
+    }
+
+    /**
+     * Export a route to a file, replacing it if it exists.
+     *
+     * @param file The header to write.
+     * @param route The route to export.
+     * @throws IOException If the file can't be written.
+     */
+    public void export(Path file, Route route) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            export(channel, route);
+        }
+    }
+
+    /**
+     * Export a route to a channel, which is left open.
+     *
+     * @param channel Where to write the header.
+     * @param route The route to export.
+     * @throws IOException If the channel can't be written.
+     */
+    public void export(WritableByteChannel channel, Route route) throws IOException {
+        out = channel;
+        buffer.clear();
+        driveTime = 0.0;
+        try {
+            writeHeader(route);
+            HermiteSpline spline = new HermiteSpline();
+            ArcLengthTable lengthTable = new ArcLengthTable(spline);
+            for (int i = 0; i < route.size(); i++) {
+                RouteItem item = route.get(i);
+                if (!isExported(item))
+                    text("// Item ").number(i).text(": left out, it has invalid waypoints\n\n");
+                else if (item.getKind() == RouteItem.Kind.POINT)
+                    writePoint(i, item);
+                else
+                    writePath(i, item, spline, lengthTable);
+            }
+            writeIndex(route);
+            flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            out = null;
+        }
+    }
+
+    private void writeHeader(Route route) {
+        text("// Generated by VEX Path Creator for a ").number(Math.round(route.getFieldWidth()))
+                .text(" x ").number(Math.round(route.getFieldHeight())).text(" inch field. Do not edit.\n")
+                .text("// Positions are in inches, times in seconds, and angles and headings in radians.\n")
+                .text("#pragma once\n\n#include <cstddef>\n\nnamespace ").text(namespace).text(" {\n\n")
+                .text("struct Point { float x, y; };\n")
+                .text("struct Waypoint { float x, y, angle, mag; };\n")
+                .text("// Position at t from 0 to 1: x = ((((x5 * t + x4) * t + x3) * t + x2) * t + x1) * t + x0,\n")
+                .text("// and the same for y. Cubic segments and lines have zero for the higher powers.\n")
+                .text("struct HermiteSegment { float x5, x4, x3, x2, x1, x0, y5, y4, y3, y2, y1, y0; };\n")
+                .text("struct Sample { float time, x, y, heading, velocity; };\n\n")
+                .text("enum class ItemKind { Point, Path };\n")
+                .text("struct Item {\n")
+                .text("    ItemKind kind;\n")
+                .text("    const Point* point;\n")
+                .text("    const Waypoint* waypoints;\n")
+                .text("    const HermiteSegment* segments;\n")
+                .text("    std::size_t waypoint_count;\n")
+                .text("    const Sample* samples;\n")
+                .text("    std::size_t sample_count;\n")
+                .text("    const unsigned char* packed;\n")
+                .text("    std::size_t packed_size;\n")
+                .text("};\n\n");
+        if (limits != null && compressor != null)
+            writeReader();
+    }
+
+    // C++ twin of CompressedTrajectory.decode, reading one sample at a time
+    private void writeReader() {
+        text("// Unpacks a compressed sample table. Call next() count() times; between two samples, interpolate\n")
+                .text("// linearly in time.\n")
+                .text("class PackedReader {\n")
+                .text("public:\n")
+                .text("    explicit PackedReader(const unsigned char* data) : p_(data) {\n")
+                .text("        count_ = static_cast<std::size_t>(read());\n")
+                .text("        time_step_ = read() * 1e-6;\n")
+                .text("        position_step_ = read() * 1e-6;\n")
+                .text("        heading_step_ = read() * 1e-6 * 3.14159265358979323846 / 180.0;\n")
+                .text("        velocity_step_ = read() * 1e-6;\n")
+                .text("    }\n")
+                .text("    std::size_t count() const { return count_; }\n")
+                .text("    Sample next() {\n")
+                .text("        t_ += delta();\n")
+                .text("        x_ += delta();\n")
+                .text("        y_ += delta();\n")
+                .text("        h_ += delta();\n")
+                .text("        v_ += delta();\n")
+                .text("        return Sample{static_cast<float>(t_ * time_step_), static_cast<float>(x_ * position_step_),\n")
+                .text("                      static_cast<float>(y_ * position_step_), static_cast<float>(h_ * heading_step_),\n")
+                .text("                      static_cast<float>(v_ * velocity_step_)};\n")
+                .text("    }\n")
+                .text("private:\n")
+                .text("    unsigned long long read() {\n")
+                .text("        unsigned long long value = 0;\n")
+                .text("        for (int shift = 0;; shift += 7) {\n")
+                .text("            unsigned char b = *p_++;\n")
+                .text("            value |= static_cast<unsigned long long>(b & 0x7F) << shift;\n")
+                .text("            if (!(b & 0x80))\n")
+                .text("                return value;\n")
+                .text("        }\n")
+                .text("    }\n")
+                .text("    long long delta() {\n")
+                .text("        unsigned long long value = read();\n")
+                .text("        return static_cast<long long>(value >> 1) ^ -static_cast<long long>(value & 1);\n")
+                .text("    }\n")
+                .text("    const unsigned char* p_;\n")
+                .text("    std::size_t count_;\n")
+                .text("    double time_step_, position_step_, heading_step_, velocity_step_;\n")
+                .text("    long long t_ = 0, x_ = 0, y_ = 0, h_ = 0, v_ = 0;\n")
+                .text("};\n\n");
+    }
+
+    private void writePoint(int index, RouteItem item) {
+        text("// Item ").number(index).text(": point\n")
+                .text("const Point item").number(index).text("_point = {")
+                .decimal(item.getX(0)).text(", ").decimal(item.getY(0)).text("};\n\n");
+    }
+
+    private void writePath(int index, RouteItem item, HermiteSpline spline, ArcLengthTable lengthTable) {
+        int count = item.size();
+        spline.setKnotCount(count);
+        for (int seg = 0; seg < count - 1; seg++)
+            spline.setSegmentType(seg, item.getSegmentType());
+        for (int j = 0; j < count; j++)
+            spline.setKnot(j, item.getX(j), item.getY(j), Math.toRadians(item.getAngle(j)), item.getMag(j));
+        lengthTable.update();
+
+        text("// Item ").number(index).text(": path, about ").number(Math.round(lengthTable.getLength())).text(" inches\n");
+
+        text("const Waypoint item").number(index).text("_waypoints[] = {\n");
+        for (int j = 0; j < count; j++)
+            text("    {").decimal(spline.getKnotX(j)).text(", ").decimal(spline.getKnotY(j)).text(", ")
+                    .decimal(spline.getKnotAngle(j)).text(", ").decimal(spline.getKnotMag(j)).text("},\n");
+        text("};\n");
+
+        text("const HermiteSegment item").number(index).text("_segments[] = {\n");
+        double[] coeffs = spline.getCoefficients();
+        for (int seg = 0; seg < spline.getSegmentCount(); seg++) {
+            text("    {");
+            for (int c = 0; c < HermiteSpline.COEFF_STRIDE; c++) {
+                if (c > 0)
+                    text(", ");
+                decimal(coeffs[seg * HermiteSpline.COEFF_STRIDE + c]);
+            }
+            text("},\n");
+        }
+        text("};\n");
+
+        if (limits != null && compressor != null) {
+            compressor.clear();
+            driveTime += generator.generate(lengthTable, limits, compressor);
+            CompressedTrajectory packed = compressor.compress();
+            byte[] data = packed.getData();
+            text("// ").number(packed.getSampleCount()).text(" of ").number(packed.getSourceCount())
+                    .text(" samples kept, ").number(data.length).text(" bytes instead of ").number(packed.getRawSize())
+                    .text(", worst error ").fixed(packed.getMaxPositionError()).text(" inches and ")
+                    .fixed(packed.getMaxHeadingError()).text(" degrees\n");
+            text("const unsigned char item").number(index).text("_packed[] = {");
+            for (int b = 0; b < data.length; b++) {
+                text(b % 24 == 0 ? "\n    " : " ").number(data[b] & 0xFF);
+                if (b < data.length - 1)
+                    text(",");
+            }
+            text("\n};\n");
+        } else if (limits != null) {
+            text("const Sample item").number(index).text("_samples[] = {\n");
+            driveTime += generator.generate(lengthTable, limits,
+                    (time, distance, x, y, heading, velocity, acceleration, curvature) ->
+                            text("    {").decimal(time).text(", ").decimal(x).text(", ").decimal(y).text(", ")
+                                    .decimal(heading).text(", ").decimal(velocity).text("},\n"));
+            text("};\n");
+        }
+        text("\n");
+    }
+
+    private void writeIndex(Route route) {
+        text("// Every exported item, in driving order\n");
+        text("const Item route[] = {\n");
+        int exported = 0;
+        for (int i = 0; i < route.size(); i++) {
+            RouteItem item = route.get(i);
+            if (!isExported(item))
+                continue;
+            exported++;
+            if (item.getKind() == RouteItem.Kind.POINT) {
+                text("    {ItemKind::Point, &item").number(i).text("_point, nullptr, nullptr, 0, nullptr, 0, nullptr, 0},\n");
+                continue;
+            }
+            text("    {ItemKind::Path, nullptr, item").number(i).text("_waypoints, item").number(i)
+                    .text("_segments, ").number(item.size()).text(", ");
+            if (limits != null && compressor != null)
+                text("nullptr, 0, item").number(i).text("_packed, sizeof(item").number(i).text("_packed)},\n");
+            else if (limits != null)
+                text("item").number(i).text("_samples, sizeof(item").number(i).text("_samples) / sizeof(Sample), nullptr, 0},\n");
+            else
+                text("nullptr, 0, nullptr, 0},\n");
+        }
+        // C++ has no empty arrays, so a route with nothing to drive holds one blank item that the count leaves out
+        if (exported == 0)
+            text("    {},\n");
+        text("};\n")
+                .text("constexpr std::size_t item_count = ").number(exported).text(";\n\n")
+                .text("} // namespace ").text(namespace).text("\n");
+    }
+
+    // Paths need a segment, and C++ can't hold the NaNs of unreadable values
+    private static boolean isExported(RouteItem item) {
+        return item.isValid() && (item.getKind() == RouteItem.Kind.POINT || item.size() > 1);
+    }
+
+    // Append ASCII text
+    private CppHeaderExporter text(String s) {
+        for (int i = 0; i < s.length(); i++)
+            put((byte) s.charAt(i));
+        return this;
+    }
+
+    // Append an integer without going through a String
+    private CppHeaderExporter number(long value) {
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        long digit = 1;
+        while (digit <= value / 10)
+            digit *= 10;
+        for (; digit > 0; digit /= 10)
+            put((byte) ('0' + (value / digit) % 10));
+        return this;
+    }
+
+    // Append a float literal with a fixed number of decimal places
+    private CppHeaderExporter decimal(double value) {
+        fixed(value);
+        put((byte) 'f');
+        return this;
+    }
+
+    // Append a number with a fixed number of decimal places
+    private CppHeaderExporter fixed(double value) {
+        long scaled = Math.round(value * SCALE);
+        if (scaled < 0) {
+            put((byte) '-');
+            scaled = -scaled;
+        }
+        number(scaled / SCALE);
+        put((byte) '.');
+        long fraction = scaled % SCALE;
+        for (long digit = SCALE / 10; digit > 0; digit /= 10)
+            put((byte) ('0' + (fraction / digit) % 10));
+        return this;
+    }
+
+    private void put(byte b) {
+        if (!buffer.hasRemaining())
+            flush();
+        buffer.put(b);
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining())
+                out.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
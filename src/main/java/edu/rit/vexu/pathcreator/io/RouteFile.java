@@ -0,0 +1,358 @@
+package edu.rit.vexu.pathcreator.io;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reads and writes routes in the binary route file format.
+ * <p>
+ * Everything is little-endian and fixed width, so any item can be found without reading the ones before it:
+ * <pre>
+ * header       magic "VXPC", u16 version, u16 flags (0), f64 field width, f64 field height,
+ *              i32 item count, i32 image path length                                   32 bytes
+ * image path   UTF-8, zero padded to a multiple of 8 bytes; empty for the default field image
+ * item table   per item: u8 kind (0 point, 1 path), u8 segment type (0 cubic, 1 quintic, 2 line),
+ *              2 bytes zero, i32 waypoint count, i64 file offset of its first waypoint  16 bytes each
+ * waypoints    per waypoint: f64 x, f64 y, f64 angle (degrees), f64 magnitude             32 bytes each
+ * </pre>
+ * Values that were not numbers in the editor are stored as NaN, and points store NaN for their tangent.
+ * Version 1 files have no segment type, leaving a zero there, so their paths read as cubic.
+ * <p>
+ * Opening a file only reads the header and item table; each item's waypoints are decoded when
+ * {@link #readItem(int)} asks for them. Large files are memory mapped, and small ones are read in one go,
+ * since mapping costs more than it saves for a few kilobytes.
+ */
+public final class RouteFile implements Closeable {
+
+    /** "VXPC" as a little-endian int. */
+    public static final int MAGIC = 0x43505856;
+    /** The newest version this class reads and the version it writes. */
+    public static final int VERSION = 2;
+    /** The file extension used by the editor. */
+    public static final String EXTENSION = ".vexroute";
+
+    static final int HEADER_SIZE = 32;
+    static final int ITEM_RECORD_SIZE = 16;
+    static final int WAYPOINT_RECORD_SIZE = 32;
+
+    private static final byte KIND_POINT = 0;
+    private static final byte KIND_PATH = 1;
+    private static final HermiteSpline.SegmentType[] SEGMENT_TYPES = HermiteSpline.SegmentType.values();
+
+    // Files smaller than this are read into memory instead of mapped
+    private static final long MAP_THRESHOLD = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int version;
+    private final double fieldWidth;
+    private final double fieldHeight;
+    private final String fieldImagePath;
+    private final int itemCount;
+    private final int tableOffset;
+
+    private RouteFile(FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        long size = buffer.limit();
+
+        if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a route file");
+        version = Short.toUnsignedInt(buffer.getShort(4));
+        if (version < 1 || version > VERSION)
+            throw new IOException("Route file version " + version + " is newer than this program supports");
+
+        fieldWidth = buffer.getDouble(8);
+        fieldHeight = buffer.getDouble(16);
+        itemCount = buffer.getInt(24);
+        int pathLength = buffer.getInt(28);
+        if (itemCount < 0 || pathLength < 0)
+            throw new IOException("Corrupt route file header");
+        // Check before padding, which would overflow for lengths near the largest int
+        if (pathLength > size - HEADER_SIZE)
+            throw new IOException("Route file is truncated");
+
+        tableOffset = HEADER_SIZE + pad8(pathLength);
+        if (tableOffset + (long) itemCount * ITEM_RECORD_SIZE > size)
+            throw new IOException("Route file is truncated");
+
+        byte[] path = new byte[pathLength];
+        buffer.get(HEADER_SIZE, path);
+        fieldImagePath = new String(path, StandardCharsets.UTF_8);
+
+        // Check every item's waypoints are inside the file now, so reading them later can't fail half way
+        for (int i = 0; i < itemCount; i++) {
+            int record = tableOffset + i * ITEM_RECORD_SIZE;
+            byte kind = buffer.get(record);
+            int type = Byte.toUnsignedInt(buffer.get(record + 1));
+            int count = buffer.getInt(record + 4);
+            long offset = buffer.getLong(record + 8);
+            if ((kind != KIND_POINT && kind != KIND_PATH) || type >= SEGMENT_TYPES.length || count < 0 || offset < 0
+                    || offset > size - (long) count * WAYPOINT_RECORD_SIZE)
+                throw new IOException("Corrupt route file item " + i);
+        }
+    }
+
+    /**
+     * Open a route file, reading only its header and item table.
+     *
+     * @param file The file to open.
+     * @return The open file; close it when done reading items.
+     * @throws IOException If the file can't be read, or isn't a route file this version understands.
+     */
+    public static RouteFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Route file is too large");
+
+            ByteBuffer buffer;
+            if (size >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) { }
+                buffer.flip();
+            }
+            return new RouteFile(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read a whole route file.
+     *
+     * @param file The file to read.
+     * @return The route, with the field size from the file.
+     * @throws IOException If the file can't be read, or isn't a route file this version understands.
+     */
+    public static Route read(Path file) throws IOException {
+        try (RouteFile routeFile = open(file)) {
+            return routeFile.readRoute();
+        }
+    }
+
+    /**
+     * Write a route to a file, replacing it if it exists. The route is written to a temporary file next to
+     * the destination first, so a failed save never leaves a half written file behind.
+     *
+     * @param file The file to write.
+     * @param route The route to save.
+     * @param fieldImagePath The path of the field image, or null for the default image.
+     * @throws IOException If the file can't be written.
+     */
+    public static void write(Path file, Route route, String fieldImagePath) throws IOException {
+        writeAtomically(file, encode(route, fieldImagePath));
+    }
+
+    // The whole file, ready to write
+    static ByteBuffer encode(Route route, String fieldImagePath) throws IOException {
+        byte[] path = fieldImagePath == null ? new byte[0] : fieldImagePath.getBytes(StandardCharsets.UTF_8);
+        int itemCount = route.size();
+        int tableOffset = HEADER_SIZE + pad8(path.length);
+        long waypointOffset = tableOffset + (long) itemCount * ITEM_RECORD_SIZE;
+        long size = waypointOffset;
+        for (int i = 0; i < itemCount; i++)
+            size += (long) route.get(i).size() * WAYPOINT_RECORD_SIZE;
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Route is too large to save");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putShort((short) VERSION)
+                .putShort((short) 0)
+                .putDouble(route.getFieldWidth())
+                .putDouble(route.getFieldHeight())
+                .putInt(itemCount)
+                .putInt(path.length)
+                .put(path);
+
+        buffer.position(tableOffset);
+        long offset = waypointOffset;
+        for (int i = 0; i < itemCount; i++) {
+            RouteItem item = route.get(i);
+            buffer.put(item.getKind() == RouteItem.Kind.POINT ? KIND_POINT : KIND_PATH)
+                    .put((byte) item.getSegmentType().ordinal())
+                    .put((byte) 0).put((byte) 0)
+                    .putInt(item.size())
+                    .putLong(offset);
+            offset += (long) item.size() * WAYPOINT_RECORD_SIZE;
+        }
+
+        for (int i = 0; i < itemCount; i++) {
+            RouteItem item = route.get(i);
+            boolean point = item.getKind() == RouteItem.Kind.POINT;
+            for (int j = 0; j < item.size(); j++)
+                buffer.putDouble(item.getX(j))
+                        .putDouble(item.getY(j))
+                        .putDouble(point ? Double.NaN : item.getAngle(j))
+                        .putDouble(point ? Double.NaN : item.getMag(j));
+        }
+        return buffer.flip();
+    }
+
+    // Write to a temporary file next to the destination, sync it, then move it over the destination. The temporary
+    // file is created with the default permissions rather than createTempFile's owner-only ones, and takes those of
+    // the file it replaces, so saving never changes who can read a route.
+    static void writeAtomically(Path file, ByteBuffer buffer) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Path temp = createTemp(parent, file.getFileName().toString());
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                channel.force(false);
+            }
+            copyPermissions(file, temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Path createTemp(Path parent, String name) throws IOException {
+        while (true) {
+            try {
+                return Files.createFile(parent.resolve(name + "." + Long.toHexString(
+                        ThreadLocalRandom.current().nextLong()) + ".tmp"));
+            } catch (FileAlreadyExistsException e) {
+                // Try another name
+            }
+        }
+    }
+
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+        if (view == null)
+            return;
+        try {
+            Files.setPosixFilePermissions(to, view.readAttributes().permissions());
+        } catch (NoSuchFileException e) {
+            // A new file keeps the default permissions
+        }
+    }
+
+    /**
+     * @return The format version the file was written with.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public double getFieldWidth() {
+        return fieldWidth;
+    }
+
+    public double getFieldHeight() {
+        return fieldHeight;
+    }
+
+    /**
+     * @return The path of the field image, or an empty string for the default image.
+     */
+    public String getFieldImagePath() {
+        return fieldImagePath;
+    }
+
+    /**
+     * @return The number of points and paths in the route.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * @param index The item index.
+     * @return Whether the item is a point or a path, without reading its waypoints.
+     */
+    public RouteItem.Kind getKind(int index) {
+        return buffer.get(record(index)) == KIND_POINT ? RouteItem.Kind.POINT : RouteItem.Kind.PATH;
+    }
+
+    /**
+     * @param index The item index.
+     * @return How the item runs between its waypoints, without reading them.
+     */
+    public HermiteSpline.SegmentType getSegmentType(int index) {
+        return SEGMENT_TYPES[buffer.get(record(index) + 1)];
+    }
+
+    /**
+     * @param index The item index.
+     * @return The number of waypoints in the item, without reading them.
+     */
+    public int getWaypointCount(int index) {
+        return buffer.getInt(record(index) + 4);
+    }
+
+    /**
+     * Read one item's waypoints.
+     *
+     * @param index The item index.
+     * @return A new item, checked against the field size in the file.
+     */
+    public RouteItem readItem(int index) {
+        int record = record(index);
+        int count = buffer.getInt(record + 4);
+        int offset = (int) buffer.getLong(record + 8);
+
+        RouteItem item = new RouteItem(getKind(index), fieldWidth, fieldHeight);
+        item.setSegmentType(getSegmentType(index));
+        item.setSize(count);
+        for (int j = 0; j < count; j++, offset += WAYPOINT_RECORD_SIZE)
+            item.set(j, buffer.getDouble(offset), buffer.getDouble(offset + 8),
+                    buffer.getDouble(offset + 16), buffer.getDouble(offset + 24));
+        return item;
+    }
+
+    /**
+     * Read every item.
+     *
+     * @return The route, with the field size from the file.
+     */
+    public Route readRoute() {
+        Route route = new Route(fieldWidth, fieldHeight);
+        for (int i = 0; i < itemCount; i++)
+            route.add(readItem(i));
+        return route;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int record(int index) {
+        if (index < 0 || index >= itemCount)
+            throw new IndexOutOfBoundsException("Item " + index + " out of bounds for " + itemCount + " items");
+        return tableOffset + index * ITEM_RECORD_SIZE;
+    }
+
+    private static int pad8(int length) {
+        return (length + 7) & ~7;
+    }
+}
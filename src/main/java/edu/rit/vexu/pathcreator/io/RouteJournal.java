@@ -0,0 +1,510 @@
+package edu.rit.vexu.pathcreator.io;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import edu.rit.vexu.pathcreator.model.RouteListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Autosaves a route as it is edited, so a crash loses at most the last moment of work.
+ * <p>
+ * The autosave is a snapshot in the {@link RouteFile} format, plus a journal of every edit made since the
+ * snapshot. Each edit is one fixed size, little-endian record appended to the journal:
+ * <pre>
+ * header   magic "VXPJ", u16 version, u16 flags (0), i32 CRC32 of the snapshot, i32 snapshot length   16 bytes
+ * record   u8 type, u8 kind, u16 zero, i32 id, i32 arg, i32 CRC32 of the rest of the record,
+ *          f64 x, f64 y, f64 angle, f64 magnitude                                                 48 bytes each
+ * </pre>
+ * Items are referred to by {@link RouteItem#getId()}. The journal starts with a BIND record per snapshot item,
+ * giving the id of the item at that index.
+ * <p>
+ * Edits are encoded on the FX thread into a buffer, which is all the FX thread ever does; a background thread
+ * waits a moment so a burst of edits shares one write and one sync, then appends them. Once the journal holds
+ * {@value #COMPACT_RECORDS} records, the route is snapshotted again and the journal starts over.
+ * The header ties a journal to its snapshot, so a crash part way through replacing them can't replay edits
+ * onto the wrong snapshot. Recovery stops at the first torn or corrupt record.
+ * <p>
+ * If a write fails, the next edit snapshots the route again instead of appending to a journal that may have lost
+ * records, and the {@link #setFailureHandler(Consumer) failure handler} hears about it.
+ */
+public final class RouteJournal implements RouteListener, Closeable {
+
+    /** "VXPJ" as a little-endian int. */
+    public static final int MAGIC = 0x4A505856;
+    /** The version this class reads and writes. */
+    public static final int VERSION = 1;
+    /** Snapshot the route again once the journal holds this many records. */
+    public static final int COMPACT_RECORDS = 4096;
+
+    static final String SNAPSHOT_FILE = "autosave" + RouteFile.EXTENSION;
+    static final String JOURNAL_FILE = "autosave.journal";
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 48;
+
+    private static final byte BIND = 0;     // id, arg = index in the snapshot
+    private static final byte ADD = 1;      // id, kind, arg = index
+    private static final byte REMOVE = 2;   // id
+    private static final byte MOVE = 3;     // id = from index, arg = to index
+    private static final byte CLEAR = 4;
+    private static final byte FIELD = 5;    // x = width, y = height
+    private static final byte RESIZE = 6;   // id, arg = waypoint count
+    private static final byte SET = 7;      // id, arg = waypoint index, x, y, angle, magnitude
+    private static final byte SEGMENTS = 8; // id, arg = segment type
+
+    // How long the writer waits for more edits before writing
+    private static final long COMMIT_DELAY_MS = 50;
+
+    private final Path dir;
+    private final Route route;
+    private final Supplier<String> fieldImagePath;
+
+    // Shared with the writer, guarded by lock
+    private final Object lock = new Object();
+    private ByteBuffer pending = newBuffer(64 * RECORD_SIZE);
+    private Route pendingSnapshot = null;
+    private String pendingImagePath = null;
+    private boolean closed = false;
+    // Set by the writer when a write fails, so the next edit starts over from a snapshot
+    private boolean failed = false;
+
+    private volatile Consumer<String> failureHandler = null;
+
+    // FX thread only
+    private int recordCount = 0;
+    private final CRC32 crc = new CRC32();
+
+    // Writer thread only
+    private ByteBuffer spare = newBuffer(64 * RECORD_SIZE);
+    private FileChannel channel = null;
+    private boolean failing = false;
+
+    private final Thread writer;
+
+    private RouteJournal(Path dir, Route route, Supplier<String> fieldImagePath) {
+        this.dir = dir;
+        this.route = route;
+        this.fieldImagePath = fieldImagePath;
+        writer = new Thread(this::writeLoop, "Route autosave");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Start autosaving a route, replacing any autosave already in the directory.
+     *
+     * @param dir The directory to keep the autosave in; it is created if needed.
+     * @param route The route to follow. Edit it on the FX thread only.
+     * @param fieldImagePath Gives the path of the field image, or null for the default image, whenever the
+     *                       route is snapshotted. Called on the FX thread.
+     * @return The journal; close it when the route is saved for good.
+     * @throws IOException If the directory can't be created.
+     */
+    public static RouteJournal start(Path dir, Route route, Supplier<String> fieldImagePath) throws IOException {
+        Files.createDirectories(dir);
+        RouteJournal journal = new RouteJournal(dir, route, fieldImagePath);
+        journal.checkpoint();
+        route.addListener(journal);
+        journal.writer.start();
+        return journal;
+    }
+
+    /**
+     * Snapshot the route now and start a new journal, like after opening a file or changing the field image.
+     */
+    public void checkpoint() {
+        Route snapshot = route.snapshot();
+        String imagePath = fieldImagePath.get();
+        synchronized (lock) {
+            // The snapshot holds every edit still waiting, so they don't need writing
+            pending.clear();
+            pendingSnapshot = snapshot;
+            pendingImagePath = imagePath;
+            failed = false;
+            lock.notifyAll();
+        }
+        recordCount = 0;
+    }
+
+    /**
+     * Set what happens when autosave starts failing, like when the disk is full. It is told once, on the writer
+     * thread, and again only after a write has worked in between. Autosave keeps trying with each edit.
+     *
+     * @param onFailure Receives the error message, or null to only log it.
+     */
+    public void setFailureHandler(Consumer<String> onFailure) {
+        failureHandler = onFailure;
+    }
+
+    /**
+     * Stop following the route, and write every edit made so far.
+     */
+    @Override
+    public void close() {
+        route.removeListener(this);
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Remove the autosave from a directory, after the route has been safely saved or thrown away.
+     *
+     * @param dir The autosave directory.
+     * @throws IOException If the files exist but can't be removed.
+     */
+    public static void delete(Path dir) throws IOException {
+        Files.deleteIfExists(dir.resolve(JOURNAL_FILE));
+        Files.deleteIfExists(dir.resolve(SNAPSHOT_FILE));
+    }
+
+    /**
+     * Rebuild the route left in an autosave directory: the snapshot, with every intact journal record replayed.
+     *
+     * @param dir The autosave directory.
+     * @return The recovered route, or null if there is no autosave.
+     * @throws IOException If the snapshot exists but can't be read.
+     */
+    public static Recovery recover(Path dir) throws IOException {
+        byte[] snapshotBytes;
+        try {
+            snapshotBytes = Files.readAllBytes(dir.resolve(SNAPSHOT_FILE));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        Route recovered;
+        String imagePath;
+        try (RouteFile snapshot = RouteFile.open(dir.resolve(SNAPSHOT_FILE))) {
+            recovered = snapshot.readRoute();
+            imagePath = snapshot.getFieldImagePath();
+        }
+
+        byte[] journal;
+        try {
+            journal = Files.readAllBytes(dir.resolve(JOURNAL_FILE));
+        } catch (NoSuchFileException e) {
+            return new Recovery(recovered, imagePath, 0);
+        }
+        ByteBuffer in = ByteBuffer.wrap(journal).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(snapshotBytes);
+        if (journal.length < HEADER_SIZE || in.getInt(0) != MAGIC || in.getShort(4) != VERSION
+                || in.getInt(8) != (int) crc.getValue() || in.getInt(12) != snapshotBytes.length)
+            return new Recovery(recovered, imagePath, 0);
+
+        HashMap<Integer, RouteItem> byId = new HashMap<>();
+        int replayed = 0;
+        for (int r = HEADER_SIZE; r + RECORD_SIZE <= journal.length; r += RECORD_SIZE, replayed++)
+            if (!replay(in, r, crc, recovered, byId))
+                break;
+        return new Recovery(recovered, imagePath, replayed);
+    }
+
+    // Apply one record, or return false if it is corrupt or doesn't fit the route
+    private static boolean replay(ByteBuffer in, int r, CRC32 crc, Route route, HashMap<Integer, RouteItem> byId) {
+        if (in.getInt(r + 12) != checksum(crc, in, r))
+            return false;
+        byte type = in.get(r);
+        int id = in.getInt(r + 4);
+        int arg = in.getInt(r + 8);
+        RouteItem item = byId.get(id);
+        switch (type) {
+            case BIND:
+                if (arg < 0 || arg >= route.size())
+                    return false;
+                byId.put(id, route.get(arg));
+                return true;
+            case ADD:
+                if (arg < 0 || arg > route.size())
+                    return false;
+                RouteItem added = new RouteItem(in.get(r + 1) == 0 ? RouteItem.Kind.POINT : RouteItem.Kind.PATH,
+                        route.getFieldWidth(), route.getFieldHeight());
+                route.add(arg, added);
+                byId.put(id, added);
+                return true;
+            case REMOVE:
+                if (item == null)
+                    return false;
+                route.remove(item);
+                byId.remove(id);
+                return true;
+            case MOVE:
+                if (id < 0 || id >= route.size() || arg < 0 || arg >= route.size())
+                    return false;
+                route.move(id, arg);
+                return true;
+            case CLEAR:
+                route.clear();
+                byId.clear();
+                return true;
+            case FIELD:
+                route.setFieldSize(in.getDouble(r + 16), in.getDouble(r + 24));
+                return true;
+            case RESIZE:
+                if (item == null || arg < 0)
+                    return false;
+                item.setSize(arg);
+                return true;
+            case SET:
+                if (item == null || arg < 0 || arg >= item.size())
+                    return false;
+                item.set(arg, in.getDouble(r + 16), in.getDouble(r + 24), in.getDouble(r + 32), in.getDouble(r + 40));
+                return true;
+            case SEGMENTS:
+                if (item == null || arg < 0 || arg >= HermiteSpline.SegmentType.values().length)
+                    return false;
+                item.setSegmentType(HermiteSpline.SegmentType.values()[arg]);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void itemAdded(int index, RouteItem item) {
+        record(ADD, item.getKind() == RouteItem.Kind.POINT ? 0 : 1, item.getId(), index, 0, 0, 0, 0);
+        // Items can arrive with waypoints and a segment type already in them
+        if (item.getSegmentType() != HermiteSpline.SegmentType.CUBIC)
+            segmentTypeChanged(item);
+        if (item.size() > 0)
+            itemResized(item, item.size());
+        for (int i = 0; i < item.size(); i++)
+            waypointChanged(item, i);
+    }
+
+    @Override
+    public void itemRemoved(int index, RouteItem item) {
+        record(REMOVE, 0, item.getId(), 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void itemMoved(int from, int to) {
+        record(MOVE, 0, from, to, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void cleared() {
+        record(CLEAR, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void fieldResized(double width, double height) {
+        record(FIELD, 0, 0, 0, width, height, 0, 0);
+    }
+
+    @Override
+    public void itemResized(RouteItem item, int size) {
+        record(RESIZE, 0, item.getId(), size, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void waypointChanged(RouteItem item, int index) {
+        record(SET, 0, item.getId(), index, item.getX(index), item.getY(index),
+                item.getAngle(index), item.getMag(index));
+    }
+
+    @Override
+    public void segmentTypeChanged(RouteItem item) {
+        record(SEGMENTS, 0, item.getId(), item.getSegmentType().ordinal(), 0, 0, 0, 0);
+    }
+
+    // Encode one record into the pending buffer, on the FX thread
+    private void record(byte type, int kind, int id, int arg, double x, double y, double angle, double mag) {
+        boolean retry;
+        synchronized (lock) {
+            retry = failed;
+        }
+        if (retry || recordCount >= COMPACT_RECORDS) {
+            checkpoint();
+            return;
+        }
+        recordCount++;
+        synchronized (lock) {
+            if (pending.remaining() < RECORD_SIZE)
+                pending = newBuffer(pending.capacity() * 2).put(pending.flip());
+            put(pending, type, kind, id, arg, x, y, angle, mag);
+            int r = pending.position() - RECORD_SIZE;
+            pending.putInt(r + 12, checksum(crc, pending, r));
+            lock.notifyAll();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            try {
+                synchronized (lock) {
+                    while (!closed && pending.position() == 0 && pendingSnapshot == null)
+                        lock.wait();
+                    if (closed && pending.position() == 0 && pendingSnapshot == null)
+                        break;
+                }
+                // Let the rest of a burst of edits arrive, so they share one write
+                if (!isClosed())
+                    Thread.sleep(COMMIT_DELAY_MS);
+
+                Route snapshot;
+                String imagePath;
+                ByteBuffer records;
+                synchronized (lock) {
+                    snapshot = pendingSnapshot;
+                    imagePath = pendingImagePath;
+                    pendingSnapshot = null;
+                    records = pending;
+                    pending = spare.clear();
+                }
+                spare = records.flip();
+
+                if (snapshot != null)
+                    compact(snapshot, imagePath, records);
+                else if (channel != null)
+                    append(records);
+                else
+                    continue;
+                failing = false;
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                // Keep editing rather than interrupt the user, and start over from a snapshot on the next edit
+                closeChannel();
+                synchronized (lock) {
+                    failed = true;
+                }
+                System.err.println("Autosave failed: " + e.getMessage());
+                Consumer<String> onFailure = failureHandler;
+                if (!failing && onFailure != null)
+                    onFailure.accept(e.getMessage());
+                failing = true;
+            }
+        }
+        closeChannel();
+    }
+
+    // Replace the snapshot, then start a new journal with the ids of its items and any newer edits
+    private void compact(Route snapshot, String imagePath, ByteBuffer records) throws IOException {
+        ByteBuffer snapshotBytes = RouteFile.encode(snapshot, imagePath);
+        CRC32 snapshotCrc = new CRC32();
+        snapshotCrc.update(snapshotBytes.duplicate());
+        int snapshotLength = snapshotBytes.remaining();
+
+        closeChannel();
+        RouteFile.writeAtomically(dir.resolve(SNAPSHOT_FILE), snapshotBytes);
+
+        CRC32 recordCrc = new CRC32();
+        ByteBuffer journal = newBuffer(HEADER_SIZE + snapshot.size() * RECORD_SIZE + records.remaining());
+        journal.putInt(MAGIC)
+                .putShort((short) VERSION)
+                .putShort((short) 0)
+                .putInt((int) snapshotCrc.getValue())
+                .putInt(snapshotLength);
+        for (int i = 0; i < snapshot.size(); i++) {
+            put(journal, BIND, 0, snapshot.get(i).getId(), i, 0, 0, 0, 0);
+            int r = journal.position() - RECORD_SIZE;
+            journal.putInt(r + 12, checksum(recordCrc, journal, r));
+        }
+        journal.put(records);
+        RouteFile.writeAtomically(dir.resolve(JOURNAL_FILE), journal.flip());
+
+        channel = FileChannel.open(dir.resolve(JOURNAL_FILE), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void append(ByteBuffer records) throws IOException {
+        while (records.hasRemaining())
+            channel.write(records);
+        channel.force(false);
+    }
+
+    private boolean isClosed() {
+        synchronized (lock) {
+            return closed;
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing more to write to it
+        }
+        channel = null;
+    }
+
+    private static void put(ByteBuffer out, byte type, int kind, int id, int arg,
+                            double x, double y, double angle, double mag) {
+        out.put(type)
+                .put((byte) kind)
+                .putShort((short) 0)
+                .putInt(id)
+                .putInt(arg)
+                .putInt(0)
+                .putDouble(x)
+                .putDouble(y)
+                .putDouble(angle)
+                .putDouble(mag);
+    }
+
+    // CRC32 of a record, skipping the checksum field itself
+    private static int checksum(CRC32 crc, ByteBuffer buffer, int r) {
+        crc.reset();
+        crc.update(buffer.slice(r, 12));
+        crc.update(buffer.slice(r + 16, RECORD_SIZE - 16));
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * A route rebuilt from an autosave.
+     */
+    public static final class Recovery {
+        private final Route route;
+        private final String fieldImagePath;
+        private final int replayed;
+
+        Recovery(Route route, String fieldImagePath, int replayed) {
+            this.route = route;
+            this.fieldImagePath = fieldImagePath;
+            this.replayed = replayed;
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+
+        /**
+         * @return The path of the field image, or an empty string for the default image.
+         */
+        public String getFieldImagePath() {
+            return fieldImagePath;
+        }
+
+        /**
+         * @return The number of journal records applied on top of the snapshot.
+         */
+        public int getReplayedCount() {
+            return replayed;
+        }
+    }
+}
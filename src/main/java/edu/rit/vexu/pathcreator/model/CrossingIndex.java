@@ -0,0 +1,504 @@
+package edu.rit.vexu.pathcreator.model;
+
+import edu.rit.vexu.pathcreator.geometry.BoxTree;
+import edu.rit.vexu.pathcreator.geometry.CurveIntersector;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Finds where the drawn route crosses itself, where two paths cross, where two routes cross, and which parts of a
+ * route lie in a rectangle.
+ * <p>
+ * The pieces of the route are the segments of every path, between consecutive valid waypoints, and the straight
+ * legs joining each item to the next, as they're drawn on the field. Each piece is a Bezier curve in a
+ * {@link BoxTree}, so a query only intersects the pieces whose boxes overlap. Cubic segments and lines are one
+ * piece each; quintic segments aren't Bezier curves, so each is split into a few pieces that follow it closely.
+ * The index listens to the route: moving a waypoint refits the boxes of the segments it shapes and two legs, while
+ * adding, removing or reordering items, or changing a path's segment type, rebuilds the tree on the next query.
+ * The crossings within the route are kept between queries, and after an edit only the refit pieces are
+ * intersected again, so checking them on every edit stays cheap.
+ * <p>
+ * Pieces that share an end always meet there, which isn't a crossing, so meetings at a shared end are left out.
+ * A crossing right where one piece hands over to the next is only reported once, on the earlier piece.
+ * Not thread safe; use it on the same thread as the route.
+ */
+public final class CrossingIndex implements RouteListener {
+
+    /** The segment number of the straight leg leaving an item, towards the next item. */
+    public static final int LEG = -1;
+    // Meeting this close to an end both pieces share doesn't count as a crossing
+    private static final double SHARED_END_DISTANCE = 0.01;
+    // The pieces per quintic segment, which keeps them within a few thousandths of an inch of it
+    private static final int QUINTIC_PIECES = 8;
+
+    /**
+     * Where two pieces of a route, or of two routes, cross.
+     */
+    public static final class Crossing {
+        private final RouteItem firstItem, secondItem;
+        private final int firstPiece, secondPiece;
+        private final int firstSegment, secondSegment;
+        private final double firstT, secondT;
+        private final double x, y;
+
+        private Crossing(int firstPiece, RouteItem firstItem, int firstSegment, double firstT,
+                         int secondPiece, RouteItem secondItem, int secondSegment, double secondT, double x, double y) {
+            this.firstPiece = firstPiece;
+            this.secondPiece = secondPiece;
+            this.firstItem = firstItem;
+            this.firstSegment = firstSegment;
+            this.firstT = firstT;
+            this.secondItem = secondItem;
+            this.secondSegment = secondSegment;
+            this.secondT = secondT;
+            this.x = x;
+            this.y = y;
+        }
+
+        public RouteItem getFirstItem() {
+            return firstItem;
+        }
+
+        /**
+         * @return The segment of the first item, or {@link #LEG} for the leg leaving it.
+         */
+        public int getFirstSegment() {
+            return firstSegment;
+        }
+
+        /**
+         * @return The curve parameter of the crossing on the first segment or leg, from 0 to 1.
+         */
+        public double getFirstT() {
+            return firstT;
+        }
+
+        public RouteItem getSecondItem() {
+            return secondItem;
+        }
+
+        /**
+         * @return The segment of the second item, or {@link #LEG} for the leg leaving it.
+         */
+        public int getSecondSegment() {
+            return secondSegment;
+        }
+
+        public double getSecondT() {
+            return secondT;
+        }
+
+        /**
+         * @return The x value of the crossing, in inches.
+         */
+        public double getX() {
+            return x;
+        }
+
+        /**
+         * @return The y value of the crossing, in inches.
+         */
+        public double getY() {
+            return y;
+        }
+
+        private Crossing swapped() {
+            return new Crossing(secondPiece, secondItem, secondSegment, secondT,
+                    firstPiece, firstItem, firstSegment, firstT, x, y);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Crossing at (%.2f, %.2f)", x, y);
+        }
+    }
+
+    /**
+     * Receives the pieces found in a rectangle.
+     */
+    @FunctionalInterface
+    public interface PieceConsumer {
+        /**
+         * @param item The item the piece belongs to.
+         * @param segment The segment of the item, or {@link #LEG} for the leg leaving it. A quintic segment is
+         *                several pieces, so it can come more than once.
+         */
+        void accept(RouteItem item, int segment);
+    }
+
+    private final Route route;
+    private final BoxTree tree = new BoxTree();
+    private final CurveIntersector intersector = new CurveIntersector();
+    private boolean built = false;
+
+    // The crossings within the route, kept up to date by only intersecting the pieces that changed
+    private final ArrayList<Crossing> crossings = new ArrayList<>();
+    private final BitSet changedPieces = new BitSet();
+    private boolean crossingsFound = false;
+
+    // Per item: its first segment's piece, its number of segments, the pieces of the legs into and out of it,
+    // and its pieces per segment
+    private final IdentityHashMap<RouteItem, int[]> pieceRanges = new IdentityHashMap<>();
+    // Per piece: its curve, box, item, segment and which piece of the segment it is, and the item a leg leads to
+    private double[] curves = new double[0];
+    private double[] boxes = new double[0];
+    private RouteItem[] owners = new RouteItem[0];
+    private RouteItem[] legTargets = new RouteItem[0];
+    private int[] segments = new int[0];
+    private int[] parts = new int[0];
+    private int pieceCount = 0;
+
+    private final double[] bezier = new double[8];
+    // The waypoints shaping the segment being updated
+    private final HermiteSpline spline = new HermiteSpline();
+
+    /**
+     * Index the pieces of a route, and keep up with its changes.
+     *
+     * @param route The route to index.
+     */
+    public CrossingIndex(Route route) {
+        this.route = route;
+        route.addListener(this);
+    }
+
+    /**
+     * Stop following the route.
+     */
+    public void detach() {
+        route.removeListener(this);
+    }
+
+    /**
+     * @return The number of pieces, valid or not.
+     */
+    public int size() {
+        ensureBuilt();
+        return pieceCount;
+    }
+
+    /**
+     * Find every crossing in the route: paths crossing themselves or each other, and legs crossing anything.
+     *
+     * @return The crossings, in no particular order.
+     */
+    public List<Crossing> findCrossings() {
+        updateCrossings();
+        return new ArrayList<>(crossings);
+    }
+
+    /**
+     * Find where two items cross, or where one item crosses itself.
+     *
+     * @param first An item in the route.
+     * @param second Another item in the route, or the same one.
+     * @return The crossings, in no particular order, with pieces of the first item first.
+     */
+    public List<Crossing> findCrossings(RouteItem first, RouteItem second) {
+        updateCrossings();
+        ArrayList<Crossing> found = new ArrayList<>();
+        for (Crossing crossing : crossings) {
+            if (crossing.firstItem == first && crossing.secondItem == second)
+                found.add(crossing);
+            else if (crossing.firstItem == second && crossing.secondItem == first)
+                found.add(crossing.swapped());
+        }
+        return found;
+    }
+
+    /**
+     * Find where this route crosses another, like the route of an alliance partner.
+     *
+     * @param other The index of the other route.
+     * @return The crossings, in no particular order, with pieces of this route first.
+     */
+    public List<Crossing> findCrossings(CrossingIndex other) {
+        if (other == this)
+            return findCrossings();
+        ensureBuilt();
+        other.ensureBuilt();
+        ArrayList<Crossing> crossings = new ArrayList<>();
+        tree.overlappingPairs(other.tree, (a, b) -> cross(other, a, b, crossings));
+        return crossings;
+    }
+
+    /**
+     * Find every piece of the route that passes through a rectangle, edges included.
+     *
+     * @param minX The left edge of the rectangle, in inches.
+     * @param minY The top edge.
+     * @param maxX The right edge.
+     * @param maxY The bottom edge.
+     * @param consumer Receives each piece once.
+     */
+    public void findInRect(double minX, double minY, double maxX, double maxY, PieceConsumer consumer) {
+        ensureBuilt();
+        tree.query(minX, minY, maxX, maxY, piece -> {
+            if (intersector.intersectsRect(curves, piece * 8, minX, minY, maxX, maxY))
+                consumer.accept(owners[piece], segments[piece]);
+        });
+    }
+
+    @Override
+    public void itemAdded(int index, RouteItem item) {
+        built = false;
+    }
+
+    @Override
+    public void itemRemoved(int index, RouteItem item) {
+        built = false;
+    }
+
+    @Override
+    public void itemMoved(int from, int to) {
+        built = false;
+    }
+
+    @Override
+    public void cleared() {
+        built = false;
+    }
+
+    @Override
+    public void fieldResized(double width, double height) {
+        built = false;
+    }
+
+    @Override
+    public void itemResized(RouteItem item, int size) {
+        built = false;
+    }
+
+    @Override
+    public void segmentTypeChanged(RouteItem item) {
+        built = false;
+    }
+
+    @Override
+    public void waypointChanged(RouteItem item, int index) {
+        if (!built)
+            return;
+        int[] range = pieceRanges.get(item);
+        if (range == null)
+            return;
+        // A quintic segment is also shaped by the waypoints on either side of it
+        int reach = item.getSegmentType() == HermiteSpline.SegmentType.QUINTIC ? 1 : 0;
+        int last = Math.min(range[1] - 1, index + reach);
+        for (int segment = Math.max(0, index - 1 - reach); segment <= last; segment++)
+            for (int part = 0; part < range[4]; part++)
+                refit(range[0] + segment * range[4] + part);
+        // A waypoint can make its whole item valid or invalid, showing or hiding both legs
+        if (range[2] >= 0)
+            refit(range[2]);
+        if (range[3] >= 0)
+            refit(range[3]);
+    }
+
+    /**
+     * Bring the crossings up to date. After a rebuild every overlapping pair is intersected; after waypoints move,
+     * only the pieces they changed are, against the pieces their boxes overlap.
+     */
+    private void updateCrossings() {
+        ensureBuilt();
+        if (!crossingsFound) {
+            crossings.clear();
+            tree.overlappingPairs((a, b) -> cross(this, a, b, crossings));
+            changedPieces.clear();
+            crossingsFound = true;
+            return;
+        }
+        if (changedPieces.isEmpty())
+            return;
+
+        crossings.removeIf(c -> changedPieces.get(c.firstPiece) || changedPieces.get(c.secondPiece));
+        for (int piece = changedPieces.nextSetBit(0); piece >= 0; piece = changedPieces.nextSetBit(piece + 1)) {
+            int changed = piece, b = piece * 4;
+            // Two changed pieces that overlap are intersected once, from the later one
+            tree.query(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], other -> {
+                if (other != changed && !(other > changed && changedPieces.get(other)))
+                    cross(this, changed, other, crossings);
+            });
+        }
+        changedPieces.clear();
+    }
+
+    /**
+     * Intersect a piece of this route with a piece of this or another route, keeping the crossings.
+     */
+    private void cross(CrossingIndex other, int a, int b, List<Crossing> crossings) {
+        double[] otherCurves = other.curves;
+        int pa = a * 8, pb = b * 8;
+        RouteItem firstItem = owners[a], secondItem = other.owners[b];
+        int firstSegment = segments[a], secondSegment = other.segments[b];
+        intersector.intersect(curves, pa, otherCurves, pb, (t, s, x, y) -> {
+            if (other == this && (sharedEnd(pa, otherCurves, pb, x, y, 0) || sharedEnd(pa, otherCurves, pb, x, y, 6)))
+                return;
+            if (atJoin(a, x, y) || other.atJoin(b, x, y))
+                return;
+            crossings.add(new Crossing(a, firstItem, firstSegment, segmentT(a, t),
+                    b, secondItem, secondSegment, other.segmentT(b, s), x, y));
+        });
+    }
+
+    /**
+     * Turn a curve parameter on a piece into one on its segment or leg.
+     */
+    private double segmentT(int piece, double t) {
+        if (segments[piece] == LEG)
+            return t;
+        int count = piecesPerSegment(owners[piece]);
+        return (parts[piece] + t) / count;
+    }
+
+    private static int piecesPerSegment(RouteItem item) {
+        return item.getSegmentType() == HermiteSpline.SegmentType.QUINTIC ? QUINTIC_PIECES : 1;
+    }
+
+    /**
+     * Whether a meeting point is at an end of the first piece that the second piece also ends at.
+     */
+    private boolean sharedEnd(int pa, double[] otherCurves, int pb, double x, double y, int end) {
+        double ex = curves[pa + end], ey = curves[pa + end + 1];
+        if (Math.abs(ex - x) > SHARED_END_DISTANCE || Math.abs(ey - y) > SHARED_END_DISTANCE)
+            return false;
+        return (otherCurves[pb] == ex && otherCurves[pb + 1] == ey)
+                || (otherCurves[pb + 6] == ex && otherCurves[pb + 7] == ey);
+    }
+
+    /**
+     * Whether a meeting point is at the start of a piece, where the piece before it ends. Crossing there is found on
+     * both pieces, so it's only kept on the one before.
+     */
+    private boolean atJoin(int piece, double x, double y) {
+        if (piece == 0 || boxes[(piece - 1) * 4] > boxes[(piece - 1) * 4 + 2])
+            return false;
+        int c = piece * 8, previous = c - 8;
+        return curves[previous + 6] == curves[c] && curves[previous + 7] == curves[c + 1]
+                && Math.abs(curves[c] - x) <= SHARED_END_DISTANCE && Math.abs(curves[c + 1] - y) <= SHARED_END_DISTANCE;
+    }
+
+    /**
+     * Number every piece of the route in order, and build the tree over them.
+     */
+    private void ensureBuilt() {
+        if (built)
+            return;
+        pieceRanges.clear();
+        crossingsFound = false;
+        int count = 0;
+        for (int i = 0; i < route.size(); i++) {
+            RouteItem item = route.get(i);
+            int segmentCount = item.getKind() == RouteItem.Kind.PATH ? Math.max(0, item.size() - 1) : 0;
+            int perSegment = piecesPerSegment(item);
+            int legIn = i > 0 ? count - 1 : -1;
+            int legOut = i < route.size() - 1 ? count + segmentCount * perSegment : -1;
+            pieceRanges.put(item, new int[] { count, segmentCount, legIn, legOut, perSegment });
+            count += segmentCount * perSegment + (legOut >= 0 ? 1 : 0);
+        }
+
+        if (count > owners.length) {
+            int capacity = Math.max(count, owners.length * 2);
+            curves = new double[capacity * 8];
+            boxes = new double[capacity * 4];
+            owners = new RouteItem[capacity];
+            legTargets = new RouteItem[capacity];
+            segments = new int[capacity];
+            parts = new int[capacity];
+        }
+        Arrays.fill(owners, count, owners.length, null);
+        Arrays.fill(legTargets, null);
+        pieceCount = count;
+
+        int piece = 0;
+        for (int i = 0; i < route.size(); i++) {
+            RouteItem item = route.get(i);
+            int[] range = pieceRanges.get(item);
+            for (int s = 0; s < range[1]; s++) {
+                for (int part = 0; part < range[4]; part++) {
+                    owners[piece] = item;
+                    segments[piece] = s;
+                    parts[piece] = part;
+                    update(piece++);
+                }
+            }
+            if (range[3] >= 0) {
+                owners[piece] = item;
+                segments[piece] = LEG;
+                legTargets[piece] = route.get(i + 1);
+                update(piece++);
+            }
+        }
+        tree.build(pieceCount, boxes);
+        built = true;
+    }
+
+    private void refit(int piece) {
+        if (!update(piece))
+            return;
+        changedPieces.set(piece);
+        int b = piece * 4;
+        tree.refit(piece, boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3]);
+    }
+
+    /**
+     * Recompute a piece's curve and box from its item. Pieces that aren't drawn get an empty box.
+     *
+     * @return true if the piece changed.
+     */
+    private boolean update(int piece) {
+        RouteItem item = owners[piece];
+        int segment = segments[piece];
+        boolean drawn;
+        if (segment == LEG) {
+            RouteItem next = legTargets[piece];
+            drawn = item.isValid() && next.isValid();
+            if (drawn) {
+                int last = item.size() - 1;
+                CurveIntersector.line(item.getX(last), item.getY(last), next.getX(0), next.getY(0), bezier, 0);
+            }
+        } else {
+            drawn = item.isValid(segment) && item.isValid(segment + 1);
+            if (drawn)
+                segmentPiece(item, segment, parts[piece]);
+        }
+
+        int c = piece * 8, b = piece * 4;
+        boolean wasDrawn = boxes[b] <= boxes[b + 2];
+        if (drawn == wasDrawn && (!drawn || Arrays.equals(bezier, 0, 8, curves, c, c + 8)))
+            return false;
+        if (drawn) {
+            System.arraycopy(bezier, 0, curves, c, 8);
+            CurveIntersector.bounds(curves, c, boxes, b);
+        } else {
+            boxes[b] = boxes[b + 1] = Double.POSITIVE_INFINITY;
+            boxes[b + 2] = boxes[b + 3] = Double.NEGATIVE_INFINITY;
+        }
+        return true;
+    }
+
+    /**
+     * Work out a piece of a path segment as a Bezier curve, from the valid waypoints that shape the segment.
+     */
+    private void segmentPiece(RouteItem item, int segment, int part) {
+        HermiteSpline.SegmentType type = item.getSegmentType();
+        int reach = type == HermiteSpline.SegmentType.QUINTIC ? 1 : 0;
+        int from = segment, to = segment + 1;
+        while (from > segment - reach && from > 0 && item.isValid(from - 1))
+            from--;
+        while (to < segment + 1 + reach && to < item.size() - 1 && item.isValid(to + 1))
+            to++;
+
+        spline.setKnotCount(to - from + 1);
+        for (int k = from; k <= to; k++)
+            spline.setKnot(k - from, item.getX(k), item.getY(k), Math.toRadians(item.getAngle(k)), item.getMag(k));
+        for (int s = 0; s < to - from; s++)
+            spline.setSegmentType(s, type);
+        int count = piecesPerSegment(item);
+        spline.getControlPoints(segment - from, (double) part / count, (double) (part + 1) / count, bezier);
+    }
+}
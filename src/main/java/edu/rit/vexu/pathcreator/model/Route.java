@@ -0,0 +1,198 @@
+package edu.rit.vexu.pathcreator.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The whole autonomous route: an ordered list of {@link RouteItem points and paths}, driven one after another.
+ * <p>
+ * This is the data behind the editor. The list on the left of the main window shows one control per item,
+ * and the controls write what the user types into the items, so anything else that needs the route
+ * (renderers, exporters, background work) reads plain numbers instead of text fields.
+ * <p>
+ * Every change to the route or its items is passed on to its {@link RouteListener listeners}.
+ * Not thread safe; edit it on the FX thread, and hand background work a {@link #snapshot()}.
+ */
+public final class Route {
+
+    private final ArrayList<RouteItem> items = new ArrayList<>();
+    private double fieldWidth;
+    private double fieldHeight;
+    private int version = 0;
+    private int nextId = 1;
+    private final ArrayList<RouteListener> listeners = new ArrayList<>();
+
+    /**
+     * Create an empty route.
+     *
+     * @param fieldWidth The width of the field in inches.
+     * @param fieldHeight The height of the field in inches.
+     */
+    public Route(double fieldWidth, double fieldHeight) {
+        this.fieldWidth = fieldWidth;
+        this.fieldHeight = fieldHeight;
+    }
+
+    /**
+     * @return The number of points and paths in the route.
+     */
+    public int size() {
+        return items.size();
+    }
+
+    public RouteItem get(int index) {
+        return items.get(index);
+    }
+
+    public int indexOf(RouteItem item) {
+        return items.indexOf(item);
+    }
+
+    /**
+     * Append an item, checking its waypoints against this route's field.
+     */
+    public void add(RouteItem item) {
+        add(items.size(), item);
+    }
+
+    /**
+     * Insert an item, checking its waypoints against this route's field, and give it a new id.
+     *
+     * @throws IllegalArgumentException If the item is already in a route.
+     */
+    public void add(int index, RouteItem item) {
+        if (item.owner != null)
+            throw new IllegalArgumentException("Item is already in a route");
+        item.setFieldSize(fieldWidth, fieldHeight);
+        items.add(index, item);
+        item.owner = this;
+        item.id = nextId++;
+        version++;
+        for (RouteListener l : listeners)
+            l.itemAdded(index, item);
+    }
+
+    /**
+     * @return true if the item was in the route.
+     */
+    public boolean remove(RouteItem item) {
+        int index = items.indexOf(item);
+        if (index < 0)
+            return false;
+        items.remove(index);
+        item.owner = null;
+        version++;
+        for (RouteListener l : listeners)
+            l.itemRemoved(index, item);
+        return true;
+    }
+
+    /**
+     * Remove every item.
+     */
+    public void clear() {
+        for (RouteItem item : items)
+            item.owner = null;
+        items.clear();
+        version++;
+        for (RouteListener l : listeners)
+            l.cleared();
+    }
+
+    /**
+     * Move an item to a new position, shifting the items between.
+     *
+     * @param from The current index of the item.
+     * @param to The index it should end up at.
+     */
+    public void move(int from, int to) {
+        if (from == to)
+            return;
+        items.add(to, items.remove(from));
+        version++;
+        for (RouteListener l : listeners)
+            l.itemMoved(from, to);
+    }
+
+    /**
+     * @return An unmodifiable view of the items, in driving order.
+     */
+    public List<RouteItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Change the size of the field, re-checking every waypoint against it.
+     *
+     * @param width The width of the field in inches.
+     * @param height The height of the field in inches.
+     */
+    public void setFieldSize(double width, double height) {
+        fieldWidth = width;
+        fieldHeight = height;
+        for (RouteItem item : items)
+            item.setFieldSize(width, height);
+        version++;
+        for (RouteListener l : listeners)
+            l.fieldResized(width, height);
+    }
+
+    public double getFieldWidth() {
+        return fieldWidth;
+    }
+
+    public double getFieldHeight() {
+        return fieldHeight;
+    }
+
+    /**
+     * @return A number that changes whenever items are added, removed or moved. Edits inside an item
+     *         change that item's version instead.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return A deep copy of the route, safe to read on another thread while this one keeps changing.
+     *         The items keep their ids, and the copy has no listeners.
+     */
+    public Route snapshot() {
+        Route copy = new Route(fieldWidth, fieldHeight);
+        for (RouteItem item : items) {
+            RouteItem itemCopy = new RouteItem(item);
+            itemCopy.owner = copy;
+            copy.items.add(itemCopy);
+        }
+        copy.version = version;
+        copy.nextId = nextId;
+        return copy;
+    }
+
+    /**
+     * Hear about every change to this route and its items.
+     */
+    public void addListener(RouteListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(RouteListener listener) {
+        listeners.remove(listener);
+    }
+
+    void fireItemResized(RouteItem item, int size) {
+        for (RouteListener l : listeners)
+            l.itemResized(item, size);
+    }
+
+    void fireWaypointChanged(RouteItem item, int index) {
+        for (RouteListener l : listeners)
+            l.waypointChanged(item, index);
+    }
+
+    void fireSegmentTypeChanged(RouteItem item) {
+        for (RouteListener l : listeners)
+            l.segmentTypeChanged(item);
+    }
+}
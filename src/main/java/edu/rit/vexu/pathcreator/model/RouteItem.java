@@ -0,0 +1,254 @@
+package edu.rit.vexu.pathcreator.model;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * One entry of a {@link Route}: either a single point the robot drives straight to, or a path of
+ * Hermite waypoints.
+ * <p>
+ * Waypoints are kept in parallel primitive arrays of x, y (inches), tangent angle (degrees, as typed in the
+ * editor) and tangent magnitude (inches). Whether each waypoint is valid is worked out once when it is set,
+ * instead of every time it is read: a waypoint is valid if its values are all numbers and it lies on the field.
+ * Points ignore the angle and magnitude. A path's segments are all of one {@link HermiteSpline.SegmentType}.
+ * <p>
+ * Every change bumps {@link #getVersion()}, so anything cached from an item can tell when it is stale.
+ * Once the item is in a route, the route's {@link RouteListener listeners} hear about every change too.
+ * This class has no JavaFX dependencies, and is not thread safe; hand background work a copy.
+ */
+public final class RouteItem {
+
+    /** What kind of entry this is. */
+    public enum Kind { POINT, PATH }
+
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private final Kind kind;
+    private double[] x;
+    private double[] y;
+    private double[] angle;
+    private double[] mag;
+    private int count = 0;
+    private HermiteSpline.SegmentType segmentType = HermiteSpline.SegmentType.CUBIC;
+
+    private final BitSet valid = new BitSet();
+    private double fieldWidth;
+    private double fieldHeight;
+    private int version = 0;
+
+    // Set by the route holding this item
+    int id = 0;
+    Route owner = null;
+
+    /**
+     * Create an empty item.
+     *
+     * @param kind Whether this is a single point or a path.
+     * @param fieldWidth The width of the field in inches; waypoints outside of it are invalid.
+     * @param fieldHeight The height of the field in inches.
+     */
+    public RouteItem(Kind kind, double fieldWidth, double fieldHeight) {
+        this.kind = kind;
+        this.fieldWidth = fieldWidth;
+        this.fieldHeight = fieldHeight;
+        x = new double[DEFAULT_CAPACITY];
+        y = new double[DEFAULT_CAPACITY];
+        angle = new double[DEFAULT_CAPACITY];
+        mag = new double[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Create a deep copy of another item, for reading on another thread.
+     *
+     * @param other The item to copy.
+     */
+    public RouteItem(RouteItem other) {
+        kind = other.kind;
+        x = Arrays.copyOf(other.x, other.count);
+        y = Arrays.copyOf(other.y, other.count);
+        angle = Arrays.copyOf(other.angle, other.count);
+        mag = Arrays.copyOf(other.mag, other.count);
+        count = other.count;
+        segmentType = other.segmentType;
+        valid.or(other.valid);
+        fieldWidth = other.fieldWidth;
+        fieldHeight = other.fieldHeight;
+        version = other.version;
+        id = other.id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return A number identifying this item in its route, which stays the same while other items come and go,
+     *         or 0 if it isn't in a route. Copies made for snapshots keep the id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The number of waypoints.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Resize the item to a number of waypoints. New waypoints are invalid until they are set.
+     *
+     * @param size The new number of waypoints.
+     */
+    public void setSize(int size) {
+        if (size > x.length) {
+            int capacity = Math.max(size, x.length * 2);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            angle = Arrays.copyOf(angle, capacity);
+            mag = Arrays.copyOf(mag, capacity);
+        }
+        if (size > count) {
+            Arrays.fill(x, count, size, Double.NaN);
+            Arrays.fill(y, count, size, Double.NaN);
+            Arrays.fill(angle, count, size, Double.NaN);
+            Arrays.fill(mag, count, size, Double.NaN);
+        }
+        valid.clear(Math.min(size, count), Math.max(size, count));
+        if (size == count)
+            return;
+        version++;
+        count = size;
+        if (owner != null)
+            owner.fireItemResized(this, size);
+    }
+
+    /**
+     * Set a waypoint. Values that could not be read should be passed as NaN, which makes the waypoint invalid.
+     *
+     * @param index The waypoint index.
+     * @param x The x position in inches.
+     * @param y The y position in inches.
+     * @param angle The tangent angle in degrees. Ignored for points.
+     * @param mag The tangent magnitude in inches. Ignored for points.
+     * @return true if anything changed.
+     */
+    public boolean set(int index, double x, double y, double angle, double mag) {
+        checkIndex(index);
+        if (same(this.x[index], x) && same(this.y[index], y)
+                && same(this.angle[index], angle) && same(this.mag[index], mag))
+            return false;
+
+        this.x[index] = x;
+        this.y[index] = y;
+        this.angle[index] = angle;
+        this.mag[index] = mag;
+        valid.set(index, checkValid(index));
+        version++;
+        if (owner != null)
+            owner.fireWaypointChanged(this, index);
+        return true;
+    }
+
+    public double getX(int index) {
+        checkIndex(index);
+        return x[index];
+    }
+
+    public double getY(int index) {
+        checkIndex(index);
+        return y[index];
+    }
+
+    /**
+     * @param index The waypoint index.
+     * @return The tangent angle in degrees.
+     */
+    public double getAngle(int index) {
+        checkIndex(index);
+        return angle[index];
+    }
+
+    public double getMag(int index) {
+        checkIndex(index);
+        return mag[index];
+    }
+
+    /**
+     * @param index The waypoint index.
+     * @return true if the waypoint holds numbers and lies on the field.
+     */
+    public boolean isValid(int index) {
+        checkIndex(index);
+        return valid.get(index);
+    }
+
+    /**
+     * @return true if there is at least one waypoint, and every waypoint is valid.
+     */
+    public boolean isValid() {
+        return count > 0 && valid.cardinality() == count;
+    }
+
+    /**
+     * @return How the path runs between its waypoints. Points are always driven to in a straight line.
+     */
+    public HermiteSpline.SegmentType getSegmentType() {
+        return segmentType;
+    }
+
+    /**
+     * Change how the path runs between its waypoints.
+     *
+     * @param type The type of every segment.
+     */
+    public void setSegmentType(HermiteSpline.SegmentType type) {
+        if (type == segmentType)
+            return;
+        segmentType = type;
+        version++;
+        if (owner != null)
+            owner.fireSegmentTypeChanged(this);
+    }
+
+    /**
+     * Change the size of the field, re-checking every waypoint against it.
+     *
+     * @param width The width of the field in inches.
+     * @param height The height of the field in inches.
+     */
+    public void setFieldSize(double width, double height) {
+        if (width == fieldWidth && height == fieldHeight)
+            return;
+        fieldWidth = width;
+        fieldHeight = height;
+        for (int i = 0; i < count; i++)
+            valid.set(i, checkValid(i));
+        version++;
+    }
+
+    /**
+     * @return A number that changes every time the item changes.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    private boolean checkValid(int i) {
+        boolean onField = x[i] >= 0 && x[i] <= fieldWidth && y[i] >= 0 && y[i] <= fieldHeight;
+        return onField && (kind == Kind.POINT || (Double.isFinite(angle[i]) && Double.isFinite(mag[i])));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Waypoint " + index + " out of bounds for " + count + " waypoints");
+    }
+
+    // Equal, counting NaN as equal to itself so unreadable values don't look like edits
+    private static boolean same(double a, double b) {
+        return Double.compare(a, b) == 0 || a == b;
+    }
+}
@@ -0,0 +1,120 @@
+package edu.rit.vexu.pathcreator.model;
+
+/**
+ * Hears about every change to a {@link Route} and its items, right after it happens.
+ * Items are identified by {@link RouteItem#getId()}, which stays the same when other items are added,
+ * removed or moved. Every method does nothing by default.
+ */
+public interface RouteListener {
+
+    /**
+     * An item was inserted.
+     *
+     * @param index The index it was inserted at.
+     * @param item The item, which may already hold waypoints.
+     */
+    default void itemAdded(int index, RouteItem item) { }
+
+    /**
+     * An item was removed.
+     *
+     * @param index The index it was removed from.
+     * @param item The item.
+     */
+    default void itemRemoved(int index, RouteItem item) { }
+
+    /**
+     * An item was moved.
+     *
+     * @param from The index it was at.
+     * @param to The index it is at now.
+     */
+    default void itemMoved(int from, int to) { }
+
+    /**
+     * Every item was removed.
+     */
+    default void cleared() { }
+
+    /**
+     * The field changed size.
+     *
+     * @param width The width of the field in inches.
+     * @param height The height of the field in inches.
+     */
+    default void fieldResized(double width, double height) { }
+
+    /**
+     * An item gained or lost waypoints.
+     *
+     * @param item The item.
+     * @param size The new number of waypoints.
+     */
+    default void itemResized(RouteItem item, int size) { }
+
+    /**
+     * A waypoint's values changed.
+     *
+     * @param item The item.
+     * @param index The waypoint index.
+     */
+    default void waypointChanged(RouteItem item, int index) { }
+
+    /**
+     * A path's segments changed type, reshaping all of it.
+     *
+     * @param item The item.
+     */
+    default void segmentTypeChanged(RouteItem item) { }
+
+    /**
+     * Returns a listener that runs the same action for every kind of change, for views that redraw from the
+     * whole route whatever changed.
+     *
+     * @param action The action to run after each change.
+     * @return The listener.
+     */
+    static RouteListener onAnyChange(Runnable action) {
+        return new RouteListener() {
+            @Override
+            public void itemAdded(int index, RouteItem item) {
+                action.run();
+            }
+
+            @Override
+            public void itemRemoved(int index, RouteItem item) {
+                action.run();
+            }
+
+            @Override
+            public void itemMoved(int from, int to) {
+                action.run();
+            }
+
+            @Override
+            public void cleared() {
+                action.run();
+            }
+
+            @Override
+            public void fieldResized(double width, double height) {
+                action.run();
+            }
+
+            @Override
+            public void itemResized(RouteItem item, int size) {
+                action.run();
+            }
+
+            @Override
+            public void waypointChanged(RouteItem item, int index) {
+                action.run();
+            }
+
+            @Override
+            public void segmentTypeChanged(RouteItem item) {
+                action.run();
+            }
+        };
+    }
+}
@@ -0,0 +1,242 @@
+package edu.rit.vexu.pathcreator.model;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.geometry.PointGrid;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Finds the waypoint or tangent handle of a {@link Route} under the mouse, for editing on the field.
+ * <p>
+ * Every valid waypoint has a handle at its position. Waypoints of paths also have a tangent handle, where
+ * the tangent's Bezier control point is: the tangent's magnitude along its angle, divided by the degree of the
+ * path's segments, so a third of it for cubics and a fifth for quintics. Lines ignore their tangents, so their
+ * waypoints have no tangent handles. The handles are kept in a {@link PointGrid}, and the index listens to the
+ * route, so each edit moves only the handles of the waypoint it changed. Invalid waypoints aren't drawn, so they
+ * have no handles.
+ * <p>
+ * Handles are identified by ints, which stay the same while their waypoint stays valid.
+ * Not thread safe; use it on the same thread as the route.
+ */
+public final class WaypointIndex implements RouteListener {
+
+    /** Returned by {@link #nearest(double, double, double)} when no handle is in range. */
+    public static final int NONE = PointGrid.NONE;
+
+    private final Route route;
+    private final double cellSize;
+    private final PointGrid grid;
+
+    // Per item: the waypoint handle and tangent handle of each waypoint, or NONE
+    private final IdentityHashMap<RouteItem, int[]> handles = new IdentityHashMap<>();
+    // Per handle: the item, and the waypoint index times two, plus one for a tangent handle
+    private RouteItem[] owners = new RouteItem[64];
+    private int[] slots = new int[64];
+
+    /**
+     * Index every waypoint of a route, and keep up with its changes.
+     *
+     * @param route The route to index.
+     * @param cellSize The size of the grid cells in inches, about the distance handles are picked from.
+     */
+    public WaypointIndex(Route route, double cellSize) {
+        this.route = route;
+        this.cellSize = cellSize;
+        grid = new PointGrid(0, 0, route.getFieldWidth(), route.getFieldHeight(), cellSize);
+        for (RouteItem item : route.getItems())
+            itemAdded(0, item);
+        route.addListener(this);
+    }
+
+    /**
+     * Stop following the route.
+     */
+    public void detach() {
+        route.removeListener(this);
+    }
+
+    /**
+     * @return The number of handles, waypoint and tangent.
+     */
+    public int size() {
+        return grid.size();
+    }
+
+    /**
+     * Find the handle nearest to a spot on the field.
+     *
+     * @param x The x value of the spot, in inches.
+     * @param y The y value of the spot, in inches.
+     * @param radius How far away a handle can be and still be found, in inches.
+     * @return The nearest handle, or {@link #NONE} if none is within the radius.
+     */
+    public int nearest(double x, double y, double radius) {
+        return grid.nearest(x, y, radius);
+    }
+
+    /**
+     * @param handle A handle from {@link #nearest(double, double, double)}.
+     * @return The item the handle belongs to.
+     */
+    public RouteItem getItem(int handle) {
+        checkHandle(handle);
+        return owners[handle];
+    }
+
+    /**
+     * @param handle A handle from {@link #nearest(double, double, double)}.
+     * @return The index of the waypoint in its item.
+     */
+    public int getWaypoint(int handle) {
+        checkHandle(handle);
+        return slots[handle] >> 1;
+    }
+
+    /**
+     * @param handle A handle from {@link #nearest(double, double, double)}.
+     * @return true for the tangent handle of a path waypoint, false for the waypoint itself.
+     */
+    public boolean isTangent(int handle) {
+        checkHandle(handle);
+        return (slots[handle] & 1) != 0;
+    }
+
+    public double getX(int handle) {
+        return grid.getX(handle);
+    }
+
+    public double getY(int handle) {
+        return grid.getY(handle);
+    }
+
+    /**
+     * @return true if the item's waypoints have tangent handles: it's a path, and not of lines.
+     */
+    public static boolean hasTangentHandles(RouteItem item) {
+        return item.getKind() == RouteItem.Kind.PATH && item.getSegmentType() != HermiteSpline.SegmentType.LINE;
+    }
+
+    /**
+     * @return The x value of a waypoint's tangent handle, in inches.
+     */
+    public static double tangentX(RouteItem item, int index) {
+        return item.getX(index) + item.getMag(index) / item.getSegmentType().getDegree()
+                * Math.cos(Math.toRadians(item.getAngle(index)));
+    }
+
+    /**
+     * @return The y value of a waypoint's tangent handle, in inches.
+     */
+    public static double tangentY(RouteItem item, int index) {
+        return item.getY(index) + item.getMag(index) / item.getSegmentType().getDegree()
+                * Math.sin(Math.toRadians(item.getAngle(index)));
+    }
+
+    /**
+     * The inverse of {@link #tangentX(RouteItem, int)} and {@link #tangentY(RouteItem, int)}.
+     *
+     * @param dx How far the tangent handle is from its waypoint along x, in inches.
+     * @param dy How far along y, in inches.
+     * @return The magnitude of the tangent whose handle is there.
+     */
+    public static double tangentMag(RouteItem item, double dx, double dy) {
+        return item.getSegmentType().getDegree() * Math.hypot(dx, dy);
+    }
+
+    @Override
+    public void itemAdded(int index, RouteItem item) {
+        handles.put(item, new int[0]);
+        itemResized(item, item.size());
+        for (int i = 0; i < item.size(); i++)
+            waypointChanged(item, i);
+    }
+
+    @Override
+    public void itemRemoved(int index, RouteItem item) {
+        itemResized(item, 0);
+        handles.remove(item);
+    }
+
+    @Override
+    public void cleared() {
+        grid.clear();
+        handles.clear();
+        Arrays.fill(owners, null);
+    }
+
+    @Override
+    public void fieldResized(double width, double height) {
+        grid.setBounds(0, 0, width, height, cellSize);
+        // Waypoints on or off the new field gain or lose their handles
+        for (RouteItem item : route.getItems())
+            for (int i = 0; i < item.size(); i++)
+                waypointChanged(item, i);
+    }
+
+    @Override
+    public void itemResized(RouteItem item, int size) {
+        int[] ids = handles.get(item);
+        if (ids == null)
+            return;
+        for (int slot = 2 * size; slot < ids.length; slot++)
+            release(ids, slot);
+        int oldLength = ids.length;
+        ids = Arrays.copyOf(ids, 2 * size);
+        if (ids.length > oldLength)
+            Arrays.fill(ids, oldLength, ids.length, NONE);
+        handles.put(item, ids);
+    }
+
+    @Override
+    public void waypointChanged(RouteItem item, int index) {
+        int[] ids = handles.get(item);
+        if (ids == null || 2 * index >= ids.length)
+            return;
+        if (!item.isValid(index)) {
+            release(ids, 2 * index);
+            release(ids, 2 * index + 1);
+            return;
+        }
+        place(item, ids, 2 * index, item.getX(index), item.getY(index));
+        if (hasTangentHandles(item))
+            place(item, ids, 2 * index + 1, tangentX(item, index), tangentY(item, index));
+        else
+            release(ids, 2 * index + 1);
+    }
+
+    @Override
+    public void segmentTypeChanged(RouteItem item) {
+        // The tangent handles move in or out, or come and go with lines
+        for (int i = 0; i < item.size(); i++)
+            waypointChanged(item, i);
+    }
+
+    private void place(RouteItem item, int[] ids, int slot, double x, double y) {
+        if (ids[slot] != NONE) {
+            grid.move(ids[slot], x, y);
+            return;
+        }
+        int handle = grid.add(x, y);
+        if (handle >= owners.length) {
+            owners = Arrays.copyOf(owners, Math.max(handle + 1, owners.length * 2));
+            slots = Arrays.copyOf(slots, owners.length);
+        }
+        owners[handle] = item;
+        slots[handle] = slot;
+        ids[slot] = handle;
+    }
+
+    private void release(int[] ids, int slot) {
+        if (ids[slot] == NONE)
+            return;
+        grid.remove(ids[slot]);
+        owners[ids[slot]] = null;
+        ids[slot] = NONE;
+    }
+
+    private void checkHandle(int handle) {
+        if (!grid.contains(handle))
+            throw new IllegalArgumentException("No handle " + handle);
+    }
+}
@@ -0,0 +1,289 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * A trajectory stored as delta-encoded fixed-point samples, small enough for robot program memory.
+ * <p>
+ * Every value is an integer multiple of a step stored with the data. Each sample stores the change of each
+ * value from the sample before as a zigzag varint, so slowly changing values take a byte or two:
+ * <pre>
+ * varint   sample count
+ * varint   time step (microseconds), position step (micro inches), heading step (micro degrees),
+ *          velocity step (micro inches per second)
+ * per sample, zigzag varints: change in time, x, y, heading, velocity
+ * </pre>
+ * Headings are unwrapped, so they change smoothly past +-180 degrees. Between the stored samples, the trajectory
+ * is rebuilt by linear interpolation in time, with {@link #sample(double, double[])}.
+ * <p>
+ * {@link #decode(byte[])} gives back exactly the samples that were encoded, and encoding them again gives the
+ * same bytes. Instances are immutable.
+ */
+public final class CompressedTrajectory {
+
+    // Steps are stored as whole millionths of their unit
+    static final double MICRO = 1e-6;
+
+    private final long timeStep, positionStep, headingStep, velocityStep;
+    private final long[] time, x, y, heading, velocity;
+    private final int count;
+    private final byte[] data;
+
+    // Known only right after compressing
+    private final int sourceCount;
+    private final double maxPositionError;
+    private final double maxHeadingError;
+
+    CompressedTrajectory(long timeStep, long positionStep, long headingStep, long velocityStep,
+                         long[] time, long[] x, long[] y, long[] heading, long[] velocity, int count,
+                         int sourceCount, double maxPositionError, double maxHeadingError) {
+        this.timeStep = timeStep;
+        this.positionStep = positionStep;
+        this.headingStep = headingStep;
+        this.velocityStep = velocityStep;
+        this.time = time;
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.velocity = velocity;
+        this.count = count;
+        this.sourceCount = sourceCount;
+        this.maxPositionError = maxPositionError;
+        this.maxHeadingError = maxHeadingError;
+        this.data = encode();
+    }
+
+    /**
+     * Decode a trajectory from its bytes.
+     *
+     * @param data The bytes from {@link #getData()}.
+     * @return The trajectory. Its source count and errors are not stored in the data, so they are unknown.
+     * @throws IllegalArgumentException If the data is truncated or corrupt.
+     */
+    public static CompressedTrajectory decode(byte[] data) {
+        int[] pos = {0};
+        long count = readVarint(data, pos);
+        if (count < 0 || count > data.length)
+            throw new IllegalArgumentException("Corrupt trajectory sample count " + count);
+        long timeStep = readVarint(data, pos);
+        long positionStep = readVarint(data, pos);
+        long headingStep = readVarint(data, pos);
+        long velocityStep = readVarint(data, pos);
+
+        int n = (int) count;
+        long[] time = new long[n], x = new long[n], y = new long[n], heading = new long[n], velocity = new long[n];
+        long t = 0, px = 0, py = 0, h = 0, v = 0;
+        for (int i = 0; i < n; i++) {
+            time[i] = t += unzigzag(readVarint(data, pos));
+            x[i] = px += unzigzag(readVarint(data, pos));
+            y[i] = py += unzigzag(readVarint(data, pos));
+            heading[i] = h += unzigzag(readVarint(data, pos));
+            velocity[i] = v += unzigzag(readVarint(data, pos));
+        }
+        if (pos[0] != data.length)
+            throw new IllegalArgumentException("Trailing bytes after trajectory");
+        return new CompressedTrajectory(timeStep, positionStep, headingStep, velocityStep,
+                time, x, y, heading, velocity, n, -1, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * @return The encoded trajectory, a new copy on every call.
+     */
+    public byte[] getData() {
+        return data.clone();
+    }
+
+    /**
+     * @return The number of bytes in the encoded trajectory.
+     */
+    public int getEncodedSize() {
+        return data.length;
+    }
+
+    /**
+     * @return The number of samples kept.
+     */
+    public int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * @return The number of samples the trajectory was compressed from, or -1 if it was decoded.
+     */
+    public int getSourceCount() {
+        return sourceCount;
+    }
+
+    /**
+     * @return The size of the samples it was compressed from as a table of 5 floats each, or -1 if it was decoded.
+     */
+    public int getRawSize() {
+        return sourceCount < 0 ? -1 : sourceCount * 5 * Float.BYTES;
+    }
+
+    /**
+     * @return The furthest any source sample is from the rebuilt trajectory at the same time, in inches,
+     *         or NaN if it was decoded.
+     */
+    public double getMaxPositionError() {
+        return maxPositionError;
+    }
+
+    /**
+     * @return The largest heading difference between any source sample and the rebuilt trajectory, in degrees,
+     *         or NaN if it was decoded.
+     */
+    public double getMaxHeadingError() {
+        return maxHeadingError;
+    }
+
+    /**
+     * @param index The sample index.
+     * @return The time of a stored sample, in seconds.
+     */
+    public double getTime(int index) {
+        return time[checkIndex(index)] * (timeStep * MICRO);
+    }
+
+    public double getX(int index) {
+        return x[checkIndex(index)] * (positionStep * MICRO);
+    }
+
+    public double getY(int index) {
+        return y[checkIndex(index)] * (positionStep * MICRO);
+    }
+
+    /**
+     * @param index The sample index.
+     * @return The unwrapped heading of a stored sample, in degrees.
+     */
+    public double getHeading(int index) {
+        return heading[checkIndex(index)] * (headingStep * MICRO);
+    }
+
+    public double getVelocity(int index) {
+        return velocity[checkIndex(index)] * (velocityStep * MICRO);
+    }
+
+    /**
+     * @return The time at the end of the trajectory, in seconds.
+     */
+    public double getDuration() {
+        return count == 0 ? 0.0 : getTime(count - 1);
+    }
+
+    /**
+     * Rebuild the trajectory at a time, interpolating between the stored samples around it.
+     *
+     * @param t The time in seconds, clamped to the trajectory.
+     * @param out Buffer receiving x, y, heading (unwrapped degrees) and velocity.
+     */
+    public void sample(double t, double[] out) {
+        if (count == 0) {
+            Arrays.fill(out, 0, 4, Double.NaN);
+            return;
+        }
+        interpolate(indexAt(t), t, out);
+    }
+
+    /**
+     * @param t The time in seconds.
+     * @return The index of the last stored sample at or before the time, or 0 if there is none.
+     */
+    public int indexAt(double t) {
+        int low = 0, high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (getTime(mid) <= t)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    // Interpolate between stored sample i and the next one
+    void interpolate(int i, double t, double[] out) {
+        int j = Math.min(i + 1, count - 1);
+        double t0 = getTime(i), t1 = getTime(j);
+        double f = (t1 > t0) ? (t - t0) / (t1 - t0) : 0.0;
+        f = Math.max(0.0, Math.min(1.0, f));
+        out[0] = lerp(getX(i), getX(j), f);
+        out[1] = lerp(getY(i), getY(j), f);
+        out[2] = lerp(getHeading(i), getHeading(j), f);
+        out[3] = lerp(getVelocity(i), getVelocity(j), f);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CompressedTrajectory && Arrays.equals(data, ((CompressedTrajectory) o).data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedTrajectory[" + count + " samples, " + data.length + " bytes]";
+    }
+
+    private byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + count * 6);
+        writeVarint(out, count);
+        writeVarint(out, timeStep);
+        writeVarint(out, positionStep);
+        writeVarint(out, headingStep);
+        writeVarint(out, velocityStep);
+        for (int i = 0; i < count; i++) {
+            writeVarint(out, zigzag(time[i] - (i > 0 ? time[i - 1] : 0)));
+            writeVarint(out, zigzag(x[i] - (i > 0 ? x[i - 1] : 0)));
+            writeVarint(out, zigzag(y[i] - (i > 0 ? y[i - 1] : 0)));
+            writeVarint(out, zigzag(heading[i] - (i > 0 ? heading[i - 1] : 0)));
+            writeVarint(out, zigzag(velocity[i] - (i > 0 ? velocity[i - 1] : 0)));
+        }
+        return out.toByteArray();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Sample " + index + " out of bounds for " + count + " samples");
+        return index;
+    }
+
+    static double lerp(double a, double b, double f) {
+        return a + (b - a) * f;
+    }
+
+    // Small magnitudes of either sign become small unsigned numbers: 0, -1, 1, -2, ... to 0, 1, 2, 3, ...
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= data.length)
+                throw new IllegalArgumentException("Trajectory data is truncated");
+            byte b = data[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Corrupt varint in trajectory data");
+    }
+}
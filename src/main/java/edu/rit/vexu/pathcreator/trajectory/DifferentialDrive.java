@@ -0,0 +1,124 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+/**
+ * The geometry and wheel limits of a tank drive robot.
+ * <p>
+ * Driving the robot's center at speed v along a path of curvature k moves each side at v * (1 +/- k * w / 2),
+ * where w is the track width. The outer wheels are the ones that hit their speed limit first, so the speed of the
+ * center is scaled down until the outer wheels stay within theirs. Wheel accelerations also depend on how the
+ * curvature changes between samples: {@link #getCurvatureStepLimit} caps the speed where it changes, and
+ * {@link #getSpeedSquaredStep} gives what's left of the wheels' acceleration to the center, step by step.
+ * <p>
+ * Field coordinates have y pointing down, like the field image, so positive curvature is a clockwise
+ * (right hand) turn as seen on screen, with the left wheels on the outside.
+ * All values are in inches and seconds.
+ */
+public final class DifferentialDrive {
+
+    private final double trackWidth;
+    private final double maxWheelVelocity;
+    private final double maxWheelAcceleration;
+
+    /**
+     * Create a drive.
+     *
+     * @param trackWidth The distance between the centers of the left and right wheels, in inches.
+     * @param maxWheelVelocity The top speed of either side, in inches per second.
+     * @param maxWheelAcceleration The largest change in speed of either side, in inches per second squared.
+     */
+    public DifferentialDrive(double trackWidth, double maxWheelVelocity, double maxWheelAcceleration) {
+        if (!(trackWidth > 0) || !(maxWheelVelocity > 0) || !(maxWheelAcceleration > 0))
+            throw new IllegalArgumentException("Drive dimensions and limits must be positive");
+        this.trackWidth = trackWidth;
+        this.maxWheelVelocity = maxWheelVelocity;
+        this.maxWheelAcceleration = maxWheelAcceleration;
+    }
+
+    public double getTrackWidth() {
+        return trackWidth;
+    }
+
+    public double getMaxWheelVelocity() {
+        return maxWheelVelocity;
+    }
+
+    public double getMaxWheelAcceleration() {
+        return maxWheelAcceleration;
+    }
+
+    /**
+     * @param curvature The curvature of the path, in 1 / inches.
+     * @return How far the left side travels for each inch the center travels.
+     */
+    public double getLeftScale(double curvature) {
+        return 1 + curvature * trackWidth / 2;
+    }
+
+    /**
+     * @param curvature The curvature of the path, in 1 / inches.
+     * @return How far the right side travels for each inch the center travels.
+     */
+    public double getRightScale(double curvature) {
+        return 1 - curvature * trackWidth / 2;
+    }
+
+    /**
+     * @param curvature The curvature of the path, in 1 / inches.
+     * @return The fastest the center of the robot can go while the outer wheels stay under their top speed.
+     */
+    public double getVelocityLimit(double curvature) {
+        return maxWheelVelocity / (1 + Math.abs(curvature) * trackWidth / 2);
+    }
+
+    /**
+     * Returns a speed cap for both ends of a step, so the change in wheel speeds that a change in curvature causes
+     * on its own takes at most half of either side's acceleration over the step.
+     * <p>
+     * Over a step from speed v to x, a side with scales c and c' changes speed by
+     * x * c' - v * c = (c + c') / 2 * (x - v) + (x + v) / 2 * (c' - c), in time 2 * ds / (v + x). The second part is
+     * the curvature's share; with the two speeds averaging at most V, it needs at most 2 * V^2 * |c' - c| / (2 * ds)
+     * of the side's acceleration.
+     *
+     * @param curvature The curvature at the start of the step, in 1 / inches.
+     * @param nextCurvature The curvature at the end of the step, in 1 / inches.
+     * @param ds The length of the step, in inches.
+     * @return The speed cap of the center at both ends of the step, in inches per second; infinite if the
+     *         curvature doesn't change.
+     */
+    public double getCurvatureStepLimit(double curvature, double nextCurvature, double ds) {
+        double jump = Math.abs(nextCurvature - curvature) * trackWidth / 2;
+        if (jump == 0.0)
+            return Double.POSITIVE_INFINITY;
+        return Math.sqrt(maxWheelAcceleration * ds / (2 * jump));
+    }
+
+    /**
+     * Returns how much the square of the center's speed can change over a step, so neither side changes speed
+     * faster than its limit. The curvature's share of each side's acceleration (see
+     * {@link #getCurvatureStepLimit}) is taken out first, and the rest is scaled by how far the side travels
+     * for each inch of the center over the step.
+     * <p>
+     * This is a limit on v^2 like the center's own 2 * a * ds, so it holds in either direction along the path, and
+     * a single forward and backward pass over the samples settles it.
+     *
+     * @param curvature The curvature at the start of the step, in 1 / inches.
+     * @param nextCurvature The curvature at the end of the step, in 1 / inches.
+     * @param cap The average of the most the center's speed can be at the two ends of the step, at most
+     *            {@link #getCurvatureStepLimit}, in inches per second.
+     * @param ds The length of the step, in inches.
+     * @return The largest change in v^2 over the step, in inches squared per second squared.
+     */
+    public double getSpeedSquaredStep(double curvature, double nextCurvature, double cap, double ds) {
+        double jump = Math.abs(nextCurvature - curvature) * trackWidth / 2;
+        double budget = 2 * maxWheelAcceleration * ds - 2 * cap * cap * jump;
+        double mean = (curvature + nextCurvature) / 2;
+        double scale = Math.max(Math.abs(getLeftScale(mean)), Math.abs(getRightScale(mean)));
+        return Math.max(0.0, budget) / scale;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DifferentialDrive[trackWidth=%f, maxWheelVelocity=%f, maxWheelAcceleration=%f]",
+                trackWidth, maxWheelVelocity, maxWheelAcceleration);
+    }
+}
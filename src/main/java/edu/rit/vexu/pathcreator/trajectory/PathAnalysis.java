@@ -0,0 +1,126 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import edu.rit.vexu.pathcreator.geometry.ArcLengthTable;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * What a path costs to drive: its length, how long the robot takes, and its tightest turn.
+ * <p>
+ * An analysis works on its own copy of a spline, so it can run on a background thread while the user keeps
+ * editing. It measures the copy from scratch, then checks whether it was cancelled before each step, so a job
+ * that was superseded by a newer edit stops early instead of finishing work nobody will see.
+ * <p>
+ * Analyses are immutable once made. Making one is not thread safe per generator; give each thread its own.
+ */
+public final class PathAnalysis {
+
+    // Curvature samples per segment when looking for the tightest turn
+    private static final int CURVATURE_SAMPLES = 32;
+
+    private final double length;
+    private final double driveTime;
+    private final double maxCurvature;
+    private final double tightestX, tightestY;
+    private final RobotLimits limits;
+
+    private PathAnalysis(double length, double driveTime, double maxCurvature,
+                         double tightestX, double tightestY, RobotLimits limits) {
+        this.length = length;
+        this.driveTime = driveTime;
+        this.maxCurvature = maxCurvature;
+        this.tightestX = tightestX;
+        this.tightestY = tightestY;
+        this.limits = limits;
+    }
+
+    /**
+     * Analyze a path.
+     *
+     * @param spline The path, which must not change while it's analyzed; pass a copy.
+     * @param limits The limits of the robot.
+     * @param generator The generator to time the path with, only used by this thread.
+     * @param cancelled Asked between steps whether to give up.
+     * @return The analysis, or null if it was cancelled or the path has no segments.
+     */
+    public static PathAnalysis analyze(HermiteSpline spline, RobotLimits limits, TrajectoryGenerator generator,
+                                       BooleanSupplier cancelled) {
+        if (spline.getSegmentCount() == 0 || cancelled.getAsBoolean())
+            return null;
+
+        double maxCurvature = 0, tightestX = spline.getKnotX(0), tightestY = spline.getKnotY(0);
+        double[] point = new double[2];
+        for (int seg = 0; seg < spline.getSegmentCount(); seg++) {
+            if (cancelled.getAsBoolean())
+                return null;
+            for (int i = 0; i <= CURVATURE_SAMPLES; i++) {
+                double t = (double) i / CURVATURE_SAMPLES;
+                double k = Math.abs(spline.curvature(seg, t));
+                if (k > maxCurvature) {
+                    maxCurvature = k;
+                    spline.evaluate(seg, t, point);
+                    tightestX = point[0];
+                    tightestY = point[1];
+                }
+            }
+        }
+
+        ArcLengthTable table = new ArcLengthTable(spline);
+        if (cancelled.getAsBoolean())
+            return null;
+        double driveTime = generator.generate(table, limits, null);
+        if (cancelled.getAsBoolean())
+            return null;
+        return new PathAnalysis(table.getLength(), driveTime, maxCurvature, tightestX, tightestY, limits);
+    }
+
+    /**
+     * @return The length of the path, in inches.
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * @return The time to drive the path from rest to rest, in seconds.
+     */
+    public double getDriveTime() {
+        return driveTime;
+    }
+
+    /**
+     * @return The largest curvature along the path, in 1/inches; 0 for a straight path.
+     */
+    public double getMaxCurvature() {
+        return maxCurvature;
+    }
+
+    /**
+     * @return The radius of the tightest turn, in inches; infinite for a straight path.
+     */
+    public double getTightestRadius() {
+        return 1 / maxCurvature;
+    }
+
+    /**
+     * @return The x value of the tightest turn, in inches.
+     */
+    public double getTightestX() {
+        return tightestX;
+    }
+
+    /**
+     * @return The y value of the tightest turn, in inches.
+     */
+    public double getTightestY() {
+        return tightestY;
+    }
+
+    /**
+     * @return How fast the robot can take the tightest turn without sliding, in inches per second.
+     */
+    public double getTightestSpeed() {
+        return Math.min(limits.getMaxVelocity(), Math.sqrt(limits.getMaxCentripetalAcceleration() / maxCurvature));
+    }
+}
@@ -0,0 +1,63 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+/**
+ * The speed limits of the robot, used when generating trajectories.
+ * All values are in inches and seconds, matching the units of the field.
+ */
+public final class RobotLimits {
+
+    /** Conservative limits for a typical VEX drivetrain, used until the user sets their own. */
+    public static final RobotLimits DEFAULT = new RobotLimits(48.0, 48.0, 48.0);
+
+    private final double maxVelocity;
+    private final double maxAcceleration;
+    private final double maxCentripetalAcceleration;
+
+    /**
+     * Create a set of robot limits.
+     *
+     * @param maxVelocity The top speed of the robot, in inches per second.
+     * @param maxAcceleration The largest change in speed, in inches per second squared.
+     * @param maxCentripetalAcceleration The largest sideways acceleration in turns before the wheels slip,
+     *                                   in inches per second squared. This caps the speed to
+     *                                   sqrt(maxCentripetalAcceleration / |curvature|).
+     */
+    public RobotLimits(double maxVelocity, double maxAcceleration, double maxCentripetalAcceleration) {
+        if (!(maxVelocity > 0) || !(maxAcceleration > 0) || !(maxCentripetalAcceleration > 0))
+            throw new IllegalArgumentException("Robot limits must be positive");
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.maxCentripetalAcceleration = maxCentripetalAcceleration;
+    }
+
+    public double getMaxVelocity() {
+        return maxVelocity;
+    }
+
+    public double getMaxAcceleration() {
+        return maxAcceleration;
+    }
+
+    public double getMaxCentripetalAcceleration() {
+        return maxCentripetalAcceleration;
+    }
+
+    /**
+     * Returns the fastest the robot may drive through a point of the path.
+     *
+     * @param curvature The curvature of the path at the point, in 1 / inches.
+     * @return The speed limit, in inches per second.
+     */
+    public double getVelocityLimit(double curvature) {
+        double k = Math.abs(curvature);
+        if (k == 0.0)
+            return maxVelocity;
+        return Math.min(maxVelocity, Math.sqrt(maxCentripetalAcceleration / k));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RobotLimits[maxVelocity=%f, maxAcceleration=%f, maxCentripetalAcceleration=%f]",
+                maxVelocity, maxAcceleration, maxCentripetalAcceleration);
+    }
+}
@@ -0,0 +1,569 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import edu.rit.vexu.pathcreator.geometry.ArcLengthTable;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Compiles a whole {@link Route}, points, paths and the straight legs between them, into one trajectory.
+ * <p>
+ * The route is cut into pieces: every path with at least two waypoints, and every leg from the last waypoint of
+ * one item to the first of the next. Legs of no length are left out. Each piece is sampled at equal distances on
+ * its own, and the pieces are checked where they meet. A junction whose ends are apart, or whose heading turns
+ * more than {@link #HEADING_TOLERANCE}, is a stop: the robot comes to rest there and turns in place. The pieces
+ * between stops form a run, strung together and profiled in one go by a {@link TrajectoryGenerator}, starting
+ * and ending at rest. The trajectory is the runs one after the other, with distance and time counted from the
+ * start of the route. Turning in place takes no time here, since the robot limits have no turning rate.
+ * <p>
+ * Compiled pieces are kept between calls, by item id: a path is only sampled again when its item's version
+ * changes, and a leg when either end moves. Every run is kept with the pieces it was profiled from, so only runs
+ * holding a piece that was sampled again get a new profile. After a single edit, a compile samples the edited
+ * path and the legs on either side, profiles the runs they're in, and only walks the rest of the route.
+ * <p>
+ * Compiles are meant for {@link Route#snapshot() snapshots} of one route, which keep the ids of its items, and
+ * can run on a background thread. One compile runs at a time; a cancelled compile stops early, keeping what the
+ * last finished compile left. Each compile hands back a {@link CompiledRoute} that later compiles don't touch.
+ */
+public final class RouteCompiler {
+
+    /** The largest turn at a junction still driven through without stopping, in radians. */
+    public static final double HEADING_TOLERANCE = Math.toRadians(2);
+
+    /** The largest distance between the ends of two pieces still driven through without stopping, in inches. */
+    public static final double POSITION_TOLERANCE = 1e-6;
+
+    private final RobotLimits limits;
+    private final DifferentialDrive drive;
+    private final double spacing;
+    private final TrajectoryGenerator generator;
+
+    // Kept between compiles: each path's spline and samples by item id, the leg leaving each item by item id,
+    // and each run by the stamp of its first piece
+    private Map<Integer, PathSource> paths = new HashMap<>();
+    private Map<Integer, Piece> legs = new HashMap<>();
+    private Map<Integer, Run> runs = new HashMap<>();
+    private int nextStamp = 1;
+
+    // Scratch for sampling legs
+    private final HermiteSpline legSpline = new HermiteSpline();
+    private final ArcLengthTable legTable = new ArcLengthTable(legSpline);
+    private final double[] point = new double[2];
+
+    /**
+     * Where two pieces of the route meet.
+     */
+    public static final class Junction {
+        private final int item;
+        private final double x, y;
+        private final double gap;
+        private final double turn;
+        private final boolean stop;
+
+        private Junction(int item, double x, double y, double gap, double turn, boolean stop) {
+            this.item = item;
+            this.x = x;
+            this.y = y;
+            this.gap = gap;
+            this.turn = turn;
+            this.stop = stop;
+        }
+
+        /**
+         * @return The index of the route item the junction is on: the point between two legs, or the path
+         *         a leg or another path leads into or out of.
+         */
+        public int getItem() {
+            return item;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        /**
+         * @return The distance between the end of the first piece and the start of the second, in inches.
+         */
+        public double getGap() {
+            return gap;
+        }
+
+        /**
+         * @return The change in heading across the junction in radians, from -pi to pi.
+         */
+        public double getTurn() {
+            return turn;
+        }
+
+        /**
+         * @return true if the robot stops at the junction to turn in place.
+         */
+        public boolean isStop() {
+            return stop;
+        }
+    }
+
+    /**
+     * The trajectory of a whole route, from one compile. It never changes once made, so it can be handed to
+     * another thread.
+     */
+    public static final class CompiledRoute {
+        private final boolean valid;
+        private final Run[] runs;
+        // Where each run starts in the trajectory
+        private final double[] runDistances;
+        private final double[] runTimes;
+        private final List<Junction> junctions;
+        private final double length;
+        private final double driveTime;
+        private final int sampleCount;
+        private final int sampledPieces;
+        private final int profiledRuns;
+
+        private CompiledRoute(boolean valid, Run[] runs, List<Junction> junctions, int sampledPieces,
+                              int profiledRuns) {
+            this.valid = valid;
+            this.runs = runs;
+            this.junctions = Collections.unmodifiableList(junctions);
+            this.sampledPieces = sampledPieces;
+            this.profiledRuns = profiledRuns;
+
+            runDistances = new double[runs.length];
+            runTimes = new double[runs.length];
+            double distance = 0.0, time = 0.0;
+            int samples = 0;
+            for (int i = 0; i < runs.length; i++) {
+                runDistances[i] = distance;
+                runTimes[i] = time;
+                distance += runs[i].getLength();
+                time += runs[i].getTime();
+                samples += runs[i].count;
+            }
+            length = valid ? distance : Double.NaN;
+            driveTime = valid ? time : Double.NaN;
+            sampleCount = samples;
+        }
+
+        /**
+         * @return false if an item of the route wasn't valid, leaving no trajectory.
+         */
+        public boolean isValid() {
+            return valid;
+        }
+
+        /**
+         * @return The length of the route driven, in inches, or NaN if it wasn't valid.
+         */
+        public double getLength() {
+            return length;
+        }
+
+        /**
+         * @return The time to drive the whole route, in seconds, or NaN if it wasn't valid.
+         */
+        public double getDriveTime() {
+            return driveTime;
+        }
+
+        /**
+         * @return The number of samples {@link #stream(TrajectorySink)} gives.
+         */
+        public int getSampleCount() {
+            return sampleCount;
+        }
+
+        /**
+         * @return Every junction of the route, in route order.
+         */
+        public List<Junction> getJunctions() {
+            return junctions;
+        }
+
+        /**
+         * @return The number of junctions the robot stops at.
+         */
+        public int getStopCount() {
+            int stops = 0;
+            for (Junction junction : junctions)
+                if (junction.stop)
+                    stops++;
+            return stops;
+        }
+
+        /**
+         * @return The number of pieces this compile sampled again, rather than reusing.
+         */
+        public int getSampledPieceCount() {
+            return sampledPieces;
+        }
+
+        /**
+         * @return The number of runs this compile profiled again, rather than reusing.
+         */
+        public int getProfiledRunCount() {
+            return profiledRuns;
+        }
+
+        /**
+         * Hand every sample to a sink, in order. Distance and time count from the start of the route; at a stop,
+         * the last sample before it and the first sample after it share a time and place, with the heading
+         * before and after the turn.
+         *
+         * @param sink Receives every sample.
+         */
+        public void stream(TrajectorySink sink) {
+            for (int r = 0; r < runs.length; r++) {
+                Run run = runs[r];
+                int k = 0;
+                for (Piece piece : run.pieces) {
+                    for (int j = (k == 0) ? 0 : 1; j < piece.count; j++, k++) {
+                        double acceleration = 0.0;
+                        if (k < run.count - 1) {
+                            double ds = run.distance[k + 1] - run.distance[k];
+                            double v0 = run.velocity[k], v1 = run.velocity[k + 1];
+                            if (ds > 0.0)
+                                acceleration = (v1 * v1 - v0 * v0) / (2 * ds);
+                        }
+                        sink.accept(runTimes[r] + run.time[k], runDistances[r] + run.distance[k],
+                                piece.x[j], piece.y[j], piece.heading[j], run.velocity[k], acceleration,
+                                piece.curvature[j]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CompiledRoute[length=%f, driveTime=%f, samples=%d, stops=%d]",
+                    length, driveTime, sampleCount, getStopCount());
+        }
+    }
+
+    /**
+     * A path or leg, sampled at equal distances from its start. Never changes once sampled.
+     */
+    private static final class Piece {
+        final boolean leg;
+        final int stamp;
+        final double[] distance;
+        final double[] x;
+        final double[] y;
+        final double[] heading;
+        final double[] curvature;
+        final int count;
+        // For legs, the ends the leg was sampled between
+        final double fromX, fromY, toX, toY;
+
+        Piece(boolean leg, int stamp, int count, double fromX, double fromY, double toX, double toY) {
+            this.leg = leg;
+            this.stamp = stamp;
+            this.count = count;
+            this.fromX = fromX;
+            this.fromY = fromY;
+            this.toX = toX;
+            this.toY = toY;
+            distance = new double[count];
+            x = new double[count];
+            y = new double[count];
+            heading = new double[count];
+            curvature = new double[count];
+        }
+
+        double getLength() {
+            return distance[count - 1];
+        }
+
+        boolean joins(double fromX, double fromY, double toX, double toY) {
+            return this.fromX == fromX && this.fromY == fromY && this.toX == toX && this.toY == toY;
+        }
+    }
+
+    /**
+     * A path's spline, kept in step with its item so only the segments an edit touches are measured again,
+     * and its samples as of the item version they were taken from.
+     */
+    private static final class PathSource {
+        final HermiteSpline spline = new HermiteSpline();
+        final ArcLengthTable table = new ArcLengthTable(spline);
+        int version;
+        Piece piece;
+    }
+
+    /**
+     * Pieces driven in one go, with a speed for every sample. Neighbouring pieces share an end sample,
+     * which is only counted once. Never changes once profiled.
+     */
+    private static final class Run {
+        final Piece[] pieces;
+        final int[] stamps;
+        // The distance, speed and time of each sample, from the start of the run
+        final double[] distance;
+        final double[] velocity;
+        final double[] time;
+        final int count;
+
+        Run(Piece[] pieces) {
+            this.pieces = pieces;
+            stamps = new int[pieces.length];
+            int samples = 1;
+            for (int i = 0; i < pieces.length; i++) {
+                stamps[i] = pieces[i].stamp;
+                samples += pieces[i].count - 1;
+            }
+            count = samples;
+            distance = new double[count];
+            velocity = new double[count];
+            time = new double[count];
+        }
+
+        double getLength() {
+            return distance[count - 1];
+        }
+
+        double getTime() {
+            return time[count - 1];
+        }
+
+        boolean matches(List<Piece> route, int from, int to) {
+            if (to - from != stamps.length)
+                return false;
+            for (int i = from; i < to; i++)
+                if (route.get(i).stamp != stamps[i - from])
+                    return false;
+            return true;
+        }
+    }
+
+    /**
+     * Create a compiler with the default sample spacing and no wheel limits.
+     *
+     * @param limits The limits of the robot.
+     */
+    public RouteCompiler(RobotLimits limits) {
+        this(limits, null, TrajectoryGenerator.DEFAULT_SPACING);
+    }
+
+    /**
+     * Create a compiler.
+     *
+     * @param limits The limits of the robot.
+     * @param drive The tank drive whose wheel limits also apply, or null for no wheel limits.
+     * @param spacing The distance between samples, in inches.
+     */
+    public RouteCompiler(RobotLimits limits, DifferentialDrive drive, double spacing) {
+        this.generator = new TrajectoryGenerator(spacing);
+        this.limits = limits;
+        this.drive = drive;
+        this.spacing = spacing;
+    }
+
+    public RobotLimits getLimits() {
+        return limits;
+    }
+
+    public DifferentialDrive getDrive() {
+        return drive;
+    }
+
+    public double getSpacing() {
+        return spacing;
+    }
+
+    /**
+     * Compile a route, reusing whatever the last compile did for the parts of it that haven't changed.
+     *
+     * @param route The route to compile, which must not change during the compile.
+     * @return The compiled route.
+     */
+    public CompiledRoute compile(Route route) {
+        return compile(route, () -> false);
+    }
+
+    /**
+     * Compile a route, reusing whatever the last compile did for the parts of it that haven't changed.
+     *
+     * @param route The route to compile, which must not change during the compile; pass a snapshot.
+     * @param cancelled Asked between pieces and runs whether to give up.
+     * @return The compiled route, or null if it was cancelled.
+     */
+    public synchronized CompiledRoute compile(Route route, BooleanSupplier cancelled) {
+        for (int i = 0; i < route.size(); i++)
+            if (!route.get(i).isValid())
+                return new CompiledRoute(false, new Run[0], new ArrayList<>(), 0, 0);
+
+        List<Piece> pieces = new ArrayList<>();
+        List<Integer> pieceItems = new ArrayList<>();
+        Map<Integer, PathSource> newPaths = new HashMap<>();
+        Map<Integer, Piece> newLegs = new HashMap<>();
+        int sampled = 0;
+
+        RouteItem prev = null;
+        for (int i = 0; i < route.size(); i++) {
+            if (cancelled.getAsBoolean())
+                return null;
+            RouteItem item = route.get(i);
+            if (prev != null) {
+                int last = prev.size() - 1;
+                double fromX = prev.getX(last), fromY = prev.getY(last);
+                double toX = item.getX(0), toY = item.getY(0);
+                if (fromX != toX || fromY != toY) {
+                    Piece leg = legs.get(prev.getId());
+                    if (leg == null || !leg.joins(fromX, fromY, toX, toY)) {
+                        leg = sampleLeg(fromX, fromY, toX, toY);
+                        sampled++;
+                    }
+                    newLegs.put(prev.getId(), leg);
+                    pieces.add(leg);
+                    pieceItems.add(i);
+                }
+            }
+
+            if (item.getKind() == RouteItem.Kind.PATH && item.size() >= 2) {
+                PathSource source = paths.get(item.getId());
+                if (source == null)
+                    source = new PathSource();
+                if (source.piece == null || source.version != item.getVersion()) {
+                    samplePath(source, item);
+                    sampled++;
+                }
+                newPaths.put(item.getId(), source);
+                // A path whose waypoints all sit in one place is driven like a point
+                if (source.piece.count >= 2) {
+                    pieces.add(source.piece);
+                    pieceItems.add(i);
+                }
+            }
+            prev = item;
+        }
+
+        // Check every junction, and split the pieces into runs at the stops
+        List<Junction> junctions = new ArrayList<>();
+        List<Run> order = new ArrayList<>();
+        Map<Integer, Run> newRuns = new HashMap<>();
+        int profiled = 0;
+        int start = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            if (i + 1 < pieces.size()) {
+                Junction junction = checkJunction(pieces.get(i), pieces.get(i + 1),
+                        pieceItems.get(i), pieceItems.get(i + 1));
+                junctions.add(junction);
+                if (!junction.stop)
+                    continue;
+            }
+
+            if (cancelled.getAsBoolean())
+                return null;
+            Run run = runs.get(pieces.get(start).stamp);
+            if (run == null || !run.matches(pieces, start, i + 1)) {
+                run = profile(pieces.subList(start, i + 1));
+                profiled++;
+            }
+            newRuns.put(run.stamps[0], run);
+            order.add(run);
+            start = i + 1;
+        }
+
+        paths = newPaths;
+        legs = newLegs;
+        runs = newRuns;
+        return new CompiledRoute(true, order.toArray(new Run[0]), junctions, sampled, profiled);
+    }
+
+    /**
+     * Check where two pieces meet.
+     */
+    private static Junction checkJunction(Piece from, Piece to, int fromItem, int toItem) {
+        int end = from.count - 1;
+        double gap = Math.hypot(to.x[0] - from.x[end], to.y[0] - from.y[end]);
+        double turn = Math.IEEEremainder(to.heading[0] - from.heading[end], 2 * Math.PI);
+        boolean stop = gap > POSITION_TOLERANCE || Math.abs(turn) > HEADING_TOLERANCE;
+        return new Junction(to.leg ? fromItem : toItem, from.x[end], from.y[end], gap, turn, stop);
+    }
+
+    private Piece sampleLeg(double fromX, double fromY, double toX, double toY) {
+        double angle = Math.atan2(toY - fromY, toX - fromX);
+        legSpline.setKnotCount(2);
+        legSpline.setSegmentType(0, HermiteSpline.SegmentType.LINE);
+        legSpline.setKnot(0, fromX, fromY, angle, 0.0);
+        legSpline.setKnot(1, toX, toY, angle, 0.0);
+        return sample(legTable, true, fromX, fromY, toX, toY);
+    }
+
+    private void samplePath(PathSource source, RouteItem item) {
+        HermiteSpline spline = source.spline;
+        int count = item.size();
+        spline.setKnotCount(count);
+        for (int seg = 0; seg < count - 1; seg++)
+            spline.setSegmentType(seg, item.getSegmentType());
+        for (int j = 0; j < count; j++) {
+            double angle = Math.toRadians(item.getAngle(j));
+            // Only touch knots that moved, so the table only measures the segments around them again
+            if (spline.getKnotX(j) != item.getX(j) || spline.getKnotY(j) != item.getY(j)
+                    || spline.getKnotAngle(j) != angle || spline.getKnotMag(j) != item.getMag(j))
+                spline.setKnot(j, item.getX(j), item.getY(j), angle, item.getMag(j));
+        }
+        source.piece = sample(source.table, false, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        source.version = item.getVersion();
+    }
+
+    /**
+     * Sample a spline at equal distances into a new piece.
+     */
+    private Piece sample(ArcLengthTable table, boolean leg, double fromX, double fromY, double toX, double toY) {
+        HermiteSpline spline = table.getSpline();
+        table.update();
+        int segments = spline.getSegmentCount();
+        int n = (table.getLength() > 0.0) ? table.getSampleCount(spacing) : 1;
+        Piece piece = new Piece(leg, nextStamp++, n, fromX, fromY, toX, toY);
+
+        // The parameters go in the heading buffer until each sample is evaluated
+        table.sampleParameters(spacing, piece.heading);
+        for (int i = 0; i < n; i++) {
+            double u = piece.heading[i];
+            int seg = ArcLengthTable.segmentOf(u, segments);
+            double t = u - seg;
+            spline.evaluate(seg, t, point);
+            piece.distance[i] = table.getSampleDistance(i, n, spacing);
+            piece.x[i] = point[0];
+            piece.y[i] = point[1];
+            piece.heading[i] = spline.heading(seg, t);
+            piece.curvature[i] = spline.curvature(seg, t);
+            // A tangent of no length has no direction, so face the way the piece goes on
+            if (spline.speed(seg, t) == 0.0 && i > 0)
+                piece.heading[i] = piece.heading[i - 1];
+        }
+        if (n > 1 && spline.speed(0, 0.0) == 0.0)
+            piece.heading[0] = piece.heading[1];
+        return piece;
+    }
+
+    /**
+     * String a run of pieces together and give it a motion profile that starts and ends at rest.
+     */
+    private Run profile(List<Piece> pieces) {
+        Run run = new Run(pieces.toArray(new Piece[0]));
+        double[] curvature = new double[run.count];
+        int k = 0;
+        double offset = 0.0;
+        for (Piece piece : run.pieces) {
+            for (int j = (k == 0) ? 0 : 1; j < piece.count; j++, k++) {
+                run.distance[k] = offset + piece.distance[j];
+                curvature[k] = piece.curvature[j];
+            }
+            offset += piece.getLength();
+        }
+        generator.profile(run.distance, curvature, run.count, limits, drive, run.velocity, run.time);
+        return run;
+    }
+}
@@ -0,0 +1,377 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import edu.rit.vexu.pathcreator.geometry.ArcLengthTable;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tunes the tangents of a path, so the robot drives it more smoothly or more quickly, without moving any waypoint.
+ * <p>
+ * The search is a pattern search. Each round, every tangent magnitude is tried a step larger and a step smaller,
+ * and optionally every angle a step to either side, and the best of these candidates is kept if it beats the path
+ * so far. When none does, the steps are halved, until they're too small to matter. The candidates of a round don't
+ * depend on each other, so they're scored in parallel on a fork-join pool, each worker on its own copy of the path.
+ * <p>
+ * The angles of the first and last waypoints are never changed, since they're the headings the robot starts and
+ * ends with. Magnitudes stay between a fraction and a few times the length of the segments around them.
+ * Every inch a segment strays off the field costs more than anything the goal could gain, so the search never
+ * leaves the field, and a path that starts off it is pulled back on first.
+ * <p>
+ * An optimizer can run one search at a time.
+ */
+public final class TangentOptimizer {
+
+    /**
+     * What the search makes better.
+     */
+    public enum Goal {
+        /** The lowest peak curvature, so the sharpest turn is as gentle as it can be. */
+        SMOOTHEST,
+        /**
+         * The shortest time to drive the path from rest to rest, never turning sharper than the path started.
+         * The drive time alone would pinch turns down to a point, since the robot slows for so short a stretch.
+         */
+        FASTEST
+    }
+
+    /**
+     * Hears about the search as it goes, on the thread running it.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * The search found a better path, or finished a round.
+         *
+         * @param progress How far along the search is, from 0 to 1.
+         * @param cost The cost of the best path so far: the peak curvature in 1/inches, or the drive time in seconds.
+         * @param best A copy of the best path so far.
+         */
+        void progress(double progress, double cost, HermiteSpline best);
+    }
+
+    /** The smallest tangent magnitude tried, in inches. */
+    public static final double MIN_MAG = 1;
+    // The smallest and largest tangent magnitudes tried, as multiples of the shortest and longest segments next to
+    // the waypoint. Much shorter tangents pinch the path into a near-cusp at the waypoint.
+    private static final double MIN_MAG_RATIO = 0.2;
+    private static final double MAX_MAG_RATIO = 3;
+    // Relative change of magnitudes, and change of angles in radians, in the first round and the last
+    private static final double START_STEP = 0.5;
+    private static final double END_STEP = 1e-3;
+    private static final double ANGLE_STEP_RATIO = Math.toRadians(40);
+    private static final int MAX_ROUNDS = 5000;
+    // Cost of each inch a segment reaches off the field
+    private static final double OFF_FIELD_COST = 1000;
+    // For the smoothest goal, how much the average curvature counts next to the peak, so segments away from the
+    // peak still settle
+    private static final double MEAN_WEIGHT = 0.01;
+    private static final int CURVATURE_SAMPLES = 32;
+    // Where a segment stops dead it can turn any way at all, so it counts as the sharpest turn there is. Small
+    // enough that a segment's sum of samples, and the cost, don't overflow
+    private static final double CUSP_CURVATURE = Double.MAX_VALUE / (4 * (CURVATURE_SAMPLES + 1));
+    // Candidates are timed with coarser samples than the editor uses, which is close enough to rank them and about
+    // three times faster
+    private static final double SEARCH_SPACING = 1;
+    // Candidates scored by one fork-join task before it stops splitting
+    private static final int CANDIDATES_PER_TASK = 2;
+
+    // Each pool thread's copy of the path. Workers are shared by every optimizer and hold none of them, so the
+    // pool's threads never keep a finished optimizer alive
+    private static final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    private final Goal goal;
+    private final boolean tuneAngles;
+    private final RobotLimits limits;
+    private final double fieldWidth, fieldHeight;
+
+    // The path so far, and each of its segments' curvature and distance off the field
+    private HermiteSpline current;
+    private double currentCost;
+    // For the fastest goal, the sharpest turn allowed: the sharpest the path started with
+    private double peakLimit;
+    private double[] segmentPeaks, segmentMeans, segmentOff;
+    private final double[] box = new double[4];
+    // The candidates of a round: the waypoint, whether it's the angle, and the new value
+    private int[] candidateKnots;
+    private boolean[] candidateAngles;
+    private double[] candidateValues;
+    private double[] candidateCosts;
+    private int candidateCount;
+
+
+    /**
+     * Create an optimizer.
+     *
+     * @param goal What to make better.
+     * @param tuneAngles Whether to change the angles of the waypoints between the first and last, as well as the
+     *                   magnitudes.
+     * @param limits The limits of the robot, for timing the path.
+     * @param fieldWidth The width of the field in inches, which the path has to stay on.
+     * @param fieldHeight The height of the field in inches.
+     */
+    public TangentOptimizer(Goal goal, boolean tuneAngles, RobotLimits limits, double fieldWidth, double fieldHeight) {
+        this.goal = goal;
+        this.tuneAngles = tuneAngles;
+        this.limits = limits;
+        this.fieldWidth = fieldWidth;
+        this.fieldHeight = fieldHeight;
+    }
+
+    /**
+     * Search for better tangents.
+     *
+     * @param path The path to start from, in inches and radians. It isn't changed.
+     * @param pool The pool to score candidates on.
+     * @param listener Hears about each better path, or null.
+     * @param cancelled Asked between rounds whether to stop early, keeping the best path so far.
+     * @return The best path found, a copy.
+     */
+    public HermiteSpline optimize(HermiteSpline path, ForkJoinPool pool, Listener listener, BooleanSupplier cancelled) {
+        current = new HermiteSpline(path);
+        int knots = current.getKnotCount();
+        if (knots < 2)
+            return new HermiteSpline(current);
+
+        int segments = knots - 1;
+        segmentPeaks = new double[segments];
+        segmentMeans = new double[segments];
+        segmentOff = new double[segments];
+        for (int seg = 0; seg < segments; seg++)
+            measureSegment(current, seg, segmentPeaks, segmentMeans, segmentOff, seg, box);
+        peakLimit = 0;
+        for (double peak : segmentPeaks)
+            peakLimit = Math.max(peakLimit, peak);
+        currentCost = goal == Goal.SMOOTHEST ? combine(null, 0, 0, null, null) : cost(workers.get(), current);
+
+        int capacity = 4 * knots;
+        candidateKnots = new int[capacity];
+        candidateAngles = new boolean[capacity];
+        candidateValues = new double[capacity];
+        candidateCosts = new double[capacity];
+
+        double step = START_STEP;
+        double levels = Math.log(START_STEP / END_STEP);
+        for (int round = 0; round < MAX_ROUNDS && step >= END_STEP && !cancelled.getAsBoolean(); round++) {
+            makeCandidates(step);
+            pool.invoke(new Score(0, candidateCount));
+
+            int best = -1;
+            for (int c = 0; c < candidateCount; c++)
+                if (candidateCosts[c] < currentCost && (best < 0 || candidateCosts[c] < candidateCosts[best]))
+                    best = c;
+            // Ignore gains too small to see, which only come from rounding
+            if (best < 0 || currentCost - candidateCosts[best] <= 1e-9 * Math.abs(currentCost)) {
+                step /= 2;
+            } else {
+                accept(best);
+            }
+            if (listener != null)
+                listener.progress(Math.min(1, Math.log(START_STEP / step) / levels), currentCost, new HermiteSpline(current));
+        }
+        return new HermiteSpline(current);
+    }
+
+    /**
+     * @return The cost of the best path of the last search.
+     */
+    public double getBestCost() {
+        return currentCost;
+    }
+
+    private void makeCandidates(double step) {
+        candidateCount = 0;
+        int knots = current.getKnotCount();
+        for (int k = 0; k < knots; k++) {
+            double mag = current.getKnotMag(k);
+            double shortest = Double.POSITIVE_INFINITY, longest = 0;
+            if (k > 0) {
+                double chord = chord(k - 1);
+                shortest = chord;
+                longest = chord;
+            }
+            if (k < knots - 1) {
+                double chord = chord(k);
+                shortest = Math.min(shortest, chord);
+                longest = Math.max(longest, chord);
+            }
+            double minMag = Math.max(MIN_MAG, MIN_MAG_RATIO * shortest);
+            double maxMag = Math.max(minMag, MAX_MAG_RATIO * longest);
+            // A magnitude already past a bound is only moved toward it
+            addCandidate(k, false, Math.max(mag, Math.min(maxMag, mag * (1 + step))), mag);
+            addCandidate(k, false, Math.min(mag, Math.max(minMag, mag / (1 + step))), mag);
+            if (tuneAngles && k > 0 && k < knots - 1) {
+                double angle = current.getKnotAngle(k);
+                addCandidate(k, true, angle + step * ANGLE_STEP_RATIO, angle);
+                addCandidate(k, true, angle - step * ANGLE_STEP_RATIO, angle);
+            }
+        }
+    }
+
+    private void addCandidate(int knot, boolean angle, double value, double old) {
+        if (value == old)
+            return;
+        candidateKnots[candidateCount] = knot;
+        candidateAngles[candidateCount] = angle;
+        candidateValues[candidateCount] = value;
+        candidateCount++;
+    }
+
+    private void accept(int candidate) {
+        int k = candidateKnots[candidate];
+        current.setKnot(k, current.getKnotX(k), current.getKnotY(k),
+                candidateAngles[candidate] ? candidateValues[candidate] : current.getKnotAngle(k),
+                candidateAngles[candidate] ? current.getKnotMag(k) : candidateValues[candidate]);
+        for (int seg = current.getFirstSegmentTouching(k); seg <= current.getLastSegmentTouching(k); seg++)
+            measureSegment(current, seg, segmentPeaks, segmentMeans, segmentOff, seg, box);
+        currentCost = candidateCosts[candidate];
+    }
+
+    private double chord(int segment) {
+        return Math.hypot(current.getKnotX(segment + 1) - current.getKnotX(segment),
+                current.getKnotY(segment + 1) - current.getKnotY(segment));
+    }
+
+    /**
+     * The smoothest cost of the current path, with some segments swapped for a candidate's.
+     */
+    private double combine(double[] peaks, int firstSegment, int swappedCount, double[] means, double[] off) {
+        double peak = 0, mean = 0, offField = 0;
+        int segments = segmentPeaks.length;
+        for (int seg = 0; seg < segments; seg++) {
+            int i = seg - firstSegment;
+            boolean swapped = i >= 0 && i < swappedCount;
+            peak = Math.max(peak, swapped ? peaks[i] : segmentPeaks[seg]);
+            mean += swapped ? means[i] : segmentMeans[seg];
+            offField += swapped ? off[i] : segmentOff[seg];
+        }
+        return peak + MEAN_WEIGHT * mean / segments + OFF_FIELD_COST * offField;
+    }
+
+    /**
+     * Sample a segment's curvature, and find how far it reaches off the field.
+     */
+    private void measureSegment(HermiteSpline spline, int seg, double[] peaks, double[] means, double[] off, int slot,
+                                double[] box) {
+        double peak = 0, sum = 0;
+        // A line never turns, even one whose ends are in the same place
+        boolean line = spline.getSegmentType(seg) == HermiteSpline.SegmentType.LINE;
+        for (int i = 0; i <= CURVATURE_SAMPLES; i++) {
+            double t = (double) i / CURVATURE_SAMPLES;
+            // The spline gives a curvature of 0 where the speed is 0, so a cusp is caught here instead
+            double k = !line && spline.speed(seg, t) == 0 ? CUSP_CURVATURE : Math.abs(spline.curvature(seg, t));
+            if (!Double.isFinite(k))
+                k = CUSP_CURVATURE;
+            peak = Math.max(peak, k);
+            sum += k;
+        }
+        peaks[slot] = peak;
+        means[slot] = sum / (CURVATURE_SAMPLES + 1);
+        off[slot] = offField(spline, seg, box);
+    }
+
+    /**
+     * How far a segment reaches past the edges of the field, from its exact bounds.
+     */
+    private double offField(HermiteSpline spline, int seg, double[] box) {
+        spline.bounds(seg, box);
+        return Math.max(0, -box[0]) + Math.max(0, box[2] - fieldWidth)
+                + Math.max(0, -box[1]) + Math.max(0, box[3] - fieldHeight);
+    }
+
+    /**
+     * Splits the candidates in half until a few are left, and scores them.
+     */
+    private final class Score extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+
+        Score(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CANDIDATES_PER_TASK) {
+                Worker worker = workers.get();
+                for (int c = from; c < to; c++)
+                    candidateCosts[c] = score(worker, c);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Score(from, mid), new Score(mid, to));
+            }
+        }
+    }
+
+    /**
+     * Score a candidate on a worker's copy of the path. Only the knots the candidate changes, and the knots the
+     * worker's last candidate changed, are set, so the copy's table re-measures a few segments per candidate.
+     */
+    private double score(Worker worker, int candidate) {
+        HermiteSpline spline = worker.spline;
+        worker.copy(current);
+        int k = candidateKnots[candidate];
+        spline.setKnot(k, current.getKnotX(k), current.getKnotY(k),
+                candidateAngles[candidate] ? candidateValues[candidate] : current.getKnotAngle(k),
+                candidateAngles[candidate] ? current.getKnotMag(k) : candidateValues[candidate]);
+
+        // Only the segments around the waypoint changed; the rest are the path's own
+        int first = spline.getFirstSegmentTouching(k), last = spline.getLastSegmentTouching(k);
+        for (int seg = first; seg <= last; seg++)
+            measureSegment(spline, seg, worker.peaks, worker.means, worker.off, seg - first, worker.box);
+        if (goal == Goal.SMOOTHEST)
+            return combine(worker.peaks, first, last - first + 1, worker.means, worker.off);
+        for (int seg = first; seg <= last; seg++)
+            if (worker.peaks[seg - first] > peakLimit)
+                return Double.POSITIVE_INFINITY;
+        return cost(worker, spline);
+    }
+
+    /**
+     * The fastest cost of a path: its drive time, plus how far it strays off the field.
+     */
+    private double cost(Worker worker, HermiteSpline path) {
+        HermiteSpline spline = worker.spline;
+        if (path != spline)
+            worker.copy(path);
+        double offField = 0;
+        for (int seg = 0; seg < spline.getSegmentCount(); seg++)
+            offField += offField(spline, seg, worker.box);
+        worker.table.update();
+        return worker.generator.generate(worker.table, limits, null) + OFF_FIELD_COST * offField;
+    }
+
+    /**
+     * One thread's copy of the path, with the tools to measure it.
+     */
+    private static final class Worker {
+        private final HermiteSpline spline = new HermiteSpline();
+        private final ArcLengthTable table = new ArcLengthTable(spline);
+        private final TrajectoryGenerator generator = new TrajectoryGenerator(SEARCH_SPACING);
+        // A waypoint shapes up to four segments, when the ones around it are quintic
+        private final double[] peaks = new double[4], means = new double[4], off = new double[4];
+        private final double[] box = new double[4];
+
+        /**
+         * Make the copy match a path, only setting the knots that differ.
+         */
+        void copy(HermiteSpline path) {
+            int knots = path.getKnotCount();
+            if (spline.getKnotCount() != knots)
+                spline.setKnotCount(knots);
+            for (int seg = 0; seg < path.getSegmentCount(); seg++)
+                spline.setSegmentType(seg, path.getSegmentType(seg));
+            for (int k = 0; k < knots; k++) {
+                double x = path.getKnotX(k), y = path.getKnotY(k);
+                double angle = path.getKnotAngle(k), mag = path.getKnotMag(k);
+                if (spline.getKnotX(k) != x || spline.getKnotY(k) != y
+                        || spline.getKnotAngle(k) != angle || spline.getKnotMag(k) != mag)
+                    spline.setKnot(k, x, y, angle, mag);
+            }
+        }
+    }
+}
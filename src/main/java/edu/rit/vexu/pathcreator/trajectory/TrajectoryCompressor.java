@@ -0,0 +1,204 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import java.util.Arrays;
+
+/**
+ * Shrinks a sampled trajectory into a {@link CompressedTrajectory}, keeping it within a tolerance.
+ * <p>
+ * Used as the {@link TrajectorySink} of a generated trajectory. {@link #compress()} then drops every sample that
+ * linear interpolation between the samples around it rebuilds closely enough, and stores the rest as fixed-point
+ * values in steps a quarter of the tolerance, so rounding uses up little of it. A sample can be dropped if the
+ * rebuilt position at its time is within the position tolerance, and the rebuilt heading within the heading
+ * tolerance. Straight runs at constant speed compress to their ends; tight turns keep more samples.
+ * <p>
+ * The errors reported by the result are measured on the decoded trajectory against every source sample, and
+ * are never above the tolerances: if rounding pushes a sample past them, the samples are compressed again with
+ * less slack and finer time steps, and if even that fails, compressing throws rather than return a trajectory
+ * outside them. A compressor can be {@link #clear() cleared} and reused, keeping its storage.
+ */
+public final class TrajectoryCompressor implements TrajectorySink {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    // The furthest apart two kept samples can be, so compressing stays linear in the number of samples
+    private static final int MAX_SPAN = 128;
+    // Stored times start out in steps of 10 microseconds, far below the time between samples
+    private static final long TIME_STEP = 10;
+    // Stored velocities are in steps of a thousandth of an inch per second
+    private static final long VELOCITY_STEP = 1000;
+    // If rounding ever pushes a rebuilt sample past the tolerance, try again this many times with less slack and
+    // finer time steps
+    private static final int MAX_ATTEMPTS = 8;
+
+    private final double positionTolerance;
+    private final double headingTolerance;
+
+    // Source samples, with headings unwrapped into degrees
+    private double[] times = new double[DEFAULT_CAPACITY];
+    private double[] xs = new double[DEFAULT_CAPACITY];
+    private double[] ys = new double[DEFAULT_CAPACITY];
+    private double[] headings = new double[DEFAULT_CAPACITY];
+    private double[] velocities = new double[DEFAULT_CAPACITY];
+    private int count = 0;
+
+    private final double[] rebuilt = new double[4];
+
+    /**
+     * Create a compressor.
+     *
+     * @param positionTolerance How far a rebuilt position can be from the source, in inches.
+     * @param headingTolerance How far a rebuilt heading can be from the source, in degrees.
+     */
+    public TrajectoryCompressor(double positionTolerance, double headingTolerance) {
+        if (!(positionTolerance > 0) || !(headingTolerance > 0))
+            throw new IllegalArgumentException("Tolerances must be positive");
+        this.positionTolerance = positionTolerance;
+        this.headingTolerance = headingTolerance;
+    }
+
+    public double getPositionTolerance() {
+        return positionTolerance;
+    }
+
+    public double getHeadingTolerance() {
+        return headingTolerance;
+    }
+
+    /**
+     * Remove every sample, keeping the allocated storage.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * @return The number of samples received since the last clear.
+     */
+    public int getSampleCount() {
+        return count;
+    }
+
+    @Override
+    public void accept(double time, double distance, double x, double y, double heading,
+                       double velocity, double acceleration, double curvature) {
+        ensureCapacity(count + 1);
+        double degrees = Math.toDegrees(heading);
+        if (count > 0) {
+            // Unwrap, so the heading never jumps by a full turn between samples
+            double last = headings[count - 1];
+            degrees += 360.0 * Math.round((last - degrees) / 360.0);
+        }
+        times[count] = time;
+        xs[count] = x;
+        ys[count] = y;
+        headings[count] = degrees;
+        velocities[count] = velocity;
+        count++;
+    }
+
+    /**
+     * Compress the samples received since the last clear.
+     *
+     * @return The compressed trajectory, with its worst errors and sizes.
+     * @throws IllegalStateException If the tolerances can't be met even keeping samples at the finest steps, like
+     *         tolerances near a millionth, or two samples at the same time in different places.
+     */
+    public CompressedTrajectory compress() {
+        double slack = 1.0;
+        long timeStep = TIME_STEP;
+        CompressedTrajectory result = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            result = compress(positionTolerance * slack, headingTolerance * slack, timeStep);
+            if (result.getMaxPositionError() <= positionTolerance && result.getMaxHeadingError() <= headingTolerance)
+                return result;
+            slack *= 0.5;
+            timeStep = Math.max(1, timeStep / 2);
+        }
+        throw new IllegalStateException(String.format("Could not compress within %g inches and %g degrees; "
+                + "the last try was %g inches and %g degrees off", positionTolerance, headingTolerance,
+                result.getMaxPositionError(), result.getMaxHeadingError()));
+    }
+
+    private CompressedTrajectory compress(double positionLimit, double headingLimit, long timeStep) {
+        long positionStep = Math.max(1, (long) (positionLimit / 4 / CompressedTrajectory.MICRO));
+        long headingStep = Math.max(1, (long) (headingLimit / 4 / CompressedTrajectory.MICRO));
+        double positionUnit = positionStep * CompressedTrajectory.MICRO;
+        double headingUnit = headingStep * CompressedTrajectory.MICRO;
+        double timeUnit = timeStep * CompressedTrajectory.MICRO;
+        double velocityUnit = VELOCITY_STEP * CompressedTrajectory.MICRO;
+
+        // Greedily stretch each span from the last kept sample for as long as it rebuilds every sample inside it
+        int[] kept = new int[Math.max(count, 1)];
+        int keptCount = 0;
+        if (count > 0)
+            kept[keptCount++] = 0;
+        int anchor = 0;
+        while (anchor < count - 1) {
+            int end = anchor + 1;
+            while (end + 1 < count && end + 1 - anchor <= MAX_SPAN
+                    && fits(anchor, end + 1, positionLimit, headingLimit, positionUnit, headingUnit, timeUnit))
+                end++;
+            kept[keptCount++] = end;
+            anchor = end;
+        }
+
+        long[] t = new long[keptCount], x = new long[keptCount], y = new long[keptCount];
+        long[] h = new long[keptCount], v = new long[keptCount];
+        for (int k = 0; k < keptCount; k++) {
+            int i = kept[k];
+            t[k] = Math.round(times[i] / timeUnit);
+            x[k] = Math.round(xs[i] / positionUnit);
+            y[k] = Math.round(ys[i] / positionUnit);
+            h[k] = Math.round(headings[i] / headingUnit);
+            v[k] = Math.round(velocities[i] / velocityUnit);
+        }
+        CompressedTrajectory trial = new CompressedTrajectory(timeStep, positionStep, headingStep, VELOCITY_STEP,
+                t, x, y, h, v, keptCount, count, 0.0, 0.0);
+
+        // Measure the result the way the robot will rebuild it
+        double worstPosition = 0.0, worstHeading = 0.0;
+        for (int i = 0; i < count; i++) {
+            trial.sample(times[i], rebuilt);
+            worstPosition = Math.max(worstPosition, Math.hypot(rebuilt[0] - xs[i], rebuilt[1] - ys[i]));
+            worstHeading = Math.max(worstHeading, Math.abs(rebuilt[2] - headings[i]));
+        }
+        return new CompressedTrajectory(timeStep, positionStep, headingStep, VELOCITY_STEP,
+                t, x, y, h, v, keptCount, count, worstPosition, worstHeading);
+    }
+
+    // Whether interpolating between two samples, rounded as they will be stored, rebuilds every sample between
+    private boolean fits(int from, int to, double positionLimit, double headingLimit,
+                         double positionUnit, double headingUnit, double timeUnit) {
+        double t0 = Math.round(times[from] / timeUnit) * timeUnit;
+        double t1 = Math.round(times[to] / timeUnit) * timeUnit;
+        double x0 = Math.round(xs[from] / positionUnit) * positionUnit;
+        double x1 = Math.round(xs[to] / positionUnit) * positionUnit;
+        double y0 = Math.round(ys[from] / positionUnit) * positionUnit;
+        double y1 = Math.round(ys[to] / positionUnit) * positionUnit;
+        double h0 = Math.round(headings[from] / headingUnit) * headingUnit;
+        double h1 = Math.round(headings[to] / headingUnit) * headingUnit;
+
+        for (int i = from + 1; i < to; i++) {
+            double f = (t1 > t0) ? (times[i] - t0) / (t1 - t0) : 0.0;
+            f = Math.max(0.0, Math.min(1.0, f));
+            double dx = CompressedTrajectory.lerp(x0, x1, f) - xs[i];
+            double dy = CompressedTrajectory.lerp(y0, y1, f) - ys[i];
+            if (dx * dx + dy * dy > positionLimit * positionLimit)
+                return false;
+            if (Math.abs(CompressedTrajectory.lerp(h0, h1, f) - headings[i]) > headingLimit)
+                return false;
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int n) {
+        if (times.length >= n)
+            return;
+        int capacity = Math.max(n, times.length * 2);
+        times = Arrays.copyOf(times, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        headings = Arrays.copyOf(headings, capacity);
+        velocities = Arrays.copyOf(velocities, capacity);
+    }
+}
@@ -0,0 +1,253 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import edu.rit.vexu.pathcreator.geometry.ArcLengthTable;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+
+import java.util.Arrays;
+
+/**
+ * Turns a path into a time-stamped motion profile that respects the robot's limits.
+ * <p>
+ * The path is sampled at equal distances, and every sample gets a speed cap from the robot's top speed and
+ * the curvature of the path. A forward pass then limits how fast the robot can speed up from the start, and a
+ * backward pass limits how fast it has to slow down for the next turn or the end. Finally the samples are
+ * streamed to a {@link TrajectorySink} with their time stamps.
+ * <p>
+ * For a tank drive, a {@link DifferentialDrive} can be given as well. Its wheel limits tighten the speed cap of
+ * each sample and the speed change of each step, so both wheels stay within their own limits and not just the
+ * center of the robot. Both are limits on v^2 per step, so the same single forward and backward pass applies.
+ * <p>
+ * The working buffers are primitive arrays that are reused between calls, so regenerating a trajectory after
+ * an edit does not allocate once the buffers are big enough. A generator is not thread safe; use one per thread.
+ */
+public final class TrajectoryGenerator {
+
+    /** Default distance between samples, in inches. */
+    public static final double DEFAULT_SPACING = 0.5;
+
+    private final double spacing;
+
+    // Per sample buffers, valid for the first sampleCount entries after generate()
+    private double[] parameters = new double[0];
+    private double[] distances = new double[0];
+    private double[] curvatures = new double[0];
+    private double[] velocities = new double[0];
+    // The largest change in v^2 from each sample to the next
+    private double[] steps = new double[0];
+    private int sampleCount = 0;
+
+    // Scratch buffer for positions
+    private final double[] point = new double[2];
+
+    /**
+     * Create a generator with the default sample spacing.
+     */
+    public TrajectoryGenerator() {
+        this(DEFAULT_SPACING);
+    }
+
+    /**
+     * Create a generator.
+     *
+     * @param spacing The distance between samples, in inches.
+     */
+    public TrajectoryGenerator(double spacing) {
+        if (!(spacing > 0))
+            throw new IllegalArgumentException("Sample spacing must be positive");
+        this.spacing = spacing;
+    }
+
+    public double getSpacing() {
+        return spacing;
+    }
+
+    /**
+     * Generate a trajectory that starts and ends at rest.
+     *
+     * @param path The arc length table of the path to follow, in inches. It must be up to date with its spline.
+     * @param limits The limits of the robot.
+     * @param sink Receives every sample in order, or null to only compute the total time.
+     * @return The time to drive the whole path, in seconds.
+     */
+    public double generate(ArcLengthTable path, RobotLimits limits, TrajectorySink sink) {
+        return generate(path, limits, null, sink);
+    }
+
+    /**
+     * Generate a trajectory for a tank drive that starts and ends at rest.
+     * Pass a {@link WheelProfile} as the sink to collect the left and right wheel profiles.
+     *
+     * @param path The arc length table of the path to follow, in inches. It must be up to date with its spline.
+     * @param limits The limits of the robot.
+     * @param drive The tank drive whose wheel limits also apply, or null for no wheel limits.
+     * @param sink Receives every sample in order, or null to only compute the total time.
+     * @return The time to drive the whole path, in seconds.
+     */
+    public double generate(ArcLengthTable path, RobotLimits limits, DifferentialDrive drive, TrajectorySink sink) {
+        int n = sample(path);
+        if (n == 0)
+            return 0.0;
+        limitVelocities(n, limits, drive);
+        return stream(path, n, limits.getMaxAcceleration(), sink);
+    }
+
+    /**
+     * Give samples taken elsewhere, like the pieces of a whole route strung together, a motion profile that
+     * starts and ends at rest, the same way {@link #generate} profiles a path.
+     *
+     * @param distances The distance of each sample from the first, in inches, increasing.
+     * @param curvatures The curvature at each sample, in 1 / inches.
+     * @param count The number of samples.
+     * @param limits The limits of the robot.
+     * @param drive The tank drive whose wheel limits also apply, or null for no wheel limits.
+     * @param velocitiesOut Receives the speed at each sample, in inches per second.
+     * @param timesOut Receives the time each sample is reached from the first, in seconds.
+     * @return The time to drive from the first sample to the last, in seconds.
+     */
+    public double profile(double[] distances, double[] curvatures, int count, RobotLimits limits,
+                          DifferentialDrive drive, double[] velocitiesOut, double[] timesOut) {
+        sampleCount = count;
+        if (count == 0)
+            return 0.0;
+        ensureCapacity(count);
+        System.arraycopy(distances, 0, this.distances, 0, count);
+        System.arraycopy(curvatures, 0, this.curvatures, 0, count);
+        limitVelocities(count, limits, drive);
+
+        System.arraycopy(velocities, 0, velocitiesOut, 0, count);
+        timesOut[0] = 0.0;
+        for (int i = 1; i < count; i++)
+            timesOut[i] = timesOut[i - 1] + stepTime(i - 1, limits.getMaxAcceleration());
+        return timesOut[count - 1];
+    }
+
+    /**
+     * @return The number of samples in the last generated trajectory.
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Sample the path at equal distances, filling the parameter, distance and curvature buffers.
+     */
+    private int sample(ArcLengthTable path) {
+        HermiteSpline spline = path.getSpline();
+        int segments = spline.getSegmentCount();
+        if (segments == 0) {
+            sampleCount = 0;
+            return 0;
+        }
+
+        int n = path.getSampleCount(spacing);
+        ensureCapacity(n);
+        path.sampleParameters(spacing, parameters);
+        for (int i = 0; i < n; i++) {
+            int seg = ArcLengthTable.segmentOf(parameters[i], segments);
+            distances[i] = path.getSampleDistance(i, n, spacing);
+            curvatures[i] = spline.curvature(seg, parameters[i] - seg);
+        }
+        sampleCount = n;
+        return n;
+    }
+
+    /**
+     * Fill the velocity buffer with the fastest speed at each sample: one pass over the curvature samples for the
+     * speed caps, then the acceleration passes.
+     */
+    private void limitVelocities(int n, RobotLimits limits, DifferentialDrive drive) {
+        for (int i = 0; i < n; i++) {
+            velocities[i] = limits.getVelocityLimit(curvatures[i]);
+            if (drive != null)
+                velocities[i] = Math.min(velocities[i], drive.getVelocityLimit(curvatures[i]));
+        }
+        limitAcceleration(n, limits.getMaxAcceleration(), drive);
+    }
+
+    /**
+     * One forward and one backward pass over the velocity caps, so no two neighbouring samples need more than
+     * the maximum acceleration to get between them. v^2 changes by at most 2 * a * ds per sample.
+     * <p>
+     * With a drive, the caps are first lowered where the curvature changes, and each step's change in v^2 is
+     * also held to what the wheels allow at those caps. Lowering a speed never breaks a step it already satisfies,
+     * so one pass each way is enough.
+     */
+    private void limitAcceleration(int n, double maxAcceleration, DifferentialDrive drive) {
+        if (drive != null) {
+            for (int i = 0; i < n - 1; i++) {
+                double ds = distances[i + 1] - distances[i];
+                double cap = drive.getCurvatureStepLimit(curvatures[i], curvatures[i + 1], ds);
+                velocities[i] = Math.min(velocities[i], cap);
+                velocities[i + 1] = Math.min(velocities[i + 1], cap);
+            }
+        }
+        for (int i = 0; i < n - 1; i++) {
+            double ds = distances[i + 1] - distances[i];
+            steps[i] = 2 * maxAcceleration * ds;
+            if (drive != null) {
+                double cap = (velocities[i] + velocities[i + 1]) / 2;
+                steps[i] = Math.min(steps[i], drive.getSpeedSquaredStep(curvatures[i], curvatures[i + 1], cap, ds));
+            }
+        }
+
+        velocities[0] = 0.0;
+        velocities[n - 1] = 0.0;
+        for (int i = 1; i < n; i++)
+            velocities[i] = Math.min(velocities[i], Math.sqrt(velocities[i - 1] * velocities[i - 1] + steps[i - 1]));
+        for (int i = n - 2; i >= 0; i--)
+            velocities[i] = Math.min(velocities[i], Math.sqrt(velocities[i + 1] * velocities[i + 1] + steps[i]));
+    }
+
+    /**
+     * Integrate time over the samples and hand them to the sink.
+     */
+    private double stream(ArcLengthTable path, int n, double maxAcceleration, TrajectorySink sink) {
+        HermiteSpline spline = path.getSpline();
+        int segments = spline.getSegmentCount();
+        double time = 0.0;
+
+        for (int i = 0; i < n; i++) {
+            double acceleration = 0.0;
+            if (i < n - 1) {
+                double ds = distances[i + 1] - distances[i];
+                double v0 = velocities[i], v1 = velocities[i + 1];
+                if (ds > 0.0)
+                    acceleration = (v1 * v1 - v0 * v0) / (2 * ds);
+            }
+
+            if (sink != null) {
+                int seg = ArcLengthTable.segmentOf(parameters[i], segments);
+                double t = parameters[i] - seg;
+                spline.evaluate(seg, t, point);
+                sink.accept(time, distances[i], point[0], point[1], spline.heading(seg, t),
+                        velocities[i], acceleration, curvatures[i]);
+            }
+            if (i < n - 1)
+                time += stepTime(i, maxAcceleration);
+        }
+        return time;
+    }
+
+    /**
+     * Between samples the acceleration is constant, so the time for a step is the distance over the average speed.
+     */
+    private double stepTime(int i, double maxAcceleration) {
+        double ds = distances[i + 1] - distances[i];
+        double v0 = velocities[i], v1 = velocities[i + 1];
+        if (!(ds > 0.0))
+            return 0.0;
+        // Starting and ending a step at rest means speeding up for half and slowing down for half
+        return (v0 + v1 > 0.0) ? 2 * ds / (v0 + v1) : 2 * Math.sqrt(ds / maxAcceleration);
+    }
+
+    private void ensureCapacity(int n) {
+        if (parameters.length >= n)
+            return;
+        int capacity = Math.max(n, parameters.length * 2);
+        parameters = Arrays.copyOf(parameters, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        curvatures = Arrays.copyOf(curvatures, capacity);
+        velocities = Arrays.copyOf(velocities, capacity);
+        steps = Arrays.copyOf(steps, capacity);
+    }
+}
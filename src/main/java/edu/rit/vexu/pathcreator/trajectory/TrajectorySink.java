@@ -0,0 +1,24 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+/**
+ * Receives the samples of a trajectory one at a time, in order, as they are generated.
+ * Samples are passed as primitives so a long trajectory never has to exist as objects.
+ */
+@FunctionalInterface
+public interface TrajectorySink {
+
+    /**
+     * Accept one sample of the trajectory.
+     *
+     * @param time Seconds since the start of the trajectory.
+     * @param distance Inches travelled along the path since the start.
+     * @param x The x position in inches.
+     * @param y The y position in inches.
+     * @param heading The direction of travel in radians, bounded by -pi and pi.
+     * @param velocity The speed in inches per second.
+     * @param acceleration The change in speed towards the next sample, in inches per second squared.
+     * @param curvature The signed curvature of the path in 1 / inches.
+     */
+    void accept(double time, double distance, double x, double y, double heading,
+                double velocity, double acceleration, double curvature);
+}
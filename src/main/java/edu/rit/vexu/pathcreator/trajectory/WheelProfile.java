@@ -0,0 +1,129 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import java.util.Arrays;
+
+/**
+ * Collects a trajectory as left and right wheel profiles of a tank drive.
+ * <p>
+ * Used as the {@link TrajectorySink} of a trajectory generated for a {@link DifferentialDrive}; each sample of
+ * the center is converted to wheel positions and velocities in a single pass as it arrives. The results are kept
+ * in parallel primitive arrays, one entry per sample, ready to be written out as tables.
+ * <p>
+ * A profile can be {@link #clear() cleared} and reused, keeping its storage.
+ */
+public final class WheelProfile implements TrajectorySink {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final DifferentialDrive drive;
+
+    private double[] times = new double[DEFAULT_CAPACITY];
+    private double[] leftPositions = new double[DEFAULT_CAPACITY];
+    private double[] leftVelocities = new double[DEFAULT_CAPACITY];
+    private double[] rightPositions = new double[DEFAULT_CAPACITY];
+    private double[] rightVelocities = new double[DEFAULT_CAPACITY];
+    private int count = 0;
+
+    // The previous sample, for integrating the wheel positions
+    private double lastDistance, lastLeftScale, lastRightScale;
+
+    /**
+     * Create an empty profile.
+     *
+     * @param drive The drive the wheel speeds are computed for.
+     */
+    public WheelProfile(DifferentialDrive drive) {
+        this.drive = drive;
+    }
+
+    public DifferentialDrive getDrive() {
+        return drive;
+    }
+
+    /**
+     * Remove every sample, keeping the allocated storage.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    @Override
+    public void accept(double time, double distance, double x, double y, double heading,
+                       double velocity, double acceleration, double curvature) {
+        ensureCapacity(count + 1);
+        double leftScale = drive.getLeftScale(curvature);
+        double rightScale = drive.getRightScale(curvature);
+
+        times[count] = time;
+        leftVelocities[count] = velocity * leftScale;
+        rightVelocities[count] = velocity * rightScale;
+
+        // Each side travels the center distance times its scale; average the scale over the step
+        if (count == 0) {
+            leftPositions[0] = 0.0;
+            rightPositions[0] = 0.0;
+        } else {
+            double ds = distance - lastDistance;
+            leftPositions[count] = leftPositions[count - 1] + ds * 0.5 * (leftScale + lastLeftScale);
+            rightPositions[count] = rightPositions[count - 1] + ds * 0.5 * (rightScale + lastRightScale);
+        }
+
+        lastDistance = distance;
+        lastLeftScale = leftScale;
+        lastRightScale = rightScale;
+        count++;
+    }
+
+    /**
+     * @return The number of samples in the profile.
+     */
+    public int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * @return The time of each sample in seconds.
+     */
+    public double[] getTimes() {
+        return Arrays.copyOf(times, count);
+    }
+
+    /**
+     * @return The distance travelled by the left side at each sample, in inches.
+     */
+    public double[] getLeftPositions() {
+        return Arrays.copyOf(leftPositions, count);
+    }
+
+    /**
+     * @return The speed of the left side at each sample, in inches per second.
+     */
+    public double[] getLeftVelocities() {
+        return Arrays.copyOf(leftVelocities, count);
+    }
+
+    /**
+     * @return The distance travelled by the right side at each sample, in inches.
+     */
+    public double[] getRightPositions() {
+        return Arrays.copyOf(rightPositions, count);
+    }
+
+    /**
+     * @return The speed of the right side at each sample, in inches per second.
+     */
+    public double[] getRightVelocities() {
+        return Arrays.copyOf(rightVelocities, count);
+    }
+
+    private void ensureCapacity(int n) {
+        if (times.length >= n)
+            return;
+        int capacity = Math.max(n, times.length * 2);
+        times = Arrays.copyOf(times, capacity);
+        leftPositions = Arrays.copyOf(leftPositions, capacity);
+        leftVelocities = Arrays.copyOf(leftVelocities, capacity);
+        rightPositions = Arrays.copyOf(rightPositions, capacity);
+        rightVelocities = Arrays.copyOf(rightVelocities, capacity);
+    }
+}
@@ -1,8 +1,14 @@
 module edu.rit.vexu.pathcreator {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.desktop;
 
 
     opens edu.rit.vexu.pathcreator to javafx.fxml;
     exports edu.rit.vexu.pathcreator;
+    exports edu.rit.vexu.pathcreator.cli;
+    exports edu.rit.vexu.pathcreator.geometry;
+    exports edu.rit.vexu.pathcreator.io;
+    exports edu.rit.vexu.pathcreator.model;
+    exports edu.rit.vexu.pathcreator.trajectory;
 }
\ No newline at end of file
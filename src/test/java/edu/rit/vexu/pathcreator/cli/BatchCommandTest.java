@@ -0,0 +1,160 @@
+package edu.rit.vexu.pathcreator.cli;
+
+import edu.rit.vexu.pathcreator.io.CppHeaderExporter;
+import edu.rit.vexu.pathcreator.io.RouteFile;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchCommandTest {
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        out.reset();
+        err.reset();
+        return BatchCommand.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String out() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private String err() {
+        return err.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Route route(double endX) {
+        Route route = new Route(144, 144);
+        RouteItem path = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        path.setSize(2);
+        path.set(0, 20, 20, 0, 40);
+        path.set(1, endX, 60, 90, 40);
+        route.add(path);
+        return route;
+    }
+
+    private Path writeRoute(String name, Route route) throws IOException {
+        Path file = directory.resolve("routes").resolve(name + RouteFile.EXTENSION);
+        Files.createDirectories(file.getParent());
+        RouteFile.write(file, route, null);
+        return file;
+    }
+
+    private static List<Path> headers(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(p -> p.getFileName().toString().endsWith(CppHeaderExporter.EXTENSION))
+                    .map(root::relativize)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void assertUsageError(String message, String... args) {
+        assertEquals(BatchCommand.USAGE_ERROR, run(args), String.join(" ", args));
+        assertTrue(err().startsWith(message), err());
+        assertTrue(err().contains(BatchCommand.USAGE));
+        assertEquals("", out());
+    }
+
+    @Test
+    void usageWithoutADirectory() {
+        assertEquals(BatchCommand.OK, run());
+        assertEquals(BatchCommand.USAGE + System.lineSeparator(), out());
+        assertEquals(BatchCommand.OK, run("routes", "--help"));
+        assertEquals(BatchCommand.USAGE + System.lineSeparator(), out());
+        assertEquals("", err());
+    }
+
+    @Test
+    void badArgumentsAreUsageErrors() {
+        assertUsageError("--threads: not a whole number: 2.5", "--threads", "2.5", "routes");
+        assertUsageError("--threads: not a whole number: two", "--threads", "two", "routes");
+        assertUsageError("--threads must be positive", "--threads", "0", "routes");
+        assertUsageError("--threads must be positive", "--threads", "-3", "routes");
+        assertUsageError("--threads needs a value", "routes", "--threads");
+        assertUsageError("--field takes <width>x<height>", "--field", "144", "routes");
+        assertUsageError("--field must be positive", "--field", "144x0", "routes");
+        assertUsageError("--spacing: not a number: far", "--spacing", "far", "routes");
+        assertUsageError("--max-velocity must be positive", "--max-velocity", "Infinity", "routes");
+        assertUsageError("--compress takes <inches>,<degrees>", "--compress", "0.1", "routes");
+        assertUsageError("Unknown option --fast", "--fast", "routes");
+        assertUsageError("Only one directory can be given", "routes", "more");
+    }
+
+    @Test
+    void outKeepsTheSubdirectories() throws IOException {
+        writeRoute("skills", route(100));
+        writeRoute("left/skills", route(90));
+        writeRoute("left/far/rush", route(80));
+        Path output = directory.resolve("headers");
+
+        assertEquals(BatchCommand.OK, run("--out", output.toString(), "--threads", "2",
+                directory.resolve("routes").toString()));
+        assertEquals(List.of(Path.of("left/far/rush.h"), Path.of("left/skills.h"), Path.of("skills.h")),
+                headers(output));
+        assertTrue(headers(directory.resolve("routes")).isEmpty());
+        assertTrue(Files.readString(output.resolve("left/far/rush.h")).contains("namespace rush {"));
+        assertTrue(out().contains("3 routes, 3 ok, 0 failed"), out());
+        assertTrue(out().contains("on 2 threads"), out());
+        assertEquals("", err());
+    }
+
+    @Test
+    void headersGoNextToRoutesWithoutOut() throws IOException {
+        Path skills = writeRoute("skills", route(100));
+        writeRoute("left/rush", route(90));
+
+        assertEquals(BatchCommand.OK, run(directory.resolve("routes").toString()));
+        assertEquals(List.of(Path.of("left/rush.h"), Path.of("skills.h")), headers(directory.resolve("routes")));
+        assertTrue(out().contains("exported " + skills), out());
+    }
+
+    @Test
+    void invalidRoutesFail() throws IOException {
+        writeRoute("good", route(100));
+        writeRoute("wide", route(130));
+        Path output = directory.resolve("headers");
+
+        // Smaller than the route's field, the second path ends off it
+        assertEquals(BatchCommand.FAILED, run("--field", "120x120", "--out", output.toString(),
+                directory.resolve("routes").toString()));
+        assertEquals(List.of(Path.of("good.h")), headers(output));
+        assertTrue(out().contains("warning: saved for a 144 x 144 field, checking against 120 x 120"), out());
+        assertTrue(out().contains("item 0 waypoint 1: (130.0, 60.0) is off the field"), out());
+        assertTrue(out().contains("2 routes, 1 ok, 1 failed"), out());
+    }
+
+    @Test
+    void validateOnlyWritesNothing() throws IOException {
+        writeRoute("good", route(100));
+        Files.writeString(directory.resolve("routes").resolve("broken" + RouteFile.EXTENSION), "not a route");
+
+        assertEquals(BatchCommand.FAILED, run("--validate-only", directory.resolve("routes").toString()));
+        assertTrue(headers(directory).isEmpty());
+        assertTrue(out().contains("valid    " + directory.resolve("routes").resolve("good" + RouteFile.EXTENSION)),
+                out());
+        assertTrue(out().contains("could not read"), out());
+        assertFalse(out().contains("exported"), out());
+    }
+}
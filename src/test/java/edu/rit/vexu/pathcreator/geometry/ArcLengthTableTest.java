@@ -0,0 +1,113 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ArcLengthTableTest {
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * A full circle of cubic segments, each with the tangents of the usual Bezier circle. With 64 segments it
+     * strays from the circle by far less than the tolerances here.
+     */
+    private static HermiteSpline circle(double cx, double cy, double r, int segments) {
+        HermiteSpline spline = new HermiteSpline();
+        double step = 2 * Math.PI / segments;
+        for (int i = 0; i <= segments; i++) {
+            double angle = i * step;
+            spline.addKnot(cx + r * Math.cos(angle), cy + r * Math.sin(angle), angle + Math.PI / 2,
+                    4 * Math.tan(step / 4) * r);
+        }
+        return spline;
+    }
+
+    @Test
+    void straightLinesHaveTheirChordLength() {
+        // Tangents along the chord keep a cubic straight, and under three chords long it never doubles back
+        for (double mag : new double[] {10, 50, 140}) {
+            HermiteSpline spline = new HermiteSpline();
+            spline.addKnot(10, 20, Math.atan2(40, 30), mag);
+            spline.addKnot(40, 60, Math.atan2(40, 30), mag);
+            spline.addKnot(40 + 30, 60 + 40, Math.atan2(40, 30), mag);
+            ArcLengthTable table = new ArcLengthTable(spline);
+
+            assertEquals(100, table.getLength(), 1e-7, "magnitude " + mag);
+            assertEquals(50, table.getSegmentLength(0), 1e-7, "magnitude " + mag);
+            assertEquals(50, table.getSegmentStart(1), 1e-7, "magnitude " + mag);
+        }
+
+        HermiteSpline line = new HermiteSpline();
+        line.addKnot(0, 0, 1.0, 5);
+        line.addKnot(30, 40, 2.0, 5);
+        line.setSegmentType(0, HermiteSpline.SegmentType.LINE);
+        assertEquals(50, new ArcLengthTable(line).getLength(), EPSILON);
+    }
+
+    @Test
+    void circlesHaveTheirCircumference() {
+        for (double r : new double[] {1, 30, 500}) {
+            ArcLengthTable table = new ArcLengthTable(circle(70, 70, r, 64));
+            assertEquals(2 * Math.PI * r, table.getLength(), 1e-8 * r, "radius " + r);
+            assertEquals(Math.PI * r / 32, table.getSegmentLength(17), 1e-8 * r, "radius " + r);
+        }
+    }
+
+    @Test
+    void parameterAndDistanceAreInverses() {
+        ArcLengthTable table = new ArcLengthTable(circle(70, 70, 30, 64));
+        double length = table.getLength();
+        for (int i = 0; i <= 100; i++) {
+            double s = length * i / 100;
+            assertEquals(s, table.getDistance(table.getParameter(s)), 1e-7, "distance " + s);
+        }
+        assertEquals(0.0, table.getParameter(-5));
+        assertEquals(64.0, table.getParameter(length + 5));
+    }
+
+    @Test
+    void samplesAreEquallySpacedAlongACircle() {
+        double r = 30;
+        ArcLengthTable table = new ArcLengthTable(circle(70, 70, r, 64));
+        double spacing = 0.5;
+        int count = table.getSampleCount(spacing);
+        double[] points = new double[2 * count];
+        assertEquals(count, table.sampleByDistance(spacing, points));
+
+        // Equal arcs have equal chords, and the last sample is back at the start
+        double chord = 2 * r * Math.sin(spacing / (2 * r));
+        for (int i = 1; i < count - 1; i++) {
+            double gap = Math.hypot(points[2 * i] - points[2 * i - 2], points[2 * i + 1] - points[2 * i - 1]);
+            assertEquals(chord, gap, 1e-6, "sample " + i);
+        }
+        assertEquals(points[0], points[2 * count - 2], 1e-9);
+        assertEquals(points[1], points[2 * count - 1], 1e-9);
+    }
+
+    @Test
+    void walkingMatchesSearching() {
+        ArcLengthTable table = new ArcLengthTable(circle(70, 70, 30, 8));
+        for (double spacing : new double[] {0.05, 1, 7, 500}) {
+            int count = table.getSampleCount(spacing);
+            double[] parameters = new double[count];
+            assertEquals(count, table.sampleParameters(spacing, parameters));
+            for (int i = 0; i < count; i++)
+                assertEquals(table.getParameter(table.getSampleDistance(i, count, spacing)), parameters[i], 1e-12,
+                        "spacing " + spacing + ", sample " + i);
+        }
+    }
+
+    @Test
+    void updateOnlyRemeasuresChangedSegments() {
+        HermiteSpline spline = circle(70, 70, 30, 16);
+        ArcLengthTable table = new ArcLengthTable(spline);
+        assertEquals(0, table.update());
+
+        spline.setKnot(5, spline.getKnotX(5) + 1, spline.getKnotY(5), spline.getKnotAngle(5), spline.getKnotMag(5));
+        assertEquals(2, table.update());
+
+        // Measuring from scratch agrees with the updated table
+        assertEquals(new ArcLengthTable(spline).getLength(), table.getLength(), EPSILON);
+    }
+}
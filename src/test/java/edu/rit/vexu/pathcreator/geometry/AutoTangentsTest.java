@@ -0,0 +1,141 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AutoTangentsTest {
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Solve the natural tangent system by building the whole matrix and eliminating with partial pivoting.
+     */
+    private static double[] denseNatural(int n, double[] p, boolean[] fixed, double[] tangent) {
+        double[][] a = new double[n][n + 1];
+        for (int i = 0; i < n; i++) {
+            if (fixed != null && fixed[i]) {
+                a[i][i] = 1;
+                a[i][n] = tangent[i];
+            } else if (i == 0) {
+                a[i][0] = 2;
+                a[i][1] = 1;
+                a[i][n] = 3 * (p[1] - p[0]);
+            } else if (i == n - 1) {
+                a[i][n - 2] = 1;
+                a[i][n - 1] = 2;
+                a[i][n] = 3 * (p[n - 1] - p[n - 2]);
+            } else {
+                a[i][i - 1] = 1;
+                a[i][i] = 4;
+                a[i][i + 1] = 1;
+                a[i][n] = 3 * (p[i + 1] - p[i - 1]);
+            }
+        }
+
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++)
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col]))
+                    pivot = row;
+            double[] swap = a[col];
+            a[col] = a[pivot];
+            a[pivot] = swap;
+            for (int row = 0; row < n; row++) {
+                if (row == col)
+                    continue;
+                double factor = a[row][col] / a[col][col];
+                for (int c = col; c <= n; c++)
+                    a[row][c] -= factor * a[col][c];
+            }
+        }
+        double[] m = new double[n];
+        for (int i = 0; i < n; i++)
+            m[i] = a[i][n] / a[i][i];
+        return m;
+    }
+
+    @Test
+    void naturalMatchesDenseSolve() {
+        Random random = new Random(7);
+        AutoTangents tangents = new AutoTangents();
+        for (int n = 2; n <= 40; n++) {
+            double[] x = new double[n], y = new double[n];
+            double[] tx = new double[n], ty = new double[n];
+            boolean[] fixed = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = 144 * random.nextDouble();
+                y[i] = 144 * random.nextDouble();
+                fixed[i] = random.nextInt(4) == 0;
+                tx[i] = fixed[i] ? 50 * random.nextGaussian() : Double.NaN;
+                ty[i] = fixed[i] ? 50 * random.nextGaussian() : Double.NaN;
+            }
+            boolean[] keep = (n % 2 == 0) ? fixed : null;
+            double[] expectedX = denseNatural(n, x, keep, tx);
+            double[] expectedY = denseNatural(n, y, keep, ty);
+
+            tangents.fill(AutoTangents.Mode.NATURAL, 0, n, x, y, keep, tx, ty);
+
+            for (int i = 0; i < n; i++) {
+                assertEquals(expectedX[i], tx[i], EPSILON * (1 + Math.abs(expectedX[i])), n + " waypoints, x " + i);
+                assertEquals(expectedY[i], ty[i], EPSILON * (1 + Math.abs(expectedY[i])), n + " waypoints, y " + i);
+            }
+        }
+    }
+
+    @Test
+    void naturalCurvatureIsContinuous() {
+        double[] x = {10, 40, 60, 100, 130}, y = {20, 70, 30, 60, 10};
+        int n = x.length;
+        double[] tx = new double[n], ty = new double[n];
+        new AutoTangents().fill(AutoTangents.Mode.NATURAL, 0, n, x, y, null, tx, ty);
+
+        HermiteSpline spline = new HermiteSpline();
+        for (int i = 0; i < n; i++)
+            spline.addKnot(x[i], y[i], Math.atan2(ty[i], tx[i]), Math.hypot(tx[i], ty[i]));
+        for (int seg = 0; seg + 1 < spline.getSegmentCount(); seg++)
+            assertEquals(spline.curvature(seg, 1.0), spline.curvature(seg + 1, 0.0), 1e-9, "at knot " + (seg + 1));
+        // No curvature at the free ends
+        assertEquals(0.0, spline.curvature(0, 0.0), 1e-12);
+        assertEquals(0.0, spline.curvature(n - 2, 1.0), 1e-12);
+    }
+
+    @Test
+    void cardinalScalesCatmullRom() {
+        double[] x = {0, 10, 30, 60}, y = {0, 20, 20, 0};
+        double[] tx = new double[4], ty = new double[4];
+        AutoTangents tangents = new AutoTangents();
+
+        tangents.fill(AutoTangents.Mode.CATMULL_ROM, 0.7, 4, x, y, null, tx, ty);
+        assertEquals(10, tx[0], EPSILON);
+        assertEquals(20, ty[0], EPSILON);
+        assertEquals(15, tx[1], EPSILON);
+        assertEquals(10, ty[1], EPSILON);
+        assertEquals(30, tx[3], EPSILON);
+        assertEquals(-20, ty[3], EPSILON);
+
+        tangents.fill(AutoTangents.Mode.CARDINAL, 0.5, 4, x, y, null, tx, ty);
+        assertEquals(7.5, tx[1], EPSILON);
+        assertEquals(5, ty[1], EPSILON);
+
+        tangents.fill(AutoTangents.Mode.CARDINAL, 1, 4, x, y, null, tx, ty);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, tx[i], EPSILON);
+            assertEquals(0, ty[i], EPSILON);
+        }
+    }
+
+    @Test
+    void fixedTangentsAreKept() {
+        double[] x = {0, 10, 30, 60}, y = {0, 20, 20, 0};
+        double[] tx = {0, 3, 0, 0}, ty = {0, -4, 0, 0};
+        boolean[] fixed = {false, true, false, false};
+        for (AutoTangents.Mode mode : AutoTangents.Mode.values()) {
+            new AutoTangents().fill(mode, 0.3, 4, x, y, fixed, tx, ty);
+            assertEquals(3, tx[1]);
+            assertEquals(-4, ty[1]);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoxTreeTest {
+
+    private static double[] randomBoxes(Random random, int count) {
+        double[] boxes = new double[count * 4];
+        for (int i = 0; i < count; i++) {
+            double x = 100 * random.nextDouble(), y = 100 * random.nextDouble();
+            boxes[4 * i] = x;
+            boxes[4 * i + 1] = y;
+            boxes[4 * i + 2] = x + 8 * random.nextDouble();
+            boxes[4 * i + 3] = y + 8 * random.nextDouble();
+        }
+        // One empty box, which overlaps nothing
+        boxes[0] = boxes[1] = Double.POSITIVE_INFINITY;
+        boxes[2] = boxes[3] = Double.NEGATIVE_INFINITY;
+        return boxes;
+    }
+
+    private static boolean overlap(double[] a, int i, double[] b, int j) {
+        return a[4 * i] <= b[4 * j + 2] && b[4 * j] <= a[4 * i + 2]
+                && a[4 * i + 1] <= b[4 * j + 3] && b[4 * j + 1] <= a[4 * i + 3];
+    }
+
+    private static TreeSet<Long> brutePairs(double[] a, int countA, double[] b, int countB, boolean same) {
+        TreeSet<Long> pairs = new TreeSet<>();
+        for (int i = 0; i < countA; i++)
+            for (int j = same ? i + 1 : 0; j < countB; j++)
+                if (overlap(a, i, b, j))
+                    pairs.add((long) i << 32 | j);
+        return pairs;
+    }
+
+    private static TreeSet<Long> treePairs(BoxTree tree) {
+        TreeSet<Long> pairs = new TreeSet<>();
+        tree.overlappingPairs((a, b) -> assertTrue(pairs.add((long) Math.min(a, b) << 32 | Math.max(a, b)),
+                "pair " + a + ", " + b + " given twice"));
+        return pairs;
+    }
+
+    @Test
+    void queryMatchesBruteForce() {
+        Random random = new Random(20);
+        double[] boxes = randomBoxes(random, 300);
+        BoxTree tree = new BoxTree();
+        tree.build(300, boxes);
+        assertEquals(300, tree.size());
+
+        double[] rect = new double[4];
+        for (int q = 0; q < 100; q++) {
+            double x = 110 * random.nextDouble() - 5, y = 110 * random.nextDouble() - 5;
+            rect[0] = x;
+            rect[1] = y;
+            rect[2] = x + 20 * random.nextDouble();
+            rect[3] = y + 20 * random.nextDouble();
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < 300; i++)
+                if (overlap(boxes, i, rect, 0))
+                    expected.add(i);
+            TreeSet<Integer> found = new TreeSet<>();
+            tree.query(rect[0], rect[1], rect[2], rect[3], id -> assertTrue(found.add(id)));
+            assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    void pairsMatchBruteForceAfterRefits() {
+        Random random = new Random(21);
+        double[] boxes = randomBoxes(random, 200);
+        BoxTree tree = new BoxTree();
+        tree.build(200, boxes);
+        assertEquals(brutePairs(boxes, 200, boxes, 200, true), treePairs(tree));
+
+        // Move boxes far and near, and empty one, without rebuilding
+        for (int i = 0; i < 60; i++) {
+            int id = random.nextInt(200);
+            double x = 100 * random.nextDouble(), y = 100 * random.nextDouble();
+            boxes[4 * id] = x;
+            boxes[4 * id + 1] = y;
+            boxes[4 * id + 2] = x + 10 * random.nextDouble();
+            boxes[4 * id + 3] = y + 10 * random.nextDouble();
+            if (i == 30) {
+                boxes[4 * id] = boxes[4 * id + 1] = Double.POSITIVE_INFINITY;
+                boxes[4 * id + 2] = boxes[4 * id + 3] = Double.NEGATIVE_INFINITY;
+            }
+            tree.refit(id, boxes[4 * id], boxes[4 * id + 1], boxes[4 * id + 2], boxes[4 * id + 3]);
+        }
+        assertEquals(brutePairs(boxes, 200, boxes, 200, true), treePairs(tree));
+    }
+
+    @Test
+    void pairsBetweenTreesMatchBruteForce() {
+        Random random = new Random(22);
+        double[] a = randomBoxes(random, 150), b = randomBoxes(random, 90);
+        BoxTree treeA = new BoxTree(), treeB = new BoxTree();
+        treeA.build(150, a);
+        treeB.build(90, b);
+
+        TreeSet<Long> found = new TreeSet<>();
+        treeA.overlappingPairs(treeB, (i, j) -> assertTrue(found.add((long) i << 32 | j)));
+        assertEquals(brutePairs(a, 150, b, 90, false), found);
+
+        // Touching edges count as overlapping, and an empty tree overlaps nothing
+        BoxTree single = new BoxTree();
+        single.build(2, new double[] {0, 0, 1, 1, 1, 1, 2, 2});
+        assertEquals(1, treePairs(single).size());
+        BoxTree empty = new BoxTree();
+        empty.build(0, new double[0]);
+        treeA.overlappingPairs(empty, (i, j) -> { throw new AssertionError(); });
+        empty.query(0, 0, 100, 100, id -> { throw new AssertionError(); });
+    }
+}
@@ -0,0 +1,117 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CurveIntersectorTest {
+
+    // Crossings are found to about the flatness, in parameter and position
+    private static final double TOLERANCE = 10 * CurveIntersector.FLATNESS;
+
+    // x = t, y = 3t(1 - t)(1 - 2t) over a unit of x, crossing zero at t = 0, 1/2 and 1
+    private static final double[] WAVE = {0, 0, 1.0 / 3, 1, 2.0 / 3, -1, 1, 0};
+
+    private static double waveY(double t) {
+        return 3 * t * (1 - t) * (1 - 2 * t);
+    }
+
+    // Where the wave is at a height, by bisection between two parameters on either side of it
+    private static double waveRoot(double c, double lo, double hi) {
+        boolean rising = waveY(lo) < c;
+        for (int i = 0; i < 100; i++) {
+            double mid = 0.5 * (lo + hi);
+            if ((waveY(mid) < c) == rising)
+                lo = mid;
+            else
+                hi = mid;
+        }
+        return 0.5 * (lo + hi);
+    }
+
+    private static List<double[]> intersect(double[] a, double[] b) {
+        List<double[]> hits = new ArrayList<>();
+        int count = new CurveIntersector().intersect(a, 0, b, 0, (t, s, x, y) -> hits.add(new double[] {t, s, x, y}));
+        assertEquals(count, hits.size());
+        return hits;
+    }
+
+    @Test
+    void straightLinesCrossOnce() {
+        double[] a = new double[8], b = new double[8];
+        CurveIntersector.line(0, 0, 100, 100, a, 0);
+        CurveIntersector.line(0, 80, 80, 0, b, 0);
+        List<double[]> hits = intersect(a, b);
+        assertEquals(1, hits.size());
+        assertEquals(0.4, hits.get(0)[0], TOLERANCE / 100);
+        assertEquals(0.5, hits.get(0)[1], TOLERANCE / 100);
+        assertEquals(40, hits.get(0)[2], TOLERANCE);
+        assertEquals(40, hits.get(0)[3], TOLERANCE);
+
+        CurveIntersector.line(0, 10, 100, 110, b, 0);
+        assertTrue(intersect(a, b).isEmpty());
+    }
+
+    @Test
+    void curveCrossesALineAtEachRoot() {
+        double[] line = new double[8];
+        for (double c : new double[] {0.1, -0.2}) {
+            CurveIntersector.line(-1, c, 2, c, line, 0);
+            List<double[]> hits = intersect(WAVE, line);
+            hits.sort((p, q) -> Double.compare(p[0], q[0]));
+
+            // The wave peaks at t = 1/2 -+ sqrt(3) / 6, so each height is crossed on either side of a peak
+            double peak = c > 0 ? 0.5 - Math.sqrt(3) / 6 : 0.5 + Math.sqrt(3) / 6;
+            double[] roots = c > 0
+                    ? new double[] {waveRoot(c, 0, peak), waveRoot(c, peak, 0.5)}
+                    : new double[] {waveRoot(c, 0.5, peak), waveRoot(c, peak, 1)};
+            assertEquals(2, hits.size(), "height " + c);
+            for (int i = 0; i < 2; i++) {
+                assertEquals(roots[i], hits.get(i)[0], TOLERANCE, "height " + c);
+                assertEquals(roots[i], hits.get(i)[2], TOLERANCE, "height " + c);
+                assertEquals(c, hits.get(i)[3], TOLERANCE, "height " + c);
+                assertEquals((roots[i] + 1) / 3, hits.get(i)[1], TOLERANCE, "height " + c);
+            }
+        }
+    }
+
+    @Test
+    void curvesCrossingThreeTimes() {
+        // The wave and its mirror image cross where the wave is zero
+        double[] mirror = {0, 0, 1.0 / 3, -1, 2.0 / 3, 1, 1, 0};
+        List<double[]> hits = intersect(WAVE, mirror);
+        hits.sort((p, q) -> Double.compare(p[0], q[0]));
+        assertEquals(3, hits.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i / 2.0, hits.get(i)[0], TOLERANCE);
+            assertEquals(i / 2.0, hits.get(i)[1], TOLERANCE);
+            assertEquals(0, hits.get(i)[3], TOLERANCE);
+        }
+    }
+
+    @Test
+    void rectanglesOnAndOffTheCurve() {
+        CurveIntersector intersector = new CurveIntersector();
+        // The curve passes through without either end inside
+        assertTrue(intersector.intersectsRect(WAVE, 0, 0.45, -0.05, 0.55, 0.05));
+        assertTrue(intersector.intersectsRect(WAVE, 0, 0.15, 0.2, 0.25, 0.4));
+        // Inside the control points' box and hull, but clear of the curve
+        assertFalse(intersector.intersectsRect(WAVE, 0, 0.45, 0.2, 0.55, 0.3));
+        assertFalse(intersector.intersectsRect(WAVE, 0, 0.1, -0.4, 0.3, -0.1));
+        // Holding an end, or all of it
+        assertTrue(intersector.intersectsRect(WAVE, 0, 0.99, -0.01, 1.5, 0.01));
+        assertTrue(intersector.intersectsRect(WAVE, 0, -1, -1, 2, 2));
+
+        double[] bounds = new double[4];
+        CurveIntersector.bounds(WAVE, 0, bounds, 0);
+        assertEquals(0, bounds[0]);
+        assertEquals(-1, bounds[1]);
+        assertEquals(1, bounds[2]);
+        assertEquals(1, bounds[3]);
+    }
+}
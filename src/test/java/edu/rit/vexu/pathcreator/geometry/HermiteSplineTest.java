@@ -0,0 +1,148 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HermiteSplineTest {
+
+    private static final double EPSILON = 1e-9;
+
+    private static HermiteSpline sample(HermiteSpline.SegmentType type) {
+        HermiteSpline spline = new HermiteSpline();
+        spline.addKnot(10, 20, 0.3, 40);
+        spline.addKnot(60, 70, -1.2, 25);
+        spline.addKnot(100, 30, 2.0, 60);
+        spline.addKnot(130, 90, 0.8, 35);
+        for (int seg = 0; seg < spline.getSegmentCount(); seg++)
+            spline.setSegmentType(seg, type);
+        return spline;
+    }
+
+    @Test
+    void cubicMatchesHermiteBasis() {
+        HermiteSpline spline = sample(HermiteSpline.SegmentType.CUBIC);
+        double[] out = new double[2];
+        for (int seg = 0; seg < spline.getSegmentCount(); seg++) {
+            double x0 = spline.getKnotX(seg), y0 = spline.getKnotY(seg);
+            double x1 = spline.getKnotX(seg + 1), y1 = spline.getKnotY(seg + 1);
+            double mx0 = spline.getKnotMag(seg) * Math.cos(spline.getKnotAngle(seg));
+            double my0 = spline.getKnotMag(seg) * Math.sin(spline.getKnotAngle(seg));
+            double mx1 = spline.getKnotMag(seg + 1) * Math.cos(spline.getKnotAngle(seg + 1));
+            double my1 = spline.getKnotMag(seg + 1) * Math.sin(spline.getKnotAngle(seg + 1));
+            for (int i = 0; i <= 10; i++) {
+                double t = i / 10.0;
+                double h00 = 2 * t * t * t - 3 * t * t + 1, h10 = t * t * t - 2 * t * t + t;
+                double h01 = -2 * t * t * t + 3 * t * t, h11 = t * t * t - t * t;
+                spline.evaluate(seg, t, out);
+                assertEquals(h00 * x0 + h10 * mx0 + h01 * x1 + h11 * mx1, out[0], EPSILON, "segment " + seg + ", t " + t);
+                assertEquals(h00 * y0 + h10 * my0 + h01 * y1 + h11 * my1, out[1], EPSILON, "segment " + seg + ", t " + t);
+            }
+
+            spline.derivative(seg, 0, out);
+            assertEquals(mx0, out[0], EPSILON);
+            assertEquals(my0, out[1], EPSILON);
+            spline.derivative(seg, 1, out);
+            assertEquals(mx1, out[0], EPSILON);
+            assertEquals(my1, out[1], EPSILON);
+        }
+    }
+
+    @Test
+    void cubicControlPointsAreTheBezierForm() {
+        HermiteSpline spline = sample(HermiteSpline.SegmentType.CUBIC);
+        double[] points = new double[8];
+        spline.getControlPoints(1, points);
+        double mx0 = 25 * Math.cos(-1.2), my0 = 25 * Math.sin(-1.2);
+        double mx1 = 60 * Math.cos(2.0), my1 = 60 * Math.sin(2.0);
+        double[] expected = {60, 70, 60 + mx0 / 3, 70 + my0 / 3, 100 - mx1 / 3, 30 - my1 / 3, 100, 30};
+        for (int i = 0; i < 8; i++)
+            assertEquals(expected[i], points[i], EPSILON, "coordinate " + i);
+    }
+
+    @Test
+    void everyTypePassesThroughItsKnots() {
+        double[] out = new double[2];
+        for (HermiteSpline.SegmentType type : HermiteSpline.SegmentType.values()) {
+            HermiteSpline spline = sample(type);
+            for (int seg = 0; seg < spline.getSegmentCount(); seg++) {
+                spline.evaluate(seg, 0, out);
+                assertEquals(spline.getKnotX(seg), out[0], EPSILON, type + " segment " + seg);
+                assertEquals(spline.getKnotY(seg), out[1], EPSILON, type + " segment " + seg);
+                spline.evaluate(seg, 1, out);
+                assertEquals(spline.getKnotX(seg + 1), out[0], EPSILON, type + " segment " + seg);
+                assertEquals(spline.getKnotY(seg + 1), out[1], EPSILON, type + " segment " + seg);
+            }
+        }
+    }
+
+    @Test
+    void linesIgnoreTangents() {
+        HermiteSpline spline = sample(HermiteSpline.SegmentType.LINE);
+        double[] out = new double[2];
+        for (int seg = 0; seg < spline.getSegmentCount(); seg++) {
+            double dx = spline.getKnotX(seg + 1) - spline.getKnotX(seg);
+            double dy = spline.getKnotY(seg + 1) - spline.getKnotY(seg);
+            for (int i = 0; i <= 10; i++) {
+                double t = i / 10.0;
+                spline.evaluate(seg, t, out);
+                assertEquals(spline.getKnotX(seg) + t * dx, out[0], EPSILON, "segment " + seg + ", t " + t);
+                assertEquals(spline.getKnotY(seg) + t * dy, out[1], EPSILON, "segment " + seg + ", t " + t);
+                assertEquals(Math.hypot(dx, dy), spline.speed(seg, t), EPSILON, "segment " + seg + ", t " + t);
+                assertEquals(0.0, spline.curvature(seg, t), EPSILON, "segment " + seg + ", t " + t);
+            }
+        }
+    }
+
+    @Test
+    void quinticKeepsTangentsAndAveragesCubicCurvature() {
+        HermiteSpline cubic = sample(HermiteSpline.SegmentType.CUBIC);
+        HermiteSpline spline = sample(HermiteSpline.SegmentType.QUINTIC);
+        double[] out = new double[2], before = new double[2], after = new double[2];
+        for (int seg = 0; seg < spline.getSegmentCount(); seg++) {
+            spline.derivative(seg, 0, out);
+            assertEquals(spline.getKnotMag(seg) * Math.cos(spline.getKnotAngle(seg)), out[0], EPSILON);
+            assertEquals(spline.getKnotMag(seg) * Math.sin(spline.getKnotAngle(seg)), out[1], EPSILON);
+            spline.derivative(seg, 1, out);
+            assertEquals(spline.getKnotMag(seg + 1) * Math.cos(spline.getKnotAngle(seg + 1)), out[0], EPSILON);
+            assertEquals(spline.getKnotMag(seg + 1) * Math.sin(spline.getKnotAngle(seg + 1)), out[1], EPSILON);
+        }
+
+        // Inside, each knot gets the average of the second derivatives of the cubic segments on either side
+        for (int knot = 1; knot + 1 < spline.getKnotCount(); knot++) {
+            cubic.secondDerivative(knot - 1, 1, before);
+            cubic.secondDerivative(knot, 0, after);
+            spline.secondDerivative(knot - 1, 1, out);
+            assertEquals((before[0] + after[0]) / 2, out[0], 1e-8, "knot " + knot);
+            assertEquals((before[1] + after[1]) / 2, out[1], 1e-8, "knot " + knot);
+            spline.secondDerivative(knot, 0, out);
+            assertEquals((before[0] + after[0]) / 2, out[0], 1e-8, "knot " + knot);
+            assertEquals((before[1] + after[1]) / 2, out[1], 1e-8, "knot " + knot);
+            assertEquals(spline.curvature(knot - 1, 1), spline.curvature(knot, 0), 1e-9, "knot " + knot);
+        }
+
+        // At the ends there is only the one cubic segment to follow
+        cubic.secondDerivative(0, 0, before);
+        spline.secondDerivative(0, 0, out);
+        assertEquals(before[0], out[0], 1e-8);
+        assertEquals(before[1], out[1], 1e-8);
+    }
+
+    @Test
+    void setKnotUpdatesOnlyTouchingSegments() {
+        HermiteSpline spline = sample(HermiteSpline.SegmentType.CUBIC);
+        int[] stamps = new int[spline.getSegmentCount()];
+        for (int seg = 0; seg < stamps.length; seg++)
+            stamps[seg] = spline.getSegmentStamp(seg);
+
+        spline.setKnot(1, 65, 75, -1.0, 30);
+        double[] out = new double[2];
+        spline.evaluate(0, 1, out);
+        assertEquals(65, out[0], EPSILON);
+        assertEquals(75, out[1], EPSILON);
+        for (int seg = 0; seg < stamps.length; seg++) {
+            boolean touched = seg >= spline.getFirstSegmentTouching(1) && seg <= spline.getLastSegmentTouching(1);
+            assertEquals(!touched, stamps[seg] == spline.getSegmentStamp(seg), "segment " + seg);
+        }
+    }
+}
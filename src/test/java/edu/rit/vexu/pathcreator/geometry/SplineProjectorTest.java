@@ -0,0 +1,148 @@
+package edu.rit.vexu.pathcreator.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SplineProjectorTest {
+
+    private static final double EPSILON = 1e-6;
+    private static final int BRUTE_SAMPLES = 4000;
+
+    /**
+     * The closest distance by sampling every segment densely, then narrowing in around the closest sample.
+     */
+    private static double bruteForce(HermiteSpline spline, double x, double y) {
+        double[] p = new double[2];
+        double best = Double.POSITIVE_INFINITY;
+        int bestSegment = 0;
+        double bestT = 0;
+        for (int seg = 0; seg < spline.getSegmentCount(); seg++) {
+            for (int i = 0; i <= BRUTE_SAMPLES; i++) {
+                double t = (double) i / BRUTE_SAMPLES;
+                spline.evaluate(seg, t, p);
+                double d = Math.hypot(p[0] - x, p[1] - y);
+                if (d < best) {
+                    best = d;
+                    bestSegment = seg;
+                    bestT = t;
+                }
+            }
+        }
+        double lo = Math.max(0, bestT - 1.0 / BRUTE_SAMPLES), hi = Math.min(1, bestT + 1.0 / BRUTE_SAMPLES);
+        for (int i = 0; i < 200; i++) {
+            double a = lo + (hi - lo) / 3, b = hi - (hi - lo) / 3;
+            spline.evaluate(bestSegment, a, p);
+            double da = Math.hypot(p[0] - x, p[1] - y);
+            spline.evaluate(bestSegment, b, p);
+            double db = Math.hypot(p[0] - x, p[1] - y);
+            if (da < db)
+                hi = b;
+            else
+                lo = a;
+            best = Math.min(best, Math.min(da, db));
+        }
+        return best;
+    }
+
+    // The reported point is where the spline is at the reported parameter, at the reported distance
+    private static void assertConsistent(HermiteSpline spline, ArcLengthTable table, double x, double y,
+                                         SplineProjector.Projection projection) {
+        double[] p = new double[2];
+        spline.evaluate(projection.getSegment(), projection.getT(), p);
+        assertEquals(p[0], projection.getX(), 1e-9);
+        assertEquals(p[1], projection.getY(), 1e-9);
+        assertEquals(Math.hypot(p[0] - x, p[1] - y), projection.getDistance(), 1e-9);
+        assertEquals(projection.getSegment() + projection.getT(), projection.getParameter(), 1e-12);
+        assertEquals(table.getDistance(projection.getSegment(), projection.getT()), projection.getArcLength(), 1e-9);
+    }
+
+    @Test
+    void matchesBruteForceOnEverySegmentType() {
+        HermiteSpline spline = new HermiteSpline();
+        spline.addKnot(10, 10, 0.2, 120);
+        spline.addKnot(60, 80, 2.5, 150);
+        spline.addKnot(20, 120, -0.4, 90);
+        spline.addKnot(110, 100, -1.4, 200);
+        spline.addKnot(130, 20, 3.0, 60);
+        spline.addKnot(70, 40, 1.0, 40);
+        spline.setSegmentType(1, HermiteSpline.SegmentType.QUINTIC);
+        spline.setSegmentType(2, HermiteSpline.SegmentType.QUINTIC);
+        spline.setSegmentType(4, HermiteSpline.SegmentType.LINE);
+        ArcLengthTable table = new ArcLengthTable(spline);
+        SplineProjector projector = new SplineProjector(table);
+
+        Random random = new Random(19);
+        SplineProjector.Projection projection = new SplineProjector.Projection();
+        for (int i = 0; i < 300; i++) {
+            double x = -20 + 180 * random.nextDouble(), y = -20 + 180 * random.nextDouble();
+            assertTrue(projector.project(x, y, projection));
+            assertEquals(bruteForce(spline, x, y), projection.getDistance(), EPSILON, "at " + x + ", " + y);
+            assertConsistent(spline, table, x, y, projection);
+        }
+    }
+
+    @Test
+    void findsTheCusp() {
+        // x = 100 (t - 1/2)^3, y = 100 (t - 1/2)^2 stops and turns back at the origin, half way along
+        HermiteSpline spline = new HermiteSpline();
+        spline.addKnot(-12.5, 25, Math.atan2(-100, 75), 125);
+        spline.addKnot(12.5, 25, Math.atan2(100, 75), 125);
+        ArcLengthTable table = new ArcLengthTable(spline);
+        SplineProjector projector = new SplineProjector(table);
+        SplineProjector.Projection projection = new SplineProjector.Projection();
+
+        double[] p = new double[2];
+        spline.evaluate(0, 0.5, p);
+        assertEquals(0, p[0], 1e-12);
+        assertEquals(0, p[1], 1e-12);
+
+        for (double y : new double[] {-0.001, -1, -5, -40}) {
+            assertTrue(projector.project(0, y, projection));
+            assertEquals(0.5, projection.getT(), 1e-6, "below by " + -y);
+            assertEquals(-y, projection.getDistance(), EPSILON, "below by " + -y);
+        }
+        for (double y : new double[] {0.5, 3, 20}) {
+            assertTrue(projector.project(0.1, y, projection));
+            assertEquals(bruteForce(spline, 0.1, y), projection.getDistance(), EPSILON, "above by " + y);
+            assertConsistent(spline, table, 0.1, y, projection);
+        }
+    }
+
+    @Test
+    void findsSegmentEnds() {
+        // Two straight segments meeting in a corner at (50, 50), with no speed at their ends
+        HermiteSpline spline = new HermiteSpline();
+        spline.addKnot(0, 0, 0, 0);
+        spline.addKnot(50, 50, 0, 0);
+        spline.addKnot(100, 0, 0, 0);
+        ArcLengthTable table = new ArcLengthTable(spline);
+        SplineProjector projector = new SplineProjector(table);
+        SplineProjector.Projection projection = new SplineProjector.Projection();
+
+        // Past either end of the spline
+        assertTrue(projector.project(-10, -20, projection));
+        assertEquals(0.0, projection.getParameter(), 1e-6);
+        assertEquals(Math.hypot(10, 20), projection.getDistance(), EPSILON);
+        assertTrue(projector.project(120, -5, projection));
+        assertEquals(2.0, projection.getParameter(), 1e-6);
+        assertEquals(Math.hypot(20, 5), projection.getDistance(), EPSILON);
+        assertEquals(table.getLength(), projection.getArcLength(), 1e-6);
+
+        // Outside the corner, the shared knot is closest
+        assertTrue(projector.project(50, 70, projection));
+        assertEquals(1.0, projection.getParameter(), 1e-6);
+        assertEquals(20, projection.getDistance(), EPSILON);
+        assertConsistent(spline, table, 50, 70, projection);
+
+        // Searching only part of the spline, or only close by
+        assertTrue(projector.projectWithin(50, 70, 0, 0.5, projection));
+        assertEquals(0.5, projection.getParameter(), 1e-6);
+        assertFalse(projector.project(50, 70, 19, projection));
+        assertTrue(projector.project(50, 70, 21, projection));
+    }
+}
@@ -0,0 +1,142 @@
+package edu.rit.vexu.pathcreator.io;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import edu.rit.vexu.pathcreator.trajectory.RobotLimits;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CppHeaderExporterTest {
+
+    @TempDir
+    Path directory;
+
+    private static RouteItem point(double x, double y) {
+        RouteItem item = new RouteItem(RouteItem.Kind.POINT, 144, 144);
+        item.setSize(1);
+        item.set(0, x, y, Double.NaN, Double.NaN);
+        return item;
+    }
+
+    /**
+     * One item of every kind and segment type, and one left out for being off the field.
+     */
+    private static Route sampleRoute() {
+        Route route = new Route(144, 144);
+        route.add(point(12, 24));
+
+        RouteItem line = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        line.setSegmentType(HermiteSpline.SegmentType.LINE);
+        line.setSize(2);
+        line.set(0, 20, 30, 0, 40);
+        line.set(1, 80, 30, 0, 40);
+        route.add(line);
+
+        route.add(point(200, 24));
+
+        RouteItem cubic = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        cubic.setSize(3);
+        cubic.set(0, 80, 40, 90, 40);
+        cubic.set(1, 100, 80, 0, 25.5);
+        cubic.set(2, 120, 40, -90, 40);
+        route.add(cubic);
+
+        RouteItem quintic = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        quintic.setSegmentType(HermiteSpline.SegmentType.QUINTIC);
+        quintic.setSize(2);
+        quintic.set(0, 120, 20, 180, 10);
+        quintic.set(1, 10, 130, 270, 10);
+        route.add(quintic);
+        return route;
+    }
+
+    private static String export(CppHeaderExporter exporter, Route route) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        exporter.export(Channels.newChannel(bytes), route);
+        return bytes.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static String golden(String name) throws IOException {
+        try (InputStream in = CppHeaderExporterTest.class.getResourceAsStream(name)) {
+            assertNotNull(in, name);
+            return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + part.length()))
+            count++;
+        return count;
+    }
+
+    @Test
+    void routeMatchesGoldenHeader() throws IOException {
+        assertEquals(golden("route.h"), export(new CppHeaderExporter("route"), sampleRoute()));
+    }
+
+    @Test
+    void emptyRouteMatchesGoldenHeader() throws IOException {
+        CppHeaderExporter exporter = new CppHeaderExporter("empty");
+        String expected = golden("empty.h");
+        assertEquals(expected, export(exporter, new Route(144, 144)));
+
+        // A route of only items that are left out is the same, but for the comments saying so
+        Route invalid = new Route(144, 144);
+        invalid.add(point(200, 24));
+        RouteItem lone = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        lone.setSize(1);
+        lone.set(0, 20, 30, 0, 40);
+        invalid.add(lone);
+        assertEquals(expected, export(exporter, invalid).replaceAll("// Item \\d: left out.*\n\n", ""));
+    }
+
+    @Test
+    void fileMatchesChannelAndIsReplaced() throws IOException {
+        CppHeaderExporter exporter = new CppHeaderExporter("route");
+        Path file = directory.resolve("route" + CppHeaderExporter.EXTENSION);
+        Files.writeString(file, "x".repeat(100_000));
+        exporter.export(file, sampleRoute());
+        assertEquals(golden("route.h"), Files.readString(file, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void sampleTablesStreamEverySample() throws IOException {
+        // Far more samples than fit in the buffer at once
+        CppHeaderExporter exporter = new CppHeaderExporter("samples", RobotLimits.DEFAULT, 0.01);
+        String header = export(exporter, sampleRoute());
+        assertTrue(exporter.getDriveTime() > 0);
+        assertTrue(header.length() > 64 * 1024);
+        assertTrue(header.endsWith("} // namespace samples\n"));
+        assertEquals(3, count(header, "_samples[] = {"));
+        assertEquals(3, count(header, "_samples) / sizeof(Sample), nullptr, 0},"));
+
+        exporter.setCompression(0.05, 0.5);
+        String packed = export(exporter, sampleRoute());
+        assertEquals(1, count(packed, "class PackedReader {"));
+        assertEquals(3, count(packed, "_packed[] = {"));
+        assertTrue(packed.length() < header.length());
+    }
+
+    @Test
+    void identifiers() {
+        assertEquals("my_route_2", CppHeaderExporter.toIdentifier("my route-2"));
+        assertEquals("_2route", CppHeaderExporter.toIdentifier("2route"));
+        assertEquals("_", CppHeaderExporter.toIdentifier(""));
+        assertThrows(IllegalArgumentException.class, () -> new CppHeaderExporter("2route"));
+    }
+}
@@ -0,0 +1,173 @@
+package edu.rit.vexu.pathcreator.io;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RouteFileTest {
+
+    @TempDir
+    Path directory;
+
+    private static Route sampleRoute() {
+        Route route = new Route(144, 144);
+        RouteItem point = new RouteItem(RouteItem.Kind.POINT, 144, 144);
+        point.setSize(1);
+        point.set(0, 12, 24, Double.NaN, Double.NaN);
+        route.add(point);
+
+        RouteItem cubic = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        cubic.setSize(3);
+        cubic.set(0, 20, 30, 0, 40);
+        cubic.set(1, 60, 70, 90, 25.5);
+        cubic.set(2, 100, 40, -45, Double.NaN);
+        route.add(cubic);
+
+        RouteItem quintic = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        quintic.setSegmentType(HermiteSpline.SegmentType.QUINTIC);
+        quintic.setSize(2);
+        quintic.set(0, 100, 40, 180, 10);
+        quintic.set(1, 10, 130, 270, 10);
+        route.add(quintic);
+        return route;
+    }
+
+    private Path write(Route route, String fieldImagePath) throws IOException {
+        Path file = directory.resolve("route" + RouteFile.EXTENSION);
+        RouteFile.write(file, route, fieldImagePath);
+        return file;
+    }
+
+    private Path writeBytes(byte[] data) throws IOException {
+        Path file = directory.resolve("corrupt" + RouteFile.EXTENSION);
+        Files.write(file, data);
+        return file;
+    }
+
+    @Test
+    void writtenRouteReadsBackTheSame() throws IOException {
+        Route route = sampleRoute();
+        Path file = write(route, "fields/skills.png");
+
+        try (RouteFile routeFile = RouteFile.open(file)) {
+            assertEquals(RouteFile.VERSION, routeFile.getVersion());
+            assertEquals("fields/skills.png", routeFile.getFieldImagePath());
+            assertEquals(144, routeFile.getFieldWidth());
+            assertEquals(144, routeFile.getFieldHeight());
+            assertEquals(route.size(), routeFile.getItemCount());
+
+            Route read = routeFile.readRoute();
+            assertEquals(route.size(), read.size());
+            for (int i = 0; i < route.size(); i++) {
+                RouteItem expected = route.get(i), actual = read.get(i);
+                assertEquals(expected.getKind(), actual.getKind());
+                assertEquals(expected.getSegmentType(), actual.getSegmentType());
+                assertEquals(expected.size(), actual.size());
+                for (int j = 0; j < expected.size(); j++) {
+                    assertEquals(expected.getX(j), actual.getX(j));
+                    assertEquals(expected.getY(j), actual.getY(j));
+                    assertEquals(expected.isValid(j), actual.isValid(j));
+                    if (expected.getKind() == RouteItem.Kind.PATH) {
+                        assertEquals(expected.getAngle(j), actual.getAngle(j));
+                        assertEquals(expected.getMag(j), actual.getMag(j));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void emptyRouteWithDefaultImageReadsBack() throws IOException {
+        Path file = write(new Route(100, 50), null);
+
+        try (RouteFile routeFile = RouteFile.open(file)) {
+            assertEquals("", routeFile.getFieldImagePath());
+            assertEquals(0, routeFile.getItemCount());
+            assertEquals(100, routeFile.getFieldWidth());
+            assertEquals(50, routeFile.getFieldHeight());
+        }
+    }
+
+    @Test
+    void truncatedFilesAreRejected() throws IOException {
+        byte[] data = Files.readAllBytes(write(sampleRoute(), "field.png"));
+        for (int length : new int[] {0, 4, RouteFile.HEADER_SIZE - 1, RouteFile.HEADER_SIZE + 4, data.length - 1}) {
+            Path file = writeBytes(Arrays.copyOf(data, length));
+            assertThrows(IOException.class, () -> RouteFile.read(file), "cut to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void corruptHeadersAreRejected() throws IOException {
+        byte[] data = Files.readAllBytes(write(sampleRoute(), "field.png"));
+
+        ByteBuffer magic = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 0x12345678);
+        ByteBuffer version = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort(4, (short) (RouteFile.VERSION + 1));
+        ByteBuffer items = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN).putInt(24, -1);
+        // Padding a length this close to the largest int would overflow
+        ByteBuffer hugePath = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(28, Integer.MAX_VALUE);
+        ByteBuffer longPath = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(28, data.length);
+        for (ByteBuffer corrupt : new ByteBuffer[] {magic, version, items, hugePath, longPath}) {
+            Path file = writeBytes(corrupt.array());
+            assertThrows(IOException.class, () -> RouteFile.read(file));
+        }
+    }
+
+    @Test
+    void corruptItemRecordsAreRejected() throws IOException {
+        byte[] data = Files.readAllBytes(write(sampleRoute(), null));
+        int record = RouteFile.HEADER_SIZE + RouteFile.ITEM_RECORD_SIZE;
+
+        ByteBuffer kind = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN).put(record, (byte) 7);
+        ByteBuffer type = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN).put(record + 1, (byte) 0x80);
+        ByteBuffer count = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN).putInt(record + 4, 1000);
+        ByteBuffer offset = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(record + 8, Long.MAX_VALUE);
+        for (ByteBuffer corrupt : new ByteBuffer[] {kind, type, count, offset}) {
+            Path file = writeBytes(corrupt.array());
+            assertThrows(IOException.class, () -> RouteFile.read(file));
+        }
+    }
+
+    @Test
+    void savingKeepsFilePermissions() throws IOException {
+        assumeTrue(Files.getFileAttributeView(directory, PosixFileAttributeView.class) != null);
+
+        // A new file gets the same permissions as any other file created here
+        Path file = write(sampleRoute(), null);
+        Path plain = Files.createFile(directory.resolve("plain"));
+        assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(file));
+
+        // Overwriting keeps the permissions the file had
+        for (String mode : new String[] {"rw-r-----", "rw-rw-r--"}) {
+            Set<PosixFilePermission> permissions = PosixFilePermissions.fromString(mode);
+            Files.setPosixFilePermissions(file, permissions);
+            write(sampleRoute(), "field.png");
+            assertEquals(permissions, Files.getPosixFilePermissions(file), mode);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+}
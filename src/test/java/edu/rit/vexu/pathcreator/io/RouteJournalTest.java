@@ -0,0 +1,156 @@
+package edu.rit.vexu.pathcreator.io;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private static RouteItem path(double x, double y) {
+        RouteItem item = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        item.setSize(2);
+        item.set(0, x, y, 0, 30);
+        item.set(1, x + 40, y + 20, 90, 25);
+        return item;
+    }
+
+    private static void assertSameRoute(Route expected, Route actual) {
+        assertEquals(expected.getFieldWidth(), actual.getFieldWidth());
+        assertEquals(expected.getFieldHeight(), actual.getFieldHeight());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            RouteItem e = expected.get(i), a = actual.get(i);
+            assertEquals(e.getKind(), a.getKind(), "item " + i);
+            assertEquals(e.getSegmentType(), a.getSegmentType(), "item " + i);
+            assertEquals(e.size(), a.size(), "item " + i);
+            for (int j = 0; j < e.size(); j++) {
+                assertEquals(e.getX(j), a.getX(j), "item " + i + ", waypoint " + j);
+                assertEquals(e.getY(j), a.getY(j), "item " + i + ", waypoint " + j);
+                assertEquals(e.getAngle(j), a.getAngle(j), "item " + i + ", waypoint " + j);
+                assertEquals(e.getMag(j), a.getMag(j), "item " + i + ", waypoint " + j);
+            }
+        }
+    }
+
+    // A route edited every way the journal records, after being snapshotted with two items
+    private Route editedRoute() throws IOException {
+        Route route = new Route(144, 144);
+        route.add(path(10, 10));
+        RouteItem point = new RouteItem(RouteItem.Kind.POINT, 144, 144);
+        point.setSize(1);
+        point.set(0, 70, 70, Double.NaN, Double.NaN);
+        route.add(point);
+
+        try (RouteJournal journal = RouteJournal.start(directory, route, () -> "field.png")) {
+            route.add(path(50, 90));
+            route.get(0).set(1, 80, 40, 45, 60);
+            route.get(2).setSegmentType(HermiteSpline.SegmentType.QUINTIC);
+            route.get(2).setSize(3);
+            route.get(2).set(2, 120, 130, -30, 15);
+            route.move(2, 0);
+            route.remove(point);
+            route.add(1, path(5, 5));
+            route.setFieldSize(144, 120);
+        }
+        return route;
+    }
+
+    @Test
+    void journalReplaysOntoTheSnapshot() throws IOException {
+        Route route = editedRoute();
+
+        RouteJournal.Recovery recovery = RouteJournal.recover(directory);
+        assertNotNull(recovery);
+        assertEquals("field.png", recovery.getFieldImagePath());
+        assertTrue(recovery.getReplayedCount() > 0);
+        assertSameRoute(route, recovery.getRoute());
+
+        RouteJournal.delete(directory);
+        assertNull(RouteJournal.recover(directory));
+    }
+
+    @Test
+    void tornFinalRecordIsDropped() throws IOException {
+        Route route = new Route(144, 144);
+        route.add(path(10, 10));
+        try (RouteJournal journal = RouteJournal.start(directory, route, () -> null)) {
+            route.get(0).set(1, 80, 40, 45, 60);
+            route.get(0).set(1, 90, 50, 30, 20);
+        }
+        Path file = directory.resolve(RouteJournal.JOURNAL_FILE);
+        byte[] whole = Files.readAllBytes(file);
+        int replayed = RouteJournal.recover(directory).getReplayedCount();
+        assertEquals(0, (whole.length - RouteJournal.HEADER_SIZE) % RouteJournal.RECORD_SIZE);
+
+        // Cut into the last record, or flip one of its bytes, and recovery stops at the edit before it
+        byte[] torn = Arrays.copyOf(whole, whole.length - 5);
+        byte[] corrupt = whole.clone();
+        corrupt[whole.length - 3] ^= 1;
+        for (byte[] data : new byte[][] {torn, corrupt}) {
+            Files.write(file, data);
+            RouteJournal.Recovery recovery = RouteJournal.recover(directory);
+            assertEquals(replayed - 1, recovery.getReplayedCount());
+            RouteItem item = recovery.getRoute().get(0);
+            assertEquals(80, item.getX(1));
+            assertEquals(40, item.getY(1));
+        }
+    }
+
+    @Test
+    void journalForAnotherSnapshotIsIgnored() throws IOException {
+        editedRoute();
+        // Replace the snapshot, as if a crash came between writing it and the journal that goes with it
+        Route other = new Route(144, 144);
+        other.add(path(30, 30));
+        RouteFile.write(directory.resolve(RouteJournal.SNAPSHOT_FILE), other, null);
+
+        RouteJournal.Recovery recovery = RouteJournal.recover(directory);
+        assertEquals(0, recovery.getReplayedCount());
+        assertSameRoute(other, recovery.getRoute());
+    }
+
+    @Test
+    void failedWriteStartsOverFromASnapshot() throws IOException, InterruptedException {
+        Route route = new Route(144, 144);
+        route.add(path(10, 10));
+        CountDownLatch failed = new CountDownLatch(1);
+        try (RouteJournal journal = RouteJournal.start(directory, route, () -> null)) {
+            journal.setFailureHandler(message -> failed.countDown());
+            route.get(0).set(0, 20, 20, 0, 30);
+
+            // A directory in the journal's place, once the first one is written, makes replacing it fail
+            Path file = directory.resolve(RouteJournal.JOURNAL_FILE);
+            for (int i = 0; i < 500 && !Files.isRegularFile(file); i++)
+                Thread.sleep(10);
+            Files.delete(file);
+            Files.createFile(Files.createDirectory(file).resolve("blocker"));
+            journal.checkpoint();
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+
+            Files.delete(file.resolve("blocker"));
+            Files.delete(file);
+            route.get(0).set(1, 60, 70, 45, 35);
+            route.add(path(90, 90));
+        }
+
+        RouteJournal.Recovery recovery = RouteJournal.recover(directory);
+        assertSameRoute(route, recovery.getRoute());
+    }
+}
@@ -0,0 +1,141 @@
+package edu.rit.vexu.pathcreator.model;
+
+import edu.rit.vexu.pathcreator.geometry.CurveIntersector;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrossingIndexTest {
+
+    private static final double TOLERANCE = 10 * CurveIntersector.FLATNESS;
+
+    /**
+     * A path through waypoints given as x, y pairs, with Catmull-Rom tangents, so it's straight through waypoints
+     * in a line.
+     */
+    private static RouteItem path(HermiteSpline.SegmentType type, double... xy) {
+        RouteItem item = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        item.setSegmentType(type);
+        int n = xy.length / 2;
+        item.setSize(n);
+        for (int i = 0; i < n; i++) {
+            int from = Math.max(i - 1, 0), to = Math.min(i + 1, n - 1);
+            double dx = (xy[2 * to] - xy[2 * from]) / (to - from);
+            double dy = (xy[2 * to + 1] - xy[2 * from + 1]) / (to - from);
+            item.set(i, xy[2 * i], xy[2 * i + 1], Math.toDegrees(Math.atan2(dy, dx)), Math.hypot(dx, dy));
+        }
+        return item;
+    }
+
+    private static void assertCrossing(CrossingIndex.Crossing crossing, double x, double y) {
+        assertEquals(x, crossing.getX(), TOLERANCE);
+        assertEquals(y, crossing.getY(), TOLERANCE);
+    }
+
+    @Test
+    void crossingPathsAreFound() {
+        Route route = new Route(144, 144);
+        RouteItem a = path(HermiteSpline.SegmentType.CUBIC, 10, 10, 35, 35, 110, 110);
+        RouteItem b = path(HermiteSpline.SegmentType.CUBIC, 10, 110, 110, 10);
+        route.add(a);
+        route.add(b);
+        CrossingIndex index = new CrossingIndex(route);
+
+        // The leg from (110, 110) to (10, 110) only meets the paths at their ends
+        List<CrossingIndex.Crossing> crossings = index.findCrossings();
+        assertEquals(1, crossings.size());
+        CrossingIndex.Crossing crossing = index.findCrossings(b, a).get(0);
+        assertSame(b, crossing.getFirstItem());
+        assertSame(a, crossing.getSecondItem());
+        assertEquals(0, crossing.getFirstSegment());
+        assertEquals(0.5, crossing.getFirstT(), TOLERANCE);
+        assertEquals(1, crossing.getSecondSegment());
+        assertCrossing(crossing, 60, 60);
+
+        // Moving a waypoint along the line leaves the crossing where it was
+        a.set(1, 40, 40, 45, Math.hypot(70, 70) / 2);
+        crossings = index.findCrossings();
+        assertEquals(1, crossings.size());
+        assertCrossing(crossings.get(0), 60, 60);
+
+        // A third path through both, after the leg into it
+        RouteItem c = path(HermiteSpline.SegmentType.LINE, 30, 5, 30, 130);
+        route.add(c);
+        assertEquals(4, index.findCrossings().size());
+        // The leg leaving a belongs to a
+        List<CrossingIndex.Crossing> withA = index.findCrossings(c, a);
+        withA.sort((p, q) -> Double.compare(p.getY(), q.getY()));
+        assertEquals(2, withA.size());
+        assertCrossing(withA.get(0), 30, 30);
+        assertEquals(0, withA.get(0).getSecondSegment());
+        assertCrossing(withA.get(1), 30, 110);
+        assertEquals(CrossingIndex.LEG, withA.get(1).getSecondSegment());
+        assertEquals(0.8, withA.get(1).getSecondT(), TOLERANCE);
+        List<CrossingIndex.Crossing> withB = index.findCrossings(c, b);
+        assertEquals(1, withB.size());
+        assertCrossing(withB.get(0), 30, 90);
+    }
+
+    @Test
+    void sharedEndsAreNotCrossings() {
+        // Zigzags: every segment and leg only meets its neighbours at their shared ends
+        for (HermiteSpline.SegmentType type : HermiteSpline.SegmentType.values()) {
+            Route route = new Route(144, 144);
+            route.add(path(type, 10, 10, 40, 60, 70, 10, 100, 60, 130, 10));
+            RouteItem point = new RouteItem(RouteItem.Kind.POINT, 144, 144);
+            point.setSize(1);
+            point.set(0, 130, 100, Double.NaN, Double.NaN);
+            route.add(point);
+            route.add(path(type, 100, 130, 70, 100, 40, 130));
+            CrossingIndex index = new CrossingIndex(route);
+            assertTrue(index.findCrossings().isEmpty(), type.toString());
+        }
+    }
+
+    @Test
+    void pathCrossingItselfIsFound() {
+        Route route = new Route(144, 144);
+        RouteItem loop = path(HermiteSpline.SegmentType.LINE, 10, 50, 110, 50, 60, 100, 60, 10);
+        route.add(loop);
+        CrossingIndex index = new CrossingIndex(route);
+
+        List<CrossingIndex.Crossing> crossings = index.findCrossings(loop, loop);
+        assertEquals(1, crossings.size());
+        CrossingIndex.Crossing crossing = crossings.get(0);
+        assertCrossing(crossing, 60, 50);
+        List<Integer> segments = new ArrayList<>(List.of(crossing.getFirstSegment(), crossing.getSecondSegment()));
+        segments.sort(null);
+        assertEquals(List.of(0, 2), segments);
+
+        // Pulling the last waypoint back above the first segment undoes the crossing, and putting it back redoes it
+        loop.set(3, 60, 60, -90, 40);
+        assertTrue(index.findCrossings().isEmpty());
+        loop.set(3, 60, 10, -90, 90);
+        assertEquals(1, index.findCrossings().size());
+    }
+
+    @Test
+    void routesCrossEachOther() {
+        Route ours = new Route(144, 144), theirs = new Route(144, 144);
+        ours.add(path(HermiteSpline.SegmentType.QUINTIC, 10, 70, 70, 70, 130, 70));
+        theirs.add(path(HermiteSpline.SegmentType.LINE, 40, 10, 40, 130));
+        theirs.add(path(HermiteSpline.SegmentType.LINE, 100, 130, 100, 10));
+        CrossingIndex ourIndex = new CrossingIndex(ours), theirIndex = new CrossingIndex(theirs);
+
+        List<CrossingIndex.Crossing> crossings = ourIndex.findCrossings(theirIndex);
+        crossings.sort((p, q) -> Double.compare(p.getX(), q.getX()));
+        // Their leg from (40, 130) to (100, 130) stays clear of our path. Both crossings are where one of the 8
+        // pieces of a quintic segment hands over to the next, and are reported once.
+        assertEquals(2, crossings.size());
+        assertCrossing(crossings.get(0), 40, 70);
+        assertCrossing(crossings.get(1), 100, 70);
+        assertSame(ours.get(0), crossings.get(0).getFirstItem());
+        assertSame(theirs.get(1), crossings.get(1).getSecondItem());
+    }
+}
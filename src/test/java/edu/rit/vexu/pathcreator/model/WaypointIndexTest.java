@@ -0,0 +1,92 @@
+package edu.rit.vexu.pathcreator.model;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaypointIndexTest {
+
+    private static final double EPSILON = 1e-9;
+
+    private static RouteItem path(HermiteSpline.SegmentType type) {
+        RouteItem item = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        item.setSegmentType(type);
+        item.setSize(3);
+        item.set(0, 20, 20, 30, 60);
+        item.set(1, 70, 90, -10, 45);
+        item.set(2, 120, 40, -80, 75);
+        return item;
+    }
+
+    private static HermiteSpline spline(RouteItem item) {
+        HermiteSpline spline = new HermiteSpline();
+        for (int i = 0; i < item.size(); i++)
+            spline.addKnot(item.getX(i), item.getY(i), Math.toRadians(item.getAngle(i)), item.getMag(i));
+        for (int seg = 0; seg < spline.getSegmentCount(); seg++)
+            spline.setSegmentType(seg, item.getSegmentType());
+        return spline;
+    }
+
+    @Test
+    void handlesAreTheBezierControlPoints() {
+        for (HermiteSpline.SegmentType type : new HermiteSpline.SegmentType[] {
+                HermiteSpline.SegmentType.CUBIC, HermiteSpline.SegmentType.QUINTIC}) {
+            RouteItem item = path(type);
+            HermiteSpline spline = spline(item);
+            double[] velocity = new double[2], control = new double[8];
+            for (int i = 0; i < item.size(); i++) {
+                // A degree n Bezier curve starts at n times the step to its first control point
+                int seg = Math.min(i, spline.getSegmentCount() - 1);
+                spline.derivative(seg, i == seg ? 0 : 1, velocity);
+                double degree = type.getDegree();
+                String message = type + " waypoint " + i;
+                assertEquals(item.getX(i) + velocity[0] / degree, WaypointIndex.tangentX(item, i), EPSILON, message);
+                assertEquals(item.getY(i) + velocity[1] / degree, WaypointIndex.tangentY(item, i), EPSILON, message);
+
+                // Dragging a handle to where it is keeps the magnitude
+                double dx = WaypointIndex.tangentX(item, i) - item.getX(i);
+                double dy = WaypointIndex.tangentY(item, i) - item.getY(i);
+                assertEquals(item.getMag(i), WaypointIndex.tangentMag(item, dx, dy), EPSILON, message);
+            }
+
+            // For a cubic, those are the control points the editor draws
+            if (type == HermiteSpline.SegmentType.CUBIC) {
+                spline.getControlPoints(0, 0, 1, control);
+                assertEquals(control[2], WaypointIndex.tangentX(item, 0), EPSILON);
+                assertEquals(control[3], WaypointIndex.tangentY(item, 0), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void changingTheSegmentTypeMovesTheHandles() {
+        Route route = new Route(144, 144);
+        RouteItem item = path(HermiteSpline.SegmentType.CUBIC);
+        route.add(item);
+        WaypointIndex index = new WaypointIndex(route, 10);
+        assertEquals(6, index.size());
+
+        int handle = index.nearest(20 + 20 * Math.cos(Math.toRadians(30)), 20 + 20 * Math.sin(Math.toRadians(30)), 0.1);
+        assertTrue(index.isTangent(handle));
+
+        // A fifth of the magnitude out, rather than a third
+        item.setSegmentType(HermiteSpline.SegmentType.QUINTIC);
+        assertEquals(WaypointIndex.NONE,
+                index.nearest(20 + 20 * Math.cos(Math.toRadians(30)), 20 + 20 * Math.sin(Math.toRadians(30)), 0.1));
+        handle = index.nearest(20 + 12 * Math.cos(Math.toRadians(30)), 20 + 12 * Math.sin(Math.toRadians(30)), 0.1);
+        assertTrue(index.isTangent(handle));
+        assertEquals(0, index.getWaypoint(handle));
+
+        // Lines have no tangent handles, until they're curves again
+        item.setSegmentType(HermiteSpline.SegmentType.LINE);
+        assertFalse(WaypointIndex.hasTangentHandles(item));
+        assertEquals(3, index.size());
+        item.set(1, 70, 80, -10, 45);
+        assertEquals(3, index.size());
+        item.setSegmentType(HermiteSpline.SegmentType.CUBIC);
+        assertEquals(6, index.size());
+    }
+}
@@ -0,0 +1,72 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import edu.rit.vexu.pathcreator.geometry.ArcLengthTable;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedTrajectoryTest {
+
+    private static TrajectoryCompressor compressorFor(double positionTolerance, double headingTolerance) {
+        HermiteSpline spline = new HermiteSpline();
+        spline.addKnot(10, 10, 0, 40);
+        spline.addKnot(50, 40, Math.PI / 2, 20);
+        spline.addKnot(20, 80, Math.PI, 60);
+        spline.addKnot(90, 90, 0, 10);
+        TrajectoryCompressor compressor = new TrajectoryCompressor(positionTolerance, headingTolerance);
+        new TrajectoryGenerator().generate(new ArcLengthTable(spline), RobotLimits.DEFAULT, compressor);
+        return compressor;
+    }
+
+    @Test
+    void decodeGivesBackExactlyTheEncodedSamples() {
+        CompressedTrajectory packed = compressorFor(0.1, 1).compress();
+        byte[] data = packed.getData();
+
+        CompressedTrajectory decoded = CompressedTrajectory.decode(data);
+
+        assertEquals(packed, decoded);
+        assertArrayEquals(data, decoded.getData());
+        assertEquals(packed.getSampleCount(), decoded.getSampleCount());
+        for (int i = 0; i < packed.getSampleCount(); i++) {
+            assertEquals(packed.getTime(i), decoded.getTime(i));
+            assertEquals(packed.getX(i), decoded.getX(i));
+            assertEquals(packed.getY(i), decoded.getY(i));
+            assertEquals(packed.getHeading(i), decoded.getHeading(i));
+            assertEquals(packed.getVelocity(i), decoded.getVelocity(i));
+        }
+    }
+
+    @Test
+    void compressedTrajectoryStaysWithinTolerance() {
+        for (double tolerance : new double[] {1, 0.1, 0.01, 0.001}) {
+            TrajectoryCompressor compressor = compressorFor(tolerance, tolerance);
+            CompressedTrajectory packed = compressor.compress();
+            assertTrue(packed.getSampleCount() < compressor.getSampleCount());
+            assertTrue(packed.getMaxPositionError() <= tolerance, "position within " + tolerance);
+            assertTrue(packed.getMaxHeadingError() <= tolerance, "heading within " + tolerance);
+        }
+    }
+
+    @Test
+    void unreachableToleranceThrows() {
+        // Rounding times to a microsecond alone moves the heading more than this in the turns
+        TrajectoryCompressor compressor = compressorFor(1e-6, 1e-6);
+        assertThrows(IllegalStateException.class, compressor::compress);
+    }
+
+    @Test
+    void truncatedDataIsRejected() {
+        byte[] data = compressorFor(0.1, 1).compress().getData();
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressedTrajectory.decode(Arrays.copyOf(data, data.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressedTrajectory.decode(Arrays.copyOf(data, data.length + 1)));
+    }
+}
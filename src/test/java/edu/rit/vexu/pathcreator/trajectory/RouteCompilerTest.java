@@ -0,0 +1,149 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import edu.rit.vexu.pathcreator.model.Route;
+import edu.rit.vexu.pathcreator.model.RouteItem;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteCompilerTest {
+
+    private static final double EPSILON = 1e-9;
+
+    private static RouteItem point(double x, double y) {
+        RouteItem item = new RouteItem(RouteItem.Kind.POINT, 144, 144);
+        item.setSize(1);
+        item.set(0, x, y, Double.NaN, Double.NaN);
+        return item;
+    }
+
+    /**
+     * A point, a path, a point and a path, turning at every junction so each of the five pieces is its own run:
+     * the leg into the first path, the path, the two legs through the second point, and the last path.
+     */
+    private static Route route() {
+        Route route = new Route(144, 144);
+        route.add(point(10, 10));
+        RouteItem arch = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        arch.setSize(3);
+        arch.set(0, 30, 10, 90, 40);
+        arch.set(1, 60, 40, 0, 40);
+        arch.set(2, 90, 10, -90, 40);
+        route.add(arch);
+        route.add(point(110, 40));
+        RouteItem last = new RouteItem(RouteItem.Kind.PATH, 144, 144);
+        last.setSize(2);
+        last.set(0, 110, 70, 45, 30);
+        last.set(1, 130, 100, 60, 30);
+        route.add(last);
+        return route;
+    }
+
+    private static void assertReused(RouteCompiler.CompiledRoute compiled) {
+        assertEquals(0, compiled.getSampledPieceCount());
+        assertEquals(0, compiled.getProfiledRunCount());
+    }
+
+    private static void assertSameTrajectory(RouteCompiler.CompiledRoute expected,
+                                             RouteCompiler.CompiledRoute actual) {
+        assertEquals(expected.getLength(), actual.getLength(), EPSILON);
+        assertEquals(expected.getDriveTime(), actual.getDriveTime(), EPSILON);
+        assertEquals(expected.getSampleCount(), actual.getSampleCount());
+        assertEquals(expected.getStopCount(), actual.getStopCount());
+    }
+
+    @Test
+    void unchangedItemsAreReused() {
+        Route route = route();
+        RouteCompiler compiler = new RouteCompiler(RobotLimits.DEFAULT);
+
+        RouteCompiler.CompiledRoute first = compiler.compile(route);
+        assertTrue(first.isValid());
+        assertEquals(5, first.getSampledPieceCount());
+        assertEquals(5, first.getProfiledRunCount());
+        assertEquals(4, first.getJunctions().size());
+        assertEquals(4, first.getStopCount());
+
+        // The same route, a snapshot of it with the same ids, and a waypoint set to what it already was
+        RouteCompiler.CompiledRoute again = compiler.compile(route);
+        assertReused(again);
+        assertSameTrajectory(first, again);
+        again = compiler.compile(route.snapshot());
+        assertReused(again);
+        assertSameTrajectory(first, again);
+        RouteItem arch = route.get(1);
+        int version = arch.getVersion();
+        assertFalse(arch.set(1, 60, 40, 0, 40));
+        assertEquals(version, arch.getVersion());
+        assertReused(compiler.compile(route));
+    }
+
+    @Test
+    void editsRecompileOnlyWhatChanged() {
+        Route route = route();
+        RouteCompiler compiler = new RouteCompiler(RobotLimits.DEFAULT);
+        compiler.compile(route);
+        RouteItem arch = route.get(1);
+
+        // Inside a path, only that path
+        assertTrue(arch.set(1, 60, 50, 0, 40));
+        RouteCompiler.CompiledRoute compiled = compiler.compile(route);
+        assertEquals(1, compiled.getSampledPieceCount());
+        assertEquals(1, compiled.getProfiledRunCount());
+        assertSameTrajectory(new RouteCompiler(RobotLimits.DEFAULT).compile(route), compiled);
+
+        // The start of a path, also the leg into it
+        assertTrue(arch.set(0, 30, 20, 90, 40));
+        compiled = compiler.compile(route);
+        assertEquals(2, compiled.getSampledPieceCount());
+        assertEquals(2, compiled.getProfiledRunCount());
+        assertSameTrajectory(new RouteCompiler(RobotLimits.DEFAULT).compile(route), compiled);
+
+        // A point, both legs through it
+        assertTrue(route.get(2).set(0, 115, 40, Double.NaN, Double.NaN));
+        compiled = compiler.compile(route);
+        assertEquals(2, compiled.getSampledPieceCount());
+        assertEquals(2, compiled.getProfiledRunCount());
+        assertSameTrajectory(new RouteCompiler(RobotLimits.DEFAULT).compile(route), compiled);
+
+        // A copy of an item is a new item, even with the same waypoints
+        RouteItem last = route.get(3);
+        route.remove(last);
+        route.add(new RouteItem(last));
+        compiled = compiler.compile(route);
+        assertEquals(1, compiled.getSampledPieceCount());
+        assertEquals(1, compiled.getProfiledRunCount());
+    }
+
+    @Test
+    void cancelledCompileKeepsTheCache() {
+        Route route = route();
+        RouteCompiler compiler = new RouteCompiler(RobotLimits.DEFAULT);
+        RouteCompiler.CompiledRoute first = compiler.compile(route);
+
+        route.get(1).set(1, 60, 50, 0, 40);
+        assertNull(compiler.compile(route, () -> true));
+        route.get(1).set(1, 60, 40, 0, 40);
+        RouteCompiler.CompiledRoute compiled = compiler.compile(route);
+        assertNotNull(compiled);
+        // The waypoint is back where it was, but the path's version moved on
+        assertEquals(1, compiled.getSampledPieceCount());
+        assertSameTrajectory(first, compiled);
+    }
+
+    @Test
+    void invalidItemLeavesNoTrajectory() {
+        Route route = route();
+        route.get(3).set(1, 200, 100, 60, 30);
+        assertFalse(route.get(3).isValid());
+
+        RouteCompiler.CompiledRoute compiled = new RouteCompiler(RobotLimits.DEFAULT).compile(route);
+        assertFalse(compiled.isValid());
+        assertEquals(0, compiled.getSampleCount());
+        assertTrue(Double.isNaN(compiled.getLength()));
+    }
+}
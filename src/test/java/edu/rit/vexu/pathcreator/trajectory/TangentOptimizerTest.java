@@ -0,0 +1,51 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TangentOptimizerTest {
+
+    private static TangentOptimizer smoothest() {
+        return new TangentOptimizer(TangentOptimizer.Goal.SMOOTHEST, false, RobotLimits.DEFAULT, 144, 144);
+    }
+
+    @Test
+    void cuspIsTheSharpestTurn() {
+        // With no tangent at the middle waypoint, both segments stop dead there and can leave it any way at all
+        HermiteSpline path = new HermiteSpline();
+        path.addKnot(20, 20, 0, 40);
+        path.addKnot(60, 60, 0, 0);
+        path.addKnot(100, 20, 0, 40);
+        assertEquals(0, path.speed(0, 1));
+        assertEquals(0, path.curvature(0, 1));
+
+        // Scored without searching, the cusp outweighs any turn a path could make
+        TangentOptimizer optimizer = smoothest();
+        optimizer.optimize(path, ForkJoinPool.commonPool(), null, () -> true);
+        assertTrue(optimizer.getBestCost() > 1e300, "cost " + optimizer.getBestCost());
+
+        // The same path with a tangent there turns, but only so sharply
+        path.setKnot(1, 60, 60, 0, 40);
+        optimizer.optimize(path, ForkJoinPool.commonPool(), null, () -> true);
+        assertTrue(optimizer.getBestCost() < 1, "cost " + optimizer.getBestCost());
+    }
+
+    @Test
+    void pointLikeLineIsNotACusp() {
+        // A line whose ends are in the same place never moves, but never turns either
+        HermiteSpline path = new HermiteSpline();
+        path.addKnot(20, 20, 0, 30);
+        path.addKnot(60, 20, 0, 30);
+        path.addKnot(60, 20, 0, 30);
+        path.setSegmentType(1, HermiteSpline.SegmentType.LINE);
+
+        TangentOptimizer optimizer = smoothest();
+        optimizer.optimize(path, ForkJoinPool.commonPool(), null, () -> true);
+        assertEquals(0, optimizer.getBestCost(), 1e-12);
+    }
+}
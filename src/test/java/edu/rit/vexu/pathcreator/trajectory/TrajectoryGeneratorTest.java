@@ -0,0 +1,77 @@
+package edu.rit.vexu.pathcreator.trajectory;
+
+import edu.rit.vexu.pathcreator.geometry.ArcLengthTable;
+import edu.rit.vexu.pathcreator.geometry.HermiteSpline;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrajectoryGeneratorTest {
+
+    private static final double EPSILON = 1e-6;
+
+    /**
+     * A cubic path whose curvature jumps at every inner knot, so the wheels change speed there even when the
+     * center doesn't.
+     */
+    private static ArcLengthTable windingPath() {
+        HermiteSpline spline = new HermiteSpline();
+        spline.addKnot(10, 10, 0, 40);
+        spline.addKnot(50, 40, Math.PI / 2, 20);
+        spline.addKnot(20, 80, Math.PI, 60);
+        spline.addKnot(90, 90, 0, 10);
+        return new ArcLengthTable(spline);
+    }
+
+    @Test
+    void straightLineIsTrapezoidal() {
+        HermiteSpline spline = new HermiteSpline();
+        spline.addKnot(0, 0, 0, 100);
+        spline.addKnot(100, 0, 0, 100);
+        spline.setSegmentType(0, HermiteSpline.SegmentType.LINE);
+        RobotLimits limits = new RobotLimits(40, 20, 100);
+
+        double time = new TrajectoryGenerator(0.25).generate(new ArcLengthTable(spline), limits, null);
+
+        // 2 s up to speed over 40 in, 0.5 s cruising over 20 in, 2 s back down
+        assertEquals(4.5, time, 1e-3);
+    }
+
+    @Test
+    void wheelsStayWithinTheirLimits() {
+        DifferentialDrive drive = new DifferentialDrive(12, 60, 80);
+        RobotLimits limits = new RobotLimits(55, 70, 200);
+        double[] last = new double[3];
+        int[] count = {0};
+
+        double time = new TrajectoryGenerator().generate(windingPath(), limits, drive,
+                (t, s, x, y, heading, velocity, acceleration, curvature) -> {
+                    double left = velocity * drive.getLeftScale(curvature);
+                    double right = velocity * drive.getRightScale(curvature);
+                    assertTrue(Math.abs(left) <= 60 + EPSILON && Math.abs(right) <= 60 + EPSILON);
+                    assertTrue(velocity <= 55 + EPSILON);
+                    if (count[0] > 0 && t > last[0]) {
+                        double dt = t - last[0];
+                        assertTrue(Math.abs(left - last[1]) / dt <= 80 + EPSILON, "left wheel acceleration");
+                        assertTrue(Math.abs(right - last[2]) / dt <= 80 + EPSILON, "right wheel acceleration");
+                    }
+                    last[0] = t;
+                    last[1] = left;
+                    last[2] = right;
+                    count[0]++;
+                });
+
+        assertTrue(time > 0);
+        assertEquals(windingPath().getSampleCount(TrajectoryGenerator.DEFAULT_SPACING), count[0]);
+    }
+
+    @Test
+    void driveNeverSpeedsThePathUp() {
+        RobotLimits limits = new RobotLimits(55, 70, 200);
+        TrajectoryGenerator generator = new TrajectoryGenerator();
+        double free = generator.generate(windingPath(), limits, null);
+        double withDrive = generator.generate(windingPath(), limits, new DifferentialDrive(12, 60, 80), null);
+        assertTrue(withDrive >= free);
+    }
+}
@@ -0,0 +1,35 @@
+// Generated by VEX Path Creator for a 144 x 144 inch field. Do not edit.
+// Positions are in inches, times in seconds, and angles and headings in radians.
+#pragma once
+
+#include <cstddef>
+
+namespace empty {
+
+struct Point { float x, y; };
+struct Waypoint { float x, y, angle, mag; };
+// Position at t from 0 to 1: x = ((((x5 * t + x4) * t + x3) * t + x2) * t + x1) * t + x0,
+// and the same for y. Cubic segments and lines have zero for the higher powers.
+struct HermiteSegment { float x5, x4, x3, x2, x1, x0, y5, y4, y3, y2, y1, y0; };
+struct Sample { float time, x, y, heading, velocity; };
+
+enum class ItemKind { Point, Path };
+struct Item {
+    ItemKind kind;
+    const Point* point;
+    const Waypoint* waypoints;
+    const HermiteSegment* segments;
+    std::size_t waypoint_count;
+    const Sample* samples;
+    std::size_t sample_count;
+    const unsigned char* packed;
+    std::size_t packed_size;
+};
+
+// Every exported item, in driving order
+const Item route[] = {
+    {},
+};
+constexpr std::size_t item_count = 0;
+
+} // namespace empty
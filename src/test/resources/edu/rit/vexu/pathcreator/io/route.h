@@ -0,0 +1,72 @@
+// Generated by VEX Path Creator for a 144 x 144 inch field. Do not edit.
+// Positions are in inches, times in seconds, and angles and headings in radians.
+#pragma once
+
+#include <cstddef>
+
+namespace route {
+
+struct Point { float x, y; };
+struct Waypoint { float x, y, angle, mag; };
+// Position at t from 0 to 1: x = ((((x5 * t + x4) * t + x3) * t + x2) * t + x1) * t + x0,
+// and the same for y. Cubic segments and lines have zero for the higher powers.
+struct HermiteSegment { float x5, x4, x3, x2, x1, x0, y5, y4, y3, y2, y1, y0; };
+struct Sample { float time, x, y, heading, velocity; };
+
+enum class ItemKind { Point, Path };
+struct Item {
+    ItemKind kind;
+    const Point* point;
+    const Waypoint* waypoints;
+    const HermiteSegment* segments;
+    std::size_t waypoint_count;
+    const Sample* samples;
+    std::size_t sample_count;
+    const unsigned char* packed;
+    std::size_t packed_size;
+};
+
+// Item 0: point
+const Point item0_point = {12.0000f, 24.0000f};
+
+// Item 1: path, about 60 inches
+const Waypoint item1_waypoints[] = {
+    {20.0000f, 30.0000f, 0.0000f, 40.0000f},
+    {80.0000f, 30.0000f, 0.0000f, 40.0000f},
+};
+const HermiteSegment item1_segments[] = {
+    {0.0000f, 0.0000f, 0.0000f, 0.0000f, 60.0000f, 20.0000f, 0.0000f, 0.0000f, 0.0000f, 0.0000f, 0.0000f, 30.0000f},
+};
+
+// Item 2: left out, it has invalid waypoints
+
+// Item 3: path, about 94 inches
+const Waypoint item3_waypoints[] = {
+    {80.0000f, 40.0000f, 1.5708f, 40.0000f},
+    {100.0000f, 80.0000f, 0.0000f, 25.5000f},
+    {120.0000f, 40.0000f, -1.5708f, 40.0000f},
+};
+const HermiteSegment item3_segments[] = {
+    {0.0000f, 0.0000f, -14.5000f, 34.5000f, 0.0000f, 80.0000f, 0.0000f, 0.0000f, -40.0000f, 40.0000f, 40.0000f, 40.0000f},
+    {0.0000f, 0.0000f, -14.5000f, 9.0000f, 25.5000f, 100.0000f, 0.0000f, 0.0000f, 40.0000f, -80.0000f, 0.0000f, 80.0000f},
+};
+
+// Item 4: path, about 156 inches
+const Waypoint item4_waypoints[] = {
+    {120.0000f, 20.0000f, 3.1416f, 10.0000f},
+    {10.0000f, 130.0000f, 4.7124f, 10.0000f},
+};
+const HermiteSegment item4_segments[] = {
+    {0.0000f, 0.0000f, 210.0000f, -310.0000f, -10.0000f, 120.0000f, 0.0000f, 0.0000f, -230.0000f, 340.0000f, 0.0000f, 20.0000f},
+};
+
+// Every exported item, in driving order
+const Item route[] = {
+    {ItemKind::Point, &item0_point, nullptr, nullptr, 0, nullptr, 0, nullptr, 0},
+    {ItemKind::Path, nullptr, item1_waypoints, item1_segments, 2, nullptr, 0, nullptr, 0},
+    {ItemKind::Path, nullptr, item3_waypoints, item3_segments, 3, nullptr, 0, nullptr, 0},
+    {ItemKind::Path, nullptr, item4_waypoints, item4_segments, 2, nullptr, 0, nullptr, 0},
+};
+constexpr std::size_t item_count = 4;
+
+} // namespace route